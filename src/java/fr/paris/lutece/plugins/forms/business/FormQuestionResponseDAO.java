@@ -36,7 +36,8 @@ package fr.paris.lutece.plugins.forms.business;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -65,6 +66,8 @@ public final class FormQuestionResponseDAO implements IFormQuestionResponseDAO
     private static final String SQL_QUERY_SELECT_BY_RESPONSE_AND_STEP = SQL_QUERY_SELECTALL
             + " WHERE id_form_response = ? AND id_step = ? ORDER BY id_question_response ASC";
     private static final String SQL_QUERY_SELECT_BY_LIST_RESPONSE_STEP = SQL_QUERY_SELECTALL + " WHERE ";
+    private static final String SQL_QUERY_SELECT_BY_FORM_RESPONSE_IN = SQL_QUERY_SELECTALL + " WHERE id_form_response IN ( ";
+    private static final String SQL_QUERY_ORDER_BY_ID = " ) ORDER BY id_question_response ASC";
 
     private static final FormQuestionEntryResponseDAO _formQuestionEntryResponseDAO = new FormQuestionEntryResponseDAO( );
 
@@ -311,6 +314,37 @@ public final class FormQuestionResponseDAO implements IFormQuestionResponseDAO
         return list;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<FormQuestionResponse> selectFormQuestionResponseListByFormResponseList( List<Integer> listIdFormResponse, Plugin plugin )
+    {
+        List<FormQuestionResponse> list = new ArrayList<>( );
+        if ( listIdFormResponse.isEmpty( ) )
+        {
+            return list;
+        }
+
+        String query = SQL_QUERY_SELECT_BY_FORM_RESPONSE_IN + listIdFormResponse.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) )
+                + SQL_QUERY_ORDER_BY_ID;
+
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdFormResponse.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdFormResponse.get( i ) );
+            }
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                list.add( dataToObject( daoUtil ) );
+            }
+        }
+        return list;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -411,12 +445,13 @@ public final class FormQuestionResponseDAO implements IFormQuestionResponseDAO
             List<FormQuestionEntryResponse> listFormQuestionEntryResponse = _formQuestionEntryResponseDAO
                     .selectByFormQuestionResponseList( formQuestionResponsesList, plugin );
 
+            Map<Integer, List<Response>> mapResponseByQuestionResponse = listFormQuestionEntryResponse.stream( )
+                    .filter( entryResponse -> entryResponse._response != null ).collect( Collectors.groupingBy( entryResponse -> entryResponse._nIdQuestionResponse,
+                            Collectors.mapping( entryResponse -> entryResponse._response, Collectors.toList( ) ) ) );
+
             for ( FormQuestionResponse formQuestionResponse : formQuestionResponsesList )
             {
-                List<FormQuestionEntryResponse> entryResponseList = listFormQuestionEntryResponse.stream( )
-                        .filter( entry -> entry._nIdQuestionResponse == formQuestionResponse.getId( ) ).collect( Collectors.toList( ) );
-                formQuestionResponse.setEntryResponse( entryResponseList.stream( ).map( entryResponse -> entryResponse._response ).filter( Objects::nonNull )
-                        .collect( Collectors.toList( ) ) );
+                formQuestionResponse.setEntryResponse( mapResponseByQuestionResponse.getOrDefault( formQuestionResponse.getId( ), new ArrayList<>( ) ) );
             }
         }
     }
@@ -555,16 +590,21 @@ public final class FormQuestionResponseDAO implements IFormQuestionResponseDAO
                     listFormQuestionEntryResponse.add( dataToObjectWithoutResponse( daoUtil ) );
                 }
             }
+            if ( listFormQuestionEntryResponse.isEmpty( ) )
+            {
+                return listFormQuestionEntryResponse;
+            }
+
             ResponseFilter filter = new ResponseFilter( );
             filter.setListId( listFormQuestionEntryResponse.stream( ).map( entryReponse -> entryReponse._response.getIdResponse( ) ).distinct( )
                     .collect( Collectors.toList( ) ) );
 
-            List<Response> responseList = ResponseHome.getResponseList( filter );
+            Map<Integer, Response> mapResponse = ResponseHome.getResponseList( filter ).stream( )
+                    .collect( Collectors.toMap( Response::getIdResponse, Function.identity( ), ( r1, r2 ) -> r1 ) );
 
             for ( FormQuestionEntryResponse formQuestionEntryResponse : listFormQuestionEntryResponse )
             {
-                Integer responseId = formQuestionEntryResponse._response.getIdResponse( );
-                formQuestionEntryResponse._response = responseList.stream( ).filter( resp -> resp.getIdResponse( ) == responseId ).findFirst( ).orElse( null );
+                formQuestionEntryResponse._response = mapResponse.get( formQuestionEntryResponse._response.getIdResponse( ) );
             }
 
             return listFormQuestionEntryResponse;
@@ -209,6 +209,21 @@ public final class FormQuestionResponseHome
         return list;
     }
 
+    /**
+     * Load the data of all the formQuestionResponse objects of several form responses and returns them as a list<br />
+     * The entry responses are loaded, the questions are not
+     * 
+     * @param listIdFormResponse
+     *            The identifiers of the FormResponse
+     * @return the list which contains the data of all the formQuestionResponse objects
+     */
+    public static List<FormQuestionResponse> selectFormQuestionResponseListByListFormResponse( List<Integer> listIdFormResponse )
+    {
+        List<FormQuestionResponse> list = _dao.selectFormQuestionResponseListByFormResponseList( listIdFormResponse, _plugin );
+        _dao.completeListWithEntryResponses( list, _plugin );
+        return list;
+    }
+
     /**
      * Load the data of all the formQuestionResponse objects for saving and returns them as a list
      * 
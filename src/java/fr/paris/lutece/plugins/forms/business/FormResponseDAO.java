@@ -37,6 +37,7 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.util.AppException;
@@ -51,8 +52,12 @@ public final class FormResponseDAO implements IFormResponseDAO
     // Constants
     private static final String SQL_QUERY_SELECTALL = "SELECT id_response, id_form, guid, creation_date, update_date, from_save FROM forms_response";
     private static final String SQL_QUERY_SELECT_ID = "SELECT id_response FROM forms_response";
+    private static final String SQL_QUERY_SELECT_ID_AFTER = SQL_QUERY_SELECT_ID + " WHERE id_response > ? ORDER BY id_response ";
+    private static final String SQL_QUERY_SELECT_ID_AFTER_BY_FORMS = SQL_QUERY_SELECT_ID + " WHERE id_response > ? AND id_form IN ( ";
+    private static final String SQL_ORDER_BY_ID_RESPONSE = " ) ORDER BY id_response ";
     private static final String SQL_QUERY_SELECTALL_BY_ID_FORM = SQL_QUERY_SELECTALL + " WHERE id_form = ? ";
     private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECTALL + " WHERE id_response = ?";
+    private static final String SQL_QUERY_SELECT_IN = SQL_QUERY_SELECTALL + " WHERE id_response IN ( ";
     private static final String SQL_QUERY_INSERT = "INSERT INTO forms_response ( id_form, guid, creation_date, update_date, from_save ) VALUES ( ?, ?, ?, ?, ? ) ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM forms_response WHERE id_response = ? ";
     private static final String SQL_QUERY_DELETE_BY_FORM = "DELETE FROM forms_response WHERE id_form = ? ";
@@ -112,6 +117,37 @@ public final class FormResponseDAO implements IFormResponseDAO
         return formResponse;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<FormResponse> loadMultiple( List<Integer> listKeys, Plugin plugin )
+    {
+        List<FormResponse> formResponseList = new ArrayList<>( );
+        if ( listKeys.isEmpty( ) )
+        {
+            return formResponseList;
+        }
+
+        String query = SQL_QUERY_SELECT_IN + listKeys.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + " )";
+
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listKeys.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listKeys.get( i ) );
+            }
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                formResponseList.add( dataToObject( daoUtil ) );
+            }
+        }
+
+        return formResponseList;
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -190,6 +226,58 @@ public final class FormResponseDAO implements IFormResponseDAO
         return formResponseIdList;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Integer> selectFormResponsesIdAfter( int nIdFormResponseAfter, int nMaxIds, Plugin plugin )
+    {
+        List<Integer> formResponseIdList = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ID_AFTER, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdFormResponseAfter );
+            daoUtil.executeQuery( );
+
+            while ( formResponseIdList.size( ) < nMaxIds && daoUtil.next( ) )
+            {
+                formResponseIdList.add( daoUtil.getInt( 1 ) );
+            }
+        }
+
+        return formResponseIdList;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Integer> selectFormResponsesIdAfter( int nIdFormResponseAfter, int nMaxIds, List<Integer> listIdForm, Plugin plugin )
+    {
+        List<Integer> formResponseIdList = new ArrayList<>( );
+        if ( listIdForm.isEmpty( ) )
+        {
+            return formResponseIdList;
+        }
+
+        String query = SQL_QUERY_SELECT_ID_AFTER_BY_FORMS + listIdForm.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) ) + SQL_ORDER_BY_ID_RESPONSE;
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            daoUtil.setInt( 1, nIdFormResponseAfter );
+            for ( int i = 0; i < listIdForm.size( ); i++ )
+            {
+                daoUtil.setInt( i + 2, listIdForm.get( i ) );
+            }
+            daoUtil.executeQuery( );
+
+            while ( formResponseIdList.size( ) < nMaxIds && daoUtil.next( ) )
+            {
+                formResponseIdList.add( daoUtil.getInt( 1 ) );
+            }
+        }
+
+        return formResponseIdList;
+    }
+
     /**
      * {@inheritDoc }
      */
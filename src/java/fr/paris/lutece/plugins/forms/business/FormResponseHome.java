@@ -33,7 +33,12 @@
  */
 package fr.paris.lutece.plugins.forms.business;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import fr.paris.lutece.plugins.genericattributes.business.Entry;
@@ -133,63 +138,134 @@ public final class FormResponseHome
      * 
      * @param nKey
      *            The formResponse primary key
-     * @return an instance of FormResponse
+     * @return an instance of FormResponse, or null if it doesn't exist or is a backup
      */
     public static FormResponse findByPrimaryKeyForIndex( int nKey )
     {
+        List<FormResponse> listFormResponse = findByPrimaryKeysForIndex( Collections.singletonList( nKey ) );
+
+        return listFormResponse.isEmpty( ) ? null : listFormResponse.get( 0 );
+    }
+
+    /**
+     * Returns the formResponses whose identifiers are specified in parameter, without their steps. The backups are ignored.
+     * 
+     * @param listKeys
+     *            The formResponse primary keys
+     * @return the list of FormResponse
+     */
+    public static List<FormResponse> findByPrimaryKeysPartial( List<Integer> listKeys )
+    {
+        if ( listKeys.isEmpty( ) )
+        {
+            return new ArrayList<>( );
+        }
+
+        return _dao.loadMultiple( listKeys, _plugin ).stream( ).filter( formResponse -> !formResponse.isFromSave( ) ).collect( Collectors.toList( ) );
+    }
+
+    /**
+     * Returns the formResponses whose identifiers are specified in parameter, completed with their steps, question responses, questions, entries and fields.
+     * <br />
+     * The whole list is loaded with a constant number of queries, whatever its size. The backups are ignored.
+     * 
+     * @param listKeys
+     *            The formResponse primary keys
+     * @return the list of FormResponse
+     */
+    public static List<FormResponse> findByPrimaryKeysForIndex( List<Integer> listKeys )
+    {
+        if ( listKeys.isEmpty( ) )
+        {
+            return new ArrayList<>( );
+        }
+
         // FormResponse
-        FormResponse formResponse = _dao.load( nKey, _plugin );
-        if ( formResponse.isFromSave( ) )
+        List<FormResponse> listFormResponse = _dao.loadMultiple( listKeys, _plugin ).stream( ).filter( formResponse -> !formResponse.isFromSave( ) )
+                .collect( Collectors.toList( ) );
+        if ( listFormResponse.isEmpty( ) )
         {
-            return null;
+            return listFormResponse;
         }
+        List<Integer> listIdFormResponse = listFormResponse.stream( ).map( FormResponse::getId ).collect( Collectors.toList( ) );
 
         // FormResponseStep
-        List<FormResponseStep> formResponseStepList = FormResponseStepHome.findStepsByFormResponsePartial( formResponse.getId( ) );
-        formResponse.setSteps( formResponseStepList );
+        Map<Integer, List<FormResponseStep>> mapStepsByFormResponse = FormResponseStepHome.findStepsByFormResponseListPartial( listIdFormResponse ).stream( )
+                .collect( Collectors.groupingBy( FormResponseStep::getFormResponseId ) );
 
         // FormQuestionResponse
-        List<FormQuestionResponse> formQuestionResponseList = FormQuestionResponseHome
-                .selectFormQuestionResponseListByListFormResponseStep( formResponseStepList );
+        List<FormQuestionResponse> formQuestionResponseList = FormQuestionResponseHome.selectFormQuestionResponseListByListFormResponse( listIdFormResponse );
+
+        if ( !formQuestionResponseList.isEmpty( ) )
+        {
+            completeForIndex( formQuestionResponseList );
+        }
+
+        Map<Integer, Map<Integer, List<FormQuestionResponse>>> mapQuestionsByFormResponseAndStep = formQuestionResponseList.stream( )
+                .collect( Collectors.groupingBy( FormQuestionResponse::getIdFormResponse, Collectors.groupingBy( FormQuestionResponse::getIdStep ) ) );
+
+        // Populate FormResponse and FormResponseStep
+        for ( FormResponse formResponse : listFormResponse )
+        {
+            List<FormResponseStep> formResponseStepList = mapStepsByFormResponse.getOrDefault( formResponse.getId( ), new ArrayList<>( ) );
+            Map<Integer, List<FormQuestionResponse>> mapQuestionsByStep = mapQuestionsByFormResponseAndStep.getOrDefault( formResponse.getId( ),
+                    Collections.emptyMap( ) );
 
+            for ( FormResponseStep formResponseStep : formResponseStepList )
+            {
+                formResponseStep.setQuestions( mapQuestionsByStep.getOrDefault( formResponseStep.getStep( ).getId( ), new ArrayList<>( ) ) );
+            }
+            formResponse.setSteps( formResponseStepList );
+        }
+
+        return listFormResponse;
+    }
+
+    /**
+     * Completes the given form question responses with their questions, entries and fields, in bulk
+     * 
+     * @param formQuestionResponseList
+     *            the form question responses
+     */
+    private static void completeForIndex( List<FormQuestionResponse> formQuestionResponseList )
+    {
         // Questions
-        List<Question> questionList = QuestionHome.findByPrimaryKeyList( formQuestionResponseList.stream( ).map( FormQuestionResponse::getQuestion )
-                .map( Question::getId ).distinct( ).collect( Collectors.toList( ) ) );
+        Map<Integer, Question> mapQuestions = QuestionHome
+                .findByPrimaryKeyList( formQuestionResponseList.stream( ).map( fqr -> fqr.getQuestion( ).getId( ) ).distinct( ).collect( Collectors.toList( ) ) )
+                .stream( ).collect( Collectors.toMap( Question::getId, Function.identity( ), ( q1, q2 ) -> q1 ) );
+
+        // Entries and fields
         List<Entry> entryList = EntryHome
-                .findByPrimaryKeyList( questionList.stream( ).map( Question::getIdEntry ).distinct( ).collect( Collectors.toList( ) ) );
-        List<Field> fieldList = FieldHome.getFieldListByListIdEntry( entryList.stream( ).map( Entry::getIdEntry ).collect( Collectors.toList( ) ) );
+                .findByPrimaryKeyList( mapQuestions.values( ).stream( ).map( Question::getIdEntry ).distinct( ).collect( Collectors.toList( ) ) );
+        List<Field> fieldList = entryList.isEmpty( ) ? new ArrayList<>( )
+                : FieldHome.getFieldListByListIdEntry( entryList.stream( ).map( Entry::getIdEntry ).collect( Collectors.toList( ) ) );
 
+        Map<Integer, List<Field>> mapFieldsByEntry = fieldList.stream( ).collect( Collectors.groupingBy( field -> field.getParentEntry( ).getIdEntry( ) ) );
+        Map<Integer, Field> mapFields = fieldList.stream( ).collect( Collectors.toMap( Field::getIdField, Function.identity( ), ( f1, f2 ) -> f1 ) );
+        Map<Integer, Entry> mapEntries = new HashMap<>( );
         for ( Entry entry : entryList )
         {
-            entry.setFields(
-                    fieldList.stream( ).filter( ( Field f ) -> f.getParentEntry( ).getIdEntry( ) == entry.getIdEntry( ) ).collect( Collectors.toList( ) ) );
+            entry.setFields( mapFieldsByEntry.getOrDefault( entry.getIdEntry( ), new ArrayList<>( ) ) );
+            mapEntries.put( entry.getIdEntry( ), entry );
         }
-        for ( Question question : questionList )
+        for ( Question question : mapQuestions.values( ) )
         {
-            question.setEntry( entryList.stream( ).filter( entry -> entry.getIdEntry( ) == question.getIdEntry( ) ).findFirst( ).orElse( null ) );
+            question.setEntry( mapEntries.get( question.getIdEntry( ) ) );
         }
 
         // Populate FormQuestionResponse
         for ( FormQuestionResponse fqr : formQuestionResponseList )
         {
-            fqr.setQuestion( questionList.stream( ).filter( q -> q.getId( ) == fqr.getQuestion( ).getId( ) ).findFirst( ).orElse( null ) );
+            fqr.setQuestion( mapQuestions.get( fqr.getQuestion( ).getId( ) ) );
 
             for ( Response resp : fqr.getEntryResponse( ) )
             {
                 if ( resp.getField( ) != null )
                 {
-                    resp.setField( fieldList.stream( ).filter( ( Field f ) -> f.getIdField( ) == resp.getField( ).getIdField( ) ).findFirst( ).orElse( null ) );
+                    resp.setField( mapFields.get( resp.getField( ).getIdField( ) ) );
                 }
             }
         }
-
-        // Populate FormResponseStep
-        for ( FormResponseStep formQuestionStep : formResponseStepList )
-        {
-            formQuestionStep.setQuestions( formQuestionResponseList.stream( ).filter( fqr -> formQuestionStep.getStep( ).getId( ) == fqr.getIdStep( ) )
-                    .collect( Collectors.toList( ) ) );
-        }
-        return formResponse;
     }
 
     /**
@@ -230,6 +306,36 @@ public final class FormResponseHome
         return _dao.selectAllFormResponsesId( _plugin );
     }
 
+    /**
+     * Returns the formResponse ids following the given one, in ascending order
+     * 
+     * @param nIdFormResponseAfter
+     *            the id after which the ids are returned
+     * @param nMaxIds
+     *            the maximum number of ids to return
+     * @return the formResponse ids
+     */
+    public static List<Integer> selectFormResponsesIdAfter( int nIdFormResponseAfter, int nMaxIds )
+    {
+        return _dao.selectFormResponsesIdAfter( nIdFormResponseAfter, nMaxIds, _plugin );
+    }
+
+    /**
+     * Returns the ids of the formResponses of the given forms following the given one, in ascending order
+     * 
+     * @param nIdFormResponseAfter
+     *            the id after which the ids are returned
+     * @param nMaxIds
+     *            the maximum number of ids to return
+     * @param listIdForm
+     *            the ids of the forms
+     * @return the formResponse ids
+     */
+    public static List<Integer> selectFormResponsesIdAfter( int nIdFormResponseAfter, int nMaxIds, List<Integer> listIdForm )
+    {
+        return _dao.selectFormResponsesIdAfter( nIdFormResponseAfter, nMaxIds, listIdForm, _plugin );
+    }
+
     /**
      * Returns all the formResponse objects, completed with the steps
      * 
@@ -36,6 +36,7 @@ package fr.paris.lutece.plugins.forms.business;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -54,6 +55,8 @@ public final class FormResponseStepDAO implements IFormResponseStepDAO
     private static final String SQL_QUERY_DELETE_BY_STEP = "DELETE FROM forms_response_step WHERE id_step = ? ";
     private static final String SQL_QUERY_UPDATE = "UPDATE forms_response_step SET id_form_response = ?, id_step = ?, order_response = ? WHERE id = ?";
     private static final String SQL_QUERY_SELECT_BY_ID_RESPONSE = SQL_QUERY_SELECTALL + " WHERE id_form_response = ? ORDER BY order_response ASC";
+    private static final String SQL_QUERY_SELECT_BY_ID_RESPONSE_IN = SQL_QUERY_SELECTALL + " WHERE id_form_response IN ( ";
+    private static final String SQL_QUERY_ORDER_BY_RESPONSE_AND_ORDER = " ) ORDER BY id_form_response ASC, order_response ASC";
 
     /**
      * {@inheritDoc }
@@ -202,6 +205,38 @@ public final class FormResponseStepDAO implements IFormResponseStepDAO
         return listIdStep;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<FormResponseStep> selectFormResponseStepsByFormResponseList( List<Integer> listIdFormResponse, Plugin plugin )
+    {
+        List<FormResponseStep> listFormResponseStep = new ArrayList<>( );
+        if ( listIdFormResponse.isEmpty( ) )
+        {
+            return listFormResponseStep;
+        }
+
+        String query = SQL_QUERY_SELECT_BY_ID_RESPONSE_IN + listIdFormResponse.stream( ).map( i -> "?" ).collect( Collectors.joining( "," ) )
+                + SQL_QUERY_ORDER_BY_RESPONSE_AND_ORDER;
+
+        try ( DAOUtil daoUtil = new DAOUtil( query, plugin ) )
+        {
+            for ( int i = 0; i < listIdFormResponse.size( ); i++ )
+            {
+                daoUtil.setInt( i + 1, listIdFormResponse.get( i ) );
+            }
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listFormResponseStep.add( dataToObject( daoUtil ) );
+            }
+        }
+
+        return listFormResponseStep;
+    }
+
     /**
      * 
      * @param daoUtil
@@ -238,4 +238,17 @@ public final class FormResponseStepHome
     {
         return _dao.selectFormResponseStepsByFormResponse( nIdFormResponse, _plugin );
     }
+
+    /**
+     * Load the order step id list of several FormResponse <br />
+     * Doesn't load Steps and FormQuestionResponses
+     * 
+     * @param listIdFormResponse
+     *            The form response identifiers
+     * @return the list which contains the data of all the formResponseStep objects
+     */
+    public static List<FormResponseStep> findStepsByFormResponseListPartial( List<Integer> listIdFormResponse )
+    {
+        return _dao.selectFormResponseStepsByFormResponseList( listIdFormResponse, _plugin );
+    }
 }
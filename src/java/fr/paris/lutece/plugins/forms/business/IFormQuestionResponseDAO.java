@@ -121,6 +121,18 @@ public interface IFormQuestionResponseDAO
      */
     List<FormQuestionResponse> selectFormQuestionResponseListByListFormResponseStep( List<FormResponseStep> listFormResponseStep, Plugin plugin );
 
+    /**
+     * Load the data of all the FormQuestionResponse objects of several FormResponse and returns them as a list<br />
+     * The entry responses are not loaded
+     * 
+     * @param listIdFormResponse
+     *            The identifiers of the FormResponse
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of all the FormQuestionResponse objects
+     */
+    List<FormQuestionResponse> selectFormQuestionResponseListByFormResponseList( List<Integer> listIdFormResponse, Plugin plugin );
+
     /**
      * Load the data of all the FormQuestionResponse objects for saving and returns them as a list
      * 
@@ -85,6 +85,17 @@ public interface IFormResponseDAO
      */
     FormResponse load( int nKey, Plugin plugin );
 
+    /**
+     * Load the data of the FormResponse objects whose identifiers are specified in parameter
+     * 
+     * @param listKeys
+     *            The identifiers of the FormResponse
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of the FormResponse objects
+     */
+    List<FormResponse> loadMultiple( List<Integer> listKeys, Plugin plugin );
+
     /**
      * Load the data of all the FormResponse objects and returns them as a list
      * 
@@ -102,6 +113,34 @@ public interface IFormResponseDAO
      */
     List<Integer> selectAllFormResponsesId( Plugin plugin );
 
+    /**
+     * Load the primary keys of the FormResponse objects following the given one, in ascending order
+     * 
+     * @param nIdFormResponseAfter
+     *            the primary key after which the keys are loaded
+     * @param nMaxIds
+     *            the maximum number of keys to load
+     * @param plugin
+     *            the Plugin
+     * @return the list of the primary keys
+     */
+    List<Integer> selectFormResponsesIdAfter( int nIdFormResponseAfter, int nMaxIds, Plugin plugin );
+
+    /**
+     * Load the primary keys of the FormResponse objects of the given forms following the given one, in ascending order
+     * 
+     * @param nIdFormResponseAfter
+     *            the primary key after which the keys are loaded
+     * @param nMaxIds
+     *            the maximum number of keys to load
+     * @param listIdForm
+     *            the identifiers of the forms
+     * @param plugin
+     *            the Plugin
+     * @return the list of the primary keys
+     */
+    List<Integer> selectFormResponsesIdAfter( int nIdFormResponseAfter, int nMaxIds, List<Integer> listIdForm, Plugin plugin );
+
     /**
      * Load the data of all the FormResponse objects and returns them as a list
      * 
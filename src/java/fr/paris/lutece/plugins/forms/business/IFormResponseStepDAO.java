@@ -105,6 +105,17 @@ public interface IFormResponseStepDAO
      */
     List<FormResponseStep> selectFormResponseStepsByFormResponse( int nIdFormResponse, Plugin plugin );
 
+    /**
+     * Load the order steps list of several FormResponse
+     * 
+     * @param listIdFormResponse
+     *            The identifiers of the FormResponse
+     * @param plugin
+     *            the Plugin
+     * @return The list which contains the data of all the FormResponseStep objects, ordered by FormResponse and step order
+     */
+    List<FormResponseStep> selectFormResponseStepsByFormResponseList( List<Integer> listIdFormResponse, Plugin plugin );
+
     /**
      * Remove all the formResponseStep linked to a given FormResponse
      * 
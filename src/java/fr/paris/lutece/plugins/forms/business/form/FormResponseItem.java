@@ -55,6 +55,17 @@ public class FormResponseItem
         _listFormColumnCell = new ArrayList<>( );
     }
 
+    /**
+     * Constructor
+     * 
+     * @param nFormColumnCellCount
+     *            the number of FormColumnCell of the FormResponseItem
+     */
+    public FormResponseItem( int nFormColumnCellCount )
+    {
+        _listFormColumnCell = new ArrayList<>( nFormColumnCellCount );
+    }
+
     /**
      * Return the identifier of the form response of the FormResponseItem
      * 
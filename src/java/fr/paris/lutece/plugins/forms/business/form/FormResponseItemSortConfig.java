@@ -42,6 +42,9 @@ public class FormResponseItemSortConfig
     private final int _nColumnToSortPosition;
     private final String _strSortAttributeName;
     private final boolean _bAscSort;
+    private final boolean _bSortLocation;
+    private final double _dSortLatitude;
+    private final double _dSortLongitude;
 
     /**
      * Constructor
@@ -58,6 +61,31 @@ public class FormResponseItemSortConfig
         _nColumnToSortPosition = nColumnToSortPosition;
         _bAscSort = bAscSort;
         _strSortAttributeName = strSortAttributeName;
+        _bSortLocation = false;
+        _dSortLatitude = 0;
+        _dSortLongitude = 0;
+    }
+
+    /**
+     * Constructor of a sort by the distance to a location
+     * 
+     * @param nColumnToSortPosition
+     *            The position of the column to sort
+     * @param strSortAttributeName
+     *            The name of the attribute of the column to sort
+     * @param dSortLatitude
+     *            The latitude of the location
+     * @param dSortLongitude
+     *            The longitude of the location
+     */
+    public FormResponseItemSortConfig( int nColumnToSortPosition, String strSortAttributeName, double dSortLatitude, double dSortLongitude )
+    {
+        _nColumnToSortPosition = nColumnToSortPosition;
+        _bAscSort = true;
+        _strSortAttributeName = strSortAttributeName;
+        _bSortLocation = true;
+        _dSortLatitude = dSortLatitude;
+        _dSortLongitude = dSortLongitude;
     }
 
     /**
@@ -89,4 +117,34 @@ public class FormResponseItemSortConfig
     {
         return _bAscSort;
     }
+
+    /**
+     * Return the boolean which tell if the sort is by the distance to a location
+     * 
+     * @return the boolean which tell if the sort is by the distance to a location
+     */
+    public boolean hasSortLocation( )
+    {
+        return _bSortLocation;
+    }
+
+    /**
+     * Return the latitude of the location of a sort by distance
+     * 
+     * @return the latitude of the location
+     */
+    public double getSortLatitude( )
+    {
+        return _dSortLatitude;
+    }
+
+    /**
+     * Return the longitude of the location of a sort by distance
+     * 
+     * @return the longitude of the location
+     */
+    public double getSortLongitude( )
+    {
+        return _dSortLongitude;
+    }
 }
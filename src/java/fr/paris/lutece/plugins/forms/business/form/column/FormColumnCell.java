@@ -36,24 +36,55 @@ package fr.paris.lutece.plugins.forms.business.form.column;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-import org.apache.commons.lang3.StringUtils;
-
 /**
- * Class which represent one cell of a FormColumn
+ * Class which represent one cell of a FormColumn. The values of the cell are stored by slot, the keys of the slots are held by the FormColumnCellSchema
+ * shared by the cells of the column.
  */
 public class FormColumnCell
 {
     // Variables
-    private Map<String, Object> _mapFormColumnCellValues = new LinkedHashMap<>( );
+    private FormColumnCellSchema _formColumnCellSchema;
+    private Object [ ] _values;
+
+    /**
+     * Constructor of an empty cell
+     */
+    public FormColumnCell( )
+    {
+        this( new FormColumnCellSchema( ), FormColumnCellSchema.EMPTY_VALUES );
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param formColumnCellSchema
+     *            the schema of the cells of the column
+     * @param values
+     *            the values of the cell, by slot of the schema
+     */
+    public FormColumnCell( FormColumnCellSchema formColumnCellSchema, Object [ ] values )
+    {
+        _formColumnCellSchema = formColumnCellSchema;
+        _values = values;
+    }
 
     /**
-     * Return the map which contains all values of a cell for a form column
+     * Return the map which contains all values of a cell for a form column. The map is built from the values of the cell, its changes are not applied to the
+     * cell.
      * 
      * @return the values of the cell of a form column
      */
     public Map<String, Object> getFormColumnCellValues( )
     {
-        return _mapFormColumnCellValues;
+        Map<String, Object> mapFormColumnCellValues = new LinkedHashMap<>( );
+        for ( int nSlot = 0; nSlot < _values.length; nSlot++ )
+        {
+            if ( _values [nSlot] != null )
+            {
+                mapFormColumnCellValues.put( _formColumnCellSchema.getKey( nSlot ), _values [nSlot] );
+            }
+        }
+        return mapFormColumnCellValues;
     }
 
     /**
@@ -64,7 +95,42 @@ public class FormColumnCell
      */
     public void setFormColumnCellValues( Map<String, Object> mapFormColumnValues )
     {
-        _mapFormColumnCellValues = mapFormColumnValues;
+        _formColumnCellSchema = new FormColumnCellSchema( );
+        _values = _formColumnCellSchema.toValues( mapFormColumnValues );
+    }
+
+    /**
+     * Return the number of slots of the cell
+     * 
+     * @return the number of slots of the cell, some of them may have no value
+     */
+    public int getFormColumnCellSlotCount( )
+    {
+        return _values.length;
+    }
+
+    /**
+     * Return the key of a slot of the cell
+     * 
+     * @param nSlot
+     *            the slot
+     * @return the key of the slot
+     */
+    public String getFormColumnCellKey( int nSlot )
+    {
+        return _formColumnCellSchema.getKey( nSlot );
+    }
+
+    /**
+     * Return the value of a slot of the cell
+     * 
+     * @param nSlot
+     *            the slot
+     * @return the value of the slot, or null if the cell has no value for it
+     */
+    public Object getFormColumnCellValue( int nSlot )
+    {
+        return ( nSlot < _values.length ) ? _values [nSlot] : null;
     }
 
     /**
@@ -72,23 +138,19 @@ public class FormColumnCell
      * 
      * @param strCellName
      *            The name of the cell to retrieve the value
-     * @return the value of the FormColumnCell with the specify value or null if not found
+     * @return the value of the first key, in alphabetical order, containing the name, or null if not found
      */
     public Object getFormColumnCellValueByName( String strCellName )
     {
-        if ( _mapFormColumnCellValues == null )
-        {
-            return null;
-        }
-        String key = _mapFormColumnCellValues.keySet( ).stream( ).filter( k -> k.contains( strCellName ) ).sorted( ).findFirst( ).orElse( null );
-
-        Object objFormColumnCell = null;
-
-        if ( StringUtils.isNotBlank( key ) )
+        for ( int nSlot : _formColumnCellSchema.getSlots( strCellName ) )
         {
-            objFormColumnCell = _mapFormColumnCellValues.get( key );
+            Object value = getFormColumnCellValue( nSlot );
+            if ( value != null )
+            {
+                return value;
+            }
         }
 
-        return objFormColumnCell;
+        return null;
     }
 }
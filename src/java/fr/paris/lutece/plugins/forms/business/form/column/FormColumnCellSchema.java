@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.column;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The keys of the values of the cells of a FormColumn, shared by the cells of the column. Each key has a slot in the array of values of the cells, so that a
+ * cell only holds its values. The slots are given in the order the keys are met, a cell built before a key is met has no value for it.
+ */
+public class FormColumnCellSchema
+{
+    // Constants
+    static final Object [ ] EMPTY_VALUES = new Object [ 0 ];
+    private static final int [ ] EMPTY_SLOTS = new int [ 0 ];
+
+    // Variables
+    private final List<String> _listKeys = new ArrayList<>( );
+    private final Map<String, Integer> _mapSlots = new HashMap<>( );
+    private final Map<String, int [ ]> _mapNameSlots = new HashMap<>( );
+
+    /**
+     * Return the slot of a key, adding it to the schema if needed
+     * 
+     * @param strKey
+     *            the key
+     * @return the slot of the key
+     */
+    public int getSlot( String strKey )
+    {
+        Integer nSlot = _mapSlots.get( strKey );
+        if ( nSlot == null )
+        {
+            nSlot = _listKeys.size( );
+            _listKeys.add( strKey );
+            _mapSlots.put( strKey, nSlot );
+            // The slots found for a name may include the new key
+            _mapNameSlots.clear( );
+        }
+        return nSlot;
+    }
+
+    /**
+     * Return the number of slots of the schema
+     * 
+     * @return the number of slots
+     */
+    public int size( )
+    {
+        return _listKeys.size( );
+    }
+
+    /**
+     * Return the key of a slot
+     * 
+     * @param nSlot
+     *            the slot
+     * @return the key of the slot
+     */
+    public String getKey( int nSlot )
+    {
+        return _listKeys.get( nSlot );
+    }
+
+    /**
+     * Convert the values of a cell, by key, to the array of values of the cell
+     * 
+     * @param mapValues
+     *            the values of the cell by key, may be null
+     * @return the values of the cell by slot
+     */
+    public Object [ ] toValues( Map<String, Object> mapValues )
+    {
+        if ( mapValues == null || mapValues.isEmpty( ) )
+        {
+            return EMPTY_VALUES;
+        }
+
+        int [ ] slots = new int [ mapValues.size( ) ];
+        int nIndex = 0;
+        for ( String strKey : mapValues.keySet( ) )
+        {
+            slots [nIndex++] = getSlot( strKey );
+        }
+
+        Object [ ] values = new Object [ size( ) ];
+        nIndex = 0;
+        for ( Object value : mapValues.values( ) )
+        {
+            values [slots [nIndex++]] = value;
+        }
+        return values;
+    }
+
+    /**
+     * Return the slots of the keys containing the given name, in the alphabetical order of the keys. They are computed once for each name.
+     * 
+     * @param strName
+     *            the name
+     * @return the slots of the keys containing the name
+     */
+    public int [ ] getSlots( String strName )
+    {
+        int [ ] slots = _mapNameSlots.get( strName );
+        if ( slots == null )
+        {
+            List<String> listMatchingKeys = new ArrayList<>( );
+            for ( String strKey : _listKeys )
+            {
+                if ( strKey.contains( strName ) )
+                {
+                    listMatchingKeys.add( strKey );
+                }
+            }
+            Collections.sort( listMatchingKeys );
+
+            slots = listMatchingKeys.isEmpty( ) ? EMPTY_SLOTS : new int [ listMatchingKeys.size( ) ];
+            for ( int nIndex = 0; nIndex < slots.length; nIndex++ )
+            {
+                slots [nIndex] = _mapSlots.get( listMatchingKeys.get( nIndex ) );
+            }
+            _mapNameSlots.put( strName, slots );
+        }
+        return slots;
+    }
+}
@@ -36,6 +36,7 @@ package fr.paris.lutece.plugins.forms.business.form.column.querypart;
 import fr.paris.lutece.plugins.forms.business.form.column.FormColumnCell;
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import java.util.Set;
 
 /**
  * Global interface for all form column query part
@@ -65,4 +66,15 @@ public interface IFormColumnQueryPart
      * @return the FormColumnCell
      */
     FormColumnCell getFormColumnCell( FormResponseSearchItem formResponseSearchItem );
+
+    /**
+     * Return the index fields read by getFormColumnCell, so that they can be loaded from the DocValues of the index. A field name starting with
+     * FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX is a prefix matching all the fields of an entry.
+     * 
+     * @return the index fields read by the column, or null if the column needs the whole stored document
+     */
+    default Set<String> getProjectedFields( )
+    {
+        return null;
+    }
 }
@@ -34,11 +34,11 @@
 package fr.paris.lutece.plugins.forms.business.form.column.querypart.impl;
 
 import fr.paris.lutece.plugins.forms.business.form.column.FormColumnCell;
+import fr.paris.lutece.plugins.forms.business.form.column.FormColumnCellSchema;
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.column.querypart.IFormColumnQueryPart;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -56,6 +56,7 @@ public abstract class AbstractFormColumnQueryPart implements IFormColumnQueryPar
 
     // Variables
     private IFormColumn _formColumn;
+    private final FormColumnCellSchema _formColumnCellSchema = new FormColumnCellSchema( );
 
     /**
      * {@inheritDoc}
@@ -81,7 +82,7 @@ public abstract class AbstractFormColumnQueryPart implements IFormColumnQueryPar
     @Override
     public FormColumnCell getFormColumnCell( FormResponseSearchItem formResponseSearchItem )
     {
-        Map<String, Object> mapFormColumnValues = new LinkedHashMap<>( );
+        Map<String, Object> mapFormColumnValues = null;
 
         IFormColumn formColumn = getFormColumn( );
         if ( formColumn != null )
@@ -89,10 +90,8 @@ public abstract class AbstractFormColumnQueryPart implements IFormColumnQueryPar
             mapFormColumnValues = getMapFormColumnValues( formResponseSearchItem );
         }
 
-        FormColumnCell formColumnCell = new FormColumnCell( );
-        formColumnCell.setFormColumnCellValues( mapFormColumnValues );
-
-        return formColumnCell;
+        // The cells of the column share the keys of their values
+        return new FormColumnCell( _formColumnCellSchema, _formColumnCellSchema.toValues( mapFormColumnValues ) );
     }
 
     /**
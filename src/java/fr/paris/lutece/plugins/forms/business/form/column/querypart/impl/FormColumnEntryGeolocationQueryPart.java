@@ -35,14 +35,15 @@ package fr.paris.lutece.plugins.forms.business.form.column.querypart.impl;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.column.impl.FormColumnEntryGeolocation;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import fr.paris.lutece.plugins.forms.util.FormEntryNameConstants;
-import fr.paris.lutece.plugins.genericattributes.business.Field;
 import fr.paris.lutece.plugins.genericattributes.business.FieldHome;
 
 /**
@@ -54,6 +55,9 @@ public class FormColumnEntryGeolocationQueryPart extends AbstractFormColumnQuery
     private static final String CONSTANT_FIELD_X = "X";
     private static final String CONSTANT_FIELD_Y = "Y";
 
+    // Values of the fields of the geolocation entries, loaded once for all the rows
+    private final Map<Integer, String> _mapFieldValues = new HashMap<>( );
+
     /**
      * {@inheritDoc}
      */
@@ -74,8 +78,8 @@ public class FormColumnEntryGeolocationQueryPart extends AbstractFormColumnQuery
                 String [ ] splits = field.getKey( ).split( "_" );
                 String strIdField = splits [splits.length - 1];
                 int nIdField = Integer.parseInt( strIdField );
-                Field fieldGenatt = FieldHome.findByPrimaryKey( nIdField );
-                switch( fieldGenatt.getValue( ) )
+                String strFieldValue = _mapFieldValues.computeIfAbsent( nIdField, nId -> FieldHome.findByPrimaryKey( nId ).getValue( ) );
+                switch( strFieldValue )
                 {
                     case CONSTANT_FIELD_ADDRESS:
                         mapFormColumnValues.put( strAddressValue, field.getValue( ) );
@@ -112,4 +116,18 @@ public class FormColumnEntryGeolocationQueryPart extends AbstractFormColumnQuery
         }
         return new ArrayList<>( );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getProjectedFields( )
+    {
+        Set<String> setProjectedFields = new HashSet<>( );
+        for ( String strFormColumnEntryCode : getListEntryCode( getFormColumn( ) ) )
+        {
+            setProjectedFields.add( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX + strFormColumnEntryCode );
+        }
+        return setProjectedFields;
+    }
 }
@@ -35,8 +35,10 @@ package fr.paris.lutece.plugins.forms.business.form.column.querypart.impl;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.column.impl.FormColumnEntry;
@@ -78,4 +80,18 @@ public class FormColumnEntryQueryPart extends AbstractFormColumnQueryPart
         }
         return new ArrayList<>( );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getProjectedFields( )
+    {
+        Set<String> setProjectedFields = new HashSet<>( );
+        for ( String strFormColumnEntryCode : getListEntryCode( getFormColumn( ) ) )
+        {
+            setProjectedFields.add( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX + strFormColumnEntryCode );
+        }
+        return setProjectedFields;
+    }
 }
@@ -35,8 +35,10 @@ package fr.paris.lutece.plugins.forms.business.form.column.querypart.impl;
 
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import fr.paris.lutece.plugins.forms.util.FormMultiviewFormResponseDateCreationNameConstants;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class FormColumnFormResponseDateCreationQueryPart extends AbstractFormColumnQueryPart
 {
@@ -58,4 +60,13 @@ public class FormColumnFormResponseDateCreationQueryPart extends AbstractFormCol
         return mapFormColumnValues;
 
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getProjectedFields( )
+    {
+        return Collections.singleton( FormResponseSearchItem.FIELD_DATE_CREATION );
+    }
 }
@@ -33,8 +33,10 @@
  */
 package fr.paris.lutece.plugins.forms.business.form.column.querypart.impl;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import fr.paris.lutece.plugins.forms.util.FormMultiviewWorkflowStateNameConstants;
@@ -61,4 +63,13 @@ public class FormColumnWorkflowStateQueryPart extends AbstractFormColumnQueryPar
 
         return mapFormColumnValues;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getProjectedFields( )
+    {
+        return Collections.singleton( FormResponseSearchItem.FIELD_TITLE_WORKFLOW_STATE );
+    }
 }
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.forms.business.form.filter.querypart;
 
 import fr.paris.lutece.plugins.forms.business.form.FormParameters;
+import fr.paris.lutece.plugins.forms.util.FormsConstants;
 
 /**
  * Global QueryPart for all form filter type
@@ -47,4 +48,14 @@ public interface IFormFilterQueryPart
      *            The FormParameters to use for building the query
      */
     void buildFormFilterQuery( FormParameters formParameters );
+
+    /**
+     * Return the identifier of the form to which the FormFilter restricts the form responses
+     * 
+     * @return the identifier of the form, or FormsConstants.DEFAULT_ID_VALUE if the FormFilter does not restrict the form responses to a single form
+     */
+    default int getIdForm( )
+    {
+        return FormsConstants.DEFAULT_ID_VALUE;
+    }
 }
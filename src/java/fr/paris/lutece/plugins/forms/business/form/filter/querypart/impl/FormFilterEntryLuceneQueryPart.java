@@ -38,7 +38,6 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
@@ -50,6 +49,7 @@ import fr.paris.lutece.plugins.forms.business.form.FormParameters;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import fr.paris.lutece.plugins.forms.service.search.IFormSearchEngine;
 import fr.paris.lutece.plugins.forms.util.FormsConstants;
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
 import fr.paris.lutece.plugins.genericattributes.business.Field;
 import fr.paris.lutece.plugins.genericattributes.business.FieldHome;
 
@@ -80,18 +80,14 @@ public class FormFilterEntryLuceneQueryPart extends AbstractFormFilterLuceneQuer
                     List<Field> listFields = FieldHome.getFieldListByIdEntry( question.getEntry( ).getIdEntry( ) );
 
                     Query query = new TermQuery(
-                            new Term( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX + strQuestionCode + FormResponseSearchItem.FIELD_RESPONSE_FIELD_ITER + "0",
-                                    formParam.getValue( ).toString( ) ) );
+                            LuceneUtils.createEntryTerm( LuceneUtils.createLuceneEntryKey( strQuestionCode, 0 ), formParam.getValue( ).toString( ) ) );
                     booleanQueryBuilder.add( query, BooleanClause.Occur.SHOULD );
 
                     for ( Field field : listFields )
                     {
                         String strFieldName = getFieldName( field );
-                        query = new TermQuery(
-                                new Term(
-                                        FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX + strQuestionCode + FormResponseSearchItem.FIELD_RESPONSE_FIELD_ITER
-                                                + "0" + FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR + strFieldName,
-                                        formParam.getValue( ).toString( ) ) );
+                        query = new TermQuery( LuceneUtils.createEntryTerm( LuceneUtils.createLuceneEntryKey( strQuestionCode, 0 )
+                                + FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR + strFieldName, formParam.getValue( ).toString( ) ) );
                         booleanQueryBuilder.add( query, BooleanClause.Occur.SHOULD );
                     }
                 }
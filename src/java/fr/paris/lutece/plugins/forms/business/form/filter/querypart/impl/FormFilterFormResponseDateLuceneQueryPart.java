@@ -34,6 +34,8 @@
 package fr.paris.lutece.plugins.forms.business.form.filter.querypart.impl;
 
 import fr.paris.lutece.plugins.forms.business.form.FormParameters;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -75,7 +77,15 @@ public class FormFilterFormResponseDateLuceneQueryPart extends AbstractFormFilte
                 long lTo = dateTo.getTime( );
                 if ( strDateFrom != null && strDateTo != null )
                 {
-                    Query queryDate = LongPoint.newRangeQuery( strFieldTitle, lFrom, lTo );
+                    Query queryDate;
+                    if ( strFieldTitle.startsWith( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX ) )
+                    {
+                        queryDate = LuceneUtils.createEntryRangeQuery( strFieldTitle, lFrom, lTo );
+                    }
+                    else
+                    {
+                        queryDate = LongPoint.newRangeQuery( strFieldTitle, lFrom, lTo );
+                    }
                     setFormFilterQuery( queryDate );
                 }
             }
@@ -40,6 +40,7 @@ import org.apache.lucene.search.Query;
 
 import fr.paris.lutece.plugins.forms.business.form.FormParameters;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.plugins.forms.util.FormsConstants;
 
 /**
  * Implementation of the IFormFilterQueryPart for an Entry filter
@@ -48,6 +49,9 @@ public class FormFilterFormsLuceneQueryPart extends AbstractFormFilterLuceneQuer
 {
     private static final String INTEGER_MINUS_ONE = "-1";
 
+    // Variables
+    private int _nIdForm = FormsConstants.DEFAULT_ID_VALUE;
+
     /**
      * {@inheritDoc}
      */
@@ -63,7 +67,8 @@ public class FormFilterFormsLuceneQueryPart extends AbstractFormFilterLuceneQuer
                 String strIdForm = String.valueOf( setFormParameters.toArray( ) [0] );
                 if ( !strIdForm.equals( INTEGER_MINUS_ONE ) )
                 {
-                    Query query = IntPoint.newExactQuery( FormResponseSearchItem.FIELD_ID_FORM, Integer.parseInt( strIdForm ) );
+                    _nIdForm = Integer.parseInt( strIdForm );
+                    Query query = IntPoint.newExactQuery( FormResponseSearchItem.FIELD_ID_FORM, _nIdForm );
                     setFormFilterQuery( query );
                 }
             }
@@ -73,4 +78,13 @@ public class FormFilterFormsLuceneQueryPart extends AbstractFormFilterLuceneQuer
             setFormFilterQuery( null );
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
 }
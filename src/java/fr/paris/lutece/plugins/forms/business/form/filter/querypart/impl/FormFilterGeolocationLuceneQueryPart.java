@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.filter.querypart.impl;
+
+import java.util.Map;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.lucene.document.LatLonPoint;
+
+import fr.paris.lutece.plugins.forms.business.form.FormParameters;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+
+/**
+ * Implementation of the IFormFilterQueryPart for a filter on the distance of the points of the form responses to a location
+ */
+public class FormFilterGeolocationLuceneQueryPart extends AbstractFormFilterLuceneQueryPart
+{
+    // Parameters
+    public static final String PARAMETER_LATITUDE = "geolocation_latitude";
+    public static final String PARAMETER_LONGITUDE = "geolocation_longitude";
+    public static final String PARAMETER_RADIUS = "geolocation_radius";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void buildFormFilterQuery( FormParameters formParameters )
+    {
+        Map<String, Object> mapFormParameters = formParameters.getFormParametersMap( );
+        if ( mapFormParameters.containsKey( PARAMETER_LATITUDE ) && mapFormParameters.containsKey( PARAMETER_LONGITUDE )
+                && mapFormParameters.containsKey( PARAMETER_RADIUS ) )
+        {
+            double dLatitude = NumberUtils.toDouble( mapFormParameters.get( PARAMETER_LATITUDE ).toString( ) );
+            double dLongitude = NumberUtils.toDouble( mapFormParameters.get( PARAMETER_LONGITUDE ).toString( ) );
+            double dRadius = NumberUtils.toDouble( mapFormParameters.get( PARAMETER_RADIUS ).toString( ) );
+            setFormFilterQuery( LatLonPoint.newDistanceQuery( FormResponseSearchItem.FIELD_GEOLOCATION, dLatitude, dLongitude, dRadius ) );
+        }
+        else
+        {
+            setFormFilterQuery( null );
+        }
+    }
+}
@@ -36,7 +36,7 @@ package fr.paris.lutece.plugins.forms.business.form.filter.querypart.impl;
 import fr.paris.lutece.plugins.forms.business.form.FormParameters;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import java.util.Collection;
-import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.search.Query;
 
 /**
@@ -61,7 +61,9 @@ public class FormFilterWorkflowStateLuceneQueryPart extends AbstractFormFilterLu
                 String strIdWorkflowState = String.valueOf( setFormParameters.toArray( ) [0] );
                 if ( !strIdWorkflowState.equals( INTEGER_MINUS_ONE ) )
                 {
-                    Query query = IntPoint.newExactQuery( FormResponseSearchItem.FIELD_ID_WORKFLOW_STATE, Integer.parseInt( strIdWorkflowState ) );
+                    // The workflow state is only indexed as DocValues, which are updated in place
+                    Query query = NumericDocValuesField.newSlowExactQuery( FormResponseSearchItem.FIELD_ID_WORKFLOW_STATE,
+                            Integer.parseInt( strIdWorkflowState ) );
                     setFormFilterQuery( query );
                 }
             }
@@ -42,6 +42,7 @@ import javax.inject.Inject;
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.filter.FormFilter;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
+import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.IFormPanelInitializerQueryPart;
 
 /**
  * Facade used to populate a list of FormColumn
@@ -88,4 +89,43 @@ public class FormListFacade
 
         _formListDAO.populateFormColumns( formPanel, listFormColumn, listFormFilter, nStartIndex, nPageSize, sortConfig );
     }
+
+    /**
+     * Count the form responses of the given FormPanel matching the given FormFilters, without populating its FormColumns
+     * 
+     * @param formPanel
+     *            The FormPanel to count
+     * @param listFormFilter
+     *            The list of FormFilter to use for filtering the form responses
+     */
+    public void countFormResponseItems( FormPanel formPanel, List<FormFilter> listFormFilter )
+    {
+        _formListDAO.countFormResponseItems( formPanel, listFormFilter );
+    }
+
+    /**
+     * Build the query parts selecting the form responses of the given FormPanel
+     * 
+     * @param formPanel
+     *            The FormPanel whose FormPanelInitializers hold their FormParameters
+     * @return the list of query parts of the FormPanelInitializers
+     */
+    public List<IFormPanelInitializerQueryPart> buildFormPanelInitializerQueryParts( FormPanel formPanel )
+    {
+        return _formListDAO.buildFormPanelInitializerQueryParts( formPanel );
+    }
+
+    /**
+     * Check if a form response is selected by the given query parts of FormPanelInitializers
+     * 
+     * @param listFormPanelInitializerQueryPart
+     *            The list of query parts of the FormPanelInitializers
+     * @param nIdFormResponse
+     *            The identifier of the form response
+     * @return true if the form response is selected by all the query parts
+     */
+    public boolean existsFormResponse( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, int nIdFormResponse )
+    {
+        return _formListDAO.existsFormResponse( listFormPanelInitializerQueryPart, nIdFormResponse );
+    }
 }
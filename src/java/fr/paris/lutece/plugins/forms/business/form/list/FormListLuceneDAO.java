@@ -34,7 +34,10 @@
 package fr.paris.lutece.plugins.forms.business.form.list;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 
@@ -53,6 +56,9 @@ import fr.paris.lutece.plugins.forms.business.form.panel.configuration.IFormPane
 import fr.paris.lutece.plugins.forms.business.form.panel.initializer.IFormPanelInitializer;
 import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.FormPanelInitializerQueryPartFacade;
 import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.IFormPanelInitializerQueryPart;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchCursor;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import javax.inject.Inject;
 import fr.paris.lutece.plugins.forms.service.search.IFormSearchEngine;
@@ -78,7 +84,8 @@ public class FormListLuceneDAO implements IFormListDAO
             return;
         }
 
-        List<FormResponseItem> listFormResponseItem = searchFormResponseItem( formPanel, listFormColumn, listFormFilter, nStartIndex, nPageSize, sortConfig );
+        List<FormResponseItem> listFormResponseItem = searchFormResponseItem( formPanel, listFormColumn, listFormFilter, nStartIndex, nPageSize, sortConfig,
+                formPanel.getSearchCursor( ) );
 
         formPanel.setFormResponseItemList( listFormResponseItem );
     }
@@ -87,11 +94,104 @@ public class FormListLuceneDAO implements IFormListDAO
     public List<FormResponseItem> searchAllFormResponseItem( FormPanel formPanel, List<IFormColumn> listFormColumn, List<FormFilter> listFormFilter,
             FormResponseItemSortConfig sortConfig )
     {
-        return searchFormResponseItem( formPanel, listFormColumn, listFormFilter, 0, 0, sortConfig );
+        return searchFormResponseItem( formPanel, listFormColumn, listFormFilter, 0, 0, sortConfig, null );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Integer> countResponseValues( FormPanel formPanel, List<FormFilter> listFormFilter, List<String> listQuestionCode )
+    {
+        List<String> listQueryParametersValues = new ArrayList<>( );
+
+        List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart = new ArrayList<>( );
+        if ( formPanel != null )
+        {
+            listFormPanelInitializerQueryPart = buildFormPanelInitializerQueryPartList( formPanel, listQueryParametersValues );
+        }
+        List<IFormFilterQueryPart> listFormFilterQueryPart = buildFormFilterQueryPartList( listFormFilter, listQueryParametersValues );
+
+        return _formSearchEngine.getValueCounts( listFormPanelInitializerQueryPart, listFormFilterQueryPart, listQuestionCode );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void countFormResponseItems( FormPanel formPanel, List<FormFilter> listFormFilter )
+    {
+        if ( formPanel == null )
+        {
+            return;
+        }
+
+        List<String> listQueryParametersValues = new ArrayList<>( );
+        List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart = buildFormPanelInitializerQueryPartList( formPanel, listQueryParametersValues );
+        List<IFormFilterQueryPart> listFormFilterQueryPart = buildFormFilterQueryPartList( listFormFilter, listQueryParametersValues );
+
+        formPanel.setTotalFormResponseItemCount( _formSearchEngine.count( listFormPanelInitializerQueryPart, listFormFilterQueryPart ) );
+        formPanel.setFormResponseItemList( new ArrayList<>( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<IFormPanelInitializerQueryPart> buildFormPanelInitializerQueryParts( FormPanel formPanel )
+    {
+        return buildFormPanelInitializerQueryPartList( formPanel, new ArrayList<>( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsFormResponse( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, int nIdFormResponse )
+    {
+        return _formSearchEngine.exists( listFormPanelInitializerQueryPart, nIdFormResponse );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormResponseGeolocationCluster> getGeolocationClusters( FormPanel formPanel, List<FormFilter> listFormFilter, FormResponseGeolocationBox box,
+            int nZoom )
+    {
+        if ( formPanel == null )
+        {
+            return new ArrayList<>( );
+        }
+
+        List<String> listQueryParametersValues = new ArrayList<>( );
+        List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart = buildFormPanelInitializerQueryPartList( formPanel, listQueryParametersValues );
+        List<IFormFilterQueryPart> listFormFilterQueryPart = buildFormFilterQueryPartList( listFormFilter, listQueryParametersValues );
+
+        return _formSearchEngine.getGeolocationClusters( listFormPanelInitializerQueryPart, listFormFilterQueryPart, box, nZoom );
+    }
+
+    /**
+     * Search a page of FormResponseItem
+     * 
+     * @param formPanel
+     *            The FormPanel
+     * @param listFormColumn
+     *            The list of FormColumn to populate
+     * @param listFormFilter
+     *            The list of FormFilter
+     * @param nStartIndex
+     *            The start index of the page
+     * @param nPageSize
+     *            The page size, or 0 for all the results
+     * @param sortConfig
+     *            The sort config
+     * @param cursor
+     *            The cursor of the paged search, may be null
+     * @return the list of FormResponseItem of the page
+     */
     private List<FormResponseItem> searchFormResponseItem( FormPanel formPanel, List<IFormColumn> listFormColumn, List<FormFilter> listFormFilter,
-            int nStartIndex, int nPageSize, FormResponseItemSortConfig sortConfig )
+            int nStartIndex, int nPageSize, FormResponseItemSortConfig sortConfig, FormResponseSearchCursor cursor )
     {
         // Create the list of all values of the parameter to used
         List<String> listQueryParametersValues = new ArrayList<>( );
@@ -104,10 +204,10 @@ public class FormListLuceneDAO implements IFormListDAO
         List<FormResponseItem> listFormResponseItem = new ArrayList<>( );
 
         for ( FormResponseSearchItem formResponseSearchItem : _formSearchEngine.getSearchResults( listFormPanelInitializerQueryPart, listFormColumnQueryPart,
-                listFormFilterQueryPart, sortConfig, nStartIndex, nPageSize, formPanel ) )
+                listFormFilterQueryPart, sortConfig, nStartIndex, nPageSize, cursor, buildProjectedFields( listFormColumnQueryPart ), formPanel ) )
         {
             // Create a FormResponseItem sppfor the current result line
-            FormResponseItem formResponseItem = createFormResponseItem( formResponseSearchItem );
+            FormResponseItem formResponseItem = createFormResponseItem( formResponseSearchItem, listFormColumnQueryPart.size( ) );
             listFormResponseItem.add( formResponseItem );
 
             for ( IFormColumnQueryPart formColumnQueryPart : listFormColumnQueryPart )
@@ -125,11 +225,13 @@ public class FormListLuceneDAO implements IFormListDAO
      * 
      * @param daoUtil
      *            The daoUtil to retrieve the values of the request from
+     * @param nFormColumnCellCount
+     *            The number of columns of the FormResponseItem
      * @return the created FormResponseItem
      */
-    private FormResponseItem createFormResponseItem( FormResponseSearchItem formResponseSearchItem )
+    private FormResponseItem createFormResponseItem( FormResponseSearchItem formResponseSearchItem, int nFormColumnCellCount )
     {
-        FormResponseItem formResponseItem = new FormResponseItem( );
+        FormResponseItem formResponseItem = new FormResponseItem( nFormColumnCellCount );
         formResponseItem.setIdFormResponse( formResponseSearchItem.getIdFormResponse( ) );
 
         return formResponseItem;
@@ -245,6 +347,30 @@ public class FormListLuceneDAO implements IFormListDAO
         return fomColumnQueryPartResult;
     }
 
+    /**
+     * Build the set of index fields read by the given column query parts
+     * 
+     * @param listFormColumnQueryPart
+     *            The list of IFormColumnQueryPart of the displayed columns
+     * @return the set of index fields to read, or null if a column needs the whole stored document
+     */
+    private static Set<String> buildProjectedFields( List<IFormColumnQueryPart> listFormColumnQueryPart )
+    {
+        Set<String> setProjectedFields = new HashSet<>( );
+
+        for ( IFormColumnQueryPart formColumnQueryPart : listFormColumnQueryPart )
+        {
+            Set<String> setColumnFields = formColumnQueryPart.getProjectedFields( );
+            if ( setColumnFields == null )
+            {
+                return null;
+            }
+            setProjectedFields.addAll( setColumnFields );
+        }
+
+        return setProjectedFields;
+    }
+
     /**
      * Build the list of form filter query part for the given list of form filter
      * 
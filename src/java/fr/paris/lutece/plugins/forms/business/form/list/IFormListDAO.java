@@ -36,10 +36,14 @@ package fr.paris.lutece.plugins.forms.business.form.list;
 import fr.paris.lutece.plugins.forms.business.form.FormResponseItem;
 import fr.paris.lutece.plugins.forms.business.form.FormResponseItemSortConfig;
 import java.util.List;
+import java.util.Map;
 
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.filter.FormFilter;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
+import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.IFormPanelInitializerQueryPart;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
 
 /**
  * DAO for retrieving the data of a list of FormColumn values from a list of FormFilter
@@ -81,4 +85,63 @@ public interface IFormListDAO
      */
     List<FormResponseItem> searchAllFormResponseItem( FormPanel formPanel, List<IFormColumn> listFormColumn, List<FormFilter> listFormFilter,
             FormResponseItemSortConfig sortConfig );
+
+    /**
+     * Count the distinct values of the responses to the given questions among the form responses of the FormPanel matching the given filters
+     * 
+     * @param formPanel
+     *            The FormPanel used to retrieve the form responses, may be null
+     * @param listFormFilter
+     *            The list of FormFilter used for filtering the form responses
+     * @param listQuestionCode
+     *            The list of code of the questions whose values are counted
+     * @return the number of form responses of each value, sorted by value
+     */
+    Map<String, Integer> countResponseValues( FormPanel formPanel, List<FormFilter> listFormFilter, List<String> listQuestionCode );
+
+    /**
+     * Set the number of form responses of the FormPanel matching the given filters, without retrieving the form responses
+     * 
+     * @param formPanel
+     *            The FormPanel whose form responses are counted
+     * @param listFormFilter
+     *            The list of FormFilter used for filtering the form responses
+     */
+    void countFormResponseItems( FormPanel formPanel, List<FormFilter> listFormFilter );
+
+    /**
+     * Build the query parts selecting the form responses of the FormPanel, from its FormPanelInitializers
+     * 
+     * @param formPanel
+     *            The FormPanel whose FormPanelInitializers hold their FormParameters
+     * @return the list of query parts of the FormPanelInitializers
+     */
+    List<IFormPanelInitializerQueryPart> buildFormPanelInitializerQueryParts( FormPanel formPanel );
+
+    /**
+     * Check if a form response is selected by the given query parts of FormPanelInitializers
+     * 
+     * @param listFormPanelInitializerQueryPart
+     *            The list of query parts built by {@link #buildFormPanelInitializerQueryParts(FormPanel)}
+     * @param nIdFormResponse
+     *            The identifier of the form response
+     * @return true if the form response is selected by all the query parts
+     */
+    boolean existsFormResponse( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, int nIdFormResponse );
+
+    /**
+     * Group the points of all the form responses of the FormPanel matching the given filters in a box of the map
+     * 
+     * @param formPanel
+     *            The FormPanel used to retrieve the form responses
+     * @param listFormFilter
+     *            The list of FormFilter used for filtering the form responses
+     * @param box
+     *            The box of the map
+     * @param nZoom
+     *            The zoom level of the map
+     * @return the clusters of the points in the box
+     */
+    List<FormResponseGeolocationCluster> getGeolocationClusters( FormPanel formPanel, List<FormFilter> listFormFilter, FormResponseGeolocationBox box,
+            int nZoom );
 }
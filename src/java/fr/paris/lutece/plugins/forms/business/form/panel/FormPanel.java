@@ -41,6 +41,7 @@ import org.apache.commons.lang3.StringUtils;
 import fr.paris.lutece.plugins.forms.business.form.FormResponseItem;
 import fr.paris.lutece.plugins.forms.business.form.panel.configuration.IFormPanelConfiguration;
 import fr.paris.lutece.plugins.forms.business.form.panel.initializer.IFormPanelInitializer;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchCursor;
 
 /**
  * Abstract class for implementation of the IFormPanel
@@ -56,6 +57,7 @@ public class FormPanel
     private List<FormResponseItem> _listFormResponse = new ArrayList<>( );
     private List<IFormPanelInitializer> _listFormPanelInitializer = new ArrayList<>( );
     private int _nTotalFormResponseItemCount;
+    private final FormResponseSearchCursor _searchCursor = new FormResponseSearchCursor( );
 
     /**
      * Return the FormPanelConfiguration of the FormPanel. This configuration contains all informations of the FormPanel.
@@ -175,4 +177,14 @@ public class FormPanel
         _nTotalFormResponseItemCount = nTotalFormResponseItemCount;
     }
 
+    /**
+     * Return the cursor used to page through the search results of the panel
+     * 
+     * @return the search cursor
+     */
+    public FormResponseSearchCursor getSearchCursor( )
+    {
+        return _searchCursor;
+    }
+
 }
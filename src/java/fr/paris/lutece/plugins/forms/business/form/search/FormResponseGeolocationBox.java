@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.search;
+
+/**
+ * The bounding box of an area of the map of the form responses. The box crosses the dateline when its minimum longitude is greater than its maximum
+ * longitude.
+ */
+public class FormResponseGeolocationBox
+{
+    private final double _dMinLatitude;
+    private final double _dMaxLatitude;
+    private final double _dMinLongitude;
+    private final double _dMaxLongitude;
+
+    /**
+     * Constructor
+     * 
+     * @param dMinLatitude
+     *            the minimum latitude
+     * @param dMaxLatitude
+     *            the maximum latitude
+     * @param dMinLongitude
+     *            the minimum longitude
+     * @param dMaxLongitude
+     *            the maximum longitude
+     */
+    public FormResponseGeolocationBox( double dMinLatitude, double dMaxLatitude, double dMinLongitude, double dMaxLongitude )
+    {
+        _dMinLatitude = dMinLatitude;
+        _dMaxLatitude = dMaxLatitude;
+        _dMinLongitude = dMinLongitude;
+        _dMaxLongitude = dMaxLongitude;
+    }
+
+    /**
+     * @return the minimum latitude
+     */
+    public double getMinLatitude( )
+    {
+        return _dMinLatitude;
+    }
+
+    /**
+     * @return the maximum latitude
+     */
+    public double getMaxLatitude( )
+    {
+        return _dMaxLatitude;
+    }
+
+    /**
+     * @return the minimum longitude
+     */
+    public double getMinLongitude( )
+    {
+        return _dMinLongitude;
+    }
+
+    /**
+     * @return the maximum longitude
+     */
+    public double getMaxLongitude( )
+    {
+        return _dMaxLongitude;
+    }
+
+    /**
+     * Check if a point is in the box
+     * 
+     * @param dLatitude
+     *            the latitude of the point
+     * @param dLongitude
+     *            the longitude of the point
+     * @return true if the point is in the box
+     */
+    public boolean contains( double dLatitude, double dLongitude )
+    {
+        if ( dLatitude < _dMinLatitude || dLatitude > _dMaxLatitude )
+        {
+            return false;
+        }
+        if ( _dMinLongitude <= _dMaxLongitude )
+        {
+            return dLongitude >= _dMinLongitude && dLongitude <= _dMaxLongitude;
+        }
+        return dLongitude >= _dMinLongitude || dLongitude <= _dMaxLongitude;
+    }
+
+    /**
+     * Check if the box is made of valid coordinates
+     * 
+     * @return true if the latitudes and longitudes of the box are valid
+     */
+    public boolean isValid( )
+    {
+        return _dMinLatitude >= -90 && _dMinLatitude <= _dMaxLatitude && _dMaxLatitude <= 90 && _dMinLongitude >= -180 && _dMinLongitude <= 180
+                && _dMaxLongitude >= -180 && _dMaxLongitude <= 180;
+    }
+}
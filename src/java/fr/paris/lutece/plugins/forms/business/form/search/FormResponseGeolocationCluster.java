@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.search;
+
+/**
+ * A cluster of the points of the form responses on the map, located at the centroid of its points
+ */
+public class FormResponseGeolocationCluster
+{
+    private double _dLatitude;
+    private double _dLongitude;
+    private int _nCount;
+    private int _nIdFormResponse;
+
+    /**
+     * @return the latitude of the centroid of the points
+     */
+    public double getLatitude( )
+    {
+        return _dLatitude;
+    }
+
+    /**
+     * @param dLatitude
+     *            the latitude of the centroid of the points
+     */
+    public void setLatitude( double dLatitude )
+    {
+        _dLatitude = dLatitude;
+    }
+
+    /**
+     * @return the longitude of the centroid of the points
+     */
+    public double getLongitude( )
+    {
+        return _dLongitude;
+    }
+
+    /**
+     * @param dLongitude
+     *            the longitude of the centroid of the points
+     */
+    public void setLongitude( double dLongitude )
+    {
+        _dLongitude = dLongitude;
+    }
+
+    /**
+     * @return the number of points of the cluster
+     */
+    public int getCount( )
+    {
+        return _nCount;
+    }
+
+    /**
+     * @param nCount
+     *            the number of points of the cluster
+     */
+    public void setCount( int nCount )
+    {
+        _nCount = nCount;
+    }
+
+    /**
+     * @return the id of the form response of one of the points of the cluster, which is the form response of the point when the cluster has a single point
+     */
+    public int getIdFormResponse( )
+    {
+        return _nIdFormResponse;
+    }
+
+    /**
+     * @param nIdFormResponse
+     *            the id of the form response of one of the points of the cluster
+     */
+    public void setIdFormResponse( int nIdFormResponse )
+    {
+        _nIdFormResponse = nIdFormResponse;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.search.ScoreDoc;
+
+/**
+ * Cursor used to page through the results of a multiview search with searchAfter.<br />
+ * It keeps, for the start index of the visited pages, the last hit (with its sort values) of the previous page. It is only valid for a given query, sort
+ * and index version: it is reset as soon as one of them changes.
+ */
+public class FormResponseSearchCursor
+{
+    // Constants
+    private static final int MAX_POSITIONS = 64;
+
+    // Variables
+    private String _strSearchKey;
+    private long _lIndexVersion = -1;
+    private final Map<Integer, ScoreDoc> _mapLastScoreDocByStartIndex = new LinkedHashMap<Integer, ScoreDoc>( 16, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Integer, ScoreDoc> eldest )
+        {
+            return size( ) > MAX_POSITIONS;
+        }
+    };
+
+    /**
+     * Return the hit preceding the given start index, if it is known
+     * 
+     * @param strSearchKey
+     *            the key of the query and sort
+     * @param lIndexVersion
+     *            the version of the searched index
+     * @param nStartIndex
+     *            the start index of the requested page
+     * @return the hit to search after, or null if unknown
+     */
+    public synchronized ScoreDoc getLastScoreDoc( String strSearchKey, long lIndexVersion, int nStartIndex )
+    {
+        if ( !isValid( strSearchKey, lIndexVersion ) )
+        {
+            reset( strSearchKey, lIndexVersion );
+            return null;
+        }
+        return _mapLastScoreDocByStartIndex.get( nStartIndex );
+    }
+
+    /**
+     * Save the last hit of a page, to be used as the starting point of the next page
+     * 
+     * @param strSearchKey
+     *            the key of the query and sort
+     * @param lIndexVersion
+     *            the version of the searched index
+     * @param nNextStartIndex
+     *            the start index of the next page
+     * @param scoreDoc
+     *            the last hit of the current page
+     */
+    public synchronized void setLastScoreDoc( String strSearchKey, long lIndexVersion, int nNextStartIndex, ScoreDoc scoreDoc )
+    {
+        if ( !isValid( strSearchKey, lIndexVersion ) )
+        {
+            reset( strSearchKey, lIndexVersion );
+        }
+        _mapLastScoreDocByStartIndex.put( nNextStartIndex, scoreDoc );
+    }
+
+    /**
+     * Tell if the saved hits are still usable
+     * 
+     * @param strSearchKey
+     *            the key of the query and sort
+     * @param lIndexVersion
+     *            the version of the searched index
+     * @return true if the saved hits come from the same query, sort and index version
+     */
+    private boolean isValid( String strSearchKey, long lIndexVersion )
+    {
+        return _lIndexVersion == lIndexVersion && strSearchKey.equals( _strSearchKey );
+    }
+
+    /**
+     * Forget the saved hits
+     * 
+     * @param strSearchKey
+     *            the new key of the query and sort
+     * @param lIndexVersion
+     *            the new version of the searched index
+     */
+    private void reset( String strSearchKey, long lIndexVersion )
+    {
+        _mapLastScoreDocByStartIndex.clear( );
+        _strSearchKey = strSearchKey;
+        _lIndexVersion = lIndexVersion;
+    }
+}
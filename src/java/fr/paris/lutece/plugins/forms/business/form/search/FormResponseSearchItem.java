@@ -33,12 +33,18 @@
  */
 package fr.paris.lutece.plugins.forms.business.form.search;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.util.BytesRef;
 
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
 import fr.paris.lutece.portal.service.search.SearchItem;
 import fr.paris.lutece.portal.service.util.AppLogService;
 
@@ -63,6 +69,15 @@ public class FormResponseSearchItem extends SearchItem
     public static final String FIELD_RESPONSE_ID = "_response_id_";
     public static final String FIELD_DATE_SUFFIX = "_date";
     public static final String FIELD_INT_SUFFIX = "_int";
+    public static final String FIELD_ENTRY_VALUES = "entry_values";
+    public static final String FIELD_ENTRY_NUMERIC_VALUES = "entry_numeric_values";
+    public static final String FIELD_GEOLOCATION = "geolocation";
+
+    /**
+     * The fields which are only indexed as DocValues, so that they can be updated in place when the workflow of a form response changes
+     */
+    public static final Set<String> DOC_VALUES_UPDATABLE_FIELDS = Collections
+            .unmodifiableSet( new HashSet<>( Arrays.asList( FIELD_DATE_UPDATE, FIELD_ID_WORKFLOW_STATE, FIELD_TITLE_WORKFLOW_STATE ) ) );
 
     private static final int INTEGER_MINUS_ONE = -1;
 
@@ -347,6 +362,17 @@ public class FormResponseSearchItem extends SearchItem
             {
                 mapEntryCodeFieldsValues.put( strFieldName, field.stringValue( ) );
             }
+            else
+                if ( FIELD_ENTRY_VALUES.equals( strFieldName ) || FIELD_ENTRY_NUMERIC_VALUES.equals( strFieldName ) )
+                {
+                    // Compact schema : the values are decoded into the field names of the dynamic schema
+                    BytesRef value = ( field.binaryValue( ) != null ) ? field.binaryValue( ) : new BytesRef( field.stringValue( ) );
+                    Map.Entry<String, String> entryValue = LuceneUtils.decodeCompactEntryValue( strFieldName, value );
+                    if ( entryValue != null )
+                    {
+                        mapEntryCodeFieldsValues.put( entryValue.getKey( ), entryValue.getValue( ) );
+                    }
+                }
         }
         _mapEntryCodeFieldsValue = mapEntryCodeFieldsValues;
     }
@@ -95,4 +95,80 @@ public interface IIndexerActionDAO
      * @return The List which contains the data of all action
      */
     List<IndexerAction> selectList( IndexerActionFilter filter, Plugin plugin );
+
+    /**
+     * Queue an action for a form response. The queue holds at most one action per form response : when one is already queued, the task with the highest
+     * priority is kept, delete beating modify beating create. Safe to call from several nodes.
+     *
+     * @param indexerAction
+     *            instance of the IndexerAction object to queue
+     * @param plugin
+     *            the plugin
+     */
+    void upsert( IndexerAction indexerAction, Plugin plugin );
+
+    /**
+     * Claim the oldest pending actions and return them. The claimed actions stay in the table until they are completed with
+     * {@link #completeList(List, Plugin)}.
+     *
+     * @param nMaxActions
+     *            the maximum number of actions to claim
+     * @param plugin
+     *            the plugin
+     * @return the claimed actions
+     */
+    List<IndexerAction> claimList( int nMaxActions, Plugin plugin );
+
+    /**
+     * Complete the claimed actions once they are applied to the index. An action queued again since its claim stays pending.
+     *
+     * @param listIndexerAction
+     *            the claimed actions
+     * @param bKeepApplied
+     *            true to keep the applied actions until a snapshot of the index holds them, false to remove them
+     * @param plugin
+     *            the plugin
+     */
+    void completeList( List<IndexerAction> listIndexerAction, boolean bKeepApplied, Plugin plugin );
+
+    /**
+     * Mark the applied actions as exported, before taking a snapshot of the index : they are all committed in the index
+     *
+     * @param plugin
+     *            the plugin
+     */
+    void markExported( Plugin plugin );
+
+    /**
+     * Remove the exported actions, once the snapshot holding them is written
+     *
+     * @param plugin
+     *            the plugin
+     */
+    void deleteExported( Plugin plugin );
+
+    /**
+     * Make the applied and exported actions pending again, so that they are replayed on an index restored from the last snapshot
+     *
+     * @param plugin
+     *            the plugin
+     */
+    void replayApplied( Plugin plugin );
+
+    /**
+     * Make the claimed actions which were never completed pending again, such as the ones of an indexing interrupted by a crash
+     *
+     * @param plugin
+     *            the plugin
+     */
+    void releaseClaimed( Plugin plugin );
+
+    /**
+     * Count the pending and claimed actions
+     *
+     * @param plugin
+     *            the plugin
+     * @return the number of queued actions
+     */
+    int count( Plugin plugin );
 }
@@ -40,6 +40,8 @@ package fr.paris.lutece.plugins.forms.business.form.search;
  */
 public class IndexerAction
 {
+    // Only the workflow of the form response changed : its document is updated in place
+    public static final int TASK_MODIFY_STATE = 0;
     public static final int TASK_CREATE = 1;
     public static final int TASK_MODIFY = 2;
     public static final int TASK_DELETE = 3;
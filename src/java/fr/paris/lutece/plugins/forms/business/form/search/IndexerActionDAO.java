@@ -34,17 +34,26 @@
 package fr.paris.lutece.plugins.forms.business.form.search;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.util.sql.DAOUtil;
 import java.sql.Statement;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * This class provides Data Access methods for Indexer Action objects
  */
 public final class IndexerActionDAO implements IIndexerActionDAO
 {
+    // Status of the queued actions. The applied actions are kept until a snapshot of the index holds them, so that they can be replayed after its restore.
+    private static final int STATUS_PENDING = 0;
+    private static final int STATUS_CLAIMED = 1;
+    private static final int STATUS_APPLIED = 2;
+    private static final int STATUS_EXPORTED = 3;
+
     // Constants
     private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_action,id_form_response,id_task" + " FROM forms_indexer_action WHERE id_action = ?";
     private static final String SQL_QUERY_INSERT = "INSERT INTO forms_indexer_action( id_form_response,id_task)" + " VALUES(?,?)";
@@ -52,6 +61,25 @@ public final class IndexerActionDAO implements IIndexerActionDAO
     private static final String SQL_QUERY_UPDATE = "UPDATE forms_indexer_action SET id_action=?,id_form_response=?,id_task=? WHERE id_action = ? ";
     private static final String SQL_QUERY_SELECT = "SELECT id_action,id_form_response,id_task" + " FROM forms_indexer_action  ";
     private static final String SQL_FILTER_ID_TASK = " WHERE id_task = ? ";
+    private static final String SQL_QUERY_MERGE_TASK = "UPDATE forms_indexer_action SET status = " + STATUS_PENDING
+            + ", id_task = CASE WHEN id_task < ? THEN ? ELSE id_task END WHERE id_form_response = ? ";
+    private static final String SQL_QUERY_SELECT_PENDING_ID = "SELECT id_action FROM forms_indexer_action WHERE status = " + STATUS_PENDING
+            + " ORDER BY id_action LIMIT ? ";
+    private static final String SQL_QUERY_CLAIM_IN = "UPDATE forms_indexer_action SET status = " + STATUS_CLAIMED + " WHERE status = " + STATUS_PENDING
+            + " AND id_action IN ( ";
+    private static final String SQL_QUERY_SELECT_CLAIMED_IN = SQL_QUERY_SELECT + " WHERE status = " + STATUS_CLAIMED + " AND id_action IN ( ";
+    private static final String SQL_QUERY_DELETE_CLAIMED_IN = "DELETE FROM forms_indexer_action WHERE status = " + STATUS_CLAIMED + " AND id_action IN ( ";
+    private static final String SQL_QUERY_RELEASE_CLAIMED = "UPDATE forms_indexer_action SET status = " + STATUS_PENDING + " WHERE status = "
+            + STATUS_CLAIMED;
+    private static final String SQL_QUERY_APPLY_CLAIMED_IN = "UPDATE forms_indexer_action SET status = " + STATUS_APPLIED + " WHERE status = "
+            + STATUS_CLAIMED + " AND id_action IN ( ";
+    private static final String SQL_QUERY_MARK_EXPORTED = "UPDATE forms_indexer_action SET status = " + STATUS_EXPORTED + " WHERE status = "
+            + STATUS_APPLIED;
+    private static final String SQL_QUERY_DELETE_EXPORTED = "DELETE FROM forms_indexer_action WHERE status = " + STATUS_EXPORTED;
+    private static final String SQL_QUERY_REPLAY_APPLIED = "UPDATE forms_indexer_action SET status = " + STATUS_PENDING + " WHERE status IN ( "
+            + STATUS_APPLIED + "," + STATUS_EXPORTED + " )";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT(*) FROM forms_indexer_action WHERE status IN ( " + STATUS_PENDING + "," + STATUS_CLAIMED
+            + " )";
 
     /**
      * {@inheritDoc}
@@ -168,4 +196,216 @@ public final class IndexerActionDAO implements IIndexerActionDAO
 
         return indexerActionList;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void upsert( IndexerAction indexerAction, Plugin plugin )
+    {
+        if ( mergeTask( indexerAction, plugin ) )
+        {
+            return;
+        }
+
+        try
+        {
+            insert( indexerAction, plugin );
+        }
+        catch( AppException e )
+        {
+            // Another node queued an action for the form response since the merge
+            if ( !IndexerDAOUtils.isIntegrityConstraintViolation( e ) || !mergeTask( indexerAction, plugin ) )
+            {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Merge an action with the action queued for the same form response, in a single statement. The task constants are ordered by priority : modify state &lt;
+     * create &lt; modify &lt; delete. The merged action is pending again, so that an action claimed by the indexer is applied once more. An applied action
+     * merged with a new one keeps the highest task, as the last snapshot of the index may not hold it yet.
+     * 
+     * @param indexerAction
+     *            the action to queue
+     * @param plugin
+     *            the plugin
+     * @return true if an action was already queued for the form response
+     */
+    private boolean mergeTask( IndexerAction indexerAction, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_MERGE_TASK, plugin ) )
+        {
+            daoUtil.setInt( 1, indexerAction.getIdTask( ) );
+            daoUtil.setInt( 2, indexerAction.getIdTask( ) );
+            daoUtil.setInt( 3, indexerAction.getIdFormResponse( ) );
+            return daoUtil.executeUpdate( ) > 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<IndexerAction> claimList( int nMaxActions, Plugin plugin )
+    {
+        List<Integer> listIdAction = new ArrayList<>( );
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_PENDING_ID, plugin ) )
+        {
+            daoUtil.setInt( 1, nMaxActions );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                listIdAction.add( daoUtil.getInt( 1 ) );
+            }
+        }
+
+        List<IndexerAction> indexerActionList = new ArrayList<>( listIdAction.size( ) );
+        if ( listIdAction.isEmpty( ) )
+        {
+            return indexerActionList;
+        }
+
+        try ( DAOUtil daoUtil = new DAOUtil( buildInQuery( SQL_QUERY_CLAIM_IN, listIdAction.size( ) ), plugin ) )
+        {
+            setIdActions( daoUtil, listIdAction );
+            daoUtil.executeUpdate( );
+        }
+
+        // The tasks are read once claimed, so that an action merged later is pending again and applied by the next claim
+        try ( DAOUtil daoUtil = new DAOUtil( buildInQuery( SQL_QUERY_SELECT_CLAIMED_IN, listIdAction.size( ) ), plugin ) )
+        {
+            setIdActions( daoUtil, listIdAction );
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                IndexerAction indexerAction = new IndexerAction( );
+                indexerAction.setIdAction( daoUtil.getInt( 1 ) );
+                indexerAction.setIdFormResponse( daoUtil.getInt( 2 ) );
+                indexerAction.setIdTask( daoUtil.getInt( 3 ) );
+
+                indexerActionList.add( indexerAction );
+            }
+        }
+
+        return indexerActionList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void completeList( List<IndexerAction> listIndexerAction, boolean bKeepApplied, Plugin plugin )
+    {
+        if ( listIndexerAction.isEmpty( ) )
+        {
+            return;
+        }
+
+        List<Integer> listIdAction = listIndexerAction.stream( ).map( IndexerAction::getIdAction ).collect( Collectors.toList( ) );
+        String strQuery = bKeepApplied ? SQL_QUERY_APPLY_CLAIMED_IN : SQL_QUERY_DELETE_CLAIMED_IN;
+        try ( DAOUtil daoUtil = new DAOUtil( buildInQuery( strQuery, listIdAction.size( ) ), plugin ) )
+        {
+            setIdActions( daoUtil, listIdAction );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markExported( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_MARK_EXPORTED, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteExported( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_EXPORTED, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayApplied( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_REPLAY_APPLIED, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseClaimed( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE_CLAIMED, plugin ) )
+        {
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * Build a query ending with a list of parameters
+     * 
+     * @param strQuery
+     *            the beginning of the query, ending with "IN ( "
+     * @param nParameters
+     *            the number of parameters
+     * @return the query
+     */
+    private static String buildInQuery( String strQuery, int nParameters )
+    {
+        return strQuery + String.join( ",", Collections.nCopies( nParameters, "?" ) ) + " )";
+    }
+
+    /**
+     * Set the identifiers of the actions as the parameters of a query
+     * 
+     * @param daoUtil
+     *            the DAOUtil of the query
+     * @param listIdAction
+     *            the identifiers of the actions
+     */
+    private static void setIdActions( DAOUtil daoUtil, List<Integer> listIdAction )
+    {
+        for ( int i = 0; i < listIdAction.size( ); i++ )
+        {
+            daoUtil.setInt( i + 1, listIdAction.get( i ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int count( Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, plugin ) )
+        {
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) )
+            {
+                return daoUtil.getInt( 1 );
+            }
+        }
+        return 0;
+    }
 }
@@ -67,6 +67,104 @@ public final class IndexerActionHome
         _dao.insert( indexerAction, plugin );
     }
 
+    /**
+     * Queue an indexer action, merging it with the action already queued for the same form response
+     *
+     * @param indexerAction
+     *            The instance of the indexer action to queue
+     * @param plugin
+     *            the Plugin
+     */
+    public static void upsert( IndexerAction indexerAction, Plugin plugin )
+    {
+        _dao.upsert( indexerAction, plugin );
+    }
+
+    /**
+     * Claim the oldest pending indexer actions and return them
+     *
+     * @param nMaxActions
+     *            the maximum number of actions to claim
+     * @param plugin
+     *            the Plugin
+     * @return the claimed indexer actions
+     */
+    public static List<IndexerAction> claimList( int nMaxActions, Plugin plugin )
+    {
+        return _dao.claimList( nMaxActions, plugin );
+    }
+
+    /**
+     * Complete the claimed indexer actions once they are applied to the index
+     *
+     * @param listIndexerAction
+     *            the claimed indexer actions
+     * @param bKeepApplied
+     *            true to keep the applied actions until a snapshot of the index holds them, false to remove them
+     * @param plugin
+     *            the Plugin
+     */
+    public static void completeList( List<IndexerAction> listIndexerAction, boolean bKeepApplied, Plugin plugin )
+    {
+        _dao.completeList( listIndexerAction, bKeepApplied, plugin );
+    }
+
+    /**
+     * Mark the applied indexer actions as exported, before taking a snapshot of the index
+     *
+     * @param plugin
+     *            the Plugin
+     */
+    public static void markExported( Plugin plugin )
+    {
+        _dao.markExported( plugin );
+    }
+
+    /**
+     * Remove the exported indexer actions, once the snapshot holding them is written
+     *
+     * @param plugin
+     *            the Plugin
+     */
+    public static void deleteExported( Plugin plugin )
+    {
+        _dao.deleteExported( plugin );
+    }
+
+    /**
+     * Make the applied indexer actions pending again, to replay them on an index restored from the last snapshot
+     *
+     * @param plugin
+     *            the Plugin
+     */
+    public static void replayApplied( Plugin plugin )
+    {
+        _dao.replayApplied( plugin );
+    }
+
+    /**
+     * Make the claimed indexer actions which were never completed pending again
+     *
+     * @param plugin
+     *            the Plugin
+     */
+    public static void releaseClaimed( Plugin plugin )
+    {
+        _dao.releaseClaimed( plugin );
+    }
+
+    /**
+     * Count the pending and claimed indexer actions
+     *
+     * @param plugin
+     *            the Plugin
+     * @return the number of queued indexer actions
+     */
+    public static int count( Plugin plugin )
+    {
+        return _dao.count( plugin );
+    }
+
     /**
      * Update of the indexerAction which is specified in parameter
      *
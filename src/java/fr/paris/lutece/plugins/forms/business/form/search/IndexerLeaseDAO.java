@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.search;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.util.sql.DAOUtil;
+import java.sql.Timestamp;
+
+/**
+ * This class provides Data Access methods for the leases of the indexing roles. The expiration of a lease is computed with the clock of the database, shared
+ * by the nodes, and a lease is only taken over with a conditional update on its version.
+ */
+public final class IndexerLeaseDAO implements IIndexerLeaseDAO
+{
+    private static final String SQL_QUERY_SELECT = "SELECT owner, duration, version, renewal_date, CURRENT_TIMESTAMP FROM forms_indexer_lease WHERE lease_name = ? ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO forms_indexer_lease ( lease_name, owner, duration, version, renewal_date ) VALUES ( ?, ?, ?, 0, CURRENT_TIMESTAMP ) ";
+    private static final String SQL_QUERY_ACQUIRE = "UPDATE forms_indexer_lease SET owner = ?, duration = ?, version = version + 1, renewal_date = CURRENT_TIMESTAMP WHERE lease_name = ? AND version = ? ";
+    private static final String SQL_QUERY_RELEASE = "UPDATE forms_indexer_lease SET owner = '', renewal_date = NULL, version = version + 1 WHERE lease_name = ? AND owner = ? ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean acquire( String strLeaseName, String strOwner, long lDuration, Plugin plugin )
+    {
+        long lVersion;
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setString( 1, strLeaseName );
+            daoUtil.executeQuery( );
+            if ( !daoUtil.next( ) )
+            {
+                return insert( strLeaseName, strOwner, lDuration, plugin );
+            }
+            if ( !strOwner.equals( daoUtil.getString( 1 ) ) && isHeld( daoUtil ) )
+            {
+                return false;
+            }
+            lVersion = daoUtil.getLong( 3 );
+        }
+
+        // The update only succeeds if no other node took or renewed the lease since it was read
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_ACQUIRE, plugin ) )
+        {
+            daoUtil.setString( 1, strOwner );
+            daoUtil.setLong( 2, lDuration );
+            daoUtil.setString( 3, strLeaseName );
+            daoUtil.setLong( 4, lVersion );
+            return daoUtil.executeUpdate( ) == 1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release( String strLeaseName, String strOwner, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RELEASE, plugin ) )
+        {
+            daoUtil.setString( 1, strLeaseName );
+            daoUtil.setString( 2, strOwner );
+            daoUtil.executeUpdate( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String selectOwner( String strLeaseName, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setString( 1, strLeaseName );
+            daoUtil.executeQuery( );
+            if ( daoUtil.next( ) && isHeld( daoUtil ) )
+            {
+                return daoUtil.getString( 1 );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Insert the row of a lease missing from the database. The row is seeded by the installation scripts, so it is only missing if it has been deleted.
+     *
+     * @param strLeaseName
+     *            the name of the lease
+     * @param strOwner
+     *            the owner requesting the lease
+     * @param lDuration
+     *            the duration of the lease in milliseconds
+     * @param plugin
+     *            the plugin
+     * @return true if the row has been inserted, false if another node inserted it first
+     */
+    private static boolean insert( String strLeaseName, String strOwner, long lDuration, Plugin plugin )
+    {
+        try ( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin ) )
+        {
+            daoUtil.setString( 1, strLeaseName );
+            daoUtil.setString( 2, strOwner );
+            daoUtil.setLong( 3, lDuration );
+            daoUtil.executeUpdate( );
+            return true;
+        }
+        catch( AppException e )
+        {
+            if ( IndexerDAOUtils.isIntegrityConstraintViolation( e ) )
+            {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Check if the lease read by a query is held, comparing its renewal date with the current time of the database
+     *
+     * @param daoUtil
+     *            the query positioned on the row of the lease
+     * @return true if the lease has an owner and has not expired
+     */
+    private static boolean isHeld( DAOUtil daoUtil )
+    {
+        Timestamp renewalDate = daoUtil.getTimestamp( 4 );
+        Timestamp now = daoUtil.getTimestamp( 5 );
+        return !daoUtil.getString( 1 ).isEmpty( ) && renewalDate != null && now.getTime( ) - renewalDate.getTime( ) < daoUtil.getLong( 2 );
+    }
+}
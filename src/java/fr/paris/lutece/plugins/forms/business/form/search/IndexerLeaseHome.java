@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.search;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides the management of the leases electing the node in charge of the indexing
+ */
+public final class IndexerLeaseHome
+{
+    // Static variable pointed at the DAO instance
+    private static IIndexerLeaseDAO _dao = SpringContextService.getBean( "forms.indexerLeaseDAO" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private IndexerLeaseHome( )
+    {
+    }
+
+    /**
+     * Acquire or renew a lease, if it is free, expired or already held by the owner
+     *
+     * @param strLeaseName
+     *            the name of the lease
+     * @param strOwner
+     *            the owner requesting the lease
+     * @param lDuration
+     *            the duration of the lease in milliseconds, from its renewal by the database
+     * @param plugin
+     *            the Plugin
+     * @return true if the owner holds the lease
+     */
+    public static boolean acquire( String strLeaseName, String strOwner, long lDuration, Plugin plugin )
+    {
+        return _dao.acquire( strLeaseName, strOwner, lDuration, plugin );
+    }
+
+    /**
+     * Release a lease held by an owner
+     *
+     * @param strLeaseName
+     *            the name of the lease
+     * @param strOwner
+     *            the owner of the lease
+     * @param plugin
+     *            the Plugin
+     */
+    public static void release( String strLeaseName, String strOwner, Plugin plugin )
+    {
+        _dao.release( strLeaseName, strOwner, plugin );
+    }
+
+    /**
+     * Return the owner of a lease
+     *
+     * @param strLeaseName
+     *            the name of the lease
+     * @param plugin
+     *            the Plugin
+     * @return the owner of the lease, or null if the lease is free or expired
+     */
+    public static String findOwner( String strLeaseName, Plugin plugin )
+    {
+        return _dao.selectOwner( strLeaseName, plugin );
+    }
+}
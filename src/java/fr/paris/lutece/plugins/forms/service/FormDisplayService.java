@@ -46,6 +46,7 @@ import fr.paris.lutece.plugins.forms.business.Group;
 import fr.paris.lutece.plugins.forms.business.GroupHome;
 import fr.paris.lutece.plugins.forms.business.Question;
 import fr.paris.lutece.plugins.forms.business.QuestionHome;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
 
 /**
  * Service dedicated to management of formDisplay
@@ -95,6 +96,9 @@ public final class FormDisplayService
 
                 // Delete the Question and its Entry
                 QuestionHome.remove( formDisplayCompositeId );
+                MultiviewFormService.getInstance( ).invalidateMultiviewQuestions( );
+                FormService formService = SpringContextService.getBean( FormService.BEAN_NAME );
+                formService.invalidateIndexFieldPlan( formDisplayToDelete.getFormId( ) );
             }
 
             if ( CompositeDisplayType.GROUP.getLabel( ).equalsIgnoreCase( formDisplayToDelete.getCompositeType( ) ) )
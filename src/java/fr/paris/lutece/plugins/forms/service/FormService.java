@@ -54,6 +54,8 @@ import fr.paris.lutece.plugins.forms.business.FormResponseStepHome;
 import fr.paris.lutece.plugins.forms.business.Question;
 import fr.paris.lutece.plugins.forms.business.Step;
 import fr.paris.lutece.plugins.forms.business.StepHome;
+import fr.paris.lutece.plugins.forms.business.form.search.IndexerAction;
+import fr.paris.lutece.plugins.forms.service.search.IFormSearchIndexer;
 import fr.paris.lutece.plugins.forms.service.workflow.IFormWorkflowService;
 import fr.paris.lutece.plugins.forms.util.FormsConstants;
 import fr.paris.lutece.plugins.forms.web.CompositeGroupDisplay;
@@ -89,6 +91,8 @@ public class FormService
 
     @Inject
     private IFormWorkflowService _formWorkflowService;
+    @Inject
+    private IFormSearchIndexer _formSearchIndexer;
 
     /**
      * Saves the specified form
@@ -316,6 +320,7 @@ public class FormService
         int nIdWorkflow = form.getIdWorkflow( );
 
         FormHome.remove( nIdForm );
+        MultiviewFormService.getInstance( ).invalidateMultiviewQuestions( );
 
         _formWorkflowService.removeResources( nIdWorkflow, nIdForm, adminUser );
     }
@@ -463,21 +468,36 @@ public class FormService
     }
 
     /**
-     * Fire the update event on all the form responses associated to given form
+     * Update the index of given formResponse, whose workflow changed but not its content
      * 
-     * @param form
-     *            The form
+     * @param formResponse
+     *            the formResponse
      */
-    public void fireFormResponseEventUpdate( Form form )
+    public void indexFormResponseStateUpdate( FormResponse formResponse )
     {
-        new Thread( ( ) -> {
-            List<FormResponse> listFormResponse = FormResponseHome.selectAllFormResponsesUncompleteByIdForm( form.getId( ) );
+        _formSearchIndexer.indexDocument( formResponse.getId( ), IndexerAction.TASK_MODIFY_STATE, FormsPlugin.getPlugin( ) );
+    }
 
-            for ( FormResponse formResponse : listFormResponse )
-            {
-                fireFormResponseEventUpdate( formResponse );
-            }
-        } ).start( );
+    /**
+     * Reindex all the responses of given form, without rebuilding the rest of the index
+     * 
+     * @param nIdForm
+     *            The identifier of the form
+     */
+    public void reindexFormResponses( int nIdForm )
+    {
+        _formSearchIndexer.reindexForm( nIdForm );
+    }
+
+    /**
+     * Compile again the index fields of the responses of a form, after a change of its questions which does not require to reindex its responses
+     * 
+     * @param nIdForm
+     *            the identifier of the form
+     */
+    public void invalidateIndexFieldPlan( int nIdForm )
+    {
+        _formSearchIndexer.invalidateFieldPlan( nIdForm );
     }
 
     // FORM RESPONSE DELETION
@@ -33,40 +33,41 @@
  */
 package fr.paris.lutece.plugins.forms.service;
 
-import fr.paris.lutece.plugins.forms.business.form.FormParameters;
-import java.util.ArrayList;
+import java.io.Serializable;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
-import fr.paris.lutece.plugins.forms.business.form.FormResponseItem;
-import fr.paris.lutece.plugins.forms.business.form.column.FormColumnFactory;
-import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
-import fr.paris.lutece.plugins.forms.business.form.filter.FormFilter;
-import fr.paris.lutece.plugins.forms.business.form.filter.configuration.FormFilterFormResponseIdConfiguration;
+import fr.paris.lutece.plugins.forms.business.form.FormParameters;
 import fr.paris.lutece.plugins.forms.business.form.list.FormListFacade;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanelFactory;
 import fr.paris.lutece.plugins.forms.business.form.panel.configuration.IFormPanelConfiguration;
-import fr.paris.lutece.plugins.forms.util.FormsConstants;
+import fr.paris.lutece.plugins.forms.business.form.panel.initializer.IFormPanelInitializer;
+import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.IFormPanelInitializerQueryPart;
 import fr.paris.lutece.plugins.forms.web.form.panel.display.factory.FormPanelDisplayFactory;
-import java.util.HashMap;
-import java.util.Map;
-import org.apache.commons.lang3.StringUtils;
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.service.admin.AdminUserService;
 
 /**
- * Implementation of the IFormsMultiviewAuthorizationService interface
+ * Implementation of the IFormsMultiviewAuthorizationService interface. The query parts selecting the form responses of the panel are built once per admin
+ * user and kept in the session, then each form response is checked with a search on its identifier. The query parts of a panel whose FormPanelInitializers
+ * take FormParameters from the request, like a list of form response identifiers, are not kept and are built again on each check.
  */
 public class FormsMultiviewAuthorizationService implements IFormsMultiviewAuthorizationService
 {
+    // Constants
+    private static final String SESSION_ATTRIBUTE_AUTHORIZATION_QUERY_PARTS = "forms.multiviewAuthorization.queryParts";
+    private static final String KEY_SEPARATOR = "|";
+
     // Variables
-    private FormPanel _formPanel;
+    private final IFormPanelConfiguration _formPanelConfiguration;
     private final FormListFacade _formListFacade;
-    private final FormColumnFactory _formColumnFactory;
 
     /**
      * Constructor
@@ -75,16 +76,11 @@ public class FormsMultiviewAuthorizationService implements IFormsMultiviewAuthor
      *            The FormPanelConfiguration to set to the FormPanel
      * @param formListFacade
      *            The FormListFacade to use by the service
-     * @param formColumnFactory
-     *            The FormColumnFactory to use by the service
      */
-    public FormsMultiviewAuthorizationService( IFormPanelConfiguration formPanelConfiguration, FormListFacade formListFacade,
-            FormColumnFactory formColumnFactory )
+    public FormsMultiviewAuthorizationService( IFormPanelConfiguration formPanelConfiguration, FormListFacade formListFacade )
     {
-        _formPanel = new FormPanel( );
-        _formPanel.setFormPanelConfiguration( formPanelConfiguration );
+        _formPanelConfiguration = formPanelConfiguration;
         _formListFacade = formListFacade;
-        _formColumnFactory = formColumnFactory;
     }
 
     /**
@@ -93,54 +89,107 @@ public class FormsMultiviewAuthorizationService implements IFormsMultiviewAuthor
     @Override
     public boolean isUserAuthorizedOnFormResponse( HttpServletRequest request, int nIdFormResponse )
     {
-        boolean bIsUserAuthorizedOnFormResponse = Boolean.FALSE;
-
-        if ( nIdFormResponse != NumberUtils.INTEGER_MINUS_ONE && _formPanel.getFormPanelConfiguration( ) != null )
+        if ( nIdFormResponse == NumberUtils.INTEGER_MINUS_ONE || _formPanelConfiguration == null )
         {
-            _formPanel = new FormPanelFactory( ).buildFormPanel( _formPanel.getFormPanelConfiguration( ) );
+            return false;
+        }
 
-            List<IFormColumn> listFormResponseColumn = _formColumnFactory.buildFormColumnList( null );
+        return _formListFacade.existsFormResponse( getAuthorizationQueryParts( request ), nIdFormResponse );
+    }
 
-            // Rebuild all the FormPanelInitializer to reset the previous data
-            FormPanelDisplayFactory formPanelDisplayFactory = new FormPanelDisplayFactory( );
-            formPanelDisplayFactory.buildFormPanelDisplayInitializer( request, _formPanel );
+    /**
+     * Return the query parts selecting the form responses of the panel for the connected user, from the session or built from the request
+     * 
+     * @param request
+     *            The request used to build the FormParameters of the FormPanelInitializers
+     * @return the query parts of the FormPanelInitializers of the panel
+     */
+    private List<IFormPanelInitializerQueryPart> getAuthorizationQueryParts( HttpServletRequest request )
+    {
+        AdminUser user = AdminUserService.getAdminUser( request );
+        String strKey = _formPanelConfiguration.getTechnicalCode( ) + KEY_SEPARATOR + ( ( user != null ) ? user.getUserId( ) : NumberUtils.INTEGER_MINUS_ONE );
 
-            List<FormFilter> listFormFilters = new ArrayList<>( );
-            listFormFilters.add( buildFormResponseIdFilter( nIdFormResponse ) );
+        HttpSession session = request.getSession( true );
+        AuthorizationQueryParts authorizationQueryParts = (AuthorizationQueryParts) session.getAttribute( SESSION_ATTRIBUTE_AUTHORIZATION_QUERY_PARTS );
+        if ( authorizationQueryParts == null )
+        {
+            authorizationQueryParts = new AuthorizationQueryParts( );
+            session.setAttribute( SESSION_ATTRIBUTE_AUTHORIZATION_QUERY_PARTS, authorizationQueryParts );
+        }
 
-            _formListFacade.populateFormColumns( _formPanel, listFormResponseColumn, listFormFilters, 0, 1, null );
-            List<FormResponseItem> listFormResponseItem = _formPanel.getFormResponseItemList( );
+        List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart = authorizationQueryParts.get( strKey );
+        if ( listFormPanelInitializerQueryPart == null )
+        {
+            FormPanel formPanel = new FormPanelFactory( ).buildFormPanel( _formPanelConfiguration );
+            new FormPanelDisplayFactory( ).buildFormPanelDisplayInitializer( request, formPanel );
 
-            if ( !CollectionUtils.isEmpty( listFormResponseItem ) )
+            listFormPanelInitializerQueryPart = _formListFacade.buildFormPanelInitializerQueryParts( formPanel );
+            if ( !isRequestDependent( formPanel ) )
             {
-                List<Integer> listIdFormResponse = listFormResponseItem.stream( ).map( FormResponseItem::getIdFormResponse ).collect( Collectors.toList( ) );
-                bIsUserAuthorizedOnFormResponse = listIdFormResponse.contains( nIdFormResponse );
+                authorizationQueryParts.put( strKey, listFormPanelInitializerQueryPart );
             }
         }
 
-        return bIsUserAuthorizedOnFormResponse;
+        return listFormPanelInitializerQueryPart;
     }
 
     /**
-     * Build a form response id filter from an id response
+     * Check if the FormPanelInitializers of a panel took FormParameters from the request, so that its query parts are only valid for this request
      * 
-     * @param nIdFormResponse
-     *            The form response id
-     * @return the FormFilter
+     * @param formPanel
+     *            The FormPanel whose FormPanelInitializers have been built from the request
+     * @return true if one of the FormPanelInitializers holds FormParameters
      */
-    private FormFilter buildFormResponseIdFilter( int nIdFormResponse )
+    private static boolean isRequestDependent( FormPanel formPanel )
     {
-        FormFilter formFilterId = new FormFilter( );
-        FormFilterFormResponseIdConfiguration config = new FormFilterFormResponseIdConfiguration( 1, StringUtils.EMPTY, StringUtils.EMPTY );
-        FormParameters formParam = new FormParameters( );
-
-        Map<String, Object> mapFormParam = new HashMap<>( );
-        mapFormParam.put( FormsConstants.PARAMETER_ID_RESPONSE, nIdFormResponse );
+        for ( IFormPanelInitializer formPanelInitializer : formPanel.getListFormPanelInitializer( ) )
+        {
+            FormParameters formParameters = formPanelInitializer.getFormParameters( );
+            if ( formParameters != null && !formParameters.getFormParametersMap( ).isEmpty( ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        formParam.setFormParametersMap( mapFormParam );
-        formFilterId.setFormFilterConfiguration( config );
-        formFilterId.setFormParameters( formParam );
+    /**
+     * The query parts of the panels kept in the session, by panel and admin user. They are not serialized with the session and are built again after its
+     * restoration.
+     */
+    private static final class AuthorizationQueryParts implements Serializable
+    {
+        private static final long serialVersionUID = -1820583418215093604L;
+
+        private transient Map<String, List<IFormPanelInitializerQueryPart>> _mapQueryParts;
+
+        /**
+         * Return the query parts of a panel
+         * 
+         * @param strKey
+         *            the key of the panel and the admin user
+         * @return the query parts of the panel, or null if they are not kept
+         */
+        private synchronized List<IFormPanelInitializerQueryPart> get( String strKey )
+        {
+            return ( _mapQueryParts != null ) ? _mapQueryParts.get( strKey ) : null;
+        }
 
-        return formFilterId;
+        /**
+         * Keep the query parts of a panel
+         * 
+         * @param strKey
+         *            the key of the panel and the admin user
+         * @param listFormPanelInitializerQueryPart
+         *            the query parts of the panel
+         */
+        private synchronized void put( String strKey, List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart )
+        {
+            if ( _mapQueryParts == null )
+            {
+                _mapQueryParts = new HashMap<>( );
+            }
+            _mapQueryParts.put( strKey, listFormPanelInitializerQueryPart );
+        }
     }
 }
@@ -35,8 +35,12 @@ package fr.paris.lutece.plugins.forms.service;
 
 import java.io.Serializable;
 
+import fr.paris.lutece.plugins.forms.service.search.FormsIndexingExecutor;
+import fr.paris.lutece.plugins.forms.service.search.FormsIndexingLeaderElection;
+import fr.paris.lutece.plugins.forms.service.search.IFormSearchIndexer;
 import fr.paris.lutece.plugins.forms.web.file.FormsFileImageService;
 import fr.paris.lutece.portal.service.event.ResourceEventManager;
+import fr.paris.lutece.portal.service.init.ShutdownServiceManager;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -55,6 +59,8 @@ public final class FormsPlugin extends PluginDefaultImplementation implements Se
 
     // Beans
     private static final String BEAN_FORM_RESPONSE_EVENT_LISTENER = "forms.formResponseEventListener";
+    private static final String BEAN_INDEXING_EXECUTOR = "forms.indexingExecutor";
+    private static final String BEAN_INDEXING_LEADER_ELECTION = "forms.indexingLeaderElection";
 
     /**
      * {@inheritDoc}
@@ -65,6 +71,14 @@ public final class FormsPlugin extends PluginDefaultImplementation implements Se
         // ImageResourceManager
         FormsFileImageService.getInstance( ).register( );
         ResourceEventManager.register( SpringContextService.getBean( BEAN_FORM_RESPONSE_EVENT_LISTENER ) );
+        // Stop the indexing gracefully when the webapp stops
+        ShutdownServiceManager.registerShutdownService( SpringContextService.<FormsIndexingExecutor> getBean( BEAN_INDEXING_EXECUTOR ) );
+        // Elect the node in charge of the indexing among the nodes sharing the database, and hand the role over when the webapp stops
+        FormsIndexingLeaderElection leaderElection = SpringContextService.getBean( BEAN_INDEXING_LEADER_ELECTION );
+        leaderElection.start( );
+        ShutdownServiceManager.registerShutdownService( leaderElection );
+        // Bootstrap the index of a new node from the last snapshot, if any
+        SpringContextService.<IFormSearchIndexer> getBean( IFormSearchIndexer.BEAN_NAME ).restoreSnapshot( );
     }
 
     /**
@@ -56,6 +56,8 @@ import fr.paris.lutece.plugins.forms.business.form.filter.configuration.IFormFil
 import fr.paris.lutece.plugins.forms.business.form.list.FormListFacade;
 import fr.paris.lutece.plugins.forms.business.form.list.IFormListDAO;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import fr.paris.lutece.plugins.forms.util.FormsConstants;
 import fr.paris.lutece.plugins.forms.web.entrytype.EntryTypeDateDisplayService;
@@ -63,11 +65,19 @@ import fr.paris.lutece.plugins.forms.web.entrytype.EntryTypeDefaultDisplayServic
 import fr.paris.lutece.plugins.forms.web.entrytype.IEntryDisplayService;
 import fr.paris.lutece.plugins.forms.web.form.panel.display.IFormPanelDisplay;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -75,12 +85,24 @@ import java.util.stream.Collectors;
  */
 public final class MultiviewFormService
 {
+    // Properties
+    private static final String PROPERTY_PANELS_THREADS = "forms.multiview.panels.threads";
+    private static final String PROPERTY_QUESTIONS_CACHE_TTL = "forms.multiview.questions.cache.ttl";
+
+    // Constants
+    private static final String PANELS_THREAD_NAME = "forms-multiview-panels";
+    private static final long PANELS_THREAD_KEEP_ALIVE = 60L;
+
+    // Questions of the columns and filters of the multiview, by form identifier
+    private final Map<Integer, MultiviewQuestions> _mapMultiviewQuestions = new ConcurrentHashMap<>( );
+    private final long _lQuestionsTtl;
+
     /**
      * Constructor
      */
     private MultiviewFormService( )
     {
-
+        _lQuestionsTtl = TimeUnit.SECONDS.toNanos( AppPropertiesService.getPropertyInt( PROPERTY_QUESTIONS_CACHE_TTL, 60 ) );
     }
 
     /**
@@ -115,6 +137,97 @@ public final class MultiviewFormService
         formListFacade.populateFormColumns( formPanel, listFormColumn, listFormFilter, nStartIndex, nPageSize, sortConfig );
     }
 
+    /**
+     * Populate the active FormPanel with the given page of form responses, and only count the form responses of the other FormPanels. The panels are
+     * processed concurrently, the active one in the calling thread.
+     * 
+     * @param listFormPanel
+     *            The list of FormPanel to process
+     * @param formPanelActive
+     *            The FormPanel whose FormColumns are populated, may be null
+     * @param listFormColumn
+     *            The list of all FormColumn to use to be populated
+     * @param listFormFilter
+     *            The list of FormFilter to use for retrieving the data of the columns to populate
+     * @param nStartIndex
+     *            The start index of doc to load
+     * @param nPageSize
+     *            The size of page of docs to load
+     * @param sortConfig
+     *            The sort config
+     */
+    public void populateFormPanels( List<FormPanel> listFormPanel, FormPanel formPanelActive, List<IFormColumn> listFormColumn,
+            List<FormFilter> listFormFilter, int nStartIndex, int nPageSize, FormResponseItemSortConfig sortConfig )
+    {
+        FormListFacade formListFacade = SpringContextService.getBean( FormListFacade.BEAN_NAME );
+        populateFormPanels( formListFacade, listFormPanel, formPanelActive, listFormColumn, listFormFilter, nStartIndex, nPageSize, sortConfig );
+    }
+
+    /**
+     * Populate the active FormPanel and count the form responses of the other FormPanels with the given FormListFacade
+     * 
+     * @param formListFacade
+     *            The FormListFacade retrieving the form responses
+     * @param listFormPanel
+     *            The list of FormPanel to process
+     * @param formPanelActive
+     *            The FormPanel whose FormColumns are populated, may be null
+     * @param listFormColumn
+     *            The list of all FormColumn to use to be populated
+     * @param listFormFilter
+     *            The list of FormFilter to use for retrieving the data of the columns to populate
+     * @param nStartIndex
+     *            The start index of doc to load
+     * @param nPageSize
+     *            The size of page of docs to load
+     * @param sortConfig
+     *            The sort config
+     */
+    void populateFormPanels( FormListFacade formListFacade, List<FormPanel> listFormPanel, FormPanel formPanelActive, List<IFormColumn> listFormColumn,
+            List<FormFilter> listFormFilter, int nStartIndex, int nPageSize, FormResponseItemSortConfig sortConfig )
+    {
+        ThreadPoolExecutor panelsExecutor = MultiviewFormServiceHolder._panelsExecutor;
+
+        List<Future<?>> listFutures = new ArrayList<>( );
+        for ( FormPanel formPanel : listFormPanel )
+        {
+            if ( formPanel != formPanelActive )
+            {
+                if ( panelsExecutor != null )
+                {
+                    listFutures.add( panelsExecutor.submit( ( ) -> formListFacade.countFormResponseItems( formPanel, listFormFilter ) ) );
+                }
+                else
+                {
+                    formListFacade.countFormResponseItems( formPanel, listFormFilter );
+                }
+            }
+        }
+
+        if ( formPanelActive != null )
+        {
+            formListFacade.populateFormColumns( formPanelActive, listFormColumn, listFormFilter, nStartIndex, nPageSize, sortConfig );
+        }
+
+        for ( Future<?> future : listFutures )
+        {
+            try
+            {
+                future.get( );
+            }
+            catch( ExecutionException e )
+            {
+                AppLogService.error( "Unable to count the form responses of a multiview panel", e.getCause( ) );
+            }
+            catch( InterruptedException e )
+            {
+                AppLogService.error( "The count of the form responses of the multiview panels has been interrupted", e );
+                Thread.currentThread( ).interrupt( );
+                return;
+            }
+        }
+    }
+
     public List<FormResponseItem> searchAllListFormResponseItem( FormPanel formPanel, List<IFormColumn> listFormColumn, List<FormFilter> listFormFilter,
             FormResponseItemSortConfig sortConfig )
     {
@@ -122,6 +235,43 @@ public final class MultiviewFormService
         return formListDAO.searchAllFormResponseItem( formPanel, listFormColumn, listFormFilter, sortConfig );
     }
 
+    /**
+     * Count the distinct values of the responses to the given questions among the form responses of the FormPanel matching the given filters
+     * 
+     * @param formPanel
+     *            The FormPanel used to retrieve the form responses, may be null
+     * @param listFormFilter
+     *            The list of FormFilter used for filtering the form responses
+     * @param listQuestionCode
+     *            The list of code of the questions whose values are counted
+     * @return the number of form responses of each value, sorted by value
+     */
+    public Map<String, Integer> countResponseValues( FormPanel formPanel, List<FormFilter> listFormFilter, List<String> listQuestionCode )
+    {
+        IFormListDAO formListDAO = SpringContextService.getBean( IFormListDAO.BEAN_NAME );
+        return formListDAO.countResponseValues( formPanel, listFormFilter, listQuestionCode );
+    }
+
+    /**
+     * Group the points of all the form responses of the FormPanel matching the given filters in a box of the map
+     * 
+     * @param formPanel
+     *            The FormPanel used to retrieve the form responses
+     * @param listFormFilter
+     *            The list of FormFilter used for filtering the form responses
+     * @param box
+     *            The box of the map
+     * @param nZoom
+     *            The zoom level of the map
+     * @return the clusters of the points in the box
+     */
+    public List<FormResponseGeolocationCluster> getGeolocationClusters( FormPanel formPanel, List<FormFilter> listFormFilter, FormResponseGeolocationBox box,
+            int nZoom )
+    {
+        IFormListDAO formListDAO = SpringContextService.getBean( IFormListDAO.BEAN_NAME );
+        return formListDAO.getGeolocationClusters( formPanel, listFormFilter, box, nZoom );
+    }
+
     /**
      * Find the FormPanel which is active in the given list
      * 
@@ -155,6 +305,31 @@ public final class MultiviewFormService
     {
         // Variables
         private static final MultiviewFormService _singleton = new MultiviewFormService( );
+        private static final ThreadPoolExecutor _panelsExecutor = createPanelsExecutor( );
+
+        /**
+         * Create the bounded executor counting the form responses of the panels, from the forms.multiview.panels.threads property. When its queue is full,
+         * the counts run in the calling thread.
+         * 
+         * @return the executor, or null if the panels are processed sequentially
+         */
+        private static ThreadPoolExecutor createPanelsExecutor( )
+        {
+            int nThreads = AppPropertiesService.getPropertyInt( PROPERTY_PANELS_THREADS, 4 );
+            if ( nThreads <= 0 )
+            {
+                return null;
+            }
+
+            ThreadPoolExecutor panelsExecutor = new ThreadPoolExecutor( nThreads, nThreads, PANELS_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>( nThreads * 4 ), runnable -> {
+                        Thread thread = new Thread( runnable, PANELS_THREAD_NAME );
+                        thread.setDaemon( true );
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy( ) );
+            panelsExecutor.allowCoreThreadTimeOut( true );
+            return panelsExecutor;
+        }
     }
 
     /**
@@ -172,17 +347,10 @@ public final class MultiviewFormService
         Collections.sort( listFormColumns, new FormColumnComparator( ) ); // sort by position
         listFormColumns.forEach( column -> mapFormColumns.put( column.getFormColumnTitle( ), column ) );
 
-        // Then add global columns from config questions
-        List<Question> listQuestions = ( nIdForm == null || nIdForm == FormsConstants.DEFAULT_ID_VALUE ) ? QuestionHome.getQuestionsListUncomplete( )
-                : QuestionHome.getListQuestionByIdFormUncomplete( nIdForm );
-
-        addColumnFromConfig( mapFormColumns, listQuestions, true );
-
-        if ( nIdForm != null && nIdForm != FormsConstants.DEFAULT_ID_VALUE )
-        {
-            // Then add specific columns from config questions
-            addColumnFromConfig( mapFormColumns, listQuestions, false );
-        }
+        // Then add global columns from config questions, then the specific ones
+        MultiviewQuestions multiviewQuestions = getMultiviewQuestions( nIdForm );
+        addColumnFromConfig( mapFormColumns, multiviewQuestions._listColumnQuestionGlobal );
+        addColumnFromConfig( mapFormColumns, multiviewQuestions._listColumnQuestionFormSelected );
 
         // Filter the columns with the multiview config
         filterWithMultiviewConfig( mapFormColumns );
@@ -223,19 +391,37 @@ public final class MultiviewFormService
             mapFormFilter.put( formFilter.getFormFilterConfiguration( ).getFormFilterName( ), formFilter );
         }
 
-        // Then add the global question-based for Filters
-        List<Question> listQuestions = ( nIdForm == null || nIdForm == FormsConstants.DEFAULT_ID_VALUE ) ? QuestionHome.getQuestionsListUncomplete( )
-                : QuestionHome.getListQuestionByIdFormUncomplete( nIdForm );
+        // Then add the global question-based for Filters, then the specific ones
+        MultiviewQuestions multiviewQuestions = getMultiviewQuestions( nIdForm );
+        addFilterFromConfig( mapFormFilter, multiviewQuestions._listFilterQuestionGlobal, listFormColumn );
+        addFilterFromConfig( mapFormFilter, multiviewQuestions._listFilterQuestionFormSelected, listFormColumn );
 
-        addFilterFromConfig( mapFormFilter, listQuestions, listFormColumn, true );
+        return new ArrayList<>( mapFormFilter.values( ) );
+    }
 
-        if ( nIdForm != null && nIdForm != FormsConstants.DEFAULT_ID_VALUE )
-        {
-            // Then add specific columns from config questions
-            addFilterFromConfig( mapFormFilter, listQuestions, listFormColumn, false );
-        }
+    /**
+     * Invalidate the questions of the columns and filters of the multiview, after a change of the questions or of their entries, or the removal of a form. The
+     * other nodes reload their questions once they expire.
+     */
+    public void invalidateMultiviewQuestions( )
+    {
+        _mapMultiviewQuestions.clear( );
+    }
 
-        return new ArrayList<>( mapFormFilter.values( ) );
+    /**
+     * Return the questions of the columns and filters of the multiview for a form, loading them on the first call and once they have expired
+     * 
+     * @param nIdForm
+     *            the identifier of the selected form, or null for all the forms
+     * @return the questions of the multiview
+     */
+    private MultiviewQuestions getMultiviewQuestions( Integer nIdForm )
+    {
+        int nKey = ( nIdForm == null ) ? FormsConstants.DEFAULT_ID_VALUE : nIdForm;
+        return _mapMultiviewQuestions.compute( nKey,
+                ( nKeyForm, multiviewQuestions ) -> ( multiviewQuestions == null || multiviewQuestions.isExpired( _lQuestionsTtl ) )
+                        ? new MultiviewQuestions( nKeyForm )
+                        : multiviewQuestions );
     }
 
     /**
@@ -243,30 +429,25 @@ public final class MultiviewFormService
      * 
      * @param mapColumns
      * @param listQuestions
-     * @param bGlobal
+     *            the questions displayed in the columns, with their entry
      */
-    private void addColumnFromConfig( Map<String, IFormColumn> mapColumns, List<Question> listQuestions, boolean bGlobal )
+    private void addColumnFromConfig( Map<String, IFormColumn> mapColumns, List<Question> listQuestions )
     {
         int nPosition = mapColumns.size( );
         for ( Question question : listQuestions )
         {
-            if ( bGlobal ? question.isVisibleMultiviewGlobal( ) : question.isVisibleMultiviewFormSelected( ) )
+            if ( !mapColumns.keySet( ).contains( question.getColumnTitle( ) ) )
             {
-                question = QuestionHome.findByPrimaryKey( question.getId( ) );
+                IEntryDisplayService displayService = EntryServiceManager.getInstance( ).getEntryDisplayService( question.getEntry( ).getEntryType( ) );
+                IFormColumn column = displayService.getFormColumn( ++nPosition, question.getColumnTitle( ) );
+                addEntryCodeToColumn( column, question );
 
-                if ( !mapColumns.keySet( ).contains( question.getColumnTitle( ) ) )
-                {
-                    IEntryDisplayService displayService = EntryServiceManager.getInstance( ).getEntryDisplayService( question.getEntry( ).getEntryType( ) );
-                    IFormColumn column = displayService.getFormColumn( ++nPosition, question.getColumnTitle( ) );
-                    addEntryCodeToColumn( column, question );
-
-                    mapColumns.put( column.getFormColumnTitle( ), column );
-                }
-                else
-                {
-                    IFormColumn column = mapColumns.get( question.getColumnTitle( ) );
-                    addEntryCodeToColumn( column, question );
-                }
+                mapColumns.put( column.getFormColumnTitle( ), column );
+            }
+            else
+            {
+                IFormColumn column = mapColumns.get( question.getColumnTitle( ) );
+                addEntryCodeToColumn( column, question );
             }
         }
     }
@@ -288,20 +469,14 @@ public final class MultiviewFormService
      * 
      * @param mapColumns
      * @param listQuestions
-     * @param bGlobal
+     *            the filtrable questions, with their entry
      */
-    private void addFilterFromConfig( Map<String, FormFilter> mapFilters, List<Question> listQuestions, List<IFormColumn> listFormColumns, boolean bGlobal )
+    private void addFilterFromConfig( Map<String, FormFilter> mapFilters, List<Question> listQuestions, List<IFormColumn> listFormColumns )
     {
         int nPosition = mapFilters.size( );
 
-        List<Question> listFiltrableQuestions = listQuestions.stream( )
-                .filter( question -> bGlobal ? question.isFiltrableMultiviewGlobal( ) : question.isFiltrableMultiviewFormSelected( ) )
-                .collect( Collectors.toList( ) );
-
-        for ( Question question : listFiltrableQuestions )
+        for ( Question question : listQuestions )
         {
-            question = QuestionHome.findByPrimaryKey( question.getId( ) );
-
             if ( mapFilters.keySet( ).contains( question.getCode( ) ) )
             {
                 continue;
@@ -357,4 +532,74 @@ public final class MultiviewFormService
         }
 
     }
+
+    /**
+     * The questions of the columns and filters of the multiview for a form, loaded with their entry. The lists are not modified once loaded.
+     */
+    private static final class MultiviewQuestions
+    {
+        private final List<Question> _listColumnQuestionGlobal = new ArrayList<>( );
+        private final List<Question> _listColumnQuestionFormSelected = new ArrayList<>( );
+        private final List<Question> _listFilterQuestionGlobal = new ArrayList<>( );
+        private final List<Question> _listFilterQuestionFormSelected = new ArrayList<>( );
+        private final long _lLoadTime = System.nanoTime( );
+
+        /**
+         * Load the questions of the multiview for a form
+         * 
+         * @param nIdForm
+         *            the identifier of the selected form, or DEFAULT_ID_VALUE for all the forms
+         */
+        private MultiviewQuestions( int nIdForm )
+        {
+            boolean bFormSelected = nIdForm != FormsConstants.DEFAULT_ID_VALUE;
+            List<Question> listQuestions = bFormSelected ? QuestionHome.getListQuestionByIdFormUncomplete( nIdForm )
+                    : QuestionHome.getQuestionsListUncomplete( );
+
+            // A question used by several lists is loaded once with its entry
+            Map<Integer, Question> mapLoadedQuestions = new HashMap<>( );
+            for ( Question question : listQuestions )
+            {
+                addQuestion( _listColumnQuestionGlobal, question.isVisibleMultiviewGlobal( ), question, mapLoadedQuestions );
+                addQuestion( _listFilterQuestionGlobal, question.isFiltrableMultiviewGlobal( ), question, mapLoadedQuestions );
+                if ( bFormSelected )
+                {
+                    addQuestion( _listColumnQuestionFormSelected, question.isVisibleMultiviewFormSelected( ), question, mapLoadedQuestions );
+                    addQuestion( _listFilterQuestionFormSelected, question.isFiltrableMultiviewFormSelected( ), question, mapLoadedQuestions );
+                }
+            }
+        }
+
+        /**
+         * Check if the questions have been loaded for longer than the given time to live
+         * 
+         * @param lTtl
+         *            the time to live of the questions in nanoseconds
+         * @return true if the questions must be loaded again
+         */
+        private boolean isExpired( long lTtl )
+        {
+            return System.nanoTime( ) - _lLoadTime >= lTtl;
+        }
+
+        /**
+         * Add the loaded question to a list, if it is used by this list
+         * 
+         * @param listQuestions
+         *            the list of questions
+         * @param bUsed
+         *            true if the question is used by the list
+         * @param question
+         *            the question, without its entry
+         * @param mapLoadedQuestions
+         *            the questions loaded with their entry, by identifier
+         */
+        private static void addQuestion( List<Question> listQuestions, boolean bUsed, Question question, Map<Integer, Question> mapLoadedQuestions )
+        {
+            if ( bUsed )
+            {
+                listQuestions.add( mapLoadedQuestions.computeIfAbsent( question.getId( ), QuestionHome::findByPrimaryKey ) );
+            }
+        }
+    }
 }
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeDate;
+import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeGeolocation;
+import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeNumbering;
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
+import fr.paris.lutece.plugins.genericattributes.business.Entry;
+import fr.paris.lutece.plugins.genericattributes.business.Field;
+import fr.paris.lutece.plugins.genericattributes.business.Response;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
+import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
+
+/**
+ * The index fields of the responses of a form, compiled once from its questions. For each question, the plan holds the type of its values and the names of
+ * its fields in the first iteration, so that the documents of the form responses are built without resolving the entry types or building the field names.
+ * The fields of the other iterations are built on demand.
+ */
+public final class FormIndexFieldPlan
+{
+    /**
+     * The way the values of a question are indexed
+     */
+    public enum ValueType
+    {
+        DATE( FormResponseSearchItem.FIELD_DATE_SUFFIX ),
+        NUMBERING( FormResponseSearchItem.FIELD_INT_SUFFIX ),
+        STRING( null );
+
+        private final String _strTypeSuffix;
+
+        ValueType( String strTypeSuffix )
+        {
+            _strTypeSuffix = strTypeSuffix;
+        }
+
+        /**
+         * @return the suffix of the field names of the type, or null for the string values
+         */
+        public String getTypeSuffix( )
+        {
+            return _strTypeSuffix;
+        }
+    }
+
+    /**
+     * The coordinates of the points of the geolocation questions
+     */
+    public enum GeolocationCoordinate
+    {
+        LONGITUDE,
+        LATITUDE
+    }
+
+    // The values of the fields of the geolocation entries holding the coordinates
+    private static final String GEOLOCATION_FIELD_X = "X";
+    private static final String GEOLOCATION_FIELD_Y = "Y";
+
+    private final int _nIdForm;
+    private final Map<Integer, QuestionPlan> _mapQuestionPlans = new ConcurrentHashMap<>( );
+
+    /**
+     * Constructor
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @param listQuestion
+     *            the questions of the form, with their entry
+     */
+    public FormIndexFieldPlan( int nIdForm, List<Question> listQuestion )
+    {
+        _nIdForm = nIdForm;
+        for ( Question question : listQuestion )
+        {
+            addQuestionPlan( question );
+        }
+    }
+
+    /**
+     * @return the id of the form
+     */
+    public int getIdForm( )
+    {
+        return _nIdForm;
+    }
+
+    /**
+     * Return the plan of a question of the form
+     * 
+     * @param nIdQuestion
+     *            the id of the question
+     * @return the plan of the question, or null if the question was not compiled in the plan
+     */
+    public QuestionPlan getQuestionPlan( int nIdQuestion )
+    {
+        return _mapQuestionPlans.get( nIdQuestion );
+    }
+
+    /**
+     * Compile the plan of a question which is not yet in the plan
+     * 
+     * @param question
+     *            the question, with its entry
+     * @return the plan of the question
+     */
+    public QuestionPlan addQuestionPlan( Question question )
+    {
+        return _mapQuestionPlans.computeIfAbsent( question.getId( ), nIdQuestion -> new QuestionPlan( question ) );
+    }
+
+    /**
+     * Return the name of the field of a response, as it appears in the index field names
+     * 
+     * @param responseField
+     *            the field of the response
+     * @param response
+     *            the response
+     * @return the field name
+     */
+    public static String getFieldName( Field responseField, Response response )
+    {
+        if ( responseField.getIdField( ) > 0 )
+        {
+            return String.valueOf( responseField.getIdField( ) );
+        }
+        if ( !StringUtils.isEmpty( responseField.getCode( ) ) )
+        {
+            return responseField.getCode( );
+        }
+        if ( !StringUtils.isEmpty( responseField.getTitle( ) ) )
+        {
+            return responseField.getTitle( );
+        }
+        return String.valueOf( response.getIdResponse( ) );
+    }
+
+    /**
+     * The index fields of a question
+     */
+    public static final class QuestionPlan
+    {
+        private final String _strQuestionCode;
+        private final ValueType _valueType;
+        private final IndexField _indexFieldWithoutField;
+        private final Map<Integer, IndexField> _mapIndexFieldsByIdField = new HashMap<>( );
+        private final Map<Integer, GeolocationCoordinate> _mapGeolocationCoordinatesByIdField = new HashMap<>( );
+
+        private QuestionPlan( Question question )
+        {
+            _strQuestionCode = question.getCode( );
+
+            Entry entry = question.getEntry( );
+            IEntryTypeService entryTypeService = ( entry != null ) ? EntryTypeServiceManager.getEntryTypeService( entry ) : null;
+            boolean bGeolocation = entryTypeService instanceof EntryTypeGeolocation;
+            if ( entryTypeService instanceof EntryTypeDate )
+            {
+                _valueType = ValueType.DATE;
+            }
+            else
+                if ( entryTypeService instanceof EntryTypeNumbering )
+                {
+                    _valueType = ValueType.NUMBERING;
+                }
+                else
+                {
+                    _valueType = ValueType.STRING;
+                }
+
+            _indexFieldWithoutField = new IndexField( _strQuestionCode, 0, null, _valueType );
+            if ( entry != null && entry.getFields( ) != null )
+            {
+                for ( Field field : entry.getFields( ) )
+                {
+                    if ( field.getIdField( ) > 0 )
+                    {
+                        _mapIndexFieldsByIdField.put( field.getIdField( ),
+                                new IndexField( _strQuestionCode, 0, String.valueOf( field.getIdField( ) ), _valueType ) );
+                        if ( bGeolocation && GEOLOCATION_FIELD_X.equals( field.getValue( ) ) )
+                        {
+                            _mapGeolocationCoordinatesByIdField.put( field.getIdField( ), GeolocationCoordinate.LONGITUDE );
+                        }
+                        else
+                            if ( bGeolocation && GEOLOCATION_FIELD_Y.equals( field.getValue( ) ) )
+                            {
+                                _mapGeolocationCoordinatesByIdField.put( field.getIdField( ), GeolocationCoordinate.LATITUDE );
+                            }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the way the values of the question are indexed
+         */
+        public ValueType getValueType( )
+        {
+            return _valueType;
+        }
+
+        /**
+         * @return true if the responses to the question are the coordinates of points
+         */
+        public boolean isGeolocation( )
+        {
+            return !_mapGeolocationCoordinatesByIdField.isEmpty( );
+        }
+
+        /**
+         * Return the coordinate held by a response to a geolocation question
+         * 
+         * @param response
+         *            the response
+         * @return the coordinate of the response, or null if the response is not a coordinate
+         */
+        public GeolocationCoordinate getGeolocationCoordinate( Response response )
+        {
+            Field responseField = response.getField( );
+            return ( responseField != null ) ? _mapGeolocationCoordinatesByIdField.get( responseField.getIdField( ) ) : null;
+        }
+
+        /**
+         * Return the index field of a response to the question
+         * 
+         * @param response
+         *            the response
+         * @return the index field of the response
+         */
+        public IndexField getIndexField( Response response )
+        {
+            Field responseField = response.getField( );
+            boolean bFirstIteration = response.getIterationNumber( ) <= 0;
+
+            if ( responseField == null )
+            {
+                return bFirstIteration ? _indexFieldWithoutField : new IndexField( _strQuestionCode, response.getIterationNumber( ), null, _valueType );
+            }
+
+            if ( bFirstIteration )
+            {
+                IndexField indexField = _mapIndexFieldsByIdField.get( responseField.getIdField( ) );
+                if ( indexField != null )
+                {
+                    return indexField;
+                }
+            }
+            return new IndexField( _strQuestionCode, response.getIterationNumber( ), getFieldName( responseField, response ), _valueType );
+        }
+    }
+
+    /**
+     * The names of the index field of a question, iteration and field
+     */
+    public static final class IndexField
+    {
+        private final String _strName;
+        private final String _strTypedName;
+        private final String _strCompactKey;
+
+        private IndexField( String strQuestionCode, int nIterationNumber, String strFieldName, ValueType valueType )
+        {
+            String strName = LuceneUtils.createLuceneEntryKey( strQuestionCode, nIterationNumber );
+            if ( strFieldName != null )
+            {
+                strName += FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR + strFieldName;
+            }
+            _strName = strName;
+            _strTypedName = ( valueType.getTypeSuffix( ) != null ) ? strName + valueType.getTypeSuffix( ) : strName;
+            _strCompactKey = LuceneUtils.createCompactEntryKey( strQuestionCode, nIterationNumber, strFieldName, valueType.getTypeSuffix( ) );
+        }
+
+        /**
+         * @return the name of the field in the dynamic schema, without type suffix
+         */
+        public String getName( )
+        {
+            return _strName;
+        }
+
+        /**
+         * @return the name of the field in the dynamic schema, with the type suffix of the numeric values
+         */
+        public String getTypedName( )
+        {
+            return _strTypedName;
+        }
+
+        /**
+         * @return the key of the field in the compact schema
+         */
+        public String getCompactKey( )
+        {
+            return _strCompactKey;
+        }
+    }
+}
@@ -0,0 +1,1020 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * A physical Lucene index of the forms index, holding the form responses of one form, of a group of forms, or of all the forms when the index is not
+ * partitioned. It owns the IndexWriter and the near-real-time SearcherManager of the index, and the shadow index used to rebuild it. A rebuilt or restored
+ * index replaces the live one as its next generation : the first generation is stored in the path of the partition, the next ones in the sibling directories
+ * suffixed by _gen and their number, and the file suffixed by .generation next to the partition holds the number of the live generation.
+ */
+public class FormIndexPartition
+{
+    // Constants
+    private static final String SHADOW_INDEX_SUFFIX = "_rebuild";
+    private static final String RESTORE_INDEX_SUFFIX = "_restore";
+    private static final String GENERATION_SUFFIX = "_gen";
+    private static final String GENERATION_FILE_SUFFIX = ".generation";
+    private static final String GENERATION_FILE_TEMPORARY_SUFFIX = ".tmp";
+
+    // Variables
+    private final String _strName;
+    private final Path _path;
+    private final LuceneFormSearchFactory _luceneFormSearchFactory;
+    private IndexWriter _indexWriter;
+    private Directory _indexWriterDirectory;
+    private SearcherManager _searcherManager;
+    private IndexWriter _searcherManagerIndexWriter;
+    private Directory _searcherManagerDirectory;
+    private volatile int _nGeneration;
+    private final ReadWriteLock _snapshotLock = new ReentrantReadWriteLock( );
+
+    /**
+     * Constructor
+     * 
+     * @param strName
+     *            the name of the partition
+     * @param path
+     *            the path of the index of the partition
+     * @param luceneFormSearchFactory
+     *            the factory providing the storage and the writer configuration
+     */
+    FormIndexPartition( String strName, Path path, LuceneFormSearchFactory luceneFormSearchFactory )
+    {
+        _strName = strName;
+        _path = path;
+        _luceneFormSearchFactory = luceneFormSearchFactory;
+        _nGeneration = readGeneration( );
+    }
+
+    /**
+     * Return the name of the partition
+     * 
+     * @return the name of the partition, empty when the index is not partitioned
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Return the IndexWriter of the partition, opening it if needed
+     * 
+     * @param bCreateIndex
+     *            The boolean which tell if the index must be created
+     * @return the IndexWriter, or null if it cannot be opened or if the index is read only on this node
+     */
+    public synchronized IndexWriter getIndexWriter( Boolean bCreateIndex )
+    {
+        if ( _luceneFormSearchFactory.isReadOnly( ) )
+        {
+            return null;
+        }
+
+        if ( _indexWriter == null || !_indexWriter.isOpen( ) )
+        {
+            closeIndexWriterDirectory( );
+            Directory luceneDirectory = null;
+            try
+            {
+                // Another node may have swapped the index while this one was reading it
+                _nGeneration = readGeneration( );
+                luceneDirectory = openDirectory( );
+
+                if ( !DirectoryReader.indexExists( luceneDirectory ) )
+                {
+                    bCreateIndex = Boolean.TRUE;
+                }
+
+                IndexWriterConfig conf = _luceneFormSearchFactory.createIndexWriterConfig( );
+
+                if ( Boolean.TRUE.equals( bCreateIndex ) )
+                {
+                    conf.setOpenMode( OpenMode.CREATE );
+                }
+                else
+                {
+                    conf.setOpenMode( OpenMode.APPEND );
+                }
+                _indexWriter = new IndexWriter( luceneDirectory, conf );
+                _indexWriterDirectory = luceneDirectory;
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to create a new Lucene Index Writer for the forms index " + _path, e );
+                closeQuietly( luceneDirectory );
+                return null;
+            }
+        }
+        return _indexWriter;
+    }
+
+    /**
+     * Commit the pending changes of the IndexWriter of the partition, if it is open
+     * 
+     * @return false if the changes could not be committed
+     */
+    public boolean commit( )
+    {
+        return commit( null );
+    }
+
+    /**
+     * Commit the pending changes of the IndexWriter of the partition, if it is open, with the given commit data
+     * 
+     * @param mapCommitData
+     *            the user data of the commit, or null to keep the data of the previous commit
+     * @return false if the changes could not be committed, such as when the IndexWriter was closed by an error
+     */
+    public synchronized boolean commit( Map<String, String> mapCommitData )
+    {
+        if ( _indexWriter == null )
+        {
+            return true;
+        }
+        if ( !_indexWriter.isOpen( ) )
+        {
+            return false;
+        }
+        if ( _indexWriter.hasUncommittedChanges( ) )
+        {
+            try
+            {
+                if ( mapCommitData != null )
+                {
+                    _indexWriter.setLiveCommitData( mapCommitData.entrySet( ) );
+                }
+                _indexWriter.commit( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to commit the forms index " + _path, e );
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Acquire a near-real-time IndexSearcher on the partition. It must be given back with {@link #releaseIndexSearcher(IndexSearcher)} once the search is
+     * done.
+     * 
+     * @return the index searcher
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    public IndexSearcher acquireIndexSearcher( ) throws IOException
+    {
+        return getSearcherManager( ).acquire( );
+    }
+
+    /**
+     * Release an IndexSearcher acquired with {@link #acquireIndexSearcher()}
+     * 
+     * @param indexSearcher
+     *            the index searcher to release, may be null
+     */
+    public synchronized void releaseIndexSearcher( IndexSearcher indexSearcher )
+    {
+        if ( indexSearcher == null || _searcherManager == null )
+        {
+            return;
+        }
+        try
+        {
+            _searcherManager.release( indexSearcher );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to release the Lucene index searcher", e );
+        }
+    }
+
+    /**
+     * Check that the fields of the live index have the given DocValues types. A field indexed with another type, such as by a previous version of the schema,
+     * can't receive new documents until the index is rebuilt.
+     * 
+     * @param mapDocValuesTypes
+     *            the expected DocValues types, by field name
+     * @return false if a field of the live index has another DocValues type
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    public boolean hasDocValuesTypes( Map<String, DocValuesType> mapDocValuesTypes ) throws IOException
+    {
+        IndexSearcher indexSearcher = acquireIndexSearcher( );
+        try
+        {
+            for ( LeafReaderContext leafReaderContext : indexSearcher.getIndexReader( ).leaves( ) )
+            {
+                for ( Map.Entry<String, DocValuesType> docValuesType : mapDocValuesTypes.entrySet( ) )
+                {
+                    FieldInfo fieldInfo = leafReaderContext.reader( ).getFieldInfos( ).fieldInfo( docValuesType.getKey( ) );
+                    if ( fieldInfo != null && fieldInfo.getDocValuesType( ) != DocValuesType.NONE
+                            && fieldInfo.getDocValuesType( ) != docValuesType.getValue( ) )
+                    {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        finally
+        {
+            releaseIndexSearcher( indexSearcher );
+        }
+    }
+
+    /**
+     * Refresh the searcher of the partition so that the next searches see the last changes of the index writer. When the index is read only on this node, the
+     * searcher first switches to the generation of the index made live by the node writing it.
+     */
+    public void refreshSearcher( )
+    {
+        try
+        {
+            if ( _luceneFormSearchFactory.isReadOnly( ) )
+            {
+                followLiveGeneration( );
+            }
+            getSearcherManager( ).maybeRefresh( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to refresh the Lucene index searcher", e );
+        }
+    }
+
+    /**
+     * Switch the read only SearcherManager of the partition to the live generation of the index, if it has changed. The new SearcherManager is opened without
+     * holding the lock of the searches.
+     * 
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private void followLiveGeneration( ) throws IOException
+    {
+        int nGeneration = readGeneration( );
+        if ( nGeneration == _nGeneration )
+        {
+            return;
+        }
+
+        Directory directory = _luceneFormSearchFactory.openDirectory( getGenerationPath( nGeneration ) );
+        SearcherManager searcherManager;
+        try
+        {
+            searcherManager = new SearcherManager( directory, new SearcherFactory( ) );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            closeQuietly( directory );
+            throw e;
+        }
+
+        SearcherManager previousSearcherManager;
+        Directory previousDirectory;
+        synchronized( this )
+        {
+            previousSearcherManager = _searcherManager;
+            previousDirectory = _searcherManagerDirectory;
+            _nGeneration = nGeneration;
+            _searcherManager = searcherManager;
+            _searcherManagerIndexWriter = null;
+            _searcherManagerDirectory = directory;
+        }
+        closeQuietly( previousSearcherManager );
+        closeQuietly( previousDirectory );
+    }
+
+    /**
+     * Return the SearcherManager tied to the IndexWriter of the partition, (re)creating it when the writer has changed. When the index is read only on this
+     * node, the SearcherManager reads the last commit of the index directory instead.
+     * 
+     * @return the searcher manager
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private synchronized SearcherManager getSearcherManager( ) throws IOException
+    {
+        if ( _luceneFormSearchFactory.isReadOnly( ) )
+        {
+            if ( _searcherManager == null || _searcherManagerDirectory == null )
+            {
+                closeSearcherManager( );
+                _nGeneration = readGeneration( );
+                Directory directory = openDirectory( );
+                try
+                {
+                    _searcherManager = new SearcherManager( directory, new SearcherFactory( ) );
+                }
+                catch( IOException e )
+                {
+                    directory.close( );
+                    throw e;
+                }
+                _searcherManagerDirectory = directory;
+            }
+            return _searcherManager;
+        }
+
+        IndexWriter indexWriter = getIndexWriter( Boolean.FALSE );
+        if ( indexWriter == null )
+        {
+            throw new IOException( "No Lucene Index Writer available for the forms index " + _path );
+        }
+
+        if ( _searcherManager == null || _searcherManagerIndexWriter != indexWriter )
+        {
+            closeSearcherManager( );
+            _searcherManager = new SearcherManager( indexWriter, new SearcherFactory( ) );
+            _searcherManagerIndexWriter = indexWriter;
+        }
+        return _searcherManager;
+    }
+
+    /**
+     * Open an IndexWriter on the shadow index of the partition, next to the live one, to rebuild it without altering the live index
+     * 
+     * @param bResume
+     *            true to keep the content of an interrupted rebuild, false to start from an empty shadow index
+     * @return the IndexWriter of the shadow index
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    public IndexWriter openShadowIndexWriter( boolean bResume ) throws IOException
+    {
+        IndexWriterConfig conf = _luceneFormSearchFactory.createIndexWriterConfig( );
+        conf.setOpenMode( bResume ? OpenMode.CREATE_OR_APPEND : OpenMode.CREATE );
+
+        Directory shadowDirectory = openShadowDirectory( );
+        try
+        {
+            return new IndexWriter( shadowDirectory, conf );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            closeQuietly( shadowDirectory );
+            throw e;
+        }
+    }
+
+    /**
+     * Drop the uncommitted changes of the IndexWriter of the shadow index and close it with its Directory. The shadow index keeps its last commit, so that
+     * the rebuild can be resumed.
+     * 
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index, opened with {@link #openShadowIndexWriter(boolean)}
+     */
+    public void rollbackShadowIndexWriter( IndexWriter shadowIndexWriter )
+    {
+        Directory shadowDirectory = shadowIndexWriter.getDirectory( );
+        try
+        {
+            if ( shadowIndexWriter.isOpen( ) )
+            {
+                shadowIndexWriter.rollback( );
+            }
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to roll back the shadow index of the forms index " + _path, e );
+        }
+        finally
+        {
+            closeQuietly( shadowDirectory );
+        }
+    }
+
+    /**
+     * Check if an interrupted rebuild left a committed shadow index
+     * 
+     * @return true if a shadow index exists
+     */
+    public boolean hasShadowIndex( )
+    {
+        try ( Directory shadowDirectory = openShadowDirectory( ) )
+        {
+            return DirectoryReader.indexExists( shadowDirectory );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to read the shadow index", e );
+            return false;
+        }
+    }
+
+    /**
+     * Make the shadow index the live index of the partition. The shadow index becomes the next generation of the index : its directory is renamed, then the
+     * partition switches to a new IndexWriter and a new SearcherManager on it. The searches only wait for this switch, and keep the searchers acquired on the
+     * previous generation until they release them. The previous generation is then removed.
+     * 
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index, opened with {@link #openShadowIndexWriter(boolean)}
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    public void swapShadowIndex( IndexWriter shadowIndexWriter ) throws IOException
+    {
+        Directory shadowDirectory = shadowIndexWriter.getDirectory( );
+        try
+        {
+            shadowIndexWriter.close( );
+        }
+        finally
+        {
+            closeQuietly( shadowDirectory );
+        }
+        replaceLiveIndex( getSiblingPath( SHADOW_INDEX_SUFFIX ) );
+    }
+
+    /**
+     * Open the Directory receiving a restored copy of the index of the partition, next to the live one. The files of a previous restore are removed.
+     * 
+     * @return the emptied Directory, to be given to {@link #swapRestoredIndex(Directory)} or {@link #discardRestoredIndex(Directory)}
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    public Directory openRestoreDirectory( ) throws IOException
+    {
+        Directory restoreDirectory = openSiblingDirectory( RESTORE_INDEX_SUFFIX );
+        try
+        {
+            deleteFiles( restoreDirectory );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            closeQuietly( restoreDirectory );
+            throw e;
+        }
+        return restoreDirectory;
+    }
+
+    /**
+     * Make the restored index the live index of the partition, as {@link #swapShadowIndex(IndexWriter)} does. The Directory of the restored index is closed.
+     * 
+     * @param restoreDirectory
+     *            the Directory of the restored index, opened with {@link #openRestoreDirectory()} and holding a valid commit
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    public void swapRestoredIndex( Directory restoreDirectory ) throws IOException
+    {
+        closeQuietly( restoreDirectory );
+        replaceLiveIndex( getSiblingPath( RESTORE_INDEX_SUFFIX ) );
+    }
+
+    /**
+     * Remove a restored index which is not swapped with the live index, and close its Directory
+     * 
+     * @param restoreDirectory
+     *            the Directory of the restored index, opened with {@link #openRestoreDirectory()}
+     */
+    public void discardRestoredIndex( Directory restoreDirectory )
+    {
+        try
+        {
+            deleteFiles( restoreDirectory );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to delete the restored copy of the forms index " + _path, e );
+        }
+        finally
+        {
+            closeQuietly( restoreDirectory );
+        }
+    }
+
+    /**
+     * Make another index the next generation of the live index. The index is renamed as the directory of the next generation and a new IndexWriter and
+     * SearcherManager are opened on it, without holding the lock of the searches. Only the switch of the generation file and of the writer and searcher
+     * fields is done under this lock. The previous generation is then closed and removed.
+     * 
+     * @param indexPath
+     *            the path of the closed index replacing the live one
+     * @throws IOException
+     *             - if there is a low level IO error, the live index is kept as is
+     */
+    private void replaceLiveIndex( Path indexPath ) throws IOException
+    {
+        // The snapshots copy the files of the live generation until they are released
+        _snapshotLock.writeLock( ).lock( );
+        try
+        {
+            int nGeneration = _nGeneration + 1;
+            Path generationPath = getGenerationPath( nGeneration );
+            deleteStaleGenerations( );
+            deleteGeneration( nGeneration );
+            Files.move( indexPath, generationPath, StandardCopyOption.ATOMIC_MOVE );
+
+            Directory directory = null;
+            IndexWriter indexWriter = null;
+            SearcherManager searcherManager = null;
+            Path temporaryGenerationFile = getSiblingPath( GENERATION_FILE_SUFFIX + GENERATION_FILE_TEMPORARY_SUFFIX );
+            IndexWriter previousIndexWriter;
+            Directory previousIndexWriterDirectory;
+            SearcherManager previousSearcherManager;
+            int nPreviousGeneration;
+            try
+            {
+                directory = _luceneFormSearchFactory.openDirectory( generationPath );
+                IndexWriterConfig conf = _luceneFormSearchFactory.createIndexWriterConfig( );
+                conf.setOpenMode( OpenMode.APPEND );
+                indexWriter = new IndexWriter( directory, conf );
+                searcherManager = new SearcherManager( indexWriter, new SearcherFactory( ) );
+                Files.write( temporaryGenerationFile, String.valueOf( nGeneration ).getBytes( StandardCharsets.UTF_8 ) );
+
+                synchronized( this )
+                {
+                    Files.move( temporaryGenerationFile, getSiblingPath( GENERATION_FILE_SUFFIX ), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING );
+                    previousIndexWriter = _indexWriter;
+                    previousIndexWriterDirectory = _indexWriterDirectory;
+                    previousSearcherManager = _searcherManager;
+                    nPreviousGeneration = _nGeneration;
+                    _nGeneration = nGeneration;
+                    _indexWriter = indexWriter;
+                    _indexWriterDirectory = directory;
+                    _searcherManager = searcherManager;
+                    _searcherManagerIndexWriter = indexWriter;
+                }
+            }
+            catch( IOException | RuntimeException e )
+            {
+                // The directory of the failed generation is removed by the next swap
+                closeQuietly( searcherManager );
+                rollbackQuietly( indexWriter );
+                closeQuietly( directory );
+                throw e;
+            }
+
+            // The searchers acquired on the previous generation stay usable until they are released
+            closeQuietly( previousSearcherManager );
+            rollbackQuietly( previousIndexWriter );
+            closeQuietly( previousIndexWriterDirectory );
+            deleteGeneration( nPreviousGeneration );
+        }
+        finally
+        {
+            _snapshotLock.writeLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Remove the generations of the index left by a failed swap or by a failed removal
+     */
+    private void deleteStaleGenerations( )
+    {
+        String strPrefix = _path.getFileName( ) + GENERATION_SUFFIX;
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( _path.toAbsolutePath( ).getParent( ), strPrefix + "*" ) )
+        {
+            for ( Path path : stream )
+            {
+                String strGeneration = path.getFileName( ).toString( ).substring( strPrefix.length( ) );
+                if ( Files.isDirectory( path ) && StringUtils.isNumeric( strGeneration ) && Integer.parseInt( strGeneration ) != _nGeneration )
+                {
+                    deleteGeneration( Integer.parseInt( strGeneration ) );
+                }
+            }
+        }
+        catch( IOException | RuntimeException e )
+        {
+            AppLogService.error( "Unable to list the generations of the forms index " + _path, e );
+        }
+        if ( _nGeneration != 0 )
+        {
+            deleteGeneration( 0 );
+        }
+    }
+
+    /**
+     * Remove a generation of the index which is no longer live. The first generation is the path of the partition itself, which is kept so that the partition
+     * is still discovered : only its files are removed.
+     * 
+     * @param nGeneration
+     *            the generation
+     */
+    private void deleteGeneration( int nGeneration )
+    {
+        Path generationPath = getGenerationPath( nGeneration );
+        if ( !Files.isDirectory( generationPath ) )
+        {
+            return;
+        }
+        try
+        {
+            try ( DirectoryStream<Path> stream = Files.newDirectoryStream( generationPath ) )
+            {
+                for ( Path path : stream )
+                {
+                    Files.deleteIfExists( path );
+                }
+            }
+            if ( nGeneration != 0 )
+            {
+                Files.deleteIfExists( generationPath );
+            }
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to delete the previous generation " + generationPath + " of the forms index", e );
+        }
+    }
+
+    /**
+     * Delete all the files of a Directory
+     * 
+     * @param directory
+     *            the Directory
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    private static void deleteFiles( Directory directory ) throws IOException
+    {
+        for ( String strFileName : directory.listAll( ) )
+        {
+            directory.deleteFile( strFileName );
+        }
+    }
+
+    /**
+     * Check if the live index of the partition holds committed documents
+     * 
+     * @return true if the live index has a commit with documents
+     */
+    public boolean hasDocuments( )
+    {
+        try ( Directory directory = openDirectory( ) )
+        {
+            if ( !DirectoryReader.indexExists( directory ) )
+            {
+                return false;
+            }
+            try ( DirectoryReader directoryReader = DirectoryReader.open( directory ) )
+            {
+                return directoryReader.maxDoc( ) > 0;
+            }
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to read the forms index " + _path, e );
+            return false;
+        }
+    }
+
+    /**
+     * Commit the live index and protect this commit from deletion until it is released with {@link #releaseSnapshot(IndexCommit)}, so that its files can be
+     * copied while the index keeps changing. The live index is not swapped until the commit is released.
+     * 
+     * @return the protected commit
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    public IndexCommit snapshot( ) throws IOException
+    {
+        _snapshotLock.readLock( ).lock( );
+        try
+        {
+            return snapshotLiveIndex( );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            _snapshotLock.readLock( ).unlock( );
+            throw e;
+        }
+    }
+
+    /**
+     * Commit the live index and protect this commit from deletion
+     * 
+     * @return the protected commit
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    private synchronized IndexCommit snapshotLiveIndex( ) throws IOException
+    {
+        IndexWriter indexWriter = getIndexWriter( Boolean.FALSE );
+        if ( indexWriter == null )
+        {
+            throw new IOException( "No Lucene Index Writer available for the forms index " + _path );
+        }
+
+        // A new index has no commit to protect yet
+        indexWriter.commit( );
+        return ( (SnapshotDeletionPolicy) indexWriter.getConfig( ).getIndexDeletionPolicy( ) ).snapshot( );
+    }
+
+    /**
+     * Release a commit protected by {@link #snapshot()}, and delete its files if they are no longer used by the index. It must be called by the thread which
+     * took the snapshot.
+     * 
+     * @param indexCommit
+     *            the protected commit
+     */
+    public void releaseSnapshot( IndexCommit indexCommit )
+    {
+        try
+        {
+            releaseLiveIndexSnapshot( indexCommit );
+        }
+        finally
+        {
+            _snapshotLock.readLock( ).unlock( );
+        }
+    }
+
+    /**
+     * Release a commit protected by {@link #snapshot()} on the IndexWriter of the partition
+     * 
+     * @param indexCommit
+     *            the protected commit
+     */
+    private synchronized void releaseLiveIndexSnapshot( IndexCommit indexCommit )
+    {
+        if ( _indexWriter == null || !_indexWriter.isOpen( ) )
+        {
+            // The files of the commit are deleted by the next writer
+            return;
+        }
+        try
+        {
+            ( (SnapshotDeletionPolicy) _indexWriter.getConfig( ).getIndexDeletionPolicy( ) ).release( indexCommit );
+            _indexWriter.deleteUnusedFiles( );
+        }
+        catch( IOException | IllegalArgumentException e )
+        {
+            AppLogService.error( "Unable to release the snapshot of the forms index " + _path, e );
+        }
+    }
+
+    /**
+     * Close the searchers and the IndexWriter of the partition, committing its pending changes. They are reopened by the next search or the next call to
+     * {@link #getIndexWriter(Boolean)}, in the mode matching the read only state of the index.
+     * 
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    public synchronized void closeIndexWriter( ) throws IOException
+    {
+        closeSearcherManager( );
+        try
+        {
+            if ( _indexWriter != null && _indexWriter.isOpen( ) )
+            {
+                _indexWriter.close( );
+            }
+        }
+        finally
+        {
+            _indexWriter = null;
+            closeIndexWriterDirectory( );
+        }
+    }
+
+    /**
+     * Close the Directory of the last IndexWriter of the partition, once the writer is closed
+     */
+    private void closeIndexWriterDirectory( )
+    {
+        closeQuietly( _indexWriterDirectory );
+        _indexWriterDirectory = null;
+    }
+
+    /**
+     * Close a Directory, logging the failure
+     * 
+     * @param directory
+     *            the Directory to close, may be null
+     */
+    private void closeQuietly( Directory directory )
+    {
+        if ( directory == null )
+        {
+            return;
+        }
+        try
+        {
+            directory.close( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to close the Directory of the forms index " + _path, e );
+        }
+    }
+
+    /**
+     * Close a SearcherManager which is no longer used by the partition, logging the failure
+     * 
+     * @param searcherManager
+     *            the SearcherManager to close, may be null
+     */
+    private void closeQuietly( SearcherManager searcherManager )
+    {
+        if ( searcherManager == null )
+        {
+            return;
+        }
+        try
+        {
+            searcherManager.close( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to close the Lucene index searcher of the forms index " + _path, e );
+        }
+    }
+
+    /**
+     * Drop the uncommitted changes of an IndexWriter which is no longer used by the partition and close it, logging the failure
+     * 
+     * @param indexWriter
+     *            the IndexWriter to close, may be null
+     */
+    private void rollbackQuietly( IndexWriter indexWriter )
+    {
+        if ( indexWriter == null || !indexWriter.isOpen( ) )
+        {
+            return;
+        }
+        try
+        {
+            indexWriter.rollback( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to close the Lucene Index Writer of the forms index " + _path, e );
+        }
+    }
+
+    /**
+     * Close the SearcherManager of the partition and the Directory it reads, if any
+     * 
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    private void closeSearcherManager( ) throws IOException
+    {
+        try
+        {
+            if ( _searcherManager != null )
+            {
+                _searcherManager.close( );
+            }
+        }
+        finally
+        {
+            if ( _searcherManagerDirectory != null )
+            {
+                _searcherManagerDirectory.close( );
+            }
+            _searcherManager = null;
+            _searcherManagerIndexWriter = null;
+            _searcherManagerDirectory = null;
+        }
+    }
+
+    /**
+     * Open a new Directory on the live generation of the index of the partition
+     * 
+     * @return the Directory of the live index, to be closed by the caller
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    Directory openDirectory( ) throws IOException
+    {
+        return _luceneFormSearchFactory.openDirectory( getGenerationPath( _nGeneration ) );
+    }
+
+    /**
+     * Read the number of the live generation of the index from the generation file of the partition
+     * 
+     * @return the live generation, 0 when the index was never swapped
+     */
+    private int readGeneration( )
+    {
+        try
+        {
+            return Integer.parseInt( new String( Files.readAllBytes( getSiblingPath( GENERATION_FILE_SUFFIX ) ), StandardCharsets.UTF_8 ).trim( ) );
+        }
+        catch( NoSuchFileException e )
+        {
+            return 0;
+        }
+        catch( IOException | NumberFormatException e )
+        {
+            AppLogService.error( "Unable to read the live generation of the forms index " + _path, e );
+            return _nGeneration;
+        }
+    }
+
+    /**
+     * Return the path of a generation of the index of the partition
+     * 
+     * @param nGeneration
+     *            the generation
+     * @return the path of the partition for the first generation, the path of a sibling directory for the next ones
+     */
+    private Path getGenerationPath( int nGeneration )
+    {
+        return ( nGeneration == 0 ) ? _path : getSiblingPath( GENERATION_SUFFIX + nGeneration );
+    }
+
+    /**
+     * Open a new Directory on the shadow index used to rebuild the partition
+     * 
+     * @return the Directory of the shadow index, to be closed by the caller
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    private Directory openShadowDirectory( ) throws IOException
+    {
+        return openSiblingDirectory( SHADOW_INDEX_SUFFIX );
+    }
+
+    /**
+     * Open a new Directory next to the live index of the partition
+     * 
+     * @param strSuffix
+     *            the suffix appended to the name of the live index
+     * @return the Directory, to be closed by the caller
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    private Directory openSiblingDirectory( String strSuffix ) throws IOException
+    {
+        return _luceneFormSearchFactory.openDirectory( getSiblingPath( strSuffix ) );
+    }
+
+    /**
+     * Return a path next to the path of the partition
+     * 
+     * @param strSuffix
+     *            the suffix appended to the name of the partition path
+     * @return the path
+     */
+    private Path getSiblingPath( String strSuffix )
+    {
+        return _path.resolveSibling( _path.getFileName( ) + strSuffix );
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.BytesRef;
+
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
+
+/**
+ * Read a projection of the form response documents from the numeric, sorted and binary DocValues of the index, without loading their stored fields. The projected
+ * field names starting with FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX are prefixes matching all the fields of an entry, the others are exact field names.
+ * With the compact schema, the values of the projected entries are decoded from the sorted set DocValues of the fixed entry fields.
+ */
+public class FormResponseDocValuesReader
+{
+    private final IndexSearcher _searcher;
+    private final Set<String> _setFieldNames = new HashSet<>( );
+    private final List<String> _listFieldPrefixes = new ArrayList<>( );
+    private final List<BytesRef> _listCompactPrefixes = new ArrayList<>( );
+
+    /**
+     * Constructor
+     * 
+     * @param searcher
+     *            the searcher of the hits to read
+     * @param setProjectedFields
+     *            the names, or entry prefixes, of the fields to read
+     */
+    public FormResponseDocValuesReader( IndexSearcher searcher, Set<String> setProjectedFields )
+    {
+        _searcher = searcher;
+        _setFieldNames.add( FormResponseSearchItem.FIELD_ID_FORM_RESPONSE );
+
+        for ( String strField : setProjectedFields )
+        {
+            if ( strField.startsWith( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX ) )
+            {
+                _listFieldPrefixes.add( strField );
+                _listCompactPrefixes.add( new BytesRef( strField.substring( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX.length( ) )
+                        + LuceneUtils.COMPACT_KEY_SEPARATOR ) );
+            }
+            else
+            {
+                _setFieldNames.add( strField );
+            }
+        }
+    }
+
+    /**
+     * Build the documents of the given hits with the values of the projected fields
+     * 
+     * @param hits
+     *            the hits to read
+     * @return the documents of the hits, in the order of the hits
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    public List<Document> readDocuments( ScoreDoc [ ] hits ) throws IOException
+    {
+        Document [ ] documents = new Document [ hits.length];
+
+        // DocValues are iterators : the hits are read by increasing doc id
+        Integer [ ] hitOrder = new Integer [ hits.length];
+        for ( int i = 0; i < hits.length; i++ )
+        {
+            hitOrder [i] = i;
+        }
+        Arrays.sort( hitOrder, Comparator.comparingInt( nHit -> hits [nHit].doc ) );
+
+        List<LeafReaderContext> listLeaves = _searcher.getIndexReader( ).leaves( );
+        int nCurrentLeaf = -1;
+        List<ProjectedField> listProjectedFields = new ArrayList<>( );
+        List<CompactProjectedField> listCompactProjectedFields = new ArrayList<>( );
+
+        for ( int nHit : hitOrder )
+        {
+            int nDoc = hits [nHit].doc;
+            int nLeaf = ReaderUtil.subIndex( nDoc, listLeaves );
+            if ( nLeaf != nCurrentLeaf )
+            {
+                nCurrentLeaf = nLeaf;
+                listProjectedFields = openProjectedFields( listLeaves.get( nLeaf ).reader( ) );
+                listCompactProjectedFields = openCompactProjectedFields( listLeaves.get( nLeaf ).reader( ) );
+            }
+
+            int nLeafDoc = nDoc - listLeaves.get( nLeaf ).docBase;
+            Document document = new Document( );
+            for ( ProjectedField projectedField : listProjectedFields )
+            {
+                String strValue = projectedField.read( nLeafDoc );
+                if ( strValue != null )
+                {
+                    document.add( new StoredField( projectedField._strName, strValue ) );
+                }
+            }
+            for ( CompactProjectedField compactProjectedField : listCompactProjectedFields )
+            {
+                compactProjectedField.read( nLeafDoc, document );
+            }
+            documents [nHit] = document;
+        }
+
+        return Arrays.asList( documents );
+    }
+
+    /**
+     * Open the DocValues of the projected fields of a segment
+     * 
+     * @param leafReader
+     *            the reader of the segment
+     * @return the projected fields of the segment
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private List<ProjectedField> openProjectedFields( LeafReader leafReader ) throws IOException
+    {
+        List<ProjectedField> listProjectedFields = new ArrayList<>( );
+
+        for ( FieldInfo fieldInfo : leafReader.getFieldInfos( ) )
+        {
+            if ( !isProjected( fieldInfo.name ) )
+            {
+                continue;
+            }
+
+            if ( fieldInfo.getDocValuesType( ) == DocValuesType.NUMERIC )
+            {
+                listProjectedFields.add( new ProjectedField( fieldInfo.name, leafReader.getNumericDocValues( fieldInfo.name ), null, null ) );
+            }
+            else
+                if ( fieldInfo.getDocValuesType( ) == DocValuesType.SORTED )
+                {
+                    listProjectedFields.add( new ProjectedField( fieldInfo.name, null, leafReader.getSortedDocValues( fieldInfo.name ), null ) );
+                }
+                else
+                    if ( fieldInfo.getDocValuesType( ) == DocValuesType.BINARY )
+                    {
+                        listProjectedFields.add( new ProjectedField( fieldInfo.name, null, null, leafReader.getBinaryDocValues( fieldInfo.name ) ) );
+                    }
+        }
+
+        return listProjectedFields;
+    }
+
+    /**
+     * Open the sorted set DocValues of the fixed entry fields of a segment, when the index uses the compact schema
+     * 
+     * @param leafReader
+     *            the reader of the segment
+     * @return the projected compact fields of the segment
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private List<CompactProjectedField> openCompactProjectedFields( LeafReader leafReader ) throws IOException
+    {
+        List<CompactProjectedField> listCompactProjectedFields = new ArrayList<>( );
+        if ( _listCompactPrefixes.isEmpty( ) )
+        {
+            return listCompactProjectedFields;
+        }
+
+        for ( String strFieldName : Arrays.asList( FormResponseSearchItem.FIELD_ENTRY_VALUES, FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES ) )
+        {
+            FieldInfo fieldInfo = leafReader.getFieldInfos( ).fieldInfo( strFieldName );
+            if ( fieldInfo != null && fieldInfo.getDocValuesType( ) == DocValuesType.SORTED_SET )
+            {
+                SortedSetDocValues docValues = leafReader.getSortedSetDocValues( strFieldName );
+                List<long [ ]> listOrdRanges = new ArrayList<>( );
+                for ( BytesRef prefix : _listCompactPrefixes )
+                {
+                    listOrdRanges.add( LuceneUtils.lookupPrefixOrds( docValues, prefix ) );
+                }
+                listCompactProjectedFields.add( new CompactProjectedField( strFieldName, docValues, listOrdRanges ) );
+            }
+        }
+
+        return listCompactProjectedFields;
+    }
+
+    /**
+     * Check if a field is part of the projection
+     * 
+     * @param strFieldName
+     *            the field name
+     * @return true if the field is projected
+     */
+    private boolean isProjected( String strFieldName )
+    {
+        if ( _setFieldNames.contains( strFieldName ) )
+        {
+            return true;
+        }
+        for ( String strPrefix : _listFieldPrefixes )
+        {
+            if ( strFieldName.startsWith( strPrefix ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The DocValues of a projected field in a segment
+     */
+    private static final class ProjectedField
+    {
+        private final String _strName;
+        private final NumericDocValues _numericDocValues;
+        private final SortedDocValues _sortedDocValues;
+        private final BinaryDocValues _binaryDocValues;
+
+        private ProjectedField( String strName, NumericDocValues numericDocValues, SortedDocValues sortedDocValues, BinaryDocValues binaryDocValues )
+        {
+            _strName = strName;
+            _numericDocValues = numericDocValues;
+            _sortedDocValues = sortedDocValues;
+            _binaryDocValues = binaryDocValues;
+        }
+
+        /**
+         * Read the value of the field for a document of the segment
+         * 
+         * @param nLeafDoc
+         *            the doc id in the segment, greater than the previous one read
+         * @return the value of the field, or null if the document has no value
+         * @throws IOException
+         *             - if there is a low-level IO error
+         */
+        private String read( int nLeafDoc ) throws IOException
+        {
+            if ( _numericDocValues != null && _numericDocValues.advanceExact( nLeafDoc ) )
+            {
+                return String.valueOf( _numericDocValues.longValue( ) );
+            }
+            if ( _sortedDocValues != null && _sortedDocValues.advanceExact( nLeafDoc ) )
+            {
+                return _sortedDocValues.lookupOrd( _sortedDocValues.ordValue( ) ).utf8ToString( );
+            }
+            if ( _binaryDocValues != null && _binaryDocValues.advanceExact( nLeafDoc ) )
+            {
+                return _binaryDocValues.binaryValue( ).utf8ToString( );
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The sorted set DocValues of a fixed entry field of the compact schema in a segment
+     */
+    private static final class CompactProjectedField
+    {
+        private final String _strName;
+        private final SortedSetDocValues _docValues;
+        private final List<long [ ]> _listOrdRanges;
+
+        private CompactProjectedField( String strName, SortedSetDocValues docValues, List<long [ ]> listOrdRanges )
+        {
+            _strName = strName;
+            _docValues = docValues;
+            _listOrdRanges = listOrdRanges;
+        }
+
+        /**
+         * Add the values of the projected entries of a document of the segment, under their field names of the dynamic schema
+         * 
+         * @param nLeafDoc
+         *            the doc id in the segment, greater than the previous one read
+         * @param document
+         *            the document to fill
+         * @throws IOException
+         *             - if there is a low-level IO error
+         */
+        private void read( int nLeafDoc, Document document ) throws IOException
+        {
+            if ( !_docValues.advanceExact( nLeafDoc ) )
+            {
+                return;
+            }
+            for ( long lOrd = _docValues.nextOrd( ); lOrd != SortedSetDocValues.NO_MORE_ORDS; lOrd = _docValues.nextOrd( ) )
+            {
+                if ( isInRanges( lOrd ) )
+                {
+                    Map.Entry<String, String> entryValue = LuceneUtils.decodeCompactEntryValue( _strName, _docValues.lookupOrd( lOrd ) );
+                    if ( entryValue != null )
+                    {
+                        document.add( new StoredField( entryValue.getKey( ), entryValue.getValue( ) ) );
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check if an ordinal belongs to one of the projected entries
+         * 
+         * @param lOrd
+         *            the ordinal
+         * @return true if the ordinal is projected
+         */
+        private boolean isInRanges( long lOrd )
+        {
+            for ( long [ ] ordRange : _listOrdRanges )
+            {
+                if ( lOrd >= ordRange [0] && lOrd < ordRange [1] )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.FieldComparator;
+import org.apache.lucene.search.FieldComparatorSource;
+import org.apache.lucene.search.SimpleFieldComparator;
+import org.apache.lucene.util.BytesRef;
+
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
+
+/**
+ * Sort the form responses on the value of an entry key of the compact schema. The documents are compared on the first value of their sorted set DocValues
+ * starting with the prefix of the key : the string values are compared in their natural order, the numeric values on their sortable bytes. The documents
+ * without value are sorted first.
+ */
+public class FormResponseEntryValueComparatorSource extends FieldComparatorSource
+{
+    private final BytesRef _prefix;
+
+    /**
+     * Constructor
+     * 
+     * @param strCompactEntryKey
+     *            the compact key of the sorted entry
+     */
+    public FormResponseEntryValueComparatorSource( String strCompactEntryKey )
+    {
+        _prefix = LuceneUtils.createCompactEntryValuePrefix( strCompactEntryKey );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FieldComparator<?> newComparator( String strFieldName, int nNumHits, int nSortPos, boolean bReversed )
+    {
+        return new EntryValueComparator( strFieldName, nNumHits );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString( )
+    {
+        // Part of the key of the cached searches
+        return "entryValue:" + _prefix.utf8ToString( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals( Object object )
+    {
+        return object instanceof FormResponseEntryValueComparatorSource && _prefix.equals( ( (FormResponseEntryValueComparatorSource) object )._prefix );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode( )
+    {
+        return _prefix.hashCode( );
+    }
+
+    /**
+     * Comparator of the entry values, resolved per segment from the ordinal range of the key
+     */
+    private final class EntryValueComparator extends SimpleFieldComparator<BytesRef>
+    {
+        private final String _strFieldName;
+        private final BytesRef [ ] _values;
+        private SortedSetDocValues _docValues;
+        private long _lFirstOrd;
+        private long _lEndOrd;
+        private BytesRef _bottom;
+        private BytesRef _top;
+        private int _nCurrentDoc;
+        private BytesRef _currentValue;
+
+        private EntryValueComparator( String strFieldName, int nNumHits )
+        {
+            _strFieldName = strFieldName;
+            _values = new BytesRef [ nNumHits];
+        }
+
+        @Override
+        protected void doSetNextReader( LeafReaderContext context ) throws IOException
+        {
+            _docValues = DocValues.getSortedSet( context.reader( ), _strFieldName );
+            long [ ] ordRange = LuceneUtils.lookupPrefixOrds( _docValues, _prefix );
+            _lFirstOrd = ordRange [0];
+            _lEndOrd = ordRange [1];
+            _nCurrentDoc = -1;
+            _currentValue = null;
+        }
+
+        @Override
+        public int compare( int nSlot1, int nSlot2 )
+        {
+            return compareValues( _values [nSlot1], _values [nSlot2] );
+        }
+
+        @Override
+        public void setBottom( int nSlot )
+        {
+            _bottom = _values [nSlot];
+        }
+
+        @Override
+        public void setTopValue( BytesRef value )
+        {
+            _top = value;
+        }
+
+        @Override
+        public int compareBottom( int nDoc ) throws IOException
+        {
+            return compareValues( _bottom, getValue( nDoc ) );
+        }
+
+        @Override
+        public int compareTop( int nDoc ) throws IOException
+        {
+            return compareValues( _top, getValue( nDoc ) );
+        }
+
+        @Override
+        public void copy( int nSlot, int nDoc ) throws IOException
+        {
+            BytesRef value = getValue( nDoc );
+            _values [nSlot] = ( value != null ) ? BytesRef.deepCopyOf( value ) : null;
+        }
+
+        @Override
+        public BytesRef value( int nSlot )
+        {
+            return _values [nSlot];
+        }
+
+        @Override
+        public int compareValues( BytesRef first, BytesRef second )
+        {
+            if ( first == null )
+            {
+                return ( second == null ) ? 0 : -1;
+            }
+            if ( second == null )
+            {
+                return 1;
+            }
+            return first.compareTo( second );
+        }
+
+        /**
+         * Read the first value of the key for a document of the segment. The value of the current document is kept, as it can be compared and then copied
+         * 
+         * @param nDoc
+         *            the doc id in the segment
+         * @return the value, or null if the document has no value for the key
+         * @throws IOException
+         *             - if there is a low-level IO error
+         */
+        private BytesRef getValue( int nDoc ) throws IOException
+        {
+            if ( nDoc == _nCurrentDoc )
+            {
+                return _currentValue;
+            }
+            _nCurrentDoc = nDoc;
+            _currentValue = null;
+            if ( _lFirstOrd == _lEndOrd || !_docValues.advanceExact( nDoc ) )
+            {
+                return null;
+            }
+            for ( long lOrd = _docValues.nextOrd( ); lOrd != SortedSetDocValues.NO_MORE_ORDS && lOrd < _lEndOrd; lOrd = _docValues.nextOrd( ) )
+            {
+                if ( lOrd >= _lFirstOrd )
+                {
+                    _currentValue = _docValues.lookupOrd( lOrd );
+                    break;
+                }
+            }
+            return _currentValue;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.geo.GeoEncodingUtils;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.SimpleCollector;
+
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+
+/**
+ * Collector grouping the points of the matching form responses in the cells of a grid of the map. The points are read from the DocValues of the geolocation
+ * field, so that a cluster only holds the number of its points and the sum of their coordinates, whatever the number of form responses.
+ */
+public class FormResponseGeolocationClusterCollector extends SimpleCollector
+{
+    private final FormResponseGeolocationBox _box;
+    private final double _dCellSize;
+    private final long _lColumnCount;
+    private final Map<Long, ClusterAccumulator> _mapClusters = new HashMap<>( );
+    private SortedNumericDocValues _leafPoints;
+    private NumericDocValues _leafIdFormResponse;
+
+    /**
+     * Constructor
+     * 
+     * @param box
+     *            the box of the map whose points are grouped
+     * @param dCellSize
+     *            the size of the cells of the grid, in degrees
+     */
+    public FormResponseGeolocationClusterCollector( FormResponseGeolocationBox box, double dCellSize )
+    {
+        _box = box;
+        _dCellSize = dCellSize;
+        _lColumnCount = (long) Math.ceil( 360 / dCellSize ) + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doSetNextReader( LeafReaderContext context ) throws IOException
+    {
+        _leafPoints = DocValues.getSortedNumeric( context.reader( ), FormResponseSearchItem.FIELD_GEOLOCATION );
+        _leafIdFormResponse = DocValues.getNumeric( context.reader( ), FormResponseSearchItem.FIELD_ID_FORM_RESPONSE );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void collect( int nDoc ) throws IOException
+    {
+        if ( !_leafPoints.advanceExact( nDoc ) )
+        {
+            return;
+        }
+
+        int nIdFormResponse = _leafIdFormResponse.advanceExact( nDoc ) ? (int) _leafIdFormResponse.longValue( ) : 0;
+        for ( int i = 0; i < _leafPoints.docValueCount( ); i++ )
+        {
+            // The latitude is encoded in the high bits and the longitude in the low bits
+            long lEncodedPoint = _leafPoints.nextValue( );
+            double dLatitude = GeoEncodingUtils.decodeLatitude( (int) ( lEncodedPoint >> 32 ) );
+            double dLongitude = GeoEncodingUtils.decodeLongitude( (int) lEncodedPoint );
+            if ( _box.contains( dLatitude, dLongitude ) )
+            {
+                long lRow = (long) Math.floor( ( dLatitude + 90 ) / _dCellSize );
+                long lColumn = (long) Math.floor( ( dLongitude + 180 ) / _dCellSize );
+                _mapClusters.computeIfAbsent( lRow * _lColumnCount + lColumn, lCell -> new ClusterAccumulator( nIdFormResponse ) ).add( dLatitude,
+                        dLongitude );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean needsScores( )
+    {
+        return false;
+    }
+
+    /**
+     * Return the clusters of the collected points
+     * 
+     * @return the clusters of the collected points, one for each cell of the grid holding points
+     */
+    public List<FormResponseGeolocationCluster> getClusters( )
+    {
+        List<FormResponseGeolocationCluster> listClusters = new ArrayList<>( _mapClusters.size( ) );
+        for ( ClusterAccumulator clusterAccumulator : _mapClusters.values( ) )
+        {
+            FormResponseGeolocationCluster cluster = new FormResponseGeolocationCluster( );
+            cluster.setLatitude( clusterAccumulator._dSumLatitude / clusterAccumulator._nCount );
+            cluster.setLongitude( clusterAccumulator._dSumLongitude / clusterAccumulator._nCount );
+            cluster.setCount( clusterAccumulator._nCount );
+            cluster.setIdFormResponse( clusterAccumulator._nIdFormResponse );
+            listClusters.add( cluster );
+        }
+        return listClusters;
+    }
+
+    /**
+     * The points collected in a cell of the grid
+     */
+    private static final class ClusterAccumulator
+    {
+        private final int _nIdFormResponse;
+        private int _nCount;
+        private double _dSumLatitude;
+        private double _dSumLongitude;
+
+        private ClusterAccumulator( int nIdFormResponse )
+        {
+            _nIdFormResponse = nIdFormResponse;
+        }
+
+        private void add( double dLatitude, double dLongitude )
+        {
+            _nCount++;
+            _dSumLatitude += dLatitude;
+            _dSumLongitude += dLongitude;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+
+import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.forms.business.FormResponseHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Staged pipeline used to build the whole forms index.
+ * <ul>
+ * <li>a loader stage reads the form responses from the database by batches</li>
+ * <li>a pool of workers builds the Lucene documents of each batch</li>
+ * <li>a writer stage adds the documents to the shared IndexWriter</li>
+ * </ul>
+ * The stages are linked by bounded queues, so a slow stage slows down the previous ones instead of filling the memory. The first failure of a stage cancels
+ * the other stages and is thrown to the caller, which commits the index writer only once every stage succeeded. The threads of the stages are created once
+ * and reused by each run of the pipeline, until it is closed.
+ */
+public class FormResponseIndexingPipeline implements AutoCloseable
+{
+    // Properties
+    private static final String PROPERTY_WORKERS = "forms.index.pipeline.workers";
+    private static final String PROPERTY_QUEUE_SIZE = "forms.index.pipeline.queue.size";
+
+    // Constants
+    private static final int DEFAULT_QUEUE_SIZE = 4;
+    private static final String THREAD_NAME = "forms-index-pipeline-";
+    private static final long POLL_TIMEOUT = 100L;
+
+    // End of stream markers, compared by reference
+    private static final List<FormResponse> END_OF_FORM_RESPONSES = new ArrayList<>( 0 );
+    private static final List<Document> END_OF_DOCUMENTS = new ArrayList<>( 0 );
+
+    private final IndexWriter _indexWriter;
+    private final int _nBatchSize;
+    private final int _nWorkers;
+    private final ExecutorService _executor;
+    private final BlockingQueue<List<FormResponse>> _queueFormResponses;
+    private final BlockingQueue<List<Document>> _queueDocuments;
+    private final AtomicReference<Throwable> _failure = new AtomicReference<>( );
+
+    private final StageStatistics _statLoader = new StageStatistics( "loader", "form responses" );
+    private final StageStatistics _statWorkers = new StageStatistics( "document builders", "documents" );
+    private final StageStatistics _statWriter = new StageStatistics( "writer", "documents" );
+
+    /**
+     * Constructor
+     * 
+     * @param indexWriter
+     *            the shared index writer
+     * @param nBatchSize
+     *            the number of form responses loaded at once
+     */
+    public FormResponseIndexingPipeline( IndexWriter indexWriter, int nBatchSize )
+    {
+        _indexWriter = indexWriter;
+        _nBatchSize = Math.max( 1, nBatchSize );
+        _nWorkers = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_WORKERS, Runtime.getRuntime( ).availableProcessors( ) ) );
+
+        int nQueueSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ) );
+        _queueFormResponses = new ArrayBlockingQueue<>( nQueueSize * _nWorkers );
+        _queueDocuments = new ArrayBlockingQueue<>( nQueueSize * _nWorkers );
+
+        // The loader and the workers of a run are executed concurrently
+        AtomicInteger nThreadCount = new AtomicInteger( );
+        _executor = Executors.newFixedThreadPool( _nWorkers + 1, runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME + nThreadCount.getAndIncrement( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    /**
+     * Add the documents of the form responses whose ids are given to the index writer, without committing it. The writer stage runs in the calling thread.
+     * The pipeline cannot be run again once a run failed.
+     * 
+     * @param listIdFormResponse
+     *            the ids of the form responses to index
+     * @param documentBuilder
+     *            the function building the documents of a batch of form responses. Must be thread-safe.
+     * @throws IOException
+     *             if a stage failed, the documents already added must be rolled back
+     * @throws InterruptedException
+     *             if the calling thread is interrupted
+     */
+    public void run( List<Integer> listIdFormResponse, Function<List<FormResponse>, List<Document>> documentBuilder ) throws IOException, InterruptedException
+    {
+        if ( _failure.get( ) != null )
+        {
+            throw new IllegalStateException( "The forms index pipeline has failed" );
+        }
+
+        List<Future<?>> listStages = new ArrayList<>( );
+        boolean bCompleted = false;
+        try
+        {
+            listStages.add( _executor.submit( ( ) -> load( listIdFormResponse ) ) );
+            for ( int i = 0; i < _nWorkers; i++ )
+            {
+                listStages.add( _executor.submit( ( ) -> buildDocuments( documentBuilder ) ) );
+            }
+            write( );
+            bCompleted = _failure.get( ) == null;
+        }
+        finally
+        {
+            if ( !bCompleted )
+            {
+                // Cancels the stages still running after a failure
+                for ( Future<?> stage : listStages )
+                {
+                    stage.cancel( true );
+                }
+            }
+        }
+
+        AppLogService.info( getReport( ) );
+
+        Throwable failure = _failure.get( );
+        if ( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        if ( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
+        if ( failure != null )
+        {
+            throw new IOException( "The forms index pipeline failed", failure );
+        }
+    }
+
+    /**
+     * Stop the threads of the pipeline, cancelling the stages still running
+     */
+    @Override
+    public void close( )
+    {
+        _executor.shutdownNow( );
+        try
+        {
+            _executor.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Return the throughput of each stage
+     * 
+     * @return the throughput report
+     */
+    public String getReport( )
+    {
+        return "Forms index pipeline (" + _nWorkers + " workers) - " + _statLoader + " - " + _statWorkers + " - " + _statWriter;
+    }
+
+    /**
+     * Loader stage : load the form responses by batches
+     * 
+     * @param listIdFormResponse
+     *            the ids of the form responses to load
+     */
+    private void load( List<Integer> listIdFormResponse )
+    {
+        _statLoader.start( );
+        try
+        {
+            for ( int nFrom = 0; nFrom < listIdFormResponse.size( ); nFrom += _nBatchSize )
+            {
+                List<Integer> listIdBatch = listIdFormResponse.subList( nFrom, Math.min( nFrom + _nBatchSize, listIdFormResponse.size( ) ) );
+                List<FormResponse> listFormResponse = FormResponseHome.findByPrimaryKeysForIndex( listIdBatch );
+                _statLoader.add( listFormResponse.size( ) );
+                _queueFormResponses.put( listFormResponse );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        catch( RuntimeException | Error e )
+        {
+            fail( "Unable to load the form responses to index", e );
+        }
+        finally
+        {
+            _statLoader.stop( );
+            for ( int i = 0; i < _nWorkers; i++ )
+            {
+                post( _queueFormResponses, END_OF_FORM_RESPONSES );
+            }
+        }
+    }
+
+    /**
+     * Worker stage : build the documents of the loaded batches
+     * 
+     * @param documentBuilder
+     *            the function building the documents of a batch of form responses
+     */
+    private void buildDocuments( Function<List<FormResponse>, List<Document>> documentBuilder )
+    {
+        _statWorkers.start( );
+        try
+        {
+            List<FormResponse> listFormResponse = _queueFormResponses.take( );
+            while ( listFormResponse != END_OF_FORM_RESPONSES && _failure.get( ) == null )
+            {
+                List<Document> listDocument = documentBuilder.apply( listFormResponse );
+                _statWorkers.add( listDocument.size( ) );
+                _queueDocuments.put( listDocument );
+                listFormResponse = _queueFormResponses.take( );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        catch( RuntimeException | Error e )
+        {
+            fail( "Unable to build the documents of a batch of form responses", e );
+        }
+        finally
+        {
+            _statWorkers.stop( );
+            post( _queueDocuments, END_OF_DOCUMENTS );
+        }
+    }
+
+    /**
+     * Writer stage : add the documents to the index writer, until every worker is done or a stage failed
+     * 
+     * @throws InterruptedException
+     *             if the calling thread is interrupted
+     */
+    private void write( ) throws InterruptedException
+    {
+        _statWriter.start( );
+        try
+        {
+            int nWorkersDone = 0;
+            while ( nWorkersDone < _nWorkers && _failure.get( ) == null )
+            {
+                List<Document> listDocument = _queueDocuments.poll( POLL_TIMEOUT, TimeUnit.MILLISECONDS );
+                if ( listDocument == END_OF_DOCUMENTS )
+                {
+                    nWorkersDone++;
+                }
+                else
+                    if ( listDocument != null )
+                    {
+                        _indexWriter.addDocuments( listDocument );
+                        _statWriter.add( listDocument.size( ) );
+                    }
+            }
+        }
+        catch( IOException | RuntimeException | Error e )
+        {
+            fail( "Unable to index form response", e );
+        }
+        finally
+        {
+            _statWriter.stop( );
+        }
+    }
+
+    /**
+     * Record the failure of a stage. Only the first failure is kept, the other stages stop at their next batch.
+     * 
+     * @param strMessage
+     *            the message to log
+     * @param failure
+     *            the failure
+     */
+    private void fail( String strMessage, Throwable failure )
+    {
+        AppLogService.error( strMessage, failure );
+        _failure.compareAndSet( null, failure );
+    }
+
+    /**
+     * Post an end of stream marker to the next stage. The marker is dropped if the stage is cancelled.
+     * 
+     * @param queue
+     *            the queue of the next stage
+     * @param endMarker
+     *            the end of stream marker
+     */
+    private static <T> void post( BlockingQueue<T> queue, T endMarker )
+    {
+        try
+        {
+            queue.put( endMarker );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Item count and duration of a pipeline stage
+     */
+    private static final class StageStatistics
+    {
+        private final String _strName;
+        private final String _strUnit;
+        private final AtomicLong _lItemCount = new AtomicLong( );
+        private final AtomicLong _lStartTime = new AtomicLong( );
+        private final AtomicLong _lEndTime = new AtomicLong( );
+
+        /**
+         * Constructor
+         * 
+         * @param strName
+         *            the stage name
+         * @param strUnit
+         *            the name of the processed items
+         */
+        StageStatistics( String strName, String strUnit )
+        {
+            _strName = strName;
+            _strUnit = strUnit;
+        }
+
+        /**
+         * Mark the start of the stage. Only the first call is taken into account.
+         */
+        void start( )
+        {
+            _lStartTime.compareAndSet( 0, System.currentTimeMillis( ) );
+        }
+
+        /**
+         * Mark the end of the stage. The last call is taken into account.
+         */
+        void stop( )
+        {
+            _lEndTime.accumulateAndGet( System.currentTimeMillis( ), Math::max );
+        }
+
+        /**
+         * Add processed items
+         * 
+         * @param nCount
+         *            the number of items
+         */
+        void add( int nCount )
+        {
+            _lItemCount.addAndGet( nCount );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString( )
+        {
+            long lDuration = Math.max( 1, _lEndTime.get( ) - _lStartTime.get( ) );
+            return _strName + " : " + _lItemCount.get( ) + " " + _strUnit + " in " + lDuration + " ms (" + ( _lItemCount.get( ) * 1000 / lDuration ) + "/s)";
+        }
+    }
+}
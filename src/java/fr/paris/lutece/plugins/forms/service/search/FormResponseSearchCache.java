@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.search.ScoreDoc;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+/**
+ * Bounded LRU cache of the sorted hits of the multiview searches. The results are only valid for the version of the index reader they were read from: a cached
+ * search is dropped when it is looked up on another version, so that any commit of the searched index invalidates it.
+ */
+public class FormResponseSearchCache
+{
+    // Estimated size in bytes of an entry without its hits and key
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final int _nMaxHits;
+    private final Map<String, CachedHits> _mapCachedHits;
+    private long _lHitCount;
+    private long _lMissCount;
+    private long _lMemoryUsage;
+
+    /**
+     * Constructor
+     * 
+     * @param nMaxEntries
+     *            the maximum number of cached searches, 0 to disable the cache
+     * @param nMaxHits
+     *            the maximum number of hits cached for a search
+     */
+    public FormResponseSearchCache( int nMaxEntries, int nMaxHits )
+    {
+        _nMaxHits = ( nMaxEntries > 0 ) ? nMaxHits : 0;
+        _mapCachedHits = new LinkedHashMap<String, CachedHits>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, CachedHits> eldest )
+            {
+                if ( size( ) > nMaxEntries )
+                {
+                    _lMemoryUsage -= getEntryMemoryUsage( eldest.getKey( ), eldest.getValue( ) );
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the maximum number of hits cached for a search
+     * 
+     * @return the maximum number of hits cached for a search, 0 if the cache is disabled
+     */
+    public int getMaxHits( )
+    {
+        return _nMaxHits;
+    }
+
+    /**
+     * Return the cached hits of a search
+     * 
+     * @param strSearchKey
+     *            the key of the search, built from its query and sort
+     * @param lIndexVersion
+     *            the version of the index reader of the search
+     * @return the cached hits, or null if the search is not cached for this version of the index
+     */
+    public synchronized CachedHits get( String strSearchKey, long lIndexVersion )
+    {
+        CachedHits cachedHits = _mapCachedHits.get( strSearchKey );
+        if ( cachedHits != null && cachedHits._lIndexVersion != lIndexVersion )
+        {
+            _mapCachedHits.remove( strSearchKey );
+            _lMemoryUsage -= getEntryMemoryUsage( strSearchKey, cachedHits );
+            AppLogService.debug( getReport( ) );
+            cachedHits = null;
+        }
+
+        if ( cachedHits != null )
+        {
+            _lHitCount++;
+        }
+        else
+        {
+            _lMissCount++;
+        }
+        return cachedHits;
+    }
+
+    /**
+     * Cache the hits of a search
+     * 
+     * @param strSearchKey
+     *            the key of the search, built from its query and sort
+     * @param lIndexVersion
+     *            the version of the index reader of the search
+     * @param hits
+     *            the first sorted hits of the search
+     * @param nTotalHits
+     *            the total number of hits of the search
+     */
+    public synchronized void put( String strSearchKey, long lIndexVersion, ScoreDoc [ ] hits, int nTotalHits )
+    {
+        if ( _nMaxHits == 0 || lIndexVersion < 0 )
+        {
+            return;
+        }
+        int [ ] docIds = new int [ hits.length];
+        for ( int i = 0; i < hits.length; i++ )
+        {
+            docIds [i] = hits [i].doc;
+        }
+
+        CachedHits cachedHits = new CachedHits( docIds, nTotalHits, lIndexVersion );
+        CachedHits previousHits = _mapCachedHits.put( strSearchKey, cachedHits );
+        if ( previousHits != null )
+        {
+            _lMemoryUsage -= getEntryMemoryUsage( strSearchKey, previousHits );
+        }
+        _lMemoryUsage += getEntryMemoryUsage( strSearchKey, cachedHits );
+    }
+
+    /**
+     * Return the ratio of the lookups served by the cache
+     * 
+     * @return the hit rate, between 0 and 1
+     */
+    public synchronized double getHitRate( )
+    {
+        long lLookupCount = _lHitCount + _lMissCount;
+        return ( lLookupCount > 0 ) ? (double) _lHitCount / lLookupCount : 0;
+    }
+
+    /**
+     * Return the estimated memory used by the cached hits
+     * 
+     * @return the estimated memory usage in bytes
+     */
+    public synchronized long getMemoryUsage( )
+    {
+        return _lMemoryUsage;
+    }
+
+    /**
+     * Return a summary of the cache metrics
+     * 
+     * @return the summary of the cache metrics
+     */
+    public synchronized String getReport( )
+    {
+        return String.format( "Forms search cache : %d entries, %d bytes, hit rate %.1f %% (%d hits, %d misses)", _mapCachedHits.size( ), _lMemoryUsage,
+                getHitRate( ) * 100, _lHitCount, _lMissCount );
+    }
+
+    /**
+     * Estimate the memory used by a cache entry
+     * 
+     * @param strSearchKey
+     *            the key of the entry
+     * @param cachedHits
+     *            the hits of the entry
+     * @return the estimated memory usage in bytes
+     */
+    private static long getEntryMemoryUsage( String strSearchKey, CachedHits cachedHits )
+    {
+        return ENTRY_OVERHEAD + 2L * strSearchKey.length( ) + 4L * cachedHits._docIds.length;
+    }
+
+    /**
+     * The cached hits of a search
+     */
+    public static final class CachedHits
+    {
+        private final int [ ] _docIds;
+        private final int _nTotalHits;
+        private final long _lIndexVersion;
+
+        /**
+         * Constructor
+         * 
+         * @param docIds
+         *            the ids of the first sorted hits
+         * @param nTotalHits
+         *            the total number of hits
+         * @param lIndexVersion
+         *            the version of the index reader the hits were read from
+         */
+        private CachedHits( int [ ] docIds, int nTotalHits, long lIndexVersion )
+        {
+            _docIds = docIds;
+            _nTotalHits = nTotalHits;
+            _lIndexVersion = lIndexVersion;
+        }
+
+        /**
+         * Return the total number of hits
+         * 
+         * @return the total number of hits
+         */
+        public int getTotalHits( )
+        {
+            return _nTotalHits;
+        }
+
+        /**
+         * Check if the cached hits contain the given page
+         * 
+         * @param nStartIndex
+         *            the index of the first hit of the page
+         * @param nHitsToRead
+         *            the number of hits of the page
+         * @return true if the whole page is cached
+         */
+        public boolean contains( int nStartIndex, int nHitsToRead )
+        {
+            return nStartIndex + nHitsToRead <= _docIds.length;
+        }
+
+        /**
+         * Return a page of the cached hits
+         * 
+         * @param nStartIndex
+         *            the index of the first hit of the page
+         * @param nHitsToRead
+         *            the number of hits of the page
+         * @return the hits of the page
+         */
+        public ScoreDoc [ ] getPage( int nStartIndex, int nHitsToRead )
+        {
+            ScoreDoc [ ] hits = new ScoreDoc [ nHitsToRead];
+            for ( int i = 0; i < nHitsToRead; i++ )
+            {
+                hits [i] = new ScoreDoc( _docIds [nStartIndex + i], Float.NaN );
+            }
+            return hits;
+        }
+    }
+}
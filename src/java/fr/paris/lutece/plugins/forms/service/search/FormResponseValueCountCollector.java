@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.BytesRef;
+
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
+
+/**
+ * Collector counting the distinct values of the responses to some questions over the matching form responses. The values are read from the sorted DocValues
+ * of the first iteration of the questions, and counted by ordinal on each segment before being resolved once per distinct value. With the compact schema, the
+ * values are read from the sorted set DocValues of the fixed entry field, restricted to the ordinal ranges of the keys of the counted questions.
+ */
+public class FormResponseValueCountCollector extends SimpleCollector
+{
+    private final List<String> _listFieldNames = new ArrayList<>( );
+    private final Map<String, Integer> _mapValueCounts = new TreeMap<>( );
+    private final List<SortedDocValues> _listLeafDocValues = new ArrayList<>( );
+    private final List<int [ ]> _listLeafCounts = new ArrayList<>( );
+    private final List<BytesRef> _listCompactPrefixes = new ArrayList<>( );
+    private final List<long [ ]> _listLeafOrdRanges = new ArrayList<>( );
+    private final List<int [ ]> _listLeafRangeCounts = new ArrayList<>( );
+    private SortedSetDocValues _leafCompactDocValues;
+
+    /**
+     * Constructor
+     * 
+     * @param listQuestionCode
+     *            the codes of the questions whose values are counted
+     */
+    public FormResponseValueCountCollector( List<String> listQuestionCode )
+    {
+        for ( String strQuestionCode : listQuestionCode )
+        {
+            _listFieldNames.add( LuceneUtils.createLuceneEntryKey( strQuestionCode, 0 ) );
+
+            // The value of the response without field, and the values of the fields
+            String strCompactEntryKey = LuceneUtils.createCompactEntryKey( strQuestionCode, 0, null, null );
+            _listCompactPrefixes.add( LuceneUtils.createCompactEntryValuePrefix( strCompactEntryKey ) );
+            _listCompactPrefixes.add( new BytesRef( strCompactEntryKey + LuceneUtils.COMPACT_KEY_SEPARATOR ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doSetNextReader( LeafReaderContext context ) throws IOException
+    {
+        flushLeafCounts( );
+
+        LeafReader leafReader = context.reader( );
+        for ( FieldInfo fieldInfo : leafReader.getFieldInfos( ) )
+        {
+            if ( fieldInfo.getDocValuesType( ) == DocValuesType.SORTED && isCountedField( fieldInfo.name ) )
+            {
+                SortedDocValues docValues = leafReader.getSortedDocValues( fieldInfo.name );
+                if ( docValues != null )
+                {
+                    _listLeafDocValues.add( docValues );
+                    _listLeafCounts.add( new int [ docValues.getValueCount( )] );
+                }
+            }
+            else
+                if ( fieldInfo.getDocValuesType( ) == DocValuesType.SORTED_SET && FormResponseSearchItem.FIELD_ENTRY_VALUES.equals( fieldInfo.name ) )
+                {
+                    _leafCompactDocValues = leafReader.getSortedSetDocValues( fieldInfo.name );
+                    for ( BytesRef prefix : _listCompactPrefixes )
+                    {
+                        long [ ] ordRange = LuceneUtils.lookupPrefixOrds( _leafCompactDocValues, prefix );
+                        _listLeafOrdRanges.add( ordRange );
+                        _listLeafRangeCounts.add( new int [ (int) ( ordRange [1] - ordRange [0] )] );
+                    }
+                }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void collect( int nDoc ) throws IOException
+    {
+        for ( int i = 0; i < _listLeafDocValues.size( ); i++ )
+        {
+            SortedDocValues docValues = _listLeafDocValues.get( i );
+            if ( docValues.advanceExact( nDoc ) )
+            {
+                _listLeafCounts.get( i ) [docValues.ordValue( )]++;
+            }
+        }
+        if ( _leafCompactDocValues != null && _leafCompactDocValues.advanceExact( nDoc ) )
+        {
+            for ( long lOrd = _leafCompactDocValues.nextOrd( ); lOrd != SortedSetDocValues.NO_MORE_ORDS; lOrd = _leafCompactDocValues.nextOrd( ) )
+            {
+                for ( int i = 0; i < _listLeafOrdRanges.size( ); i++ )
+                {
+                    long [ ] ordRange = _listLeafOrdRanges.get( i );
+                    if ( lOrd >= ordRange [0] && lOrd < ordRange [1] )
+                    {
+                        _listLeafRangeCounts.get( i ) [(int) ( lOrd - ordRange [0] )]++;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean needsScores( )
+    {
+        return false;
+    }
+
+    /**
+     * Return the counted values
+     * 
+     * @return the number of matching form responses of each value, sorted by value
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    public Map<String, Integer> getValueCounts( ) throws IOException
+    {
+        flushLeafCounts( );
+        return _mapValueCounts;
+    }
+
+    /**
+     * Resolve the values of the ordinals counted on the current segment and merge their counts
+     * 
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private void flushLeafCounts( ) throws IOException
+    {
+        for ( int i = 0; i < _listLeafDocValues.size( ); i++ )
+        {
+            SortedDocValues docValues = _listLeafDocValues.get( i );
+            int [ ] counts = _listLeafCounts.get( i );
+            for ( int nOrd = 0; nOrd < counts.length; nOrd++ )
+            {
+                if ( counts [nOrd] > 0 )
+                {
+                    _mapValueCounts.merge( docValues.lookupOrd( nOrd ).utf8ToString( ), counts [nOrd], Integer::sum );
+                }
+            }
+        }
+        for ( int i = 0; i < _listLeafOrdRanges.size( ); i++ )
+        {
+            long lFirstOrd = _listLeafOrdRanges.get( i ) [0];
+            int [ ] counts = _listLeafRangeCounts.get( i );
+            for ( int nOrd = 0; nOrd < counts.length; nOrd++ )
+            {
+                if ( counts [nOrd] > 0 )
+                {
+                    Map.Entry<String, String> entryValue = LuceneUtils.decodeCompactEntryValue( FormResponseSearchItem.FIELD_ENTRY_VALUES,
+                            _leafCompactDocValues.lookupOrd( lFirstOrd + nOrd ) );
+                    _mapValueCounts.merge( entryValue.getValue( ), counts [nOrd], Integer::sum );
+                }
+            }
+        }
+        _listLeafDocValues.clear( );
+        _listLeafCounts.clear( );
+        _listLeafOrdRanges.clear( );
+        _listLeafRangeCounts.clear( );
+        _leafCompactDocValues = null;
+    }
+
+    /**
+     * Check if the given field holds the value, or the value of a field, of the first iteration of a counted question
+     * 
+     * @param strFieldName
+     *            the field name
+     * @return true if the values of the field are counted
+     */
+    private boolean isCountedField( String strFieldName )
+    {
+        for ( String strFieldNameCounted : _listFieldNames )
+        {
+            if ( strFieldName.equals( strFieldNameCounted )
+                    || strFieldName.startsWith( strFieldNameCounted + FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
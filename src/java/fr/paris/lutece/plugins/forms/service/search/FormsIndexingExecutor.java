@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.paris.lutece.plugins.forms.business.form.search.IndexerActionHome;
+import fr.paris.lutece.plugins.forms.service.FormsPlugin;
+import fr.paris.lutece.portal.service.init.ShutdownService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Single threaded executor running the indexing tasks of the forms index. Incremental indexing triggers are debounced, and at most one incremental indexing
+ * and one full rebuild can be pending, as well as one reindex per form, so that submission bursts neither create threads nor grow a queue. It also keeps the indexing metrics.
+ */
+public class FormsIndexingExecutor implements ShutdownService
+{
+    private static final String SERVICE_NAME = "Forms indexing executor";
+    private static final String THREAD_NAME = "forms-indexing";
+    private static final long DEBOUNCE_DELAY = AppPropertiesService.getPropertyInt( "forms.index.debounce.delay", 200 );
+    private static final long SHUTDOWN_TIMEOUT = AppPropertiesService.getPropertyInt( "forms.index.shutdown.timeout", 30 );
+
+    private final ScheduledExecutorService _executor;
+    private final AtomicBoolean _bIndexingPending = new AtomicBoolean( false );
+    private final AtomicBoolean _bRebuildPending = new AtomicBoolean( false );
+    private final Set<Integer> _setFormReindexPending = ConcurrentHashMap.newKeySet( );
+
+    // Metrics
+    private final AtomicLong _lFirstPendingTriggerTime = new AtomicLong( 0 );
+    private final AtomicLong _lIndexedDocuments = new AtomicLong( 0 );
+    private final AtomicLong _lIndexingDuration = new AtomicLong( 0 );
+    private volatile long _lLastQueueLag;
+    private volatile long _lLastCommitTime;
+    private volatile double _dLastDocumentsPerSecond;
+
+    /**
+     * Constructor
+     */
+    public FormsIndexingExecutor( )
+    {
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME );
+            thread.setDaemon( true );
+            return thread;
+        };
+        _executor = Executors.newSingleThreadScheduledExecutor( threadFactory );
+    }
+
+    /**
+     * Request an incremental indexing. The triggers received within the debounce delay are coalesced into a single run.
+     * 
+     * @param task
+     *            the incremental indexing task
+     */
+    public void triggerIndexing( Runnable task )
+    {
+        _lFirstPendingTriggerTime.compareAndSet( 0, System.currentTimeMillis( ) );
+
+        if ( _bIndexingPending.compareAndSet( false, true ) && !_executor.isShutdown( ) )
+        {
+            _executor.schedule( ( ) -> {
+                _bIndexingPending.set( false );
+                _lLastQueueLag = System.currentTimeMillis( ) - _lFirstPendingTriggerTime.getAndSet( 0 );
+                runSafely( task );
+            }, DEBOUNCE_DELAY, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Request a full rebuild of the index. The request is ignored if a rebuild is already pending.
+     * 
+     * @param task
+     *            the rebuild task
+     */
+    public void submitRebuild( Runnable task )
+    {
+        if ( _bRebuildPending.compareAndSet( false, true ) && !_executor.isShutdown( ) )
+        {
+            _executor.execute( ( ) -> {
+                _bRebuildPending.set( false );
+                runSafely( task );
+            } );
+        }
+        else
+        {
+            AppLogService.info( "A rebuild of the forms index is already pending" );
+        }
+    }
+
+    /**
+     * Request the reindex of a form. The request is ignored if a reindex of this form is already pending.
+     * 
+     * @param nIdForm
+     *            the identifier of the form
+     * @param task
+     *            the reindex task
+     */
+    public void submitFormReindex( int nIdForm, Runnable task )
+    {
+        if ( _setFormReindexPending.add( nIdForm ) && !_executor.isShutdown( ) )
+        {
+            _executor.execute( ( ) -> {
+                _setFormReindexPending.remove( nIdForm );
+                runSafely( task );
+            } );
+        }
+    }
+
+    /**
+     * Submit a maintenance task of the index, such as the restore of a snapshot, run after the tasks already submitted
+     * 
+     * @param task
+     *            the task
+     */
+    public void submit( Runnable task )
+    {
+        if ( !_executor.isShutdown( ) )
+        {
+            _executor.execute( ( ) -> runSafely( task ) );
+        }
+    }
+
+    /**
+     * Run a task, logging its failure without stopping the executor
+     * 
+     * @param task
+     *            the task
+     */
+    private void runSafely( Runnable task )
+    {
+        try
+        {
+            task.run( );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Forms indexing task failed", e );
+        }
+    }
+
+    /**
+     * Record a commit of the index
+     * 
+     * @param nDocuments
+     *            the number of documents indexed since the previous commit
+     * @param lDuration
+     *            the duration of the indexing in milliseconds
+     */
+    public void recordCommit( int nDocuments, long lDuration )
+    {
+        _lLastCommitTime = System.currentTimeMillis( );
+        _lIndexedDocuments.addAndGet( nDocuments );
+        _lIndexingDuration.addAndGet( lDuration );
+        _dLastDocumentsPerSecond = ( lDuration > 0 ) ? ( nDocuments * 1000d / lDuration ) : nDocuments;
+
+        AppLogService.debug( getReport( ) );
+    }
+
+    /**
+     * Return the number of indexer actions waiting in the queue
+     * 
+     * @return the number of queued indexer actions
+     */
+    public int getQueueDepth( )
+    {
+        return IndexerActionHome.count( FormsPlugin.getPlugin( ) );
+    }
+
+    /**
+     * Return the age of the oldest trigger not yet processed, or the lag of the last processed trigger if none is pending
+     * 
+     * @return the queue lag in milliseconds
+     */
+    public long getQueueLag( )
+    {
+        long lFirstPendingTriggerTime = _lFirstPendingTriggerTime.get( );
+        if ( lFirstPendingTriggerTime > 0 )
+        {
+            return System.currentTimeMillis( ) - lFirstPendingTriggerTime;
+        }
+        return _lLastQueueLag;
+    }
+
+    /**
+     * Return the indexing throughput of the last commit
+     * 
+     * @return the number of documents indexed per second
+     */
+    public double getLastDocumentsPerSecond( )
+    {
+        return _dLastDocumentsPerSecond;
+    }
+
+    /**
+     * Return the indexing throughput since the start of the executor
+     * 
+     * @return the number of documents indexed per second
+     */
+    public double getDocumentsPerSecond( )
+    {
+        long lDuration = _lIndexingDuration.get( );
+        return ( lDuration > 0 ) ? ( _lIndexedDocuments.get( ) * 1000d / lDuration ) : 0;
+    }
+
+    /**
+     * Return the time of the last commit of the index
+     * 
+     * @return the time of the last commit in milliseconds since the epoch, or 0 if the index has not been committed yet
+     */
+    public long getLastCommitTime( )
+    {
+        return _lLastCommitTime;
+    }
+
+    /**
+     * Return a summary of the indexing metrics
+     * 
+     * @return the summary of the indexing metrics
+     */
+    public String getReport( )
+    {
+        return String.format( "Forms indexing : queue lag %d ms, last commit %.1f docs/s, overall %.1f docs/s, %d documents, last commit at %tc", getQueueLag( ),
+                _dLastDocumentsPerSecond, getDocumentsPerSecond( ), _lIndexedDocuments.get( ), _lLastCommitTime );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Stop the executor, letting the running task finish within the shutdown timeout
+     */
+    @Override
+    public void process( )
+    {
+        _executor.shutdown( );
+        try
+        {
+            if ( !_executor.awaitTermination( SHUTDOWN_TIMEOUT, TimeUnit.SECONDS ) )
+            {
+                AppLogService.error( "The forms indexing did not stop within " + SHUTDOWN_TIMEOUT + " seconds" );
+                _executor.shutdownNow( );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            _executor.shutdownNow( );
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
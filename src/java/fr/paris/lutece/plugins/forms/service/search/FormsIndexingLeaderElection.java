@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+
+import fr.paris.lutece.portal.service.init.ShutdownService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * Election of the node in charge of the indexing when several nodes share the database. Only the leader, which holds the indexing lease, drains the indexer
+ * actions and writes the index. The followers either read the index written by the leader in the shared index path, or restore the snapshots it writes. When
+ * the election is disabled, the node is always the leader.
+ */
+public class FormsIndexingLeaderElection implements ShutdownService
+{
+    private static final String SERVICE_NAME = "Forms indexing leader election";
+    private static final String THREAD_NAME = "forms-indexing-election";
+    private static final String PROPERTY_ENABLED = "forms.index.election.enabled";
+    private static final String PROPERTY_NODE_ID = "forms.index.election.nodeId";
+    private static final String PROPERTY_LEASE_DURATION = "forms.index.election.leaseDuration";
+    private static final String PROPERTY_HEARTBEAT = "forms.index.election.heartbeat";
+    private static final String PROPERTY_FOLLOWER_MODE = "forms.index.election.followerMode";
+    private static final String FOLLOWER_MODE_SNAPSHOT = "snapshot";
+    private static final String NODE_ID_SEPARATOR = "-";
+
+    @Inject
+    private LuceneFormSearchFactory _luceneFormSearchFactory;
+
+    private final boolean _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+    private final boolean _bSnapshotFollower = FOLLOWER_MODE_SNAPSHOT.equalsIgnoreCase( AppPropertiesService.getProperty( PROPERTY_FOLLOWER_MODE ) );
+    private FormsIndexingLease _lease;
+    private ScheduledExecutorService _scheduler;
+    private boolean _bLeader;
+
+    /**
+     * Start the heartbeat of the election, if it is enabled. The node is a follower until it acquires the lease.
+     */
+    public synchronized void start( )
+    {
+        if ( !_bEnabled || _scheduler != null )
+        {
+            return;
+        }
+
+        _lease = new FormsIndexingLease( getNodeId( ), AppPropertiesService.getPropertyInt( PROPERTY_LEASE_DURATION, 60 ) * 1000L );
+        _luceneFormSearchFactory.setReadOnly( !_bSnapshotFollower );
+
+        _scheduler = Executors.newSingleThreadScheduledExecutor( runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        _scheduler.scheduleWithFixedDelay( this::heartbeat, 0, AppPropertiesService.getPropertyInt( PROPERTY_HEARTBEAT, 10 ), TimeUnit.SECONDS );
+        AppLogService.info( "Forms indexing leader election started for the node " + _lease.getNodeId( ) );
+    }
+
+    /**
+     * Check if this node is in charge of the indexing
+     * 
+     * @return true if the node holds the indexing lease, or if the election is disabled
+     */
+    public boolean isLeader( )
+    {
+        return !_bEnabled || ( _lease != null && _lease.isHeld( ) );
+    }
+
+    /**
+     * Check if this node follows the leader by restoring its snapshots
+     * 
+     * @return true if the election is enabled and the followers restore the snapshots of the leader
+     */
+    public boolean isSnapshotFollower( )
+    {
+        return _bEnabled && _bSnapshotFollower;
+    }
+
+    /**
+     * Renew the lease, switch the index to the current role of the node, and run the periodic task of the role
+     */
+    private void heartbeat( )
+    {
+        try
+        {
+            boolean bLeader = _lease.renew( );
+            if ( bLeader != _bLeader )
+            {
+                _bLeader = bLeader;
+                AppLogService.info( "The node " + _lease.getNodeId( ) + ( bLeader ? " is now" : " is no longer" ) + " in charge of the forms indexing" );
+                _luceneFormSearchFactory.setReadOnly( !bLeader && !_bSnapshotFollower );
+            }
+
+            IFormSearchIndexer formSearchIndexer = SpringContextService.getBean( IFormSearchIndexer.BEAN_NAME );
+            if ( bLeader )
+            {
+                formSearchIndexer.processPendingRequests( );
+            }
+            else
+                if ( _bSnapshotFollower )
+                {
+                    formSearchIndexer.restoreSnapshot( );
+                }
+                else
+                {
+                    _luceneFormSearchFactory.refreshSearcher( );
+                }
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "The heartbeat of the forms indexing leader election failed", e );
+        }
+    }
+
+    /**
+     * Return the identifier of this node : the forms.index.election.nodeId property, or the host name followed by a random suffix
+     * 
+     * @return the identifier of the node
+     */
+    private static String getNodeId( )
+    {
+        String strNodeId = AppPropertiesService.getProperty( PROPERTY_NODE_ID );
+        if ( StringUtils.isNotBlank( strNodeId ) )
+        {
+            return strNodeId.trim( );
+        }
+
+        String strHostName;
+        try
+        {
+            strHostName = InetAddress.getLocalHost( ).getHostName( );
+        }
+        catch( UnknownHostException e )
+        {
+            strHostName = "node";
+        }
+        return strHostName + NODE_ID_SEPARATOR + UUID.randomUUID( ).toString( ).substring( 0, 8 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Stop the heartbeat and release the lease, so that another node takes the indexing role at once
+     */
+    @Override
+    public synchronized void process( )
+    {
+        if ( _scheduler == null )
+        {
+            return;
+        }
+        _scheduler.shutdownNow( );
+        try
+        {
+            _lease.release( );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Unable to release the forms indexing lease", e );
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import fr.paris.lutece.plugins.forms.business.form.search.IndexerLeaseHome;
+import fr.paris.lutece.plugins.forms.service.FormsPlugin;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lease of the indexing role, stored in the database shared by the nodes. The node holding the lease renews it with a heartbeat, the other nodes can only
+ * acquire it once it has expired according to the clock of the database. A node considers it holds the lease until half of the lease duration after it
+ * requested its last renewal, measured with its own monotonic clock, so that it gives up the role before another node can take it.
+ */
+public class FormsIndexingLease
+{
+    public static final String LEASE_NAME = "indexing";
+
+    private final String _strNodeId;
+    private final long _lDuration;
+    private volatile long _lHeldUntil;
+    private volatile boolean _bHeld;
+
+    /**
+     * Constructor
+     * 
+     * @param strNodeId
+     *            the identifier of the node, unique among the nodes sharing the database
+     * @param lDuration
+     *            the duration of the lease in milliseconds
+     */
+    public FormsIndexingLease( String strNodeId, long lDuration )
+    {
+        _strNodeId = strNodeId;
+        _lDuration = lDuration;
+    }
+
+    /**
+     * @return the identifier of the node
+     */
+    public String getNodeId( )
+    {
+        return _strNodeId;
+    }
+
+    /**
+     * Acquire the lease, or renew it if the node already holds it
+     * 
+     * @return true if the node holds the lease
+     */
+    public boolean renew( )
+    {
+        long lNow = System.nanoTime( );
+        if ( IndexerLeaseHome.acquire( LEASE_NAME, _strNodeId, _lDuration, FormsPlugin.getPlugin( ) ) )
+        {
+            _lHeldUntil = lNow + TimeUnit.MILLISECONDS.toNanos( _lDuration / 2 );
+            _bHeld = true;
+            return true;
+        }
+        _bHeld = false;
+        return false;
+    }
+
+    /**
+     * Check if the node holds the lease, without accessing the database
+     * 
+     * @return true if the lease has been renewed recently enough
+     */
+    public boolean isHeld( )
+    {
+        return _bHeld && System.nanoTime( ) - _lHeldUntil < 0;
+    }
+
+    /**
+     * Release the lease if the node holds it, so that another node can take the role without waiting for its expiration
+     */
+    public void release( )
+    {
+        _bHeld = false;
+        IndexerLeaseHome.release( LEASE_NAME, _strNodeId, FormsPlugin.getPlugin( ) );
+    }
+}
@@ -38,8 +38,13 @@ import fr.paris.lutece.plugins.forms.business.form.column.querypart.IFormColumnQ
 import fr.paris.lutece.plugins.forms.business.form.filter.querypart.IFormFilterQueryPart;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
 import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.IFormPanelInitializerQueryPart;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchCursor;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface IFormSearchEngine
 {
@@ -75,4 +80,72 @@ public interface IFormSearchEngine
     List<FormResponseSearchItem> getSearchResults( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart,
             List<IFormColumnQueryPart> listFormColumnQueryPart, List<IFormFilterQueryPart> listFormFilterQueryPart, FormResponseItemSortConfig sortConfig,
             int nStartIndex, int nPageSize, FormPanel formPanel );
+
+    /**
+     * Get the FormResponseSearchItem list based on given FormPanel, FormColumnList and FormFilterList. The page is read after the last hit of the previous
+     * page saved in the cursor when available, and the cursor is updated with the last hit of the returned page.
+     * 
+     * @param listFormPanelInitializerQueryPart
+     * @param listFormColumnQueryPart
+     * @param listFormFilterQueryPart
+     * @param sortConfig
+     * @param nStartIndex
+     * @param nPageSize
+     *            the page size, or 0 to get all the results from the start index
+     * @param cursor
+     *            the cursor of the paged search, may be null
+     * @param setProjectedFields
+     *            the fields read from the DocValues of the index to build the results, or null to load the whole stored documents
+     * @param formPanel
+     *            the panel whose total form response item count is set to the exact hit count
+     * @return the list of FormResponseSearchItem
+     */
+    List<FormResponseSearchItem> getSearchResults( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart,
+            List<IFormColumnQueryPart> listFormColumnQueryPart, List<IFormFilterQueryPart> listFormFilterQueryPart, FormResponseItemSortConfig sortConfig,
+            int nStartIndex, int nPageSize, FormResponseSearchCursor cursor, Set<String> setProjectedFields, FormPanel formPanel );
+
+    /**
+     * Get the exact number of form responses matching the given panel initializers and filters
+     * 
+     * @param listFormPanelInitializerQueryPart
+     * @param listFormFilterQueryPart
+     * @return the number of matching form responses
+     */
+    int count( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, List<IFormFilterQueryPart> listFormFilterQueryPart );
+
+    /**
+     * Check if a form response matches the given panel initializers
+     * 
+     * @param listFormPanelInitializerQueryPart
+     * @param nIdFormResponse
+     *            the identifier of the form response
+     * @return true if the form response is indexed and matches all the panel initializers
+     */
+    boolean exists( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, int nIdFormResponse );
+
+    /**
+     * Get the distinct values of the responses to the given questions among the form responses matching the given panel initializers and filters
+     * 
+     * @param listFormPanelInitializerQueryPart
+     * @param listFormFilterQueryPart
+     * @param listQuestionCode
+     *            the codes of the questions whose values are counted
+     * @return the number of matching form responses of each value, sorted by value
+     */
+    Map<String, Integer> getValueCounts( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart,
+            List<IFormFilterQueryPart> listFormFilterQueryPart, List<String> listQuestionCode );
+
+    /**
+     * Get the clusters of the points of all the form responses matching the given panel initializers and filters in a box of the map
+     * 
+     * @param listFormPanelInitializerQueryPart
+     * @param listFormFilterQueryPart
+     * @param box
+     *            the box of the map
+     * @param nZoom
+     *            the zoom level of the map, which gives the size of the clusters
+     * @return the clusters of the points in the box
+     */
+    List<FormResponseGeolocationCluster> getGeolocationClusters( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart,
+            List<IFormFilterQueryPart> listFormFilterQueryPart, FormResponseGeolocationBox box, int nZoom );
 }
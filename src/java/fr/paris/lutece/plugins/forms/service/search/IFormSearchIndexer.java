@@ -43,6 +43,8 @@ import fr.paris.lutece.portal.service.search.SearchIndexer;
  */
 public interface IFormSearchIndexer extends SearchIndexer
 {
+    String BEAN_NAME = "forms.luceneFormsSearchIndexer";
+
     /**
      * add to the index writer the document associate to the key specified in parameter
      */
@@ -64,4 +66,44 @@ public interface IFormSearchIndexer extends SearchIndexer
      */
     void addIndexerAction( int nIdFormResponse, int nIdTask, Plugin plugin );
 
+    /**
+     * Request the reindex of all the responses of a form, without rebuilding the rest of the index. The request is kept until it is processed.
+     * 
+     * @param nIdForm
+     *            the identifier of the form
+     */
+    void reindexForm( int nIdForm );
+
+    /**
+     * Request the compilation of the index fields of a form again, after a change of its questions. The request is kept until the node in charge of the
+     * indexing processes it.
+     * 
+     * @param nIdForm
+     *            the identifier of the form
+     */
+    void invalidateFieldPlan( int nIdForm );
+
+    /**
+     * Submit the pending reindex requests of forms
+     */
+    void processPendingFormReindexes( );
+
+    /**
+     * Write a consistent snapshot of the index to the archive configured by the forms.index.snapshot.path property. The indexer actions it holds are then
+     * removed from the queue.
+     */
+    void exportSnapshot( );
+
+    /**
+     * Request the restore of the index from the archive configured by the forms.index.snapshot.path property when the index holds no document yet, such as on
+     * a new node. The indexer actions applied since the snapshot was written are then replayed, with the pending ones.
+     */
+    void restoreSnapshot( );
+
+    /**
+     * Process the requests left for the node in charge of the indexing : the requested rebuild, the pending reindexes of forms and the queued indexer
+     * actions
+     */
+    void processPendingRequests( );
+
 }
@@ -39,25 +39,39 @@ import fr.paris.lutece.plugins.forms.business.form.column.querypart.IFormColumnQ
 import fr.paris.lutece.plugins.forms.business.form.filter.querypart.IFormFilterQueryPart;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
 import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.IFormPanelInitializerQueryPart;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchCursor;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.plugins.forms.util.FormsConstants;
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
 import fr.paris.lutece.portal.service.search.IndexationService;
 import fr.paris.lutece.portal.service.search.LuceneSearchEngine;
 import fr.paris.lutece.portal.service.search.SearchItem;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.inject.Inject;
 
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LatLonDocValuesField;
+import org.apache.lucene.document.LatLonPoint;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
@@ -65,14 +79,25 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.Directory;
 
 public class LuceneFormSearchEngine implements IFormSearchEngine
 {
+    private static final String SEARCH_KEY_SEPARATOR = "|";
+    private static final String PROPERTY_SEARCH_CACHE_SIZE = "forms.search.cache.size";
+    private static final String PROPERTY_SEARCH_CACHE_MAX_HITS = "forms.search.cache.maxHits";
+    private static final String PROPERTY_CLUSTER_CELL_SIZE = "forms.multiview.map.cluster.cellSize";
+    private static final String PROPERTY_CLUSTER_MAX_CELLS = "forms.multiview.map.cluster.maxCells";
+    private static final int MAX_ZOOM = 24;
+
+    // The width in pixels of the tiles of the map at zoom 0, which hold the whole world
+    private static final int TILE_SIZE = 256;
 
     @Inject
     private LuceneFormSearchFactory _luceneFormSearchFactory;
 
+    private final FormResponseSearchCache _searchCache = new FormResponseSearchCache( AppPropertiesService.getPropertyInt( PROPERTY_SEARCH_CACHE_SIZE, 100 ),
+            AppPropertiesService.getPropertyInt( PROPERTY_SEARCH_CACHE_MAX_HITS, 1000 ) );
+
     /**
      * {@inheritDoc }
      */
@@ -82,9 +107,9 @@ public class LuceneFormSearchEngine implements IFormSearchEngine
         ArrayList<Integer> listResults = new ArrayList<>( );
         IndexSearcher searcher = null;
 
-        try ( Directory directory = _luceneFormSearchFactory.getDirectory( ) ; IndexReader ir = DirectoryReader.open( directory ) ; )
+        try
         {
-            searcher = new IndexSearcher( ir );
+            searcher = _luceneFormSearchFactory.acquireIndexSearcher( );
 
             Collection<String> queries = new ArrayList<>( );
             Collection<String> fields = new ArrayList<>( );
@@ -138,6 +163,10 @@ public class LuceneFormSearchEngine implements IFormSearchEngine
         {
             AppLogService.error( e.getMessage( ), e );
         }
+        finally
+        {
+            _luceneFormSearchFactory.releaseIndexSearcher( searcher );
+        }
 
         return listResults;
     }
@@ -161,6 +190,18 @@ public class LuceneFormSearchEngine implements IFormSearchEngine
             List<IFormColumnQueryPart> listFormColumnQueryPart, List<IFormFilterQueryPart> listFormFilterQueryPart, FormResponseItemSortConfig sortConfig,
             int nStartIndex, int nPageSize, FormPanel formPanel )
     {
+        return getSearchResults( listFormPanelInitializerQueryPart, listFormColumnQueryPart, listFormFilterQueryPart, sortConfig, nStartIndex, nPageSize, null,
+                null, formPanel );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<FormResponseSearchItem> getSearchResults( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart,
+            List<IFormColumnQueryPart> listFormColumnQueryPart, List<IFormFilterQueryPart> listFormFilterQueryPart, FormResponseItemSortConfig sortConfig,
+            int nStartIndex, int nPageSize, FormResponseSearchCursor cursor, Set<String> setProjectedFields, FormPanel formPanel )
+    {
 
         // Build the query to execute
         Query query = LuceneQueryBuilder.buildQuery( listFormPanelInitializerQueryPart, listFormFilterQueryPart );
@@ -171,42 +212,355 @@ public class LuceneFormSearchEngine implements IFormSearchEngine
         List<FormResponseSearchItem> listResults = new ArrayList<>( );
         IndexSearcher searcher = null;
 
-        try ( Directory directory = _luceneFormSearchFactory.getDirectory( ) ; IndexReader ir = DirectoryReader.open( directory ) ; )
+        try
         {
+            searcher = _luceneFormSearchFactory.acquireIndexSearcher( findIdForm( listFormFilterQueryPart ) );
 
-            searcher = new IndexSearcher( ir );
-            TopDocs topDocs = null;
-            // Get results documents
-            if ( sort != null )
-            {
-                topDocs = searcher.search( query, LuceneSearchEngine.MAX_RESPONSES, sort );
-            }
-            else
-            {
-                topDocs = searcher.search( query, LuceneSearchEngine.MAX_RESPONSES );
-            }
-            ScoreDoc [ ] hits = topDocs.scoreDocs;
+            String strSearchKey = buildSearchKey( query, sort );
+            long lIndexVersion = getIndexVersion( searcher );
+            FormResponseSearchCache.CachedHits cachedHits = _searchCache.get( strSearchKey, lIndexVersion );
+
+            int nTotalHits = ( cachedHits != null ) ? cachedHits.getTotalHits( ) : searcher.count( query );
+            formPanel.setTotalFormResponseItemCount( nTotalHits );
 
-            int nMaxIndex = hits.length;
+            int nStart = Math.max( 0, nStartIndex );
+            int nHitsToRead = nTotalHits - nStart;
             if ( nPageSize > 0 )
             {
-                nMaxIndex = Math.min( nStartIndex + nPageSize, hits.length );
+                nHitsToRead = Math.min( nPageSize, nHitsToRead );
             }
-            formPanel.setTotalFormResponseItemCount( hits.length );
-            for ( int i = nStartIndex; i < nMaxIndex; i++ )
+
+            if ( nHitsToRead > 0 )
             {
-                Document document = searcher.doc( hits [i].doc );
-                listResults.add( new FormResponseSearchItem( document ) );
+                ScoreDoc [ ] hits;
+                if ( cachedHits != null && cachedHits.contains( nStart, nHitsToRead ) )
+                {
+                    hits = cachedHits.getPage( nStart, nHitsToRead );
+                }
+                else
+                    if ( cachedHits == null && nStart + nHitsToRead <= _searchCache.getMaxHits( ) )
+                    {
+                        hits = searchAndCache( searcher, query, sort, strSearchKey, lIndexVersion, nTotalHits, nStart, nHitsToRead );
+                    }
+                    else
+                    {
+                        hits = searchPage( searcher, query, sort, nStart, nHitsToRead, cursor );
+                    }
+                if ( setProjectedFields != null )
+                {
+                    for ( Document document : new FormResponseDocValuesReader( searcher, setProjectedFields ).readDocuments( hits ) )
+                    {
+                        listResults.add( new FormResponseSearchItem( document ) );
+                    }
+                }
+                else
+                {
+                    // The fields updated in place are not stored
+                    List<Document> listUpdatableFields = new FormResponseDocValuesReader( searcher, FormResponseSearchItem.DOC_VALUES_UPDATABLE_FIELDS )
+                            .readDocuments( hits );
+                    for ( int i = 0; i < hits.length; i++ )
+                    {
+                        Document document = searcher.doc( hits [i].doc );
+                        for ( IndexableField field : listUpdatableFields.get( i ) )
+                        {
+                            if ( document.getField( field.name( ) ) == null )
+                            {
+                                document.add( field );
+                            }
+                        }
+                        listResults.add( new FormResponseSearchItem( document ) );
+                    }
+                }
             }
         }
         catch( IOException e )
         {
             AppLogService.error( e.getMessage( ), e );
         }
+        finally
+        {
+            _luceneFormSearchFactory.releaseIndexSearcher( searcher );
+        }
 
         return listResults;
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int count( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, List<IFormFilterQueryPart> listFormFilterQueryPart )
+    {
+        Query query = LuceneQueryBuilder.buildQuery( listFormPanelInitializerQueryPart, listFormFilterQueryPart );
+
+        IndexSearcher searcher = null;
+        try
+        {
+            searcher = _luceneFormSearchFactory.acquireIndexSearcher( findIdForm( listFormFilterQueryPart ) );
+            return searcher.count( query );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            _luceneFormSearchFactory.releaseIndexSearcher( searcher );
+        }
+
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean exists( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, int nIdFormResponse )
+    {
+        // The point query on the id leads the conjunction, the initializers are only checked on its single hit
+        BooleanQuery.Builder booleanQueryBuilder = new BooleanQuery.Builder( );
+        booleanQueryBuilder.add( IntPoint.newExactQuery( FormResponseSearchItem.FIELD_ID_FORM_RESPONSE, nIdFormResponse ), BooleanClause.Occur.FILTER );
+        booleanQueryBuilder.add( LuceneQueryBuilder.buildQuery( listFormPanelInitializerQueryPart, Collections.emptyList( ) ), BooleanClause.Occur.FILTER );
+
+        IndexSearcher searcher = null;
+        try
+        {
+            searcher = _luceneFormSearchFactory.acquireIndexSearcher( );
+            return searcher.search( booleanQueryBuilder.build( ), 1 ).totalHits > 0;
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            _luceneFormSearchFactory.releaseIndexSearcher( searcher );
+        }
+
+        return false;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Map<String, Integer> getValueCounts( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart,
+            List<IFormFilterQueryPart> listFormFilterQueryPart, List<String> listQuestionCode )
+    {
+        Query query = LuceneQueryBuilder.buildQuery( listFormPanelInitializerQueryPart, listFormFilterQueryPart );
+
+        IndexSearcher searcher = null;
+        try
+        {
+            searcher = _luceneFormSearchFactory.acquireIndexSearcher( findIdForm( listFormFilterQueryPart ) );
+            FormResponseValueCountCollector collector = new FormResponseValueCountCollector( listQuestionCode );
+            searcher.search( query, collector );
+            return collector.getValueCounts( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            _luceneFormSearchFactory.releaseIndexSearcher( searcher );
+        }
+
+        return new TreeMap<>( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<FormResponseGeolocationCluster> getGeolocationClusters( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart,
+            List<IFormFilterQueryPart> listFormFilterQueryPart, FormResponseGeolocationBox box, int nZoom )
+    {
+        BooleanQuery.Builder booleanQueryBuilder = new BooleanQuery.Builder( );
+        booleanQueryBuilder.add( LatLonPoint.newBoxQuery( FormResponseSearchItem.FIELD_GEOLOCATION, box.getMinLatitude( ), box.getMaxLatitude( ),
+                box.getMinLongitude( ), box.getMaxLongitude( ) ), BooleanClause.Occur.FILTER );
+        booleanQueryBuilder.add( LuceneQueryBuilder.buildQuery( listFormPanelInitializerQueryPart, listFormFilterQueryPart ), BooleanClause.Occur.FILTER );
+
+        IndexSearcher searcher = null;
+        try
+        {
+            searcher = _luceneFormSearchFactory.acquireIndexSearcher( findIdForm( listFormFilterQueryPart ) );
+            FormResponseGeolocationClusterCollector collector = new FormResponseGeolocationClusterCollector( box, getClusterCellSize( box, nZoom ) );
+            searcher.search( booleanQueryBuilder.build( ), collector );
+            return collector.getClusters( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            _luceneFormSearchFactory.releaseIndexSearcher( searcher );
+        }
+
+        return new ArrayList<>( );
+    }
+
+    /**
+     * Return the size of the cells of the grid grouping the points of a box of the map. The cells have the configured size in pixels at the zoom level of
+     * the map, but are enlarged when the box would hold too many of them.
+     * 
+     * @param box
+     *            the box of the map
+     * @param nZoom
+     *            the zoom level of the map
+     * @return the size of the cells, in degrees
+     */
+    private static double getClusterCellSize( FormResponseGeolocationBox box, int nZoom )
+    {
+        int nZoomLevel = Math.max( 0, Math.min( nZoom, MAX_ZOOM ) );
+        double dCellSize = AppPropertiesService.getPropertyInt( PROPERTY_CLUSTER_CELL_SIZE, 64 ) * 360d / ( TILE_SIZE * Math.pow( 2, nZoomLevel ) );
+
+        double dBoxWidth = box.getMaxLongitude( ) - box.getMinLongitude( );
+        if ( dBoxWidth < 0 )
+        {
+            dBoxWidth += 360;
+        }
+        double dBoxSize = Math.max( dBoxWidth, box.getMaxLatitude( ) - box.getMinLatitude( ) );
+        int nMaxCells = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_CLUSTER_MAX_CELLS, 64 ) );
+
+        return Math.max( dCellSize, dBoxSize / nMaxCells );
+    }
+
+    /**
+     * Read the first sorted hits of a search, up to the maximum number of hits of the search cache, and cache them to serve the following pages
+     * 
+     * @param searcher
+     *            the index searcher
+     * @param query
+     *            the query
+     * @param sort
+     *            the sort, may be null
+     * @param strSearchKey
+     *            the key of the search
+     * @param lIndexVersion
+     *            the version of the index read by the searcher
+     * @param nTotalHits
+     *            the total number of hits of the search
+     * @param nStartIndex
+     *            the index of the first hit of the page
+     * @param nHitsToRead
+     *            the number of hits of the page
+     * @return the hits of the page
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private ScoreDoc [ ] searchAndCache( IndexSearcher searcher, Query query, Sort sort, String strSearchKey, long lIndexVersion, int nTotalHits,
+            int nStartIndex, int nHitsToRead ) throws IOException
+    {
+        int nMaxHits = Math.min( nTotalHits, _searchCache.getMaxHits( ) );
+        TopDocs topDocs = ( sort != null ) ? searcher.search( query, nMaxHits, sort ) : searcher.search( query, nMaxHits );
+        _searchCache.put( strSearchKey, lIndexVersion, topDocs.scoreDocs, nTotalHits );
+
+        return Arrays.copyOfRange( topDocs.scoreDocs, nStartIndex, Math.min( nStartIndex + nHitsToRead, topDocs.scoreDocs.length ) );
+    }
+
+    /**
+     * Read a page of hits. When the cursor knows the hit preceding the page, only the page is collected with searchAfter, otherwise the hits are collected
+     * from the first one up to the end of the page.
+     * 
+     * @param searcher
+     *            the index searcher
+     * @param query
+     *            the query
+     * @param sort
+     *            the sort, may be null
+     * @param nStartIndex
+     *            the index of the first hit of the page
+     * @param nHitsToRead
+     *            the number of hits of the page
+     * @param cursor
+     *            the cursor of the paged search, may be null
+     * @return the hits of the page
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private ScoreDoc [ ] searchPage( IndexSearcher searcher, Query query, Sort sort, int nStartIndex, int nHitsToRead, FormResponseSearchCursor cursor )
+            throws IOException
+    {
+        String strSearchKey = buildSearchKey( query, sort );
+        long lIndexVersion = getIndexVersion( searcher );
+
+        ScoreDoc after = null;
+        if ( cursor != null && nStartIndex > 0 )
+        {
+            after = cursor.getLastScoreDoc( strSearchKey, lIndexVersion, nStartIndex );
+        }
+
+        ScoreDoc [ ] hits;
+        if ( nStartIndex == 0 || after != null )
+        {
+            TopDocs topDocs = ( sort != null ) ? searcher.searchAfter( after, query, nHitsToRead, sort ) : searcher.searchAfter( after, query, nHitsToRead );
+            hits = topDocs.scoreDocs;
+        }
+        else
+        {
+            int nMaxHits = nStartIndex + nHitsToRead;
+            TopDocs topDocs = ( sort != null ) ? searcher.search( query, nMaxHits, sort ) : searcher.search( query, nMaxHits );
+            hits = Arrays.copyOfRange( topDocs.scoreDocs, Math.min( nStartIndex, topDocs.scoreDocs.length ), topDocs.scoreDocs.length );
+        }
+
+        if ( cursor != null && hits.length > 0 )
+        {
+            cursor.setLastScoreDoc( strSearchKey, lIndexVersion, nStartIndex + hits.length, hits [hits.length - 1] );
+        }
+
+        return hits;
+    }
+
+    /**
+     * Build the key identifying a search from its query and its sort
+     * 
+     * @param query
+     *            the query
+     * @param sort
+     *            the sort, may be null
+     * @return the key of the search
+     */
+    private static String buildSearchKey( Query query, Sort sort )
+    {
+        return query.toString( ) + SEARCH_KEY_SEPARATOR + sort;
+    }
+
+    /**
+     * Return the version of the index read by the given searcher
+     * 
+     * @param searcher
+     *            the index searcher
+     * @return the version of the index, or -1 if unknown
+     */
+    private long getIndexVersion( IndexSearcher searcher )
+    {
+        return _luceneFormSearchFactory.getIndexVersion( searcher );
+    }
+
+    /**
+     * Find the form to which the filters restrict the search, so that only its partition of the index is searched
+     * 
+     * @param listFormFilterQueryPart
+     *            the filter query parts
+     * @return the identifier of the form, or FormsConstants.DEFAULT_ID_VALUE if the search is not restricted to a single form
+     */
+    private static int findIdForm( List<IFormFilterQueryPart> listFormFilterQueryPart )
+    {
+        if ( listFormFilterQueryPart != null )
+        {
+            for ( IFormFilterQueryPart formFilterQueryPart : listFormFilterQueryPart )
+            {
+                if ( formFilterQueryPart.getIdForm( ) > 0 )
+                {
+                    return formFilterQueryPart.getIdForm( );
+                }
+            }
+        }
+        return FormsConstants.DEFAULT_ID_VALUE;
+    }
+
     /**
      * Build the Lucene Sort obj
      * 
@@ -219,8 +573,22 @@ public class LuceneFormSearchEngine implements IFormSearchEngine
         if ( sortConfig != null )
         {
             String strAttributeName = sortConfig.getSortAttributeName( );
+            if ( FormResponseSearchItem.FIELD_GEOLOCATION.equals( strAttributeName ) )
+            {
+                // The form responses without point are sorted last
+                return sortConfig.hasSortLocation( ) ? new Sort( LatLonDocValuesField.newDistanceSort( FormResponseSearchItem.FIELD_GEOLOCATION,
+                        sortConfig.getSortLatitude( ), sortConfig.getSortLongitude( ) ) ) : null;
+            }
             if ( strAttributeName != null )
             {
+                if ( LuceneUtils.isCompactSchema( ) && strAttributeName.startsWith( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX ) )
+                {
+                    boolean bNumeric = strAttributeName.endsWith( FormResponseSearchItem.FIELD_DATE_SUFFIX )
+                            || strAttributeName.endsWith( FormResponseSearchItem.FIELD_INT_SUFFIX );
+                    String strFieldName = bNumeric ? FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES : FormResponseSearchItem.FIELD_ENTRY_VALUES;
+                    return new Sort( new SortField( strFieldName, new FormResponseEntryValueComparatorSource( LuceneUtils.toCompactEntryKey( strAttributeName ) ),
+                            sortConfig.isAscSort( ) ) );
+                }
                 if ( strAttributeName.endsWith( FormResponseSearchItem.FIELD_DATE_SUFFIX ) )
                 {
                     return new Sort( new SortedNumericSortField( sortConfig.getSortAttributeName( ), SortField.Type.LONG, sortConfig.isAscSort( ) ) );
@@ -230,6 +598,11 @@ public class LuceneFormSearchEngine implements IFormSearchEngine
                     return new Sort( new SortedNumericSortField( sortConfig.getSortAttributeName( ), SortField.Type.LONG, sortConfig.isAscSort( ) ) );
 
                 }
+                if ( FormResponseSearchItem.FIELD_TITLE_WORKFLOW_STATE.equals( strAttributeName ) )
+                {
+                    // Binary DocValues, which can be updated in place
+                    return new Sort( new SortField( sortConfig.getSortAttributeName( ), SortField.Type.STRING_VAL, sortConfig.isAscSort( ) ) );
+                }
                 return new Sort( new SortField( sortConfig.getSortAttributeName( ), SortField.Type.STRING, sortConfig.isAscSort( ) ) );
             }
         }
@@ -34,20 +34,60 @@
 package fr.paris.lutece.plugins.forms.service.search;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat;
+import org.apache.lucene.codecs.lucene70.Lucene70Codec;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
 
+import org.apache.commons.lang.StringUtils;
+
+import fr.paris.lutece.plugins.forms.util.FormsConstants;
+import fr.paris.lutece.plugins.forms.util.LuceneUtils;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
@@ -61,12 +101,50 @@ public class LuceneFormSearchFactory
     private static final String PATH_INDEX = "forms.internalIndexer.lucene.indexPath";
     private static final String PATH_INDEX_IN_WEBAPP = "forms.internalIndexer.lucene.indexInWebapp";
 
+    // Partitioning
+    private static final String PROPERTY_PARTITIONING = "forms.index.partitioning";
+    private static final String PROPERTY_PARTITIONING_GROUPS = "forms.index.partitioning.groups";
+    private static final String PARTITIONING_FORM = "form";
+    private static final String PARTITION_SEPARATOR = "_";
+    private static final String PARTITION_FORM_PREFIX = "form_";
+    private static final String PARTITION_GROUP_PREFIX = "group_";
+    private static final Pattern PATTERN_PARTITION_NAME = Pattern.compile( "(form|group)_\\d+" );
+    private static final String GROUP_SEPARATOR = ";";
+    private static final String ID_FORM_SEPARATOR = ",";
+
+    // Storage and writer configuration
+    private static final String PROPERTY_DIRECTORY = "forms.index.directory";
+    private static final String PROPERTY_NRT_CACHING_MAX_MERGE_SIZE = "forms.index.directory.nrtCaching.maxMergeSizeMB";
+    private static final String PROPERTY_NRT_CACHING_MAX_CACHED = "forms.index.directory.nrtCaching.maxCachedMB";
+    private static final String PROPERTY_RAM_BUFFER_SIZE = "forms.index.writer.ramBufferSizeMB";
+    private static final String PROPERTY_MERGE_POLICY = "forms.index.writer.mergePolicy";
+    private static final String PROPERTY_MERGE_SCHEDULER = "forms.index.writer.mergeScheduler";
+    private static final String PROPERTY_STORED_FIELDS_COMPRESSION = "forms.index.writer.storedFieldsCompression";
+    private static final String PROPERTY_USE_COMPOUND_FILE = "forms.index.writer.useCompoundFile";
+    private static final String DIRECTORY_MMAP = "mmap";
+    private static final String DIRECTORY_NRT_CACHING = "nrtCaching";
+    private static final String MERGE_POLICY_LOG_BYTE_SIZE = "logByteSize";
+    private static final String MERGE_SCHEDULER_SERIAL = "serial";
+
+    // Snapshots
+    private static final String SNAPSHOT_METADATA_ENTRY = "snapshot.properties";
+    private static final String SNAPSHOT_INDEX_ENTRY = "index";
+    private static final String SNAPSHOT_ENTRY_SEPARATOR = "/";
+    private static final String SNAPSHOT_PARTITIONED = "forms.snapshot.partitioned";
+    private static final String SNAPSHOT_COMPACT_SCHEMA = "forms.snapshot.compactSchema";
+    private static final Pattern PATTERN_INDEX_FILE_NAME = Pattern.compile( "[\\w.\\-]+" );
+    private static final int COPY_BUFFER_SIZE = 65536;
+
     // Variables
     @Inject
     @Named( value = "forms.luceneFrenchAnalizer" )
     private Analyzer _analyzer;
 
-    private IndexWriter _indexWriter;
+    private final Map<String, FormIndexPartition> _mapPartitions = new ConcurrentHashMap<>( );
+    private final Map<IndexSearcher, AcquiredSearcher> _mapAcquiredSearchers = Collections.synchronizedMap( new IdentityHashMap<>( ) );
+    private Map<Integer, String> _mapGroupPartitionNames;
+    private boolean _bPartitionsDiscovered;
+    private volatile boolean _bReadOnly;
 
     /**
      * Return the Analyzer to use for the search
@@ -94,51 +172,354 @@ public class LuceneFormSearchFactory
     }
 
     /**
-     * Create the IndexWriter with its configuration
+     * Acquire a near-real-time IndexSearcher on the whole forms index. It must be given back with {@link #releaseIndexSearcher(IndexSearcher)} once the search
+     * is done.
      * 
-     * @param bCreateIndex
-     *            The boolean which tell if the index must be created
-     * @return the created IndexWriter
+     * @return the index searcher to use for the search
      * @throws IOException
-     *             - if there is a low level IO error
+     *             - if there is a low-level IO error
+     */
+    public IndexSearcher acquireIndexSearcher( ) throws IOException
+    {
+        return acquireIndexSearcher( FormsConstants.DEFAULT_ID_VALUE );
+    }
+
+    /**
+     * Acquire a near-real-time IndexSearcher on the form responses of a form. When the index is partitioned, the searcher only reads the partition of the
+     * form, or all the partitions through a MultiReader when no form is given. Each call returns a new searcher, which must be given back with
+     * {@link #releaseIndexSearcher(IndexSearcher)} once the search is done.
+     * 
+     * @param nIdForm
+     *            the identifier of the form searched, or FormsConstants.DEFAULT_ID_VALUE to search all the forms
+     * @return the index searcher to use for the search
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    public IndexSearcher acquireIndexSearcher( int nIdForm ) throws IOException
+    {
+        if ( !isPartitioned( ) || nIdForm > 0 )
+        {
+            FormIndexPartition partition = getPartition( nIdForm );
+            IndexSearcher partitionSearcher = partition.acquireIndexSearcher( );
+
+            // The SearcherManager returns the same searcher to concurrent searches : each acquisition gets its own handle on the shared reader
+            IndexSearcher indexSearcher = new IndexSearcher( partitionSearcher.getIndexReader( ) );
+            _mapAcquiredSearchers.put( indexSearcher, new AcquiredSearcher( Collections.singletonList( partition ),
+                    Collections.singletonList( partitionSearcher ), getReaderVersion( partitionSearcher ) ) );
+            return indexSearcher;
+        }
+
+        List<FormIndexPartition> listPartition = new ArrayList<>( getPartitions( ) );
+        List<IndexSearcher> listPartitionSearcher = new ArrayList<>( listPartition.size( ) );
+        IndexReader [ ] partitionReaders = new IndexReader [ listPartition.size( )];
+        long lVersion = 0;
+        try
+        {
+            for ( FormIndexPartition partition : listPartition )
+            {
+                IndexSearcher partitionSearcher = partition.acquireIndexSearcher( );
+                partitionReaders [listPartitionSearcher.size( )] = partitionSearcher.getIndexReader( );
+                listPartitionSearcher.add( partitionSearcher );
+                lVersion += getReaderVersion( partitionSearcher );
+            }
+
+            IndexSearcher indexSearcher = new IndexSearcher( new MultiReader( partitionReaders, false ) );
+            _mapAcquiredSearchers.put( indexSearcher, new AcquiredSearcher( listPartition, listPartitionSearcher, lVersion ) );
+            return indexSearcher;
+        }
+        catch( IOException e )
+        {
+            for ( int i = 0; i < listPartitionSearcher.size( ); i++ )
+            {
+                listPartition.get( i ).releaseIndexSearcher( listPartitionSearcher.get( i ) );
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Release an IndexSearcher acquired with {@link #acquireIndexSearcher(int)}
+     * 
+     * @param indexSearcher
+     *            the index searcher to release, may be null
      */
-    public IndexWriter getIndexWriter( Boolean bCreateIndex )
+    public void releaseIndexSearcher( IndexSearcher indexSearcher )
     {
-        if ( _indexWriter == null || !_indexWriter.isOpen( ) )
+        if ( indexSearcher == null )
+        {
+            return;
+        }
+
+        AcquiredSearcher acquiredSearcher = _mapAcquiredSearchers.remove( indexSearcher );
+        if ( acquiredSearcher == null )
+        {
+            // Releasing the reader again would drop a reference held by another search
+            AppLogService.error( "The Lucene index searcher was not acquired from the forms index, or is already released" );
+            return;
+        }
+
+        if ( indexSearcher.getIndexReader( ) instanceof MultiReader )
         {
             try
             {
-                Directory luceneDirectory = getDirectory( );
+                // Only decrements the references of the partition readers, which are released below
+                indexSearcher.getIndexReader( ).close( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to close the Lucene multi reader", e );
+            }
+        }
+        for ( int i = 0; i < acquiredSearcher._listPartition.size( ); i++ )
+        {
+            acquiredSearcher._listPartition.get( i ).releaseIndexSearcher( acquiredSearcher._listPartitionSearcher.get( i ) );
+        }
+    }
 
-                if ( !DirectoryReader.indexExists( luceneDirectory ) )
-                {
-                    bCreateIndex = Boolean.TRUE;
-                }
+    /**
+     * Return the version of the index read by a searcher acquired with {@link #acquireIndexSearcher(int)}. The version of a searcher on several partitions
+     * changes whenever one of its partitions changes.
+     * 
+     * @param indexSearcher
+     *            the index searcher
+     * @return the version of the index, or -1 if unknown
+     */
+    public long getIndexVersion( IndexSearcher indexSearcher )
+    {
+        AcquiredSearcher acquiredSearcher = _mapAcquiredSearchers.get( indexSearcher );
+        if ( acquiredSearcher != null )
+        {
+            return acquiredSearcher._lVersion;
+        }
+        return getReaderVersion( indexSearcher );
+    }
 
-                IndexWriterConfig conf = new IndexWriterConfig( getAnalyzer( ) );
+    /**
+     * Refresh the searchers of the partitions so that the next searches see the last changes of the index writers
+     */
+    public void refreshSearcher( )
+    {
+        if ( _bReadOnly )
+        {
+            // The partitions created by the indexing node since the last refresh become visible
+            rediscoverPartitions( );
+        }
+        for ( FormIndexPartition partition : _mapPartitions.values( ) )
+        {
+            partition.refreshSearcher( );
+        }
+    }
 
-                if ( Boolean.TRUE.equals( bCreateIndex ) )
-                {
-                    conf.setOpenMode( OpenMode.CREATE );
-                }
-                else
+    /**
+     * Check if the index is read only on this node, because another node is in charge of the indexing
+     * 
+     * @return true if the index cannot be written
+     */
+    public boolean isReadOnly( )
+    {
+        return _bReadOnly;
+    }
+
+    /**
+     * Switch the index to read only or back to writable. The IndexWriters and the searchers of the partitions are closed, and reopened in the new mode when
+     * they are needed.
+     * 
+     * @param bReadOnly
+     *            true if the index cannot be written by this node
+     */
+    public void setReadOnly( boolean bReadOnly )
+    {
+        if ( _bReadOnly == bReadOnly )
+        {
+            return;
+        }
+        _bReadOnly = bReadOnly;
+        for ( FormIndexPartition partition : _mapPartitions.values( ) )
+        {
+            try
+            {
+                partition.closeIndexWriter( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to close the Lucene Index Writer of the forms index", e );
+            }
+        }
+    }
+
+    /**
+     * Check if the index is split in one index per form or group of forms
+     * 
+     * @return true if the index is partitioned
+     */
+    public boolean isPartitioned( )
+    {
+        return PARTITIONING_FORM.equalsIgnoreCase( AppPropertiesService.getProperty( PROPERTY_PARTITIONING ) );
+    }
+
+    /**
+     * Return the partition holding the form responses of a form
+     * 
+     * @param nIdForm
+     *            the identifier of the form
+     * @return the partition of the form, the single partition of the index if it is not partitioned
+     */
+    public FormIndexPartition getPartition( int nIdForm )
+    {
+        if ( !isPartitioned( ) )
+        {
+            return getPartition( StringUtils.EMPTY );
+        }
+
+        String strGroupPartitionName = getGroupPartitionNames( ).get( nIdForm );
+        return getPartition( ( strGroupPartitionName != null ) ? strGroupPartitionName : PARTITION_FORM_PREFIX + nIdForm );
+    }
+
+    /**
+     * Return the known partitions of the index : the partitions found on disk and the partitions opened since
+     * 
+     * @return the partitions of the index
+     */
+    public Collection<FormIndexPartition> getPartitions( )
+    {
+        if ( !isPartitioned( ) )
+        {
+            return Collections.singletonList( getPartition( StringUtils.EMPTY ) );
+        }
+
+        discoverPartitions( );
+        List<FormIndexPartition> listPartition = new ArrayList<>( );
+        for ( FormIndexPartition partition : _mapPartitions.values( ) )
+        {
+            if ( StringUtils.isNotEmpty( partition.getName( ) ) )
+            {
+                listPartition.add( partition );
+            }
+        }
+        return listPartition;
+    }
+
+    /**
+     * Return the partition of the given name, creating it if needed
+     * 
+     * @param strName
+     *            the name of the partition, empty for the index when it is not partitioned
+     * @return the partition
+     */
+    private FormIndexPartition getPartition( String strName )
+    {
+        return _mapPartitions.computeIfAbsent( strName, strPartitionName -> new FormIndexPartition( strPartitionName, getPartitionPath( strPartitionName ),
+                this ) );
+    }
+
+    /**
+     * Register the partitions existing on disk, next to the index path, the first time they are needed
+     */
+    private synchronized void discoverPartitions( )
+    {
+        if ( _bPartitionsDiscovered )
+        {
+            return;
+        }
+
+        Path indexPath = Paths.get( getIndexPath( ) );
+        String strPrefix = indexPath.getFileName( ) + PARTITION_SEPARATOR;
+        if ( indexPath.getParent( ) != null && Files.isDirectory( indexPath.getParent( ) ) )
+        {
+            try ( DirectoryStream<Path> stream = Files.newDirectoryStream( indexPath.getParent( ), strPrefix + "*" ) )
+            {
+                for ( Path path : stream )
                 {
-                    conf.setOpenMode( OpenMode.APPEND );
+                    String strName = path.getFileName( ).toString( ).substring( strPrefix.length( ) );
+                    if ( Files.isDirectory( path ) && PATTERN_PARTITION_NAME.matcher( strName ).matches( ) )
+                    {
+                        getPartition( strName );
+                    }
                 }
-                _indexWriter = new IndexWriter( luceneDirectory, conf );
             }
             catch( IOException e )
             {
-                AppLogService.error( "Unable to create a new Lucene Index Writer", e );
-                return null;
+                AppLogService.error( "Unable to list the partitions of the forms index", e );
             }
         }
-        return _indexWriter;
+        _bPartitionsDiscovered = true;
+    }
 
+    /**
+     * Register again the partitions existing on disk the next time they are needed
+     */
+    private synchronized void rediscoverPartitions( )
+    {
+        _bPartitionsDiscovered = false;
     }
 
     /**
-     * Return the Directory to use for the search
+     * Return the names of the partitions of the groups of forms, read from the forms.index.partitioning.groups property : the groups are separated by
+     * semicolons and hold comma separated form identifiers
+     * 
+     * @return the names of the group partitions, by form identifier
+     */
+    private synchronized Map<Integer, String> getGroupPartitionNames( )
+    {
+        if ( _mapGroupPartitionNames == null )
+        {
+            _mapGroupPartitionNames = new HashMap<>( );
+
+            String [ ] groups = StringUtils.split( AppPropertiesService.getProperty( PROPERTY_PARTITIONING_GROUPS, StringUtils.EMPTY ), GROUP_SEPARATOR );
+            for ( int nGroup = 0; nGroup < groups.length; nGroup++ )
+            {
+                for ( String strIdForm : StringUtils.split( groups [nGroup], ID_FORM_SEPARATOR ) )
+                {
+                    try
+                    {
+                        _mapGroupPartitionNames.put( Integer.parseInt( strIdForm.trim( ) ), PARTITION_GROUP_PREFIX + ( nGroup + 1 ) );
+                    }
+                    catch( NumberFormatException e )
+                    {
+                        AppLogService.error( "Invalid form identifier " + strIdForm + " for the property " + PROPERTY_PARTITIONING_GROUPS, e );
+                    }
+                }
+            }
+        }
+        return _mapGroupPartitionNames;
+    }
+
+    /**
+     * Return the path of the index of a partition, next to the index path
+     * 
+     * @param strName
+     *            the name of the partition
+     * @return the path of the index of the partition, the index path itself when the index is not partitioned
+     */
+    private Path getPartitionPath( String strName )
+    {
+        Path indexPath = Paths.get( getIndexPath( ) );
+        if ( StringUtils.isEmpty( strName ) )
+        {
+            return indexPath;
+        }
+        return indexPath.resolveSibling( indexPath.getFileName( ) + PARTITION_SEPARATOR + strName );
+    }
+
+    /**
+     * Return the version of the index read by a searcher on a single index
+     * 
+     * @param indexSearcher
+     *            the index searcher
+     * @return the version of the index, or -1 if unknown
+     */
+    private static long getReaderVersion( IndexSearcher indexSearcher )
+    {
+        IndexReader indexReader = indexSearcher.getIndexReader( );
+        if ( indexReader instanceof DirectoryReader )
+        {
+            return ( (DirectoryReader) indexReader ).getVersion( );
+        }
+        return -1;
+    }
+
+    /**
+     * Return the Directory to use for the search, on the live generation of the index when it is not partitioned
      * 
      * @return the Directory to use for the search
      * @throws IOException
@@ -146,18 +527,345 @@ public class LuceneFormSearchFactory
      */
     public Directory getDirectory( ) throws IOException
     {
-        String strIndex;
+        // The index is only read, without registering it as a partition
+        return new FormIndexPartition( StringUtils.EMPTY, getPartitionPath( StringUtils.EMPTY ), this ).openDirectory( );
+    }
 
-        boolean indexInWebapp = AppPropertiesService.getPropertyBoolean( PATH_INDEX_IN_WEBAPP, true );
-        if ( indexInWebapp )
+    /**
+     * Open the Directory implementation selected by the forms.index.directory property : mmap, nrtCaching (NRTCachingDirectory wrapping MMapDirectory) or
+     * niofs, the default
+     * 
+     * @param path
+     *            the path of the index
+     * @return the Directory
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    Directory openDirectory( Path path ) throws IOException
+    {
+        String strDirectory = AppPropertiesService.getProperty( PROPERTY_DIRECTORY, StringUtils.EMPTY );
+
+        if ( DIRECTORY_MMAP.equalsIgnoreCase( strDirectory ) )
+        {
+            return new MMapDirectory( path );
+        }
+        if ( DIRECTORY_NRT_CACHING.equalsIgnoreCase( strDirectory ) )
+        {
+            double dMaxMergeSizeMB = getPropertyDouble( PROPERTY_NRT_CACHING_MAX_MERGE_SIZE, 5.0 );
+            double dMaxCachedMB = getPropertyDouble( PROPERTY_NRT_CACHING_MAX_CACHED, 60.0 );
+            return new NRTCachingDirectory( new MMapDirectory( path ), dMaxMergeSizeMB, dMaxCachedMB );
+        }
+        return NIOFSDirectory.open( path );
+    }
+
+    /**
+     * Create the IndexWriterConfig from the forms.index.writer.* properties
+     * 
+     * @return the IndexWriterConfig
+     */
+    IndexWriterConfig createIndexWriterConfig( )
+    {
+        IndexWriterConfig conf = new IndexWriterConfig( getAnalyzer( ) );
+
+        conf.setRAMBufferSizeMB( getPropertyDouble( PROPERTY_RAM_BUFFER_SIZE, IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB ) );
+
+        boolean bUseCompoundFile = AppPropertiesService.getPropertyBoolean( PROPERTY_USE_COMPOUND_FILE, IndexWriterConfig.DEFAULT_USE_COMPOUND_FILE_SYSTEM );
+        conf.setUseCompoundFile( bUseCompoundFile );
+
+        MergePolicy mergePolicy;
+        if ( MERGE_POLICY_LOG_BYTE_SIZE.equalsIgnoreCase( AppPropertiesService.getProperty( PROPERTY_MERGE_POLICY ) ) )
         {
-            strIndex = AppPathService.getPath( PATH_INDEX );
+            mergePolicy = new LogByteSizeMergePolicy( );
         }
         else
         {
-            strIndex = AppPropertiesService.getProperty( PATH_INDEX );
+            mergePolicy = new TieredMergePolicy( );
+        }
+        if ( !bUseCompoundFile )
+        {
+            // Merged segments are written without compound file either
+            mergePolicy.setNoCFSRatio( 0.0 );
+        }
+        conf.setMergePolicy( mergePolicy );
+
+        if ( MERGE_SCHEDULER_SERIAL.equalsIgnoreCase( AppPropertiesService.getProperty( PROPERTY_MERGE_SCHEDULER ) ) )
+        {
+            conf.setMergeScheduler( new SerialMergeScheduler( ) );
+        }
+        else
+        {
+            conf.setMergeScheduler( new ConcurrentMergeScheduler( ) );
         }
 
-        return NIOFSDirectory.open( Paths.get( strIndex ) );
+        String strCompression = AppPropertiesService.getProperty( PROPERTY_STORED_FIELDS_COMPRESSION );
+        if ( StringUtils.isNotBlank( strCompression ) )
+        {
+            try
+            {
+                conf.setCodec( new Lucene70Codec( Lucene50StoredFieldsFormat.Mode.valueOf( strCompression.trim( ).toUpperCase( ) ) ) );
+            }
+            catch( IllegalArgumentException e )
+            {
+                AppLogService.error( "Unknown stored fields compression mode " + strCompression + ", the default one is used", e );
+            }
+        }
+
+        // Allows to copy a commit of the index while the index keeps changing
+        conf.setIndexDeletionPolicy( new SnapshotDeletionPolicy( new KeepOnlyLastCommitDeletionPolicy( ) ) );
+
+        return conf;
+    }
+
+    /**
+     * Check if the index has been built on this node
+     * 
+     * @return true if the index, or one of its partitions, holds committed documents
+     */
+    public boolean hasDocuments( )
+    {
+        for ( FormIndexPartition partition : getPartitions( ) )
+        {
+            if ( partition.hasDocuments( ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write a consistent snapshot of all the partitions of the index as a zip archive. The archive starts with the metadata of the snapshot : the layout and
+     * the schema of the index. The index keeps being updated while its files are copied.
+     * 
+     * @param outputStream
+     *            the stream of the archive, closed by this method
+     * @return the metadata of the snapshot
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    public Properties writeSnapshot( OutputStream outputStream ) throws IOException
+    {
+        Map<FormIndexPartition, IndexCommit> mapCommits = new LinkedHashMap<>( );
+        try ( ZipOutputStream zipOutputStream = new ZipOutputStream( outputStream ) )
+        {
+            for ( FormIndexPartition partition : getPartitions( ) )
+            {
+                mapCommits.put( partition, partition.snapshot( ) );
+            }
+
+            Properties metadata = new Properties( );
+            metadata.setProperty( SNAPSHOT_PARTITIONED, String.valueOf( isPartitioned( ) ) );
+            metadata.setProperty( SNAPSHOT_COMPACT_SCHEMA, String.valueOf( LuceneUtils.isCompactSchema( ) ) );
+            zipOutputStream.putNextEntry( new ZipEntry( SNAPSHOT_METADATA_ENTRY ) );
+            metadata.store( zipOutputStream, null );
+            zipOutputStream.closeEntry( );
+
+            byte [ ] buffer = new byte [ COPY_BUFFER_SIZE];
+            for ( Map.Entry<FormIndexPartition, IndexCommit> commit : mapCommits.entrySet( ) )
+            {
+                String strPartitionName = StringUtils.defaultIfEmpty( commit.getKey( ).getName( ), SNAPSHOT_INDEX_ENTRY );
+                Directory directory = commit.getValue( ).getDirectory( );
+                for ( String strFileName : commit.getValue( ).getFileNames( ) )
+                {
+                    zipOutputStream.putNextEntry( new ZipEntry( strPartitionName + SNAPSHOT_ENTRY_SEPARATOR + strFileName ) );
+                    try ( IndexInput input = directory.openInput( strFileName, IOContext.READONCE ) )
+                    {
+                        long lRemaining = input.length( );
+                        while ( lRemaining > 0 )
+                        {
+                            int nLength = (int) Math.min( buffer.length, lRemaining );
+                            input.readBytes( buffer, 0, nLength );
+                            zipOutputStream.write( buffer, 0, nLength );
+                            lRemaining -= nLength;
+                        }
+                    }
+                    zipOutputStream.closeEntry( );
+                }
+            }
+
+            return metadata;
+        }
+        finally
+        {
+            for ( Map.Entry<FormIndexPartition, IndexCommit> commit : mapCommits.entrySet( ) )
+            {
+                commit.getKey( ).releaseSnapshot( commit.getValue( ) );
+            }
+        }
+    }
+
+    /**
+     * Replace the partitions of the index by the ones of a snapshot written by {@link #writeSnapshot(OutputStream)}. The layout of the snapshot must match the
+     * layout of the index. The partitions of the snapshot are first restored next to the live ones and checked, then each live partition is switched to
+     * its restored copy : the searches keep reading the previous content until then. The other partitions are kept as is.
+     * 
+     * @param inputStream
+     *            the stream of the archive, closed by this method
+     * @return the metadata of the snapshot
+     * @throws IOException
+     *             - if the archive is invalid or if there is a low level IO error
+     */
+    public Properties restoreSnapshot( InputStream inputStream ) throws IOException
+    {
+        Map<FormIndexPartition, Directory> mapDirectories = new LinkedHashMap<>( );
+        try ( ZipInputStream zipInputStream = new ZipInputStream( inputStream ) )
+        {
+            ZipEntry zipEntry = zipInputStream.getNextEntry( );
+            if ( zipEntry == null || !SNAPSHOT_METADATA_ENTRY.equals( zipEntry.getName( ) ) )
+            {
+                throw new IOException( "The archive is not a snapshot of the forms index" );
+            }
+            Properties metadata = new Properties( );
+            metadata.load( zipInputStream );
+            if ( Boolean.parseBoolean( metadata.getProperty( SNAPSHOT_PARTITIONED ) ) != isPartitioned( )
+                    || Boolean.parseBoolean( metadata.getProperty( SNAPSHOT_COMPACT_SCHEMA ) ) != LuceneUtils.isCompactSchema( ) )
+            {
+                throw new IOException( "The layout or the schema of the snapshot does not match the configuration of the forms index" );
+            }
+
+            byte [ ] buffer = new byte [ COPY_BUFFER_SIZE];
+            while ( ( zipEntry = zipInputStream.getNextEntry( ) ) != null )
+            {
+                String [ ] entryNames = StringUtils.split( zipEntry.getName( ), SNAPSHOT_ENTRY_SEPARATOR );
+                if ( entryNames.length != 2 || !PATTERN_INDEX_FILE_NAME.matcher( entryNames [1] ).matches( ) )
+                {
+                    throw new IOException( "Invalid entry " + zipEntry.getName( ) + " in the snapshot of the forms index" );
+                }
+                FormIndexPartition partition = getSnapshotPartition( entryNames [0] );
+
+                Directory directory = mapDirectories.get( partition );
+                if ( directory == null )
+                {
+                    directory = partition.openRestoreDirectory( );
+                    mapDirectories.put( partition, directory );
+                }
+                try ( IndexOutput output = directory.createOutput( entryNames [1], IOContext.DEFAULT ) )
+                {
+                    int nLength;
+                    while ( ( nLength = zipInputStream.read( buffer ) ) > 0 )
+                    {
+                        output.writeBytes( buffer, 0, nLength );
+                    }
+                }
+            }
+
+            // No live partition is replaced unless every restored partition can be opened
+            for ( Map.Entry<FormIndexPartition, Directory> restoredPartition : mapDirectories.entrySet( ) )
+            {
+                Directory directory = restoredPartition.getValue( );
+                directory.sync( Arrays.asList( directory.listAll( ) ) );
+                if ( !DirectoryReader.indexExists( directory ) )
+                {
+                    throw new IOException( "The snapshot of the forms index " + restoredPartition.getKey( ).getName( ) + " holds no commit" );
+                }
+                DirectoryReader.open( directory ).close( );
+            }
+
+            Iterator<Map.Entry<FormIndexPartition, Directory>> iterator = mapDirectories.entrySet( ).iterator( );
+            while ( iterator.hasNext( ) )
+            {
+                Map.Entry<FormIndexPartition, Directory> restoredPartition = iterator.next( );
+                iterator.remove( );
+                restoredPartition.getKey( ).swapRestoredIndex( restoredPartition.getValue( ) );
+            }
+            return metadata;
+        }
+        finally
+        {
+            for ( Map.Entry<FormIndexPartition, Directory> restoredPartition : mapDirectories.entrySet( ) )
+            {
+                restoredPartition.getKey( ).discardRestoredIndex( restoredPartition.getValue( ) );
+            }
+        }
+    }
+
+    /**
+     * Return the partition of an entry of a snapshot
+     * 
+     * @param strEntryPartitionName
+     *            the partition name of the entry
+     * @return the partition
+     * @throws IOException
+     *             - if the partition name is invalid for the layout of the index
+     */
+    private FormIndexPartition getSnapshotPartition( String strEntryPartitionName ) throws IOException
+    {
+        if ( !isPartitioned( ) && SNAPSHOT_INDEX_ENTRY.equals( strEntryPartitionName ) )
+        {
+            return getPartition( StringUtils.EMPTY );
+        }
+        if ( isPartitioned( ) && PATTERN_PARTITION_NAME.matcher( strEntryPartitionName ).matches( ) )
+        {
+            return getPartition( strEntryPartitionName );
+        }
+        throw new IOException( "Invalid partition " + strEntryPartitionName + " in the snapshot of the forms index" );
+    }
+
+    /**
+     * Read a decimal property
+     * 
+     * @param strKey
+     *            the property key
+     * @param dDefault
+     *            the default value
+     * @return the value of the property, or the default value if it is missing or invalid
+     */
+    private static double getPropertyDouble( String strKey, double dDefault )
+    {
+        String strValue = AppPropertiesService.getProperty( strKey );
+        if ( StringUtils.isNotBlank( strValue ) )
+        {
+            try
+            {
+                return Double.parseDouble( strValue.trim( ) );
+            }
+            catch( NumberFormatException e )
+            {
+                AppLogService.error( "Invalid value " + strValue + " for the property " + strKey, e );
+            }
+        }
+        return dDefault;
+    }
+
+    /**
+     * Return the path of the live index
+     * 
+     * @return the path of the live index
+     */
+    private String getIndexPath( )
+    {
+        boolean indexInWebapp = AppPropertiesService.getPropertyBoolean( PATH_INDEX_IN_WEBAPP, true );
+        if ( indexInWebapp )
+        {
+            return AppPathService.getPath( PATH_INDEX );
+        }
+        return AppPropertiesService.getProperty( PATH_INDEX );
+    }
+
+    /**
+     * A searcher acquired on one or several partitions, with the partition searchers to release
+     */
+    private static final class AcquiredSearcher
+    {
+        private final List<FormIndexPartition> _listPartition;
+        private final List<IndexSearcher> _listPartitionSearcher;
+        private final long _lVersion;
+
+        /**
+         * Constructor
+         * 
+         * @param listPartition
+         *            the partitions read by the searcher
+         * @param listPartitionSearcher
+         *            the searchers acquired on each partition
+         * @param lVersion
+         *            the version of the index read by the searcher
+         */
+        private AcquiredSearcher( List<FormIndexPartition> listPartition, List<IndexSearcher> listPartitionSearcher, long lVersion )
+        {
+            _listPartition = listPartition;
+            _listPartitionSearcher = listPartitionSearcher;
+            _lVersion = lVersion;
+        }
     }
 }
@@ -33,28 +33,47 @@
  */
 package fr.paris.lutece.plugins.forms.service.search;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LatLonDocValuesField;
+import org.apache.lucene.document.LatLonPoint;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -65,21 +84,22 @@ import fr.paris.lutece.plugins.forms.business.FormQuestionResponse;
 import fr.paris.lutece.plugins.forms.business.FormResponse;
 import fr.paris.lutece.plugins.forms.business.FormResponseHome;
 import fr.paris.lutece.plugins.forms.business.FormResponseStep;
+import fr.paris.lutece.plugins.forms.business.Question;
+import fr.paris.lutece.plugins.forms.business.QuestionHome;
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import fr.paris.lutece.plugins.forms.business.form.search.IndexerAction;
-import fr.paris.lutece.plugins.forms.business.form.search.IndexerActionFilter;
 import fr.paris.lutece.plugins.forms.business.form.search.IndexerActionHome;
 import fr.paris.lutece.plugins.forms.service.FormsPlugin;
-import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeDate;
-import fr.paris.lutece.plugins.forms.service.entrytype.EntryTypeNumbering;
+import fr.paris.lutece.plugins.forms.service.workflow.IFormWorkflowService;
+import fr.paris.lutece.plugins.forms.util.FormsConstants;
 import fr.paris.lutece.plugins.forms.util.LuceneUtils;
 import fr.paris.lutece.plugins.genericattributes.business.Entry;
 import fr.paris.lutece.plugins.genericattributes.business.Response;
 import fr.paris.lutece.plugins.genericattributes.service.entrytype.EntryTypeServiceManager;
-import fr.paris.lutece.plugins.genericattributes.service.entrytype.IEntryTypeService;
 import fr.paris.lutece.plugins.workflowcore.business.state.State;
 import fr.paris.lutece.plugins.workflowcore.service.state.StateService;
 import fr.paris.lutece.portal.service.content.XPageAppService;
+import fr.paris.lutece.portal.service.datastore.DatastoreService;
 import fr.paris.lutece.portal.service.message.SiteMessageException;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
@@ -88,6 +108,7 @@ import fr.paris.lutece.portal.service.search.SearchItem;
 import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.portal.service.util.AppPathService;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.ReferenceItem;
 import fr.paris.lutece.util.url.UrlItem;
 
 /**
@@ -102,13 +123,29 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
     private static final String PROPERTY_INDEXER_ENABLE = "forms.globalIndexer.enable";
     private static final String FILTER_DATE_FORMAT = AppPropertiesService.getProperty( "forms.index.date.format", "dd/MM/yyyy" );
     private static final int TAILLE_LOT = AppPropertiesService.getPropertyInt( "forms.index.writer.commit.size", 100 );
-
-    private static AtomicBoolean _bIndexIsRunning = new AtomicBoolean( false );
-    private static AtomicBoolean _bIndexToLunch = new AtomicBoolean( false );
+    private static final int CHECKPOINT_SIZE = AppPropertiesService.getPropertyInt( "forms.index.rebuild.checkpoint.size", 10000 );
+    private static final String COMMIT_DATA_LAST_ID_FORM_RESPONSE = "forms.rebuild.lastIdFormResponse";
+    private static final String DATASTORE_KEY_REINDEX_FORM = "forms.index.reindexForm.";
+    private static final String DATASTORE_KEY_REBUILD = "forms.index.rebuildRequested";
+    private static final String DATASTORE_KEY_FIELD_PLAN = "forms.index.fieldPlan.";
+    private static final String PROPERTY_SNAPSHOT_PATH = "forms.index.snapshot.path";
+    private static final String SNAPSHOT_TEMPORARY_SUFFIX = ".tmp";
+
+    // Field plans of the forms, compiled on the first indexing of their responses
+    private final Map<Integer, FormIndexFieldPlan> _mapFieldPlans = new ConcurrentHashMap<>( );
+    // Modification time of the last snapshot restored by a node following the indexing node
+    private long _lRestoredSnapshotTime;
+    // True once the DocValues types of the live index are known to match the schema
+    private boolean _bSchemaChecked;
 
     @Inject
     private LuceneFormSearchFactory _luceneFormSearchFactory;
-    private IndexWriter _indexWriter;
+    @Inject
+    private FormsIndexingExecutor _indexingExecutor;
+    @Inject
+    private FormsIndexingLeaderElection _leaderElection;
+    @Inject
+    private IFormWorkflowService _formWorkflowService;
     @Autowired( required = false )
     private StateService _stateService;
 
@@ -193,60 +230,485 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
         IndexerAction indexerAction = new IndexerAction( );
         indexerAction.setIdFormResponse( nIdFormResponse );
         indexerAction.setIdTask( nIdTask );
-        IndexerActionHome.create( indexerAction, plugin );
+        IndexerActionHome.upsert( indexerAction, plugin );
     }
 
     /**
      * {@inheritDoc }
      */
     @Override
-    public synchronized void indexDocuments( ) throws IOException, InterruptedException, SiteMessageException
+    public void indexDocuments( ) throws IOException, InterruptedException, SiteMessageException
     {
-        List<Integer> listFormResponsesId = FormResponseHome.selectAllFormResponsesId( );
+        if ( !_leaderElection.isLeader( ) )
+        {
+            // The rebuild is run by the indexing node on its next heartbeat
+            DatastoreService.setDataValue( DATASTORE_KEY_REBUILD, String.valueOf( System.currentTimeMillis( ) ) );
+            AppLogService.info( "The rebuild of the forms index is requested to the indexing node" );
+            return;
+        }
+        _indexingExecutor.submitRebuild( ( ) -> runRebuild( false ) );
+    }
 
-        deleteIndex( );
-        _bIndexToLunch.set( true );
-        if ( _bIndexIsRunning.compareAndSet( false, true ) )
+    /**
+     * Run a rebuild of the partitions of the index, resuming the interrupted ones, and record its metrics
+     * 
+     * @param bInterruptedOnly
+     *            true to only resume the partitions whose rebuild was interrupted, false to rebuild all of them
+     */
+    private void runRebuild( boolean bInterruptedOnly )
+    {
+        if ( !_leaderElection.isLeader( ) )
         {
-            new Thread( ( ) -> {
-                try
-                {
-                    List<FormResponse> listFormResponses = new ArrayList<>( TAILLE_LOT );
-                    for ( Integer nIdFormResponse : listFormResponsesId )
-                    {
-                        // TODO IMPLEMENT A SQL IN( ..) instead
-                        FormResponse response = FormResponseHome.findByPrimaryKeyForIndex( nIdFormResponse );
-                        if ( response != null )
-                        {
-                            listFormResponses.add( response );
-                        }
-                        if ( listFormResponses.size( ) == TAILLE_LOT )
-                        {
-                            indexFormResponseList( listFormResponses );
-                            listFormResponses.clear( );
-                        }
-                    }
-                    indexFormResponseList( listFormResponses );
-                    // Indexation increment
-                    while ( _bIndexToLunch.compareAndSet( true, false ) )
-                    {
-                        processIndexing( );
+            return;
+        }
 
-                    }
-                }
-                catch( Exception e )
+        try
+        {
+            long lStart = System.currentTimeMillis( );
+            int nIndexed = 0;
+            _mapFieldPlans.clear( );
+            for ( Map.Entry<FormIndexPartition, List<Integer>> formsByPartition : getFormsByPartition( ).entrySet( ) )
+            {
+                FormIndexPartition partition = formsByPartition.getKey( );
+                if ( !bInterruptedOnly || partition.hasShadowIndex( ) )
                 {
-                    AppLogService.error( e.getMessage( ), e );
-                    Thread.currentThread( ).interrupt( );
+                    nIndexed += rebuildPartition( partition, formsByPartition.getValue( ) );
                 }
-                finally
+            }
+            _indexingExecutor.recordCommit( nIndexed, System.currentTimeMillis( ) - lStart );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to rebuild the forms index", e );
+        }
+        catch( InterruptedException e )
+        {
+            AppLogService.error( "The rebuild of the forms index has been interrupted", e );
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Return the forms of each partition of the index. The known partitions without any form are included, so that their rebuild empties them.
+     * 
+     * @return the identifiers of the forms of each partition, or null for the single partition of an index which is not partitioned
+     */
+    private Map<FormIndexPartition, List<Integer>> getFormsByPartition( )
+    {
+        Map<FormIndexPartition, List<Integer>> mapFormsByPartition = new LinkedHashMap<>( );
+        if ( !_luceneFormSearchFactory.isPartitioned( ) )
+        {
+            mapFormsByPartition.put( _luceneFormSearchFactory.getPartition( FormsConstants.DEFAULT_ID_VALUE ), null );
+            return mapFormsByPartition;
+        }
+
+        for ( FormIndexPartition partition : _luceneFormSearchFactory.getPartitions( ) )
+        {
+            mapFormsByPartition.put( partition, new ArrayList<>( ) );
+        }
+        for ( Form form : FormHome.getFormList( ) )
+        {
+            mapFormsByPartition.computeIfAbsent( _luceneFormSearchFactory.getPartition( form.getId( ) ), partition -> new ArrayList<>( ) ).add( form.getId( ) );
+        }
+        return mapFormsByPartition;
+    }
+
+    /**
+     * Check if the rebuild of a partition of the index has been interrupted
+     * 
+     * @return true if a partition has a pending shadow index
+     */
+    private boolean hasInterruptedRebuild( )
+    {
+        for ( FormIndexPartition partition : _luceneFormSearchFactory.getPartitions( ) )
+        {
+            if ( partition.hasShadowIndex( ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rebuild a partition of the index into its shadow index, then replace the live index of the partition with it. The partition stays searchable during the
+     * rebuild, and the other partitions are not modified. The form responses are indexed in ascending id order, and each committed chunk records the last
+     * indexed id in the commit data of the shadow index, so that an interrupted rebuild resumes after it. After each chunk, the queued indexer actions are
+     * applied to both the live and the shadow index, so that the live index does not stay stale until the end of the rebuild.
+     * 
+     * @param partition
+     *            the partition to rebuild
+     * @param listIdForm
+     *            the identifiers of the forms of the partition, or null for all the forms
+     * @return the number of form responses indexed by this run
+     * @throws IOException
+     *             - if there is a low level IO error
+     * @throws InterruptedException
+     *             - if the rebuild is interrupted
+     */
+    private int rebuildPartition( FormIndexPartition partition, List<Integer> listIdForm ) throws IOException, InterruptedException
+    {
+        int nIndexed = 0;
+        IndexWriter shadowIndexWriter = partition.openShadowIndexWriter( true );
+        try ( FormResponseIndexingPipeline pipeline = new FormResponseIndexingPipeline( shadowIndexWriter, TAILLE_LOT ) )
+        {
+            int nLastIdFormResponse = readCheckpoint( shadowIndexWriter );
+            if ( nLastIdFormResponse > 0 )
+            {
+                AppLogService.info( "Resuming the rebuild of the forms index " + partition.getName( ) + " after the form response " + nLastIdFormResponse );
+            }
+
+            List<Integer> listIdFormResponse = selectFormResponsesIdAfter( nLastIdFormResponse, listIdForm );
+            while ( !listIdFormResponse.isEmpty( ) )
+            {
+                // The indexer actions may already have added some form responses of the chunk to the shadow index
+                shadowIndexWriter.deleteDocuments( IntPoint.newRangeQuery( FormResponseSearchItem.FIELD_ID_FORM_RESPONSE, nLastIdFormResponse + 1,
+                        listIdFormResponse.get( listIdFormResponse.size( ) - 1 ) ) );
+                Map<Integer, Form> mapForms = findForms( );
+                pipeline.run( listIdFormResponse, listFormResponse -> buildDocumentList( listFormResponse, mapForms ) );
+
+                // The checkpoint only moves once the whole chunk is written, a failed chunk is rolled back to the previous checkpoint
+                nLastIdFormResponse = listIdFormResponse.get( listIdFormResponse.size( ) - 1 );
+                shadowIndexWriter.setLiveCommitData( Collections.singletonMap( COMMIT_DATA_LAST_ID_FORM_RESPONSE, String.valueOf( nLastIdFormResponse ) )
+                        .entrySet( ) );
+                shadowIndexWriter.commit( );
+                nIndexed += listIdFormResponse.size( );
+
+                applyIndexerActionsDuringRebuild( partition, shadowIndexWriter );
+
+                listIdFormResponse = selectFormResponsesIdAfter( nLastIdFormResponse, listIdForm );
+            }
+            replayAndSwapShadowIndex( partition, shadowIndexWriter );
+        }
+        catch( IOException | InterruptedException | RuntimeException | Error e )
+        {
+            partition.rollbackShadowIndexWriter( shadowIndexWriter );
+            throw e;
+        }
+        return nIndexed;
+    }
+
+    /**
+     * Apply the indexer actions queued since the last chunk of a rebuild to the live indexes, and to the shadow index of the rebuilt partition, which would
+     * otherwise miss them for the form responses already rebuilt
+     * 
+     * @param partition
+     *            the rebuilt partition
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index of the partition
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    private synchronized void applyIndexerActionsDuringRebuild( FormIndexPartition partition, IndexWriter shadowIndexWriter ) throws IOException
+    {
+        long lStart = System.currentTimeMillis( );
+        int nDocuments = applyIndexerActions( partition, shadowIndexWriter, true );
+        _indexingExecutor.recordCommit( nDocuments, System.currentTimeMillis( ) - lStart );
+    }
+
+    /**
+     * Return the next chunk of form response ids to index in a partition
+     * 
+     * @param nIdFormResponseAfter
+     *            the id after which the ids are returned
+     * @param listIdForm
+     *            the identifiers of the forms of the partition, or null for all the forms
+     * @return the form response ids, in ascending order
+     */
+    private static List<Integer> selectFormResponsesIdAfter( int nIdFormResponseAfter, List<Integer> listIdForm )
+    {
+        if ( listIdForm == null )
+        {
+            return FormResponseHome.selectFormResponsesIdAfter( nIdFormResponseAfter, CHECKPOINT_SIZE );
+        }
+        return FormResponseHome.selectFormResponsesIdAfter( nIdFormResponseAfter, CHECKPOINT_SIZE, listIdForm );
+    }
+
+    /**
+     * Read the id of the last form response committed in the shadow index by an interrupted rebuild
+     * 
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index
+     * @return the id of the last indexed form response, or 0 if the rebuild starts from scratch
+     */
+    private int readCheckpoint( IndexWriter shadowIndexWriter )
+    {
+        Iterable<Map.Entry<String, String>> commitData = shadowIndexWriter.getLiveCommitData( );
+        if ( commitData != null )
+        {
+            for ( Map.Entry<String, String> entry : commitData )
+            {
+                if ( COMMIT_DATA_LAST_ID_FORM_RESPONSE.equals( entry.getKey( ) ) )
                 {
-                    _bIndexIsRunning.set( false );
+                    return Integer.parseInt( entry.getValue( ) );
                 }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Apply to the shadow index of a partition the indexer actions queued during its rebuild, then swap it with the live index of the partition. The actions on
+     * the form responses of the other partitions are applied to their live index. Holding the indexer lock, no incremental indexing can reach the live index
+     * of the partition before the cutover.
+     * 
+     * @param partition
+     *            the rebuilt partition
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index of the partition
+     * @throws IOException
+     *             - if there is a low level IO error
+     */
+    private synchronized void replayAndSwapShadowIndex( FormIndexPartition partition, IndexWriter shadowIndexWriter ) throws IOException
+    {
+        applyIndexerActions( partition, shadowIndexWriter, false );
+        partition.swapShadowIndex( shadowIndexWriter );
+        commitPartitions( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void reindexForm( int nIdForm )
+    {
+        // The questions of the form may have changed
+        invalidateFieldPlan( nIdForm );
+        DatastoreService.setDataValue( DATASTORE_KEY_REINDEX_FORM + nIdForm, String.valueOf( System.currentTimeMillis( ) ) );
+        _indexingExecutor.submitFormReindex( nIdForm, ( ) -> runFormReindex( nIdForm ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void invalidateFieldPlan( int nIdForm )
+    {
+        _mapFieldPlans.remove( nIdForm );
+        DatastoreService.setDataValue( DATASTORE_KEY_FIELD_PLAN + nIdForm, String.valueOf( System.currentTimeMillis( ) ) );
+    }
+
+    /**
+     * Drop the field plans of the forms whose questions have changed on any node, so that they are compiled again before the next documents are built
+     */
+    private void processPendingFieldPlanInvalidations( )
+    {
+        for ( ReferenceItem item : DatastoreService.getDataByPrefix( DATASTORE_KEY_FIELD_PLAN ) )
+        {
+            int nIdForm = NumberUtils.toInt( item.getCode( ).substring( DATASTORE_KEY_FIELD_PLAN.length( ) ), FormsConstants.DEFAULT_ID_VALUE );
+            _mapFieldPlans.remove( nIdForm );
+            DatastoreService.removeData( item.getCode( ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void processPendingFormReindexes( )
+    {
+        for ( ReferenceItem item : DatastoreService.getDataByPrefix( DATASTORE_KEY_REINDEX_FORM ) )
+        {
+            int nIdForm = NumberUtils.toInt( item.getCode( ).substring( DATASTORE_KEY_REINDEX_FORM.length( ) ), FormsConstants.DEFAULT_ID_VALUE );
+            if ( nIdForm != FormsConstants.DEFAULT_ID_VALUE )
+            {
+                _indexingExecutor.submitFormReindex( nIdForm, ( ) -> runFormReindex( nIdForm ) );
+            }
+        }
+    }
+
+    /**
+     * Run the reindex of a form and record its metrics. The pending request of the form is removed once it is reindexed.
+     * 
+     * @param nIdForm
+     *            the identifier of the form
+     */
+    private void runFormReindex( int nIdForm )
+    {
+        if ( !_leaderElection.isLeader( ) )
+        {
+            // The request stays pending for the indexing node
+            return;
+        }
+
+        long lStart = System.currentTimeMillis( );
+        _mapFieldPlans.remove( nIdForm );
+        int nIndexed = reindexFormResponses( nIdForm );
+        if ( nIndexed >= 0 )
+        {
+            DatastoreService.removeData( DATASTORE_KEY_REINDEX_FORM + nIdForm );
+            _indexingExecutor.recordCommit( nIndexed, System.currentTimeMillis( ) - lStart );
+        }
+    }
+
+    /**
+     * Replace the documents of a form in the live index of its partition. The documents of the form are deleted by a query on its identifier, then its
+     * responses are loaded and indexed by chunks of CHECKPOINT_SIZE ids. The searchers are only refreshed once the whole form is reindexed.
+     * 
+     * @param nIdForm
+     *            the identifier of the form
+     * @return the number of indexed form responses, or -1 if the partition of the form has an interrupted rebuild or if the form responses could not be
+     *         indexed
+     */
+    private synchronized int reindexFormResponses( int nIdForm )
+    {
+        FormIndexPartition partition = _luceneFormSearchFactory.getPartition( nIdForm );
+        if ( partition.hasShadowIndex( ) )
+        {
+            // The documents of the form would be replaced by the ones of the shadow index at the end of the rebuild
+            AppLogService.info( "The reindex of the form " + nIdForm + " is postponed until the rebuild of the forms index " + partition.getName( ) + " ends" );
+            return -1;
+        }
+
+        deleteDocument( partition.getIndexWriter( Boolean.FALSE ),
+                Collections.singletonList( IntPoint.newExactQuery( FormResponseSearchItem.FIELD_ID_FORM, nIdForm ) ) );
+
+        int nIndexed = 0;
+        List<Integer> listIdForm = Collections.singletonList( nIdForm );
+        List<Integer> listIdFormResponse = selectFormResponsesIdAfter( 0, listIdForm );
+        while ( !listIdFormResponse.isEmpty( ) )
+        {
+            if ( !indexFormResponseIdList( listIdFormResponse, null, null, false ) )
+            {
+                // The request stays pending
+                return -1;
+            }
+            nIndexed += listIdFormResponse.size( );
+
+            listIdFormResponse = selectFormResponsesIdAfter( listIdFormResponse.get( listIdFormResponse.size( ) - 1 ), listIdForm );
+        }
+        commitPartitions( );
+
+        return nIndexed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void exportSnapshot( )
+    {
+        if ( !_leaderElection.isLeader( ) )
+        {
+            return;
+        }
+
+        String strSnapshotPath = AppPropertiesService.getProperty( PROPERTY_SNAPSHOT_PATH );
+        if ( StringUtils.isBlank( strSnapshotPath ) )
+        {
+            AppLogService.info( "No snapshot of the forms index is written, the property " + PROPERTY_SNAPSHOT_PATH + " is not set" );
+            return;
+        }
+
+        // The applied actions are committed in the index before they are marked, so the snapshot taken next holds all the marked actions
+        Plugin plugin = PluginService.getPlugin( FormsPlugin.PLUGIN_NAME );
+        IndexerActionHome.markExported( plugin );
+
+        // The archive replaces the previous one once complete
+        Path snapshotPath = Paths.get( strSnapshotPath );
+        Path temporaryPath = snapshotPath.resolveSibling( snapshotPath.getFileName( ) + SNAPSHOT_TEMPORARY_SUFFIX );
+        try
+        {
+            try ( OutputStream outputStream = new BufferedOutputStream( Files.newOutputStream( temporaryPath ) ) )
+            {
+                _luceneFormSearchFactory.writeSnapshot( outputStream );
+            }
+            Files.move( temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+
+            // The exported actions no longer need to be replayed after a restore. They are removed by the next snapshot if this one failed.
+            IndexerActionHome.deleteExported( plugin );
+            AppLogService.info( "Snapshot of the forms index written to " + snapshotPath );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to write the snapshot of the forms index to " + snapshotPath, e );
+        }
+    }
+
+    /**
+     * Check if the snapshots of the index are enabled
+     * 
+     * @return true if the forms.index.snapshot.path property is set
+     */
+    private static boolean isSnapshotEnabled( )
+    {
+        return StringUtils.isNotBlank( AppPropertiesService.getProperty( PROPERTY_SNAPSHOT_PATH ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void restoreSnapshot( )
+    {
+        _indexingExecutor.submit( this::runSnapshotRestore );
+    }
+
+    /**
+     * Restore the index from the snapshot archive if the index holds no document yet, then catch up by replaying the indexer actions applied since the
+     * snapshot was taken and the pending ones. A node following the indexing node by snapshots restores each new snapshot instead.
+     */
+    private synchronized void runSnapshotRestore( )
+    {
+        String strSnapshotPath = AppPropertiesService.getProperty( PROPERTY_SNAPSHOT_PATH );
+        if ( StringUtils.isBlank( strSnapshotPath ) || !Files.isRegularFile( Paths.get( strSnapshotPath ) ) || _luceneFormSearchFactory.isReadOnly( ) )
+        {
+            return;
+        }
+
+        try
+        {
+            long lSnapshotTime = Files.getLastModifiedTime( Paths.get( strSnapshotPath ) ).toMillis( );
+            boolean bFollower = !_leaderElection.isLeader( ) && _leaderElection.isSnapshotFollower( );
+            if ( bFollower ? lSnapshotTime <= _lRestoredSnapshotTime : _luceneFormSearchFactory.hasDocuments( ) )
+            {
+                return;
+            }
+            _lRestoredSnapshotTime = lSnapshotTime;
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to read the snapshot of the forms index " + strSnapshotPath, e );
+            return;
+        }
+
+        try ( InputStream inputStream = new BufferedInputStream( Files.newInputStream( Paths.get( strSnapshotPath ) ) ) )
+        {
+            _luceneFormSearchFactory.restoreSnapshot( inputStream );
+            AppLogService.info( "Forms index restored from the snapshot " + strSnapshotPath );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to restore the forms index from the snapshot " + strSnapshotPath, e );
+            return;
+        }
 
-            } ).start( );
+        _luceneFormSearchFactory.refreshSearcher( );
+        if ( _leaderElection.isLeader( ) )
+        {
+            // The actions applied since the snapshot are missing from the restored index
+            IndexerActionHome.replayApplied( PluginService.getPlugin( FormsPlugin.PLUGIN_NAME ) );
+            processIndexing( );
         }
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void processPendingRequests( )
+    {
+        if ( DatastoreService.getDataValue( DATASTORE_KEY_REBUILD, null ) != null )
+        {
+            DatastoreService.removeData( DATASTORE_KEY_REBUILD );
+            _indexingExecutor.submitRebuild( ( ) -> runRebuild( false ) );
+        }
+        processPendingFieldPlanInvalidations( );
+        processPendingFormReindexes( );
+        if ( IndexerActionHome.count( FormsPlugin.getPlugin( ) ) > 0 )
+        {
+            _indexingExecutor.triggerIndexing( this::processIndexing );
+        }
     }
 
     /**
@@ -256,93 +718,234 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
     public void indexDocument( int nIdFormResponse, int nIdTask, Plugin plugin )
     {
         addIndexerAction( nIdFormResponse, nIdTask, plugin );
-        _bIndexToLunch.set( true );
-        if ( _bIndexIsRunning.compareAndSet( false, true ) )
+        _indexingExecutor.triggerIndexing( this::processIndexing );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void processIndexing( )
+    {
+        if ( !_leaderElection.isLeader( ) )
         {
-            new Thread( ( ) -> {
-                try
+            // The actions stay queued for the indexing node
+            return;
+        }
+
+        if ( hasInterruptedRebuild( ) )
+        {
+            // The actions stay queued to be replayed onto the shadow indexes of the interrupted rebuild, which is resumed
+            runRebuild( true );
+            return;
+        }
+
+        if ( !_bSchemaChecked )
+        {
+            if ( !hasCurrentSchema( ) )
+            {
+                // The actions stay queued to be replayed onto the rebuilt index
+                AppLogService.info( "The forms index was built with a previous schema, it is rebuilt" );
+                runRebuild( false );
+                return;
+            }
+            _bSchemaChecked = true;
+        }
+
+        long lStart = System.currentTimeMillis( );
+        try
+        {
+            int nDocuments = applyIndexerActions( null, null, false );
+            _indexingExecutor.recordCommit( nDocuments, System.currentTimeMillis( ) - lStart );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to apply the indexer actions to the forms index", e );
+        }
+    }
+
+    /**
+     * Apply the queued indexer actions to the index, claiming them from the queue by batches of TAILLE_LOT. A form response to add is first removed from every
+     * partition, so that the actions can be replayed on an index which already contains it, then added to the partition of its form. The index is committed
+     * every CHECKPOINT_SIZE actions, and the claimed actions are only removed from the queue once committed : the actions claimed by an indexing interrupted
+     * before its commit are applied again.
+     * 
+     * @param shadowPartition
+     *            the partition being rebuilt, or null
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index of the partition being rebuilt, which receives the actions of this partition, or null
+     * @param bUpdateLiveIndex
+     *            true to also apply the actions of the partition being rebuilt to its live index
+     * @return the number of applied actions
+     * @throws IOException
+     *             - if the index cannot be committed, the claimed actions are kept in the queue
+     */
+    private int applyIndexerActions( FormIndexPartition shadowPartition, IndexWriter shadowIndexWriter, boolean bUpdateLiveIndex ) throws IOException
+    {
+        Plugin plugin = PluginService.getPlugin( FormsPlugin.PLUGIN_NAME );
+        IndexerActionHome.releaseClaimed( plugin );
+        int nActions = 0;
+
+        List<IndexerAction> listActions;
+        do
+        {
+            List<IndexerAction> listClaimedActions = new ArrayList<>( );
+            do
+            {
+                listActions = IndexerActionHome.claimList( TAILLE_LOT, plugin );
+                listClaimedActions.addAll( listActions );
+
+                // The queue holds one action per form response
+                List<Integer> listIdsToDelete = new ArrayList<>( listActions.size( ) );
+                List<Integer> listIdsToAdd = new ArrayList<>( listActions.size( ) );
+                List<Integer> listIdsToUpdate = new ArrayList<>( );
+                for ( IndexerAction action : listActions )
                 {
-                    while ( _bIndexToLunch.compareAndSet( true, false ) )
+                    if ( action.getIdTask( ) == IndexerAction.TASK_MODIFY_STATE )
                     {
-                        processIndexing( );
+                        listIdsToUpdate.add( action.getIdFormResponse( ) );
+                        continue;
+                    }
+                    listIdsToDelete.add( action.getIdFormResponse( ) );
+                    if ( action.getIdTask( ) != IndexerAction.TASK_DELETE )
+                    {
+                        listIdsToAdd.add( action.getIdFormResponse( ) );
                     }
                 }
-                catch( Exception e )
-                {
-                    AppLogService.error( e.getMessage( ), e );
-                    Thread.currentThread( ).interrupt( );
-                }
-                finally
+
+                deleteFormResponseIdList( listIdsToDelete, shadowIndexWriter );
+                if ( !indexFormResponseIdList( listIdsToAdd, shadowPartition, shadowIndexWriter, bUpdateLiveIndex )
+                        || !updateFormResponseIdList( listIdsToUpdate, shadowPartition, shadowIndexWriter, bUpdateLiveIndex ) )
                 {
-                    _bIndexIsRunning.set( false );
+                    // The claimed actions are released by the next indexing
+                    throw new IOException( "Unable to index the form responses, the indexer actions stay queued" );
                 }
+            }
+            while ( listActions.size( ) == TAILLE_LOT && listClaimedActions.size( ) < CHECKPOINT_SIZE );
+
+            if ( shadowIndexWriter != null )
+            {
+                shadowIndexWriter.commit( );
+            }
+            if ( !commitPartitions( ) )
+            {
+                throw new IOException( "Unable to commit the forms index, the indexer actions stay queued" );
+            }
+            // With snapshots, the applied actions are kept to be replayed on an index restored from the last snapshot
+            IndexerActionHome.completeList( listClaimedActions, isSnapshotEnabled( ), plugin );
+            nActions += listClaimedActions.size( );
+        }
+        while ( listActions.size( ) == TAILLE_LOT );
+
+        return nActions;
+    }
+
+    /**
+     * Delete the documents of the form responses whose ids are given from every partition of the index, as the form of a deleted form response is unknown
+     * 
+     * @param listIdFormResponse
+     *            the ids of the form responses to delete
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index of the partition being rebuilt, or null
+     */
+    private void deleteFormResponseIdList( List<Integer> listIdFormResponse, IndexWriter shadowIndexWriter )
+    {
+        if ( listIdFormResponse.isEmpty( ) )
+        {
+            return;
+        }
 
-            } ).start( );
+        List<Query> queryList = new ArrayList<>( listIdFormResponse.size( ) );
+        for ( Integer nIdFormResponse : listIdFormResponse )
+        {
+            queryList.add( IntPoint.newExactQuery( FormResponseSearchItem.FIELD_ID_FORM_RESPONSE, nIdFormResponse ) );
+        }
+
+        for ( FormIndexPartition partition : _luceneFormSearchFactory.getPartitions( ) )
+        {
+            deleteDocument( partition.getIndexWriter( Boolean.FALSE ), queryList );
+        }
+        if ( shadowIndexWriter != null )
+        {
+            deleteDocument( shadowIndexWriter, queryList );
         }
     }
 
     /**
-     * {@inheritDoc }
+     * Update in place the DocValues updatable fields of the form responses whose ids are given, in the partitions of their forms, without loading their
+     * steps nor rebuilding their documents. The form responses whose fields can't be updated in place are fully reindexed.
+     * 
+     * @param listIdFormResponse
+     *            the ids of the form responses whose workflow changed
+     * @param shadowPartition
+     *            the partition being rebuilt, or null
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index of the partition being rebuilt, or null
+     * @param bUpdateLiveIndex
+     *            true to also update the live index of the partition being rebuilt
+     * @return false if some form responses could not be reindexed and must stay queued
      */
-    @Override
-    public synchronized void processIndexing( )
+    private boolean updateFormResponseIdList( List<Integer> listIdFormResponse, FormIndexPartition shadowPartition, IndexWriter shadowIndexWriter,
+            boolean bUpdateLiveIndex )
     {
-        initIndexing( false );
-
-        Plugin plugin = PluginService.getPlugin( FormsPlugin.PLUGIN_NAME );
-        Set<Integer> listIdsToAdd = new HashSet<>( );
-        Set<Integer> listIdsToDelete = new HashSet<>( );
+        List<Integer> listIdsToReindex = new ArrayList<>( );
+        Map<Integer, Form> mapForms = findForms( );
 
-        // Delete all record which must be delete
-        for ( IndexerAction action : getAllIndexerActionByTask( IndexerAction.TASK_DELETE, plugin ) )
+        for ( int nFrom = 0; nFrom < listIdFormResponse.size( ); nFrom += TAILLE_LOT )
         {
-            listIdsToDelete.add( action.getIdFormResponse( ) );
-            removeIndexerAction( action.getIdAction( ), plugin );
-        }
+            List<Integer> listIdBatch = listIdFormResponse.subList( nFrom, Math.min( nFrom + TAILLE_LOT, listIdFormResponse.size( ) ) );
+            List<FormResponse> listFormResponse = FormResponseHome.findByPrimaryKeysPartial( listIdBatch );
+            Map<Integer, State> mapStates = findFormResponseStates( listFormResponse, mapForms );
 
-        // Update all record which must be update
-        for ( IndexerAction action : getAllIndexerActionByTask( IndexerAction.TASK_MODIFY, plugin ) )
-        {
-            listIdsToDelete.add( action.getIdFormResponse( ) );
-            listIdsToAdd.add( action.getIdFormResponse( ) );
-            removeIndexerAction( action.getIdAction( ), plugin );
+            for ( FormResponse formResponse : listFormResponse )
+            {
+                FormIndexPartition partition = _luceneFormSearchFactory.getPartition( formResponse.getFormId( ) );
+                State formResponseState = getFormResponseState( formResponse, mapStates );
+                boolean bUpdated = true;
+                for ( IndexWriter indexWriter : getIndexWriters( partition, shadowPartition, shadowIndexWriter, bUpdateLiveIndex ) )
+                {
+                    bUpdated &= updateDocValues( indexWriter, formResponse, formResponseState );
+                }
+                if ( !bUpdated )
+                {
+                    listIdsToReindex.add( formResponse.getId( ) );
+                }
+            }
         }
 
-        // Add all form response which must be add
-        for ( IndexerAction action : getAllIndexerActionByTask( IndexerAction.TASK_CREATE, plugin ) )
+        if ( listIdsToReindex.isEmpty( ) )
         {
-            listIdsToAdd.add( action.getIdFormResponse( ) );
-            removeIndexerAction( action.getIdAction( ), plugin );
+            return true;
         }
+        deleteFormResponseIdList( listIdsToReindex, shadowIndexWriter );
+        return indexFormResponseIdList( listIdsToReindex, shadowPartition, shadowIndexWriter, bUpdateLiveIndex );
+    }
 
-        List<Query> queryList = new ArrayList<>( TAILLE_LOT );
-        for ( Integer nIdFormResponse : listIdsToDelete )
+    /**
+     * Return the IndexWriters receiving the changes of the form responses of a partition
+     * 
+     * @param partition
+     *            the partition of the form responses
+     * @param shadowPartition
+     *            the partition being rebuilt, or null
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index of the partition being rebuilt, or null
+     * @param bUpdateLiveIndex
+     *            true to also return the live IndexWriter of the partition being rebuilt
+     * @return the IndexWriters, some of which may be null if the live index is not available
+     */
+    private static List<IndexWriter> getIndexWriters( FormIndexPartition partition, FormIndexPartition shadowPartition, IndexWriter shadowIndexWriter,
+            boolean bUpdateLiveIndex )
+    {
+        if ( partition != shadowPartition )
         {
-            queryList.add( IntPoint.newExactQuery( FormResponseSearchItem.FIELD_ID_FORM_RESPONSE, nIdFormResponse ) );
-            if ( queryList.size( ) == TAILLE_LOT )
-            {
-                deleteDocument( queryList );
-                queryList.clear( );
-            }
+            return Collections.singletonList( partition.getIndexWriter( Boolean.FALSE ) );
         }
-        deleteDocument( queryList );
-
-        List<FormResponse> listFormResponses = new ArrayList<>( TAILLE_LOT );
-        for ( Integer nIdFormResponse : listIdsToAdd )
+        if ( bUpdateLiveIndex )
         {
-            // TODO IMPLEMENT A SQL IN( ..) instead
-            FormResponse response = FormResponseHome.findByPrimaryKeyForIndex( nIdFormResponse );
-            if ( response != null )
-            {
-                listFormResponses.add( response );
-            }
-            if ( listFormResponses.size( ) == TAILLE_LOT )
-            {
-                indexFormResponseList( listFormResponses );
-                listFormResponses.clear( );
-            }
+            return Arrays.asList( shadowIndexWriter, partition.getIndexWriter( Boolean.FALSE ) );
         }
-        indexFormResponseList( listFormResponses );
+        return Collections.singletonList( shadowIndexWriter );
     }
 
     /**
@@ -385,32 +988,80 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
     }
 
     /**
-     * {@inheritDoc}
+     * Index the form responses whose ids are given in the partitions of their forms, loading them by batches of TAILLE_LOT
+     * 
+     * @param listIdFormResponse
+     *            the ids of the form responses to index
+     * @param shadowPartition
+     *            the partition being rebuilt, or null
+     * @param shadowIndexWriter
+     *            the IndexWriter of the shadow index of the partition being rebuilt, or null
+     * @param bUpdateLiveIndex
+     *            true to also index the form responses of the partition being rebuilt in its live index
+     * @return false if some form responses could not be indexed and must stay queued
      */
-    private void indexFormResponseList( List<FormResponse> listFormResponse )
+    private boolean indexFormResponseIdList( List<Integer> listIdFormResponse, FormIndexPartition shadowPartition, IndexWriter shadowIndexWriter,
+            boolean bUpdateLiveIndex )
     {
-        if ( _indexWriter == null || !_indexWriter.isOpen( ) )
+        boolean bIndexed = true;
+        Map<Integer, Form> mapForms = findForms( );
+        for ( int nFrom = 0; nFrom < listIdFormResponse.size( ); nFrom += TAILLE_LOT )
         {
-            initIndexing( true );
+            List<Integer> listIdBatch = listIdFormResponse.subList( nFrom, Math.min( nFrom + TAILLE_LOT, listIdFormResponse.size( ) ) );
+
+            Map<FormIndexPartition, List<FormResponse>> mapFormResponsesByPartition = new HashMap<>( );
+            for ( FormResponse formResponse : FormResponseHome.findByPrimaryKeysForIndex( listIdBatch ) )
+            {
+                mapFormResponsesByPartition.computeIfAbsent( _luceneFormSearchFactory.getPartition( formResponse.getFormId( ) ), partition -> new ArrayList<>( ) )
+                        .add( formResponse );
+            }
+
+            for ( Map.Entry<FormIndexPartition, List<FormResponse>> formResponsesByPartition : mapFormResponsesByPartition.entrySet( ) )
+            {
+                FormIndexPartition partition = formResponsesByPartition.getKey( );
+                List<Document> listDocument = buildDocumentList( formResponsesByPartition.getValue( ), mapForms );
+                for ( IndexWriter indexWriter : getIndexWriters( partition, shadowPartition, shadowIndexWriter, bUpdateLiveIndex ) )
+                {
+                    // The live index of the partition being rebuilt is replaced at the end of the rebuild
+                    boolean bRequired = partition != shadowPartition || indexWriter == shadowIndexWriter;
+                    if ( !addDocuments( ( indexWriter == shadowIndexWriter ) ? null : partition, indexWriter, listDocument ) && bRequired )
+                    {
+                        bIndexed = false;
+                    }
+                }
+            }
         }
+        return bIndexed;
+    }
+
+    /**
+     * Load the forms, by identifier, once for all the batches of form responses indexed together
+     * 
+     * @return the forms, by identifier
+     */
+    private static Map<Integer, Form> findForms( )
+    {
+        return FormHome.getFormList( ).stream( ).collect( Collectors.toMap( Form::getId, form -> form ) );
+    }
 
-        Map<Integer, Form> mapForms = FormHome.getFormList( ).stream( ).collect( Collectors.toMap( Form::getId, form -> form ) );
+    /**
+     * Build the documents of a list of form responses. Safe to call from several threads.
+     * 
+     * @param listFormResponse
+     *            the form responses
+     * @param mapForms
+     *            the forms of the form responses, by identifier
+     * @return the documents
+     */
+    private List<Document> buildDocumentList( List<FormResponse> listFormResponse, Map<Integer, Form> mapForms )
+    {
+        Map<Integer, State> mapStates = findFormResponseStates( listFormResponse, mapForms );
         List<Document> documentList = new ArrayList<>( );
         for ( FormResponse formResponse : listFormResponse )
         {
             Document doc = null;
             Form form = mapForms.get( formResponse.getFormId( ) );
-            State formResponseState = null;
-            if ( _stateService != null )
-            {
-                formResponseState = _stateService.findByResource( formResponse.getId( ), FormResponse.RESOURCE_TYPE, form.getIdWorkflow( ) );
-            }
-            else
-            {
-                formResponseState = new State( );
-                formResponseState.setId( -1 );
-                formResponseState.setName( StringUtils.EMPTY );
-            }
+            State formResponseState = getFormResponseState( formResponse, mapStates );
 
             try
             {
@@ -426,115 +1077,255 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
                 documentList.add( doc );
             }
         }
-        addDocuments( documentList );
-        endIndexing( );
+        return documentList;
     }
 
-    private void addDocuments( List<Document> documentList )
+    /**
+     * Return the workflow state of a form response
+     * 
+     * @param formResponse
+     *            the form response
+     * @param mapStates
+     *            the states of the form responses, by form response id
+     * @return the state of the form response, an empty state without workflow, or null if the form response has no state
+     */
+    private State getFormResponseState( FormResponse formResponse, Map<Integer, State> mapStates )
     {
-        try
-        {
-            _indexWriter.addDocuments( documentList );
-        }
-        catch( IOException e )
+        if ( _stateService != null )
         {
-            AppLogService.error( "Unable to index form response", e );
+            return mapStates.get( formResponse.getId( ) );
         }
-        documentList.clear( );
+
+        State formResponseState = new State( );
+        formResponseState.setId( -1 );
+        formResponseState.setName( StringUtils.EMPTY );
+        return formResponseState;
     }
 
     /**
-     * Init the indexing action
+     * Find the workflow states of a list of form responses, with one lookup per workflow
      * 
-     * @param bCreate
+     * @param listFormResponse
+     *            the form responses
+     * @param mapForms
+     *            the forms, by id
+     * @return the states of the form responses, by form response id
      */
-    private void initIndexing( boolean bCreate )
+    private Map<Integer, State> findFormResponseStates( List<FormResponse> listFormResponse, Map<Integer, Form> mapForms )
     {
-        Boolean boolCreate = Boolean.valueOf( bCreate );
-        _indexWriter = _luceneFormSearchFactory.getIndexWriter( boolCreate );
+        Map<Integer, State> mapStates = new HashMap<>( );
+        if ( _stateService == null )
+        {
+            return mapStates;
+        }
+
+        Map<Integer, List<Integer>> mapIdFormResponseByWorkflow = new HashMap<>( );
+        for ( FormResponse formResponse : listFormResponse )
+        {
+            Form form = mapForms.get( formResponse.getFormId( ) );
+            if ( form != null )
+            {
+                mapIdFormResponseByWorkflow.computeIfAbsent( form.getIdWorkflow( ), nIdWorkflow -> new ArrayList<>( ) ).add( formResponse.getId( ) );
+            }
+        }
+
+        for ( Map.Entry<Integer, List<Integer>> idFormResponseByWorkflow : mapIdFormResponseByWorkflow.entrySet( ) )
+        {
+            mapStates.putAll( _formWorkflowService.findStatesByFormResponses( idFormResponseByWorkflow.getValue( ), idFormResponseByWorkflow.getKey( ) ) );
+        }
+
+        return mapStates;
     }
 
     /**
-     * End the indexing action
+     * Add documents to an index. A document which can't be indexed is skipped, unless the live index was built with a previous schema : the documents must
+     * then be indexed again once the index is rebuilt.
+     * 
+     * @param partition
+     *            the partition of the live index, or null for a shadow index
+     * @param indexWriter
+     *            the IndexWriter of the index
+     * @param documentList
+     *            the documents
+     * @return false if the documents could not be indexed and must be indexed again
      */
-    private void endIndexing( )
+    private boolean addDocuments( FormIndexPartition partition, IndexWriter indexWriter, List<Document> documentList )
     {
-        if ( _indexWriter != null )
+        if ( indexWriter == null )
         {
-            try
+            return true;
+        }
+        try
+        {
+            indexWriter.addDocuments( documentList );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to index form response", e );
+            return false;
+        }
+        catch( IllegalArgumentException e )
+        {
+            if ( partition != null && !hasCurrentSchema( partition ) )
             {
-                _indexWriter.commit( );
+                AppLogService.error( "The forms index " + partition.getName( ) + " was built with a previous schema, it must be rebuilt", e );
+                _bSchemaChecked = false;
+                return false;
             }
-            catch( IOException e )
+
+            // The whole block is rejected : index the other documents
+            for ( Document document : documentList )
             {
-                AppLogService.error( "Unable to close index writer ", e );
+                try
+                {
+                    indexWriter.addDocument( document );
+                }
+                catch( IOException | IllegalArgumentException eDocument )
+                {
+                    AppLogService.error( "Unable to index the form response " + document.get( SearchItem.FIELD_UID ), eDocument );
+                }
             }
         }
+        return true;
     }
 
     /**
-     * {@inheritDoc }
+     * Check that the live indexes of all the partitions match the DocValues types of the schema
+     * 
+     * @return false if a partition was built with a previous schema
      */
-    private void deleteIndex( )
+    private boolean hasCurrentSchema( )
     {
-        if ( _indexWriter == null || !_indexWriter.isOpen( ) )
+        for ( FormIndexPartition partition : _luceneFormSearchFactory.getPartitions( ) )
         {
-            initIndexing( true );
+            if ( !hasCurrentSchema( partition ) )
+            {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Check that the live index of a partition matches the DocValues types of the schema. The DocValues type of a field can't change in an index.
+     * 
+     * @param partition
+     *            the partition
+     * @return false if the partition was built with a previous schema
+     */
+    private boolean hasCurrentSchema( FormIndexPartition partition )
+    {
+        Map<String, DocValuesType> mapDocValuesTypes = new HashMap<>( );
+        mapDocValuesTypes.put( FormResponseSearchItem.FIELD_DATE_UPDATE, DocValuesType.NUMERIC );
+        mapDocValuesTypes.put( FormResponseSearchItem.FIELD_ID_WORKFLOW_STATE, DocValuesType.NUMERIC );
+        mapDocValuesTypes.put( FormResponseSearchItem.FIELD_TITLE_WORKFLOW_STATE, DocValuesType.BINARY );
         try
         {
-            _indexWriter.deleteAll( );
+            return partition.hasDocValuesTypes( mapDocValuesTypes );
         }
         catch( IOException e )
         {
-            AppLogService.error( "Unable to delete all docs in index ", e );
-        }
-        finally
-        {
-            endIndexing( );
+            AppLogService.error( "Unable to read the schema of the forms index " + partition.getName( ), e );
+            return true;
         }
     }
 
-    private void deleteDocument( List<Query> luceneQueryList )
+    /**
+     * Update in place the DocValues updatable fields of the document of a form response
+     * 
+     * @param indexWriter
+     *            the IndexWriter of the partition of the form response
+     * @param formResponse
+     *            the form response
+     * @param formResponseState
+     *            the workflow state of the form response, or null
+     * @return false if the document must be rebuilt, because the updatable fields are not indexed yet in its index
+     */
+    private boolean updateDocValues( IndexWriter indexWriter, FormResponse formResponse, State formResponseState )
     {
+        if ( indexWriter == null )
+        {
+            return true;
+        }
         try
         {
-            _indexWriter.deleteDocuments( luceneQueryList.toArray( new Query [ luceneQueryList.size( )] ) );
+            List<Field> listFields = getDocValuesUpdatableFields( formResponse, formResponseState );
+            indexWriter.updateDocValues( new Term( SearchItem.FIELD_UID, String.valueOf( formResponse.getId( ) ) ),
+                    listFields.toArray( new Field [ listFields.size( )] ) );
+        }
+        catch( IllegalArgumentException e )
+        {
+            // Only the DocValues fields already indexed can be updated
+            AppLogService.debug( "Unable to update in place the form response " + formResponse.getId( ) + " : " + e.getMessage( ) );
+            return false;
         }
         catch( IOException e )
         {
-            AppLogService.error( "Unable to delete document ", e );
+            AppLogService.error( "Unable to update form response " + formResponse.getId( ), e );
         }
+        return true;
     }
 
     /**
-     * Remove a Indexer Action
+     * Commit the pending changes of the partitions of the index, then refresh their searchers
      * 
-     * @param nIdAction
-     *            the key of the action to remove
-     * @param plugin
-     *            the plugin
+     * @return false if a partition could not be committed
      */
-    private void removeIndexerAction( int nIdAction, Plugin plugin )
+    private boolean commitPartitions( )
+    {
+        boolean bCommitted = true;
+        for ( FormIndexPartition partition : _luceneFormSearchFactory.getPartitions( ) )
+        {
+            bCommitted &= partition.commit( );
+        }
+        _luceneFormSearchFactory.refreshSearcher( );
+        return bCommitted;
+    }
+
+    private void deleteDocument( IndexWriter indexWriter, List<Query> luceneQueryList )
     {
-        IndexerActionHome.remove( nIdAction, plugin );
+        if ( indexWriter == null )
+        {
+            return;
+        }
+        try
+        {
+            indexWriter.deleteDocuments( luceneQueryList.toArray( new Query [ luceneQueryList.size( )] ) );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to delete document ", e );
+        }
     }
 
     /**
-     * return a list of IndexerAction by task key
+     * Build the fields of a form response which are only indexed as DocValues, so that they can be updated in place when its workflow changes. See
+     * FormResponseSearchItem.DOC_VALUES_UPDATABLE_FIELDS.
      * 
-     * @param nIdTask
-     *            the task kety
-     * @param plugin
-     *            the plugin
-     * @return a list of IndexerAction
+     * @param formResponse
+     *            the form response
+     * @param formResponseState
+     *            the workflow state of the form response, or null
+     * @return the DocValues fields
      */
-    private List<IndexerAction> getAllIndexerActionByTask( int nIdTask, Plugin plugin )
+    private List<Field> getDocValuesUpdatableFields( FormResponse formResponse, State formResponseState )
     {
-        IndexerActionFilter filter = new IndexerActionFilter( );
-        filter.setIdTask( nIdTask );
+        List<Field> listFields = new ArrayList<>( );
+
+        // --- form response date closure
+        listFields.add( new NumericDocValuesField( FormResponseSearchItem.FIELD_DATE_UPDATE, formResponse.getUpdate( ).getTime( ) ) );
+
+        if ( formResponseState != null )
+        {
+            // --- id form response workflow state
+            listFields.add( new NumericDocValuesField( FormResponseSearchItem.FIELD_ID_WORKFLOW_STATE, formResponseState.getId( ) ) );
+
+            // --- form response workflow state title
+            listFields.add( new BinaryDocValuesField( FormResponseSearchItem.FIELD_TITLE_WORKFLOW_STATE,
+                    new BytesRef( manageNullValue( formResponseState.getName( ) ) ) ) );
+        }
 
-        return IndexerActionHome.getList( filter, plugin );
+        return listFields;
     }
 
     /**
@@ -580,95 +1371,40 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
         doc.add( new NumericDocValuesField( FormResponseSearchItem.FIELD_DATE_CREATION, longCreationDate ) );
         doc.add( new StoredField( FormResponseSearchItem.FIELD_DATE_CREATION, longCreationDate ) );
 
-        // --- form response date closure
-        Long longUpdateDate = formResponse.getUpdate( ).getTime( );
-        doc.add( new LongPoint( FormResponseSearchItem.FIELD_DATE_UPDATE, longUpdateDate ) );
-        doc.add( new NumericDocValuesField( FormResponseSearchItem.FIELD_DATE_UPDATE, longUpdateDate ) );
-        doc.add( new StoredField( FormResponseSearchItem.FIELD_DATE_UPDATE, longUpdateDate ) );
-
-        if ( formResponseState != null )
+        // --- form response date closure and workflow state
+        for ( Field field : getDocValuesUpdatableFields( formResponse, formResponseState ) )
         {
-            // --- id form response workflow state
-            int nIdFormResponseWorkflowState = formResponseState.getId( );
-            doc.add( new IntPoint( FormResponseSearchItem.FIELD_ID_WORKFLOW_STATE, nIdFormResponseWorkflowState ) );
-            doc.add( new NumericDocValuesField( FormResponseSearchItem.FIELD_ID_WORKFLOW_STATE, nIdFormResponseWorkflowState ) );
-            doc.add( new StoredField( FormResponseSearchItem.FIELD_ID_WORKFLOW_STATE, nIdFormResponseWorkflowState ) );
-
-            // --- form response workflow state title
-            String strFormResponseWorkflowStateTitle = manageNullValue( formResponseState.getName( ) );
-            doc.add( new StringField( FormResponseSearchItem.FIELD_TITLE_WORKFLOW_STATE, strFormResponseWorkflowStateTitle, Field.Store.YES ) );
-            doc.add( new SortedDocValuesField( FormResponseSearchItem.FIELD_TITLE_WORKFLOW_STATE, new BytesRef( strFormResponseWorkflowStateTitle ) ) );
+            doc.add( field );
         }
 
         // --- form response entry code / fields
+        FormIndexFieldPlan fieldPlan = getFieldPlan( form.getId( ) );
         Set<String> setFieldNameBuilderUsed = new HashSet<>( );
+        boolean bCompactSchema = LuceneUtils.isCompactSchema( );
         for ( FormResponseStep formResponseStep : formResponse.getSteps( ) )
         {
             for ( FormQuestionResponse formQuestionResponse : formResponseStep.getQuestions( ) )
             {
-                String strQuestionCode = formQuestionResponse.getQuestion( ).getCode( );
-                Entry entry = formQuestionResponse.getQuestion( ).getEntry( );
-                IEntryTypeService entryTypeService = EntryTypeServiceManager.getEntryTypeService( entry );
+                FormIndexFieldPlan.QuestionPlan questionPlan = getQuestionPlan( fieldPlan, formQuestionResponse.getQuestion( ) );
+                Map<Integer, double [ ]> mapGeolocationPoints = questionPlan.isGeolocation( ) ? new HashMap<>( ) : null;
 
                 for ( Response response : formQuestionResponse.getEntryResponse( ) )
                 {
-                    // TODO USE EXPORT MANAGER ?
-                    fr.paris.lutece.plugins.genericattributes.business.Field responseField = response.getField( );
-
                     if ( !StringUtils.isEmpty( response.getResponseValue( ) ) )
                     {
-                        StringBuilder fieldNameBuilder = new StringBuilder(
-                                LuceneUtils.createLuceneEntryKey( strQuestionCode, response.getIterationNumber( ) ) );
-
-                        if ( responseField != null )
+                        FormIndexFieldPlan.IndexField indexField = questionPlan.getIndexField( response );
+                        if ( mapGeolocationPoints != null )
                         {
-                            String getFieldName = getFieldName( responseField, response );
-                            fieldNameBuilder.append( FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR );
-                            fieldNameBuilder.append( getFieldName );
+                            collectGeolocationCoordinate( mapGeolocationPoints, questionPlan.getGeolocationCoordinate( response ), response );
                         }
 
-                        if ( !setFieldNameBuilderUsed.contains( fieldNameBuilder.toString( ) ) )
+                        if ( setFieldNameBuilderUsed.add( indexField.getName( ) ) )
                         {
-                            setFieldNameBuilderUsed.add( fieldNameBuilder.toString( ) );
-                            if ( entryTypeService instanceof EntryTypeDate )
-                            {
-                                try
-                                {
-                                    Long timestamp = Long.valueOf( response.getResponseValue( ) );
-                                    doc.add( new LongPoint( fieldNameBuilder.toString( ) + FormResponseSearchItem.FIELD_DATE_SUFFIX, timestamp ) );
-                                    doc.add( new NumericDocValuesField( fieldNameBuilder.toString( ) + FormResponseSearchItem.FIELD_DATE_SUFFIX, timestamp ) );
-                                    doc.add( new StoredField( fieldNameBuilder.toString( ) + FormResponseSearchItem.FIELD_DATE_SUFFIX, timestamp ) );
-                                }
-                                catch( Exception e )
-                                {
-                                    AppLogService.error( "Unable to parse " + response.getResponseValue( ) + " with date formatter " + FILTER_DATE_FORMAT, e );
-                                }
-                            }
-                            else
-                                if ( entryTypeService instanceof EntryTypeNumbering )
-                                {
-                                    try
-                                    {
-                                        Integer value = Integer.valueOf( response.getResponseValue( ) );
-                                        doc.add( new IntPoint( fieldNameBuilder.toString( ) + FormResponseSearchItem.FIELD_INT_SUFFIX, value ) );
-                                        doc.add( new NumericDocValuesField( fieldNameBuilder.toString( ) + FormResponseSearchItem.FIELD_INT_SUFFIX, value ) );
-                                        doc.add( new StoredField( fieldNameBuilder.toString( ) + FormResponseSearchItem.FIELD_INT_SUFFIX, value ) );
-                                    }
-                                    catch( NumberFormatException e )
-                                    {
-                                        AppLogService.error( "Unable to parse " + response.getResponseValue( ) + " to integer ", e );
-                                    }
-                                }
-                                else
-                                {
-                                    doc.add( new StringField( fieldNameBuilder.toString( ), response.getResponseValue( ), Field.Store.YES ) );
-                                    doc.add( new SortedDocValuesField( fieldNameBuilder.toString( ), new BytesRef( response.getResponseValue( ) ) ) );
-                                }
-
+                            addEntryFields( doc, indexField, questionPlan.getValueType( ), response.getResponseValue( ), bCompactSchema );
                         }
                         else
                         {
-                            AppLogService.error( " FieldNameBuilder " + fieldNameBuilder.toString( ) + "  already used for formResponse.getId( )  "
+                            AppLogService.error( " FieldNameBuilder " + indexField.getName( ) + "  already used for formResponse.getId( )  "
                                     + formResponse.getId( ) + "  formQuestionResponse.getId( )  " + formQuestionResponse.getId( )
                                     + " response.getIdResponse( ) " + response.getIdResponse( ) + " formResponseStep" + formResponseStep.getId( ) );
 
@@ -676,12 +1412,205 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
 
                     }
                 }
+
+                if ( mapGeolocationPoints != null )
+                {
+                    addGeolocationFields( doc, mapGeolocationPoints );
+                }
             }
         }
 
         return doc;
     }
 
+    /**
+     * Collect the coordinate held by a response to a geolocation question in the point of its iteration
+     * 
+     * @param mapGeolocationPoints
+     *            the longitude and latitude of the point of each iteration of the question
+     * @param coordinate
+     *            the coordinate held by the response, may be null
+     * @param response
+     *            the response
+     */
+    private static void collectGeolocationCoordinate( Map<Integer, double [ ]> mapGeolocationPoints, FormIndexFieldPlan.GeolocationCoordinate coordinate,
+            Response response )
+    {
+        if ( coordinate == null )
+        {
+            return;
+        }
+
+        double dValue = NumberUtils.toDouble( response.getResponseValue( ), Double.NaN );
+        double [ ] point = mapGeolocationPoints.computeIfAbsent( response.getIterationNumber( ), nIteration -> new double [ ] {
+                Double.NaN, Double.NaN
+        } );
+        point [coordinate.ordinal( )] = dValue;
+    }
+
+    /**
+     * Adds the points of a geolocation question to the document, so that the form responses can be searched by area and sorted by distance. The points
+     * whose coordinates are missing or are not a longitude and a latitude are ignored.
+     * 
+     * @param doc
+     *            the document
+     * @param mapGeolocationPoints
+     *            the longitude and latitude of the point of each iteration of the question
+     */
+    private static void addGeolocationFields( Document doc, Map<Integer, double [ ]> mapGeolocationPoints )
+    {
+        for ( double [ ] point : mapGeolocationPoints.values( ) )
+        {
+            double dLongitude = point [FormIndexFieldPlan.GeolocationCoordinate.LONGITUDE.ordinal( )];
+            double dLatitude = point [FormIndexFieldPlan.GeolocationCoordinate.LATITUDE.ordinal( )];
+            if ( dLongitude >= -180 && dLongitude <= 180 && dLatitude >= -90 && dLatitude <= 90 )
+            {
+                doc.add( new LatLonPoint( FormResponseSearchItem.FIELD_GEOLOCATION, dLatitude, dLongitude ) );
+                doc.add( new LatLonDocValuesField( FormResponseSearchItem.FIELD_GEOLOCATION, dLatitude, dLongitude ) );
+            }
+        }
+    }
+
+    /**
+     * Return the field plan of a form, compiled from its questions on the first use
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the field plan of the form
+     */
+    private FormIndexFieldPlan getFieldPlan( int nIdForm )
+    {
+        return _mapFieldPlans.computeIfAbsent( nIdForm, this::compileFieldPlan );
+    }
+
+    /**
+     * Compile the field plan of a form
+     * 
+     * @param nIdForm
+     *            the id of the form
+     * @return the field plan of the form
+     */
+    private FormIndexFieldPlan compileFieldPlan( int nIdForm )
+    {
+        return new FormIndexFieldPlan( nIdForm, QuestionHome.getListQuestionByIdForm( nIdForm ) );
+    }
+
+    /**
+     * Return the plan of a question of a form. A question created since the compilation of the plan is compiled in a new plan of the form
+     * 
+     * @param fieldPlan
+     *            the field plan of the form
+     * @param question
+     *            the question
+     * @return the plan of the question
+     */
+    private FormIndexFieldPlan.QuestionPlan getQuestionPlan( FormIndexFieldPlan fieldPlan, Question question )
+    {
+        FormIndexFieldPlan.QuestionPlan questionPlan = fieldPlan.getQuestionPlan( question.getId( ) );
+        if ( questionPlan == null )
+        {
+            FormIndexFieldPlan newFieldPlan = compileFieldPlan( fieldPlan.getIdForm( ) );
+            questionPlan = newFieldPlan.addQuestionPlan( question );
+            _mapFieldPlans.put( fieldPlan.getIdForm( ), newFieldPlan );
+        }
+        return questionPlan;
+    }
+
+    /**
+     * Adds the fields of a response value to the document
+     * 
+     * @param doc
+     *            the document
+     * @param indexField
+     *            the index field of the response
+     * @param valueType
+     *            the way the values of the question are indexed
+     * @param strResponseValue
+     *            the response value
+     * @param bCompactSchema
+     *            true to index the value in the fixed fields of the compact schema, false to index it in its own field
+     */
+    private void addEntryFields( Document doc, FormIndexFieldPlan.IndexField indexField, FormIndexFieldPlan.ValueType valueType, String strResponseValue,
+            boolean bCompactSchema )
+    {
+        switch( valueType )
+        {
+            case DATE:
+                try
+                {
+                    addEntryNumericFields( doc, indexField, Long.parseLong( strResponseValue ), bCompactSchema );
+                }
+                catch( Exception e )
+                {
+                    AppLogService.error( "Unable to parse " + strResponseValue + " with date formatter " + FILTER_DATE_FORMAT, e );
+                }
+                break;
+
+            case NUMBERING:
+                try
+                {
+                    int nValue = Integer.parseInt( strResponseValue );
+                    if ( bCompactSchema )
+                    {
+                        addEntryNumericFields( doc, indexField, nValue, true );
+                    }
+                    else
+                    {
+                        doc.add( new IntPoint( indexField.getTypedName( ), nValue ) );
+                        doc.add( new NumericDocValuesField( indexField.getTypedName( ), nValue ) );
+                        doc.add( new StoredField( indexField.getTypedName( ), nValue ) );
+                    }
+                }
+                catch( NumberFormatException e )
+                {
+                    AppLogService.error( "Unable to parse " + strResponseValue + " to integer ", e );
+                }
+                break;
+
+            default:
+                if ( bCompactSchema )
+                {
+                    String strValue = LuceneUtils.createCompactEntryValue( indexField.getCompactKey( ), strResponseValue );
+                    doc.add( new StringField( FormResponseSearchItem.FIELD_ENTRY_VALUES, strValue, Field.Store.YES ) );
+                    doc.add( new SortedSetDocValuesField( FormResponseSearchItem.FIELD_ENTRY_VALUES, new BytesRef( strValue ) ) );
+                }
+                else
+                {
+                    doc.add( new StringField( indexField.getName( ), strResponseValue, Field.Store.YES ) );
+                    doc.add( new SortedDocValuesField( indexField.getName( ), new BytesRef( strResponseValue ) ) );
+                }
+                break;
+        }
+    }
+
+    /**
+     * Adds the fields of a date or numbering response value to the document
+     * 
+     * @param doc
+     *            the document
+     * @param indexField
+     *            the index field of the response
+     * @param lValue
+     *            the response value
+     * @param bCompactSchema
+     *            true to index the value in the numeric field of the compact schema, false to index it in its own field
+     */
+    private void addEntryNumericFields( Document doc, FormIndexFieldPlan.IndexField indexField, long lValue, boolean bCompactSchema )
+    {
+        if ( bCompactSchema )
+        {
+            BytesRef value = LuceneUtils.createCompactEntryNumericValue( indexField.getCompactKey( ), lValue );
+            doc.add( new StringField( FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES, value, Field.Store.YES ) );
+            doc.add( new SortedSetDocValuesField( FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES, value ) );
+        }
+        else
+        {
+            doc.add( new LongPoint( indexField.getTypedName( ), lValue ) );
+            doc.add( new NumericDocValuesField( indexField.getTypedName( ), lValue ) );
+            doc.add( new StoredField( indexField.getTypedName( ), lValue ) );
+        }
+    }
+
     /**
      * Concatenates the value of the specified field in this record
      * 
@@ -724,30 +1653,6 @@ public class LuceneFormSearchIndexer implements IFormSearchIndexer
         return sb.toString( );
     }
 
-    /**
-     * Get the field name
-     * 
-     * @param responseField
-     * @param response
-     * @return the field name
-     */
-    private String getFieldName( fr.paris.lutece.plugins.genericattributes.business.Field responseField, Response response )
-    {
-        if ( responseField.getIdField( ) > 0 )
-        {
-            return String.valueOf( responseField.getIdField( ) );
-        }
-        if ( !StringUtils.isEmpty( responseField.getCode( ) ) )
-        {
-            return responseField.getCode( );
-        }
-        if ( !StringUtils.isEmpty( responseField.getTitle( ) ) )
-        {
-            return responseField.getTitle( );
-        }
-        return String.valueOf( response.getIdResponse( ) );
-    }
-
     /**
      * Manage a given string null value
      * 
@@ -35,11 +35,17 @@ package fr.paris.lutece.plugins.forms.service.workflow;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
 
 import fr.paris.lutece.plugins.forms.business.Form;
 import fr.paris.lutece.plugins.forms.business.FormResponse;
 import fr.paris.lutece.plugins.workflowcore.business.state.State;
+import fr.paris.lutece.plugins.workflowcore.service.resource.IResourceWorkflowService;
+import fr.paris.lutece.plugins.workflowcore.service.state.StateService;
 import fr.paris.lutece.portal.business.user.AdminUser;
 import fr.paris.lutece.portal.service.workflow.WorkflowService;
 
@@ -49,6 +55,11 @@ import fr.paris.lutece.portal.service.workflow.WorkflowService;
  */
 public class FormWorkflowServiceImpl implements IFormWorkflowService
 {
+    @Autowired( required = false )
+    private IResourceWorkflowService _resourceWorkflowService;
+    @Autowired( required = false )
+    private StateService _stateService;
+
     /**
      * {@inheritDoc}
      */
@@ -85,6 +96,36 @@ public class FormWorkflowServiceImpl implements IFormWorkflowService
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, State> findStatesByFormResponses( List<Integer> listIdFormResponse, int nIdWorkflow )
+    {
+        Map<Integer, State> mapStates = new HashMap<>( );
+
+        if ( nIdWorkflow <= 0 || listIdFormResponse.isEmpty( ) || _resourceWorkflowService == null || _stateService == null )
+        {
+            return mapStates;
+        }
+
+        Map<Integer, Integer> mapIdStates = _resourceWorkflowService.getListIdStateByListId( listIdFormResponse, nIdWorkflow, FormResponse.RESOURCE_TYPE,
+                null );
+
+        // The form responses share a few states : each state is loaded once
+        Map<Integer, State> mapStateCache = new HashMap<>( );
+        for ( Map.Entry<Integer, Integer> idState : mapIdStates.entrySet( ) )
+        {
+            State state = mapStateCache.computeIfAbsent( idState.getValue( ), _stateService::findByPrimaryKey );
+            if ( state != null )
+            {
+                mapStates.put( idState.getKey( ), state );
+            }
+        }
+
+        return mapStates;
+    }
+
     /**
      * Retrieves the list of state identifiers for the specified workflow. The list is filtered depending on the permissions of the specified user.
      * 
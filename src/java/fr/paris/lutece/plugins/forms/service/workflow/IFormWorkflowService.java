@@ -35,8 +35,12 @@ package fr.paris.lutece.plugins.forms.service.workflow;
 
 import fr.paris.lutece.plugins.forms.business.Form;
 import fr.paris.lutece.plugins.forms.business.FormResponse;
+import fr.paris.lutece.plugins.workflowcore.business.state.State;
 import fr.paris.lutece.portal.business.user.AdminUser;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * This interface represents a workflow service for the forms
  *
@@ -68,4 +72,15 @@ public interface IFormWorkflowService
      *            the user performing the remove action
      */
     void removeResources( int nIdWorkflow, int nIdForm, AdminUser adminUser );
+
+    /**
+     * Finds the workflow states of a list of form responses in a single lookup
+     * 
+     * @param listIdFormResponse
+     *            the ids of the form responses
+     * @param nIdWorkflow
+     *            the id of the workflow of the form responses
+     * @return the states of the form responses, by form response id. The form responses without state are not in the map
+     */
+    Map<Integer, State> findStatesByFormResponses( List<Integer> listIdFormResponse, int nIdWorkflow );
 }
@@ -33,13 +33,41 @@
  */
 package fr.paris.lutece.plugins.forms.util;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+
 import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 /**
  * Utils for lucene.
+ * <p>
+ * With the dynamic schema, the responses are indexed in one field per question, iteration and field, named by createLuceneEntryKey. With the compact schema,
+ * they are indexed in two multi-valued fields whose values encode the same keys : FormResponseSearchItem.FIELD_ENTRY_VALUES holds the
+ * <code>code|iteration|field=value</code> values, and FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES holds the
+ * <code>code|iteration|field|suffix=</code> keys of the date and numbering responses followed by the sortable bytes of their value. The field part is omitted
+ * for the responses without field. The codes of the questions must not contain the separators.
+ * </p>
  */
 public final class LuceneUtils
 {
+    public static final char COMPACT_KEY_SEPARATOR = '|';
+    public static final char COMPACT_VALUE_SEPARATOR = '=';
+
+    private static final String PROPERTY_INDEX_SCHEMA = "forms.index.schema";
+    private static final String SCHEMA_COMPACT = "compact";
+    private static final int NUMERIC_VALUE_LENGTH = Long.BYTES;
 
     private LuceneUtils( )
     {
@@ -65,4 +93,291 @@ public final class LuceneUtils
         fieldNameBuilder.append( nIterationNumber );
         return fieldNameBuilder.toString( );
     }
+
+    /**
+     * Check if the responses are indexed with the compact schema
+     * 
+     * @return true for the compact schema, false for the dynamic schema
+     */
+    public static boolean isCompactSchema( )
+    {
+        return SCHEMA_COMPACT.equals( AppPropertiesService.getProperty( PROPERTY_INDEX_SCHEMA ) );
+    }
+
+    /**
+     * Creates the key of a response in the compact schema
+     * 
+     * @param strQuestionCode
+     *            the code of the question
+     * @param nIterationNumber
+     *            the iteration number
+     * @param strFieldName
+     *            the field name, or null for a response without field
+     * @param strTypeSuffix
+     *            FormResponseSearchItem.FIELD_DATE_SUFFIX or FIELD_INT_SUFFIX for a numeric value, null otherwise
+     * @return the compact key
+     */
+    public static String createCompactEntryKey( String strQuestionCode, int nIterationNumber, String strFieldName, String strTypeSuffix )
+    {
+        StringBuilder keyBuilder = new StringBuilder( strQuestionCode );
+        keyBuilder.append( COMPACT_KEY_SEPARATOR ).append( ( nIterationNumber == -1 ) ? 0 : nIterationNumber );
+        if ( strFieldName != null )
+        {
+            keyBuilder.append( COMPACT_KEY_SEPARATOR ).append( strFieldName );
+        }
+        if ( strTypeSuffix != null )
+        {
+            keyBuilder.append( COMPACT_KEY_SEPARATOR ).append( strTypeSuffix );
+        }
+        return keyBuilder.toString( );
+    }
+
+    /**
+     * Converts the name of a field of the dynamic schema, as built by createLuceneEntryKey, into the corresponding key of the compact schema
+     * 
+     * @param strLuceneEntryKey
+     *            the field name of the dynamic schema
+     * @return the compact key
+     */
+    public static String toCompactEntryKey( String strLuceneEntryKey )
+    {
+        String strKey = strLuceneEntryKey.substring( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX.length( ) );
+
+        String strTypeSuffix = null;
+        if ( strKey.endsWith( FormResponseSearchItem.FIELD_DATE_SUFFIX ) )
+        {
+            strTypeSuffix = FormResponseSearchItem.FIELD_DATE_SUFFIX;
+        }
+        else
+            if ( strKey.endsWith( FormResponseSearchItem.FIELD_INT_SUFFIX ) )
+            {
+                strTypeSuffix = FormResponseSearchItem.FIELD_INT_SUFFIX;
+            }
+        if ( strTypeSuffix != null )
+        {
+            strKey = strKey.substring( 0, strKey.length( ) - strTypeSuffix.length( ) );
+        }
+
+        int nIterationIndex = strKey.lastIndexOf( FormResponseSearchItem.FIELD_RESPONSE_FIELD_ITER );
+        String strQuestionCode = strKey.substring( 0, nIterationIndex );
+        String strIteration = strKey.substring( nIterationIndex + FormResponseSearchItem.FIELD_RESPONSE_FIELD_ITER.length( ) );
+
+        String strFieldName = null;
+        int nFieldIndex = strIteration.indexOf( FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR );
+        if ( nFieldIndex >= 0 )
+        {
+            strFieldName = strIteration.substring( nFieldIndex + FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR.length( ) );
+            strIteration = strIteration.substring( 0, nFieldIndex );
+        }
+
+        return createCompactEntryKey( strQuestionCode, Integer.parseInt( strIteration ), strFieldName, strTypeSuffix );
+    }
+
+    /**
+     * Converts a key of the compact schema into the name of the corresponding field of the dynamic schema
+     * 
+     * @param strCompactEntryKey
+     *            the compact key
+     * @param bNumeric
+     *            true for a key of FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES, which ends with a type suffix
+     * @return the field name of the dynamic schema
+     */
+    public static String toLuceneEntryKey( String strCompactEntryKey, boolean bNumeric )
+    {
+        String strKey = strCompactEntryKey;
+        String strTypeSuffix = null;
+        if ( bNumeric )
+        {
+            int nTypeIndex = strKey.lastIndexOf( COMPACT_KEY_SEPARATOR );
+            strTypeSuffix = strKey.substring( nTypeIndex + 1 );
+            strKey = strKey.substring( 0, nTypeIndex );
+        }
+
+        int nIterationIndex = strKey.indexOf( COMPACT_KEY_SEPARATOR );
+        String strIteration = strKey.substring( nIterationIndex + 1 );
+        int nFieldIndex = strIteration.indexOf( COMPACT_KEY_SEPARATOR );
+
+        StringBuilder fieldNameBuilder = new StringBuilder( FormResponseSearchItem.FIELD_ENTRY_CODE_SUFFIX );
+        fieldNameBuilder.append( strKey, 0, nIterationIndex );
+        fieldNameBuilder.append( FormResponseSearchItem.FIELD_RESPONSE_FIELD_ITER );
+        if ( nFieldIndex >= 0 )
+        {
+            fieldNameBuilder.append( strIteration, 0, nFieldIndex );
+            fieldNameBuilder.append( FormResponseSearchItem.FIELD_RESPONSE_FIELD_SEPARATOR );
+            fieldNameBuilder.append( strIteration.substring( nFieldIndex + 1 ) );
+        }
+        else
+        {
+            fieldNameBuilder.append( strIteration );
+        }
+        if ( strTypeSuffix != null )
+        {
+            fieldNameBuilder.append( strTypeSuffix );
+        }
+        return fieldNameBuilder.toString( );
+    }
+
+    /**
+     * Creates a value of FormResponseSearchItem.FIELD_ENTRY_VALUES
+     * 
+     * @param strCompactEntryKey
+     *            the compact key of the response
+     * @param strValue
+     *            the value of the response
+     * @return the encoded value
+     */
+    public static String createCompactEntryValue( String strCompactEntryKey, String strValue )
+    {
+        return strCompactEntryKey + COMPACT_VALUE_SEPARATOR + strValue;
+    }
+
+    /**
+     * Creates a value of FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES, whose byte order is the order of the numeric values of a key
+     * 
+     * @param strCompactEntryKey
+     *            the compact key of the response, with its type suffix
+     * @param lValue
+     *            the value of the response
+     * @return the encoded value
+     */
+    public static BytesRef createCompactEntryNumericValue( String strCompactEntryKey, long lValue )
+    {
+        byte [ ] prefix = createCompactEntryValuePrefix( strCompactEntryKey ).bytes;
+        byte [ ] value = Arrays.copyOf( prefix, prefix.length + NUMERIC_VALUE_LENGTH );
+        NumericUtils.longToSortableBytes( lValue, value, prefix.length );
+        return new BytesRef( value );
+    }
+
+    /**
+     * Creates the common prefix of the encoded values of a key
+     * 
+     * @param strCompactEntryKey
+     *            the compact key
+     * @return the prefix of the values of the key
+     */
+    public static BytesRef createCompactEntryValuePrefix( String strCompactEntryKey )
+    {
+        return new BytesRef( strCompactEntryKey + COMPACT_VALUE_SEPARATOR );
+    }
+
+    /**
+     * Decodes a value of a field of the compact schema
+     * 
+     * @param strFieldName
+     *            the name of the field
+     * @param value
+     *            the encoded value
+     * @return the field name of the dynamic schema and the value of the response, or null if the field is not a field of the compact schema
+     */
+    public static Map.Entry<String, String> decodeCompactEntryValue( String strFieldName, BytesRef value )
+    {
+        boolean bNumeric = FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES.equals( strFieldName );
+        if ( !bNumeric && !FormResponseSearchItem.FIELD_ENTRY_VALUES.equals( strFieldName ) )
+        {
+            return null;
+        }
+
+        int nSeparator = value.offset;
+        int nEnd = value.offset + value.length;
+        while ( nSeparator < nEnd && value.bytes [nSeparator] != COMPACT_VALUE_SEPARATOR )
+        {
+            nSeparator++;
+        }
+        if ( nSeparator == nEnd )
+        {
+            return null;
+        }
+
+        String strCompactEntryKey = new String( value.bytes, value.offset, nSeparator - value.offset, StandardCharsets.UTF_8 );
+        String strValue;
+        if ( bNumeric )
+        {
+            strValue = String.valueOf( NumericUtils.sortableBytesToLong( value.bytes, nSeparator + 1 ) );
+        }
+        else
+        {
+            strValue = new String( value.bytes, nSeparator + 1, nEnd - nSeparator - 1, StandardCharsets.UTF_8 );
+        }
+
+        return new AbstractMap.SimpleImmutableEntry<>( toLuceneEntryKey( strCompactEntryKey, bNumeric ), strValue );
+    }
+
+    /**
+     * Creates the term matching a response value in the schema of the index
+     * 
+     * @param strLuceneEntryKey
+     *            the field name of the response in the dynamic schema
+     * @param strValue
+     *            the value of the response
+     * @return the term
+     */
+    public static Term createEntryTerm( String strLuceneEntryKey, String strValue )
+    {
+        if ( isCompactSchema( ) )
+        {
+            return new Term( FormResponseSearchItem.FIELD_ENTRY_VALUES, createCompactEntryValue( toCompactEntryKey( strLuceneEntryKey ), strValue ) );
+        }
+        return new Term( strLuceneEntryKey, strValue );
+    }
+
+    /**
+     * Creates the query matching the date or numbering responses between two values in the schema of the index
+     * 
+     * @param strLuceneEntryKey
+     *            the field name of the response in the dynamic schema, with its type suffix
+     * @param lFrom
+     *            the lower value, inclusive
+     * @param lTo
+     *            the upper value, inclusive
+     * @return the query
+     */
+    public static Query createEntryRangeQuery( String strLuceneEntryKey, long lFrom, long lTo )
+    {
+        if ( isCompactSchema( ) )
+        {
+            String strCompactEntryKey = toCompactEntryKey( strLuceneEntryKey );
+            return new TermRangeQuery( FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES, createCompactEntryNumericValue( strCompactEntryKey, lFrom ),
+                    createCompactEntryNumericValue( strCompactEntryKey, lTo ), true, true );
+        }
+        return LongPoint.newRangeQuery( strLuceneEntryKey, lFrom, lTo );
+    }
+
+    /**
+     * Return the range of the ordinals of the values starting with a prefix, in the DocValues of a segment
+     * 
+     * @param docValues
+     *            the DocValues of a field of the compact schema
+     * @param prefix
+     *            the prefix, whose last byte is a separator
+     * @return the first ordinal of the range, inclusive, and its last ordinal, exclusive
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    public static long [ ] lookupPrefixOrds( SortedSetDocValues docValues, BytesRef prefix ) throws IOException
+    {
+        // The values starting with the prefix are before the prefix whose separator is incremented
+        BytesRef upperBound = BytesRef.deepCopyOf( prefix );
+        upperBound.bytes [upperBound.offset + upperBound.length - 1]++;
+
+        return new long [ ] {
+                lookupCeilOrd( docValues, prefix ), lookupCeilOrd( docValues, upperBound )
+        };
+    }
+
+    /**
+     * Return the ordinal of the smallest value greater than or equal to the given one
+     * 
+     * @param docValues
+     *            the DocValues
+     * @param value
+     *            the value
+     * @return the ordinal, or the number of values if there is none
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    private static long lookupCeilOrd( SortedSetDocValues docValues, BytesRef value ) throws IOException
+    {
+        long lOrd = docValues.lookupTerm( value );
+        return ( lOrd >= 0 ) ? lOrd : ( -lOrd - 1 );
+    }
 }
@@ -39,6 +39,7 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
 import fr.paris.lutece.plugins.forms.business.Form;
@@ -135,12 +136,14 @@ public class FormJspBean extends AbstractJspBean
     private static final String ACTION_MODIFY_FORM = "modifyForm";
     private static final String ACTION_REMOVE_FORM = "removeForm";
     private static final String ACTION_DUPLICATE_FORM = "duplicateForm";
+    private static final String ACTION_REINDEX_FORM = "reindexForm";
 
     // Infos
     private static final String INFO_FORM_CREATED = "forms.info.form.created";
     private static final String INFO_FORM_UPDATED = "forms.info.form.updated";
     private static final String INFO_FORM_REMOVED = "forms.info.form.removed";
     private static final String INFO_FORM_COPIED = "forms.info.form.copied";
+    private static final String INFO_FORM_REINDEX_REQUESTED = "forms.info.form.reindexRequested";
 
     // Errors
     private static final String ERROR_FORM_NOT_UPDATED = "forms.error.form.notUpdated";
@@ -361,6 +364,33 @@ public class FormJspBean extends AbstractJspBean
         return redirectView( request, VIEW_MANAGE_FORMS );
     }
 
+    /**
+     * Reindex the responses of the form whose identifier is in the http request
+     *
+     * @param request
+     *            The Http request
+     * @return the jsp URL to display the form to manage forms
+     * @throws AccessDeniedException
+     *             AccessDeniedException if user isn't authorized to modify the parameters of the form
+     */
+    @Action( ACTION_REINDEX_FORM )
+    public String doReindexForm( HttpServletRequest request ) throws AccessDeniedException
+    {
+        int nIdForm = NumberUtils.toInt( request.getParameter( FormsConstants.PARAMETER_ID_FORM ), FormsConstants.DEFAULT_ID_VALUE );
+
+        if ( nIdForm == FormsConstants.DEFAULT_ID_VALUE )
+        {
+            return redirectView( request, VIEW_MANAGE_FORMS );
+        }
+
+        checkUserPermission( Form.RESOURCE_TYPE, String.valueOf( nIdForm ), FormsResourceIdService.PERMISSION_MODIFY_PARAMS, request );
+
+        _formService.reindexFormResponses( nIdForm );
+        addInfo( INFO_FORM_REINDEX_REQUESTED, getLocale( ) );
+
+        return redirectView( request, VIEW_MANAGE_FORMS );
+    }
+
     /**
      * Handles the removal form of a form
      *
@@ -535,6 +565,7 @@ public class FormJspBean extends AbstractJspBean
         }
 
         _formMessage = FormMessageHome.findByForm( _form.getId( ) );
+        String strPreviousTitle = _form.getTitle( );
 
         populate( _form, request, request.getLocale( ) );
         populate( _formMessage, request, request.getLocale( ) );
@@ -545,7 +576,11 @@ public class FormJspBean extends AbstractJspBean
         }
 
         FormHome.update( _form );
-        _formService.fireFormResponseEventUpdate( _form );
+        if ( !StringUtils.equals( strPreviousTitle, _form.getTitle( ) ) )
+        {
+            // The title of the form is indexed with each of its responses
+            _formService.reindexFormResponses( _form.getId( ) );
+        }
 
         if ( _formMessage.getId( ) == 0 )
         {
@@ -62,6 +62,7 @@ import fr.paris.lutece.plugins.forms.business.Step;
 import fr.paris.lutece.plugins.forms.business.StepHome;
 import fr.paris.lutece.plugins.forms.service.FormDisplayService;
 import fr.paris.lutece.plugins.forms.service.FormService;
+import fr.paris.lutece.plugins.forms.service.MultiviewFormService;
 import fr.paris.lutece.plugins.forms.util.FormsConstants;
 import fr.paris.lutece.plugins.forms.util.FormsDisplayUtils;
 import fr.paris.lutece.plugins.forms.util.FormsEntryUtils;
@@ -647,6 +648,8 @@ public class FormQuestionJspBean extends AbstractJspBean
         columnTitle = ( columnTitle == null || columnTitle.isEmpty( ) ) ? _question.getTitle( ) : columnTitle;
         _question.setColumnTitle( columnTitle );
         QuestionHome.create( _question );
+        MultiviewFormService.getInstance( ).invalidateMultiviewQuestions( );
+        _formService.invalidateIndexFieldPlan( _step.getIdForm( ) );
 
         int nDisplayDepth = FormsDisplayUtils.getDisplayDepthFromParent( nParentGroup );
 
@@ -721,6 +724,8 @@ public class FormQuestionJspBean extends AbstractJspBean
         questionToCopy.setCode( duplicatedEntry.getCode( ) );
 
         QuestionHome.create( questionToCopy );
+        MultiviewFormService.getInstance( ).invalidateMultiviewQuestions( );
+        _formService.invalidateIndexFieldPlan( _step.getIdForm( ) );
 
         // Duplicates the controls of the question
         for ( Control control : listControlsToDuplicate )
@@ -867,6 +872,8 @@ public class FormQuestionJspBean extends AbstractJspBean
 
         int nIdEntry = _question.getIdEntry( );
         _entry = EntryHome.findByPrimaryKey( nIdEntry );
+        boolean bPreviousIndexed = _entry.isIndexed( );
+        String strPreviousCode = _entry.getCode( );
 
         String strError = EntryTypeServiceManager.getEntryTypeService( _entry ).getRequestData( _entry, request, getLocale( ) );
 
@@ -882,6 +889,12 @@ public class FormQuestionJspBean extends AbstractJspBean
 
         EntryHome.update( _entry );
 
+        if ( bPreviousIndexed != _entry.isIndexed( ) || !StringUtils.equals( strPreviousCode, _entry.getCode( ) ) )
+        {
+            // The indexed content and the field names of the form responses depend on the entry
+            _formService.reindexFormResponses( _step.getIdForm( ) );
+        }
+
         if ( _entry.getFields( ) != null )
         {
             for ( Field field : _entry.getFields( ) )
@@ -915,6 +928,8 @@ public class FormQuestionJspBean extends AbstractJspBean
         _question.setCode( _entry.getCode( ) );
         _question.setDescription( _entry.getComment( ) );
         QuestionHome.update( _question );
+        MultiviewFormService.getInstance( ).invalidateMultiviewQuestions( );
+        _formService.invalidateIndexFieldPlan( _step.getIdForm( ) );
 
         return null;
 
@@ -456,6 +456,7 @@ public class MultiviewFormResponseDetailsJspBean extends AbstractJspBean
 
                 // Update Form response modification date
                 FormResponseHome.update( formResponse );
+                _formService.indexFormResponseStateUpdate( formResponse );
             }
             else
             {
@@ -497,6 +498,10 @@ public class MultiviewFormResponseDetailsJspBean extends AbstractJspBean
                 {
                     return redirect( request, strError );
                 }
+                if ( formResponse != null )
+                {
+                    _formService.indexFormResponseStateUpdate( formResponse );
+                }
             }
             catch( AppException e )
             {
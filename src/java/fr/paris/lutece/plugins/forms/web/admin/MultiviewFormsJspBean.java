@@ -33,12 +33,16 @@
  */
 package fr.paris.lutece.plugins.forms.web.admin;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -58,6 +62,9 @@ import fr.paris.lutece.plugins.forms.business.form.filter.FormFilterFactory;
 import fr.paris.lutece.plugins.forms.business.form.filter.FormFilterForms;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanelFactory;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
 import fr.paris.lutece.plugins.forms.export.ExportServiceManager;
 import fr.paris.lutece.plugins.forms.export.IFormatExport;
 import fr.paris.lutece.plugins.forms.service.FormPanelConfigIdService;
@@ -69,6 +76,7 @@ import fr.paris.lutece.plugins.forms.web.form.column.display.IFormColumnDisplay;
 import fr.paris.lutece.plugins.forms.web.form.filter.display.FormFilterDisplayFactory;
 import fr.paris.lutece.plugins.forms.web.form.filter.display.IFormFilterDisplay;
 import fr.paris.lutece.plugins.forms.web.form.filter.display.impl.FormFilterDisplayForms;
+import fr.paris.lutece.plugins.forms.web.form.filter.display.impl.FormFilterDisplayGeolocation;
 import fr.paris.lutece.plugins.forms.web.form.multiview.util.FormListPositionComparator;
 import fr.paris.lutece.plugins.forms.web.form.multiview.util.FormListTemplateBuilder;
 import fr.paris.lutece.plugins.forms.web.form.multiview.util.MultiviewFormUtil;
@@ -112,6 +120,7 @@ public class MultiviewFormsJspBean extends AbstractJspBean
 
     // Constants
     private static final String BASE_SORT_URL_PATTERN = JSP_FORMS_MULTIVIEW + "?current_selected_panel=%s";
+    private static final String CONTENT_TYPE_JSON = "application/json";
 
     // Views
     private static final String VIEW_MULTIVIEW_FORMS = "view_multiview_forms";
@@ -121,6 +130,11 @@ public class MultiviewFormsJspBean extends AbstractJspBean
     private static final String PARAMETER_PAGE_INDEX = "page_index";
     private static final String PARAMETER_FORMAT_EXPORT = "format_export";
     private static final String PARAMETER_DISPLAY_FORMS_TITLE_COLUMN = "display_forms_title_column";
+    private static final String PARAMETER_MIN_LATITUDE = "min_latitude";
+    private static final String PARAMETER_MAX_LATITUDE = "max_latitude";
+    private static final String PARAMETER_MIN_LONGITUDE = "min_longitude";
+    private static final String PARAMETER_MAX_LONGITUDE = "max_longitude";
+    private static final String PARAMETER_ZOOM = "zoom";
 
     // Marks
     private static final String MARK_LOCALE = "locale";
@@ -172,7 +186,12 @@ public class MultiviewFormsJspBean extends AbstractJspBean
         // Build the template of each form filter display
         if ( isPaginationAndSortNotUsed( request ) || bIsSessionLost )
         {
-            _listFormFilterDisplay.stream( ).forEach( formFilterDisplay -> formFilterDisplay.buildTemplate( request ) );
+            FormPanel formPanelActive = ( _formPanelDisplayActive != null ) ? _formPanelDisplayActive.getFormPanel( ) : null;
+            List<FormFilter> listFormFilter = _listFormFilterDisplay.stream( ).map( IFormFilterDisplay::getFormFilter ).collect( Collectors.toList( ) );
+            _listFormFilterDisplay.stream( ).forEach( formFilterDisplay -> {
+                formFilterDisplay.setSearchScope( formPanelActive, listFormFilter );
+                formFilterDisplay.buildTemplate( request );
+            } );
             Collections.sort( _listFormFilterDisplay, new FormListPositionComparator( ) );
         }
 
@@ -281,6 +300,37 @@ public class MultiviewFormsJspBean extends AbstractJspBean
 
     }
 
+    /**
+     * Write in the response the GeoJSON clusters of the points of all the form responses of the displayed panel matching the displayed filters, in the box
+     * of the map given in the request
+     * 
+     * @param request
+     *            The HTTP request, with the box and the zoom level of the map
+     * @param response
+     *            The HTTP response
+     * @throws IOException
+     *             if the response cannot be written
+     */
+    public void writeGeolocationClusters( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        FormResponseGeolocationBox box = new FormResponseGeolocationBox( NumberUtils.toDouble( request.getParameter( PARAMETER_MIN_LATITUDE ), Double.NaN ),
+                NumberUtils.toDouble( request.getParameter( PARAMETER_MAX_LATITUDE ), Double.NaN ),
+                NumberUtils.toDouble( request.getParameter( PARAMETER_MIN_LONGITUDE ), Double.NaN ),
+                NumberUtils.toDouble( request.getParameter( PARAMETER_MAX_LONGITUDE ), Double.NaN ) );
+
+        List<FormResponseGeolocationCluster> listClusters = new ArrayList<>( );
+        if ( box.isValid( ) && !isSessionLost( ) )
+        {
+            List<FormFilter> listFormFilter = _listFormFilterDisplay.stream( ).map( IFormFilterDisplay::getFormFilter ).collect( Collectors.toList( ) );
+            listClusters = MultiviewFormService.getInstance( ).getGeolocationClusters( _formPanelDisplayActive.getFormPanel( ), listFormFilter, box,
+                    NumberUtils.toInt( request.getParameter( PARAMETER_ZOOM ), 0 ) );
+        }
+
+        response.setContentType( CONTENT_TYPE_JSON );
+        response.setCharacterEncoding( StandardCharsets.UTF_8.name( ) );
+        response.getWriter( ).write( FormListTemplateBuilder.buildGeoJsonClusters( listClusters, buildRedirectionDetailsBaseUrl( ) ) );
+    }
+
     /**
      * View the multiview config page
      * 
@@ -431,23 +481,26 @@ public class MultiviewFormsJspBean extends AbstractJspBean
             reloadFormFilterList( listFormFilter, request );
         }
 
-        for ( IFormPanelDisplay formPanelDisplay : _listAuthorizedFormPanelDisplay )
+        // Only the displayed panel needs its form responses, the other ones only display their count
+        IFormPanelDisplay formPanelDisplayActive = MultiviewFormService.getInstance( ).findActiveFormPanel( _listAuthorizedFormPanelDisplay );
+        if ( formPanelDisplayActive != null )
         {
-            // Retrieve the FormPanel from the FormPanelDisplay
-            FormPanel formPanel = formPanelDisplay.getFormPanel( );
-
-            // Populate the FormColumns from the information of the list of FormResponseItem
-            // of the given FormPanel
-            MultiviewFormService.getInstance( ).populateFormColumns( formPanel, _listFormColumn, listFormFilter, nIndexStart, nPageSize, sortConfig );
-
-            // Associate for each FormColumnDisplay its FormColumnValues if the panel is
-            // active
-            if ( formPanelDisplay.isActive( ) )
+            _formPanelDisplayActive = formPanelDisplayActive;
+        }
+        else
+            if ( _formPanelDisplayActive == null && CollectionUtils.isNotEmpty( _listAuthorizedFormPanelDisplay ) )
             {
-                _formPanelDisplayActive = formPanelDisplay;
+                _formPanelDisplayActive = _listAuthorizedFormPanelDisplay.get( 0 );
             }
 
-            // Build the template of the form list panel
+        List<FormPanel> listFormPanel = _listAuthorizedFormPanelDisplay.stream( ).map( IFormPanelDisplay::getFormPanel ).collect( Collectors.toList( ) );
+        MultiviewFormService.getInstance( ).populateFormPanels( listFormPanel,
+                ( _formPanelDisplayActive != null ) ? _formPanelDisplayActive.getFormPanel( ) : null, _listFormColumn, listFormFilter, nIndexStart, nPageSize,
+                sortConfig );
+
+        // Build the template of the form list panels
+        for ( IFormPanelDisplay formPanelDisplay : _listAuthorizedFormPanelDisplay )
+        {
             formPanelDisplay.buildTemplate( getLocale( ) );
         }
 
@@ -473,6 +526,16 @@ public class MultiviewFormsJspBean extends AbstractJspBean
 
             _formResponseItemComparatorConfig = new FormResponseItemSortConfig( nColumnToSortPosition, strParamSortKey, bAscSort );
         }
+        else
+            if ( isPaginationAndSortNotUsed( request ) )
+            {
+                // The sort by distance is requested with the filter on the location
+                _listFormFilterDisplay.stream( ).filter( FormFilterDisplayGeolocation.class::isInstance ).map( FormFilterDisplayGeolocation.class::cast )
+                        .filter( FormFilterDisplayGeolocation::isSortByDistance ).findFirst( )
+                        .ifPresent( geolocationFilterDisplay -> _formResponseItemComparatorConfig = new FormResponseItemSortConfig(
+                                NumberUtils.INTEGER_MINUS_ONE, FormResponseSearchItem.FIELD_GEOLOCATION, geolocationFilterDisplay.getLatitude( ),
+                                geolocationFilterDisplay.getLongitude( ) ) );
+            }
     }
 
     /**
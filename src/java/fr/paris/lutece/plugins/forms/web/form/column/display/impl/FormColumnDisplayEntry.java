@@ -120,16 +120,16 @@ public class FormColumnDisplayEntry extends AbstractFormColumnDisplay
     public String buildFormColumnCellTemplate( FormColumnCell formColumnCell, Locale locale )
     {
         List<String> listEntryValues = new ArrayList<>( );
-        if ( formColumnCell != null && formColumnCell.getFormColumnCellValues( ).size( ) > 0 )
+        if ( formColumnCell != null )
         {
-            for ( java.util.Map.Entry<String, Object> entry : formColumnCell.getFormColumnCellValues( ).entrySet( ) )
+            for ( int nSlot = 0; nSlot < formColumnCell.getFormColumnCellSlotCount( ); nSlot++ )
             {
-                Object objEntryValue = entry.getValue( );
-                String objEntryKey = entry.getKey( );
+                Object objEntryValue = formColumnCell.getFormColumnCellValue( nSlot );
                 if ( objEntryValue == null )
                 {
                     continue;
                 }
+                String objEntryKey = formColumnCell.getFormColumnCellKey( nSlot );
 
                 if ( objEntryKey.endsWith( FormResponseSearchItem.FIELD_DATE_SUFFIX ) )
                 {
@@ -33,8 +33,12 @@
  */
 package fr.paris.lutece.plugins.forms.web.form.filter.display;
 
+import java.util.List;
+
 import javax.servlet.http.HttpServletRequest;
 
+import fr.paris.lutece.plugins.forms.business.form.filter.FormFilter;
+import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
 import fr.paris.lutece.plugins.forms.web.form.filter.IFilterable;
 import fr.paris.lutece.plugins.forms.web.form.multiview.util.IFormListPosition;
 
@@ -80,4 +84,17 @@ public interface IFormFilterDisplay extends IFilterable, IFormListPosition
      *            The HttpServletRequest to use to build the template of the filter
      */
     void buildTemplate( HttpServletRequest request );
+
+    /**
+     * Set the scope of the form responses used to build the values proposed by the FormFilterDisplay
+     * 
+     * @param formPanel
+     *            The FormPanel whose form responses are listed
+     * @param listFormFilter
+     *            The list of all the FormFilter of the list of form responses
+     */
+    default void setSearchScope( FormPanel formPanel, List<FormFilter> listFormFilter )
+    {
+        // Nothing to do
+    }
 }
@@ -34,7 +34,6 @@
 package fr.paris.lutece.plugins.forms.web.form.filter.display.impl;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,20 +44,14 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 
-import fr.paris.lutece.plugins.forms.business.Form;
-import fr.paris.lutece.plugins.forms.business.FormHome;
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.column.impl.FormColumnEntry;
 import fr.paris.lutece.plugins.forms.business.form.filter.FormFilter;
 import fr.paris.lutece.plugins.forms.business.form.filter.configuration.FormFilterEntryConfiguration;
 import fr.paris.lutece.plugins.forms.business.form.filter.configuration.IFormFilterConfiguration;
-import fr.paris.lutece.plugins.forms.util.ReferenceListFactory;
-import fr.paris.lutece.plugins.genericattributes.business.Entry;
-import fr.paris.lutece.plugins.genericattributes.business.EntryFilter;
-import fr.paris.lutece.plugins.genericattributes.business.EntryHome;
-import fr.paris.lutece.plugins.genericattributes.business.Response;
-import fr.paris.lutece.plugins.genericattributes.business.ResponseFilter;
-import fr.paris.lutece.plugins.genericattributes.business.ResponseHome;
+import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
+import fr.paris.lutece.plugins.forms.service.MultiviewFormService;
+import fr.paris.lutece.plugins.forms.util.FormsConstants;
 import fr.paris.lutece.util.ReferenceList;
 
 /**
@@ -69,8 +62,11 @@ public class FormFilterDisplayEntry extends AbstractFormFilterDisplay
     // Constants
     private static final String DEFAULT_ENTRY_VALUE = StringUtils.EMPTY;
     private static final String PARAMETER_ENTRY_VALUE_PATTERN = "multiview_entry_value_%s";
-    private static final String ENTRY_RESPONSE_VALUE_ATTRIBUTE = "responseValue";
-    private static final String FORM_RESOURCE_TYPE = Form.RESOURCE_TYPE;
+    private static final String ENTRY_VALUE_COUNT_PATTERN = "%s (%d)";
+
+    // Variables
+    private FormPanel _formPanel;
+    private List<FormFilter> _listFormFilterScope = new ArrayList<>( );
 
     /**
      * {@inheritDoc}
@@ -123,143 +119,61 @@ public class FormFilterDisplayEntry extends AbstractFormFilterDisplay
     }
 
     /**
-     * Create the ReferenceList based on the value of the Entry for an Entry column
-     * 
-     * @return the ReferenceList with all values of the Entry for an Entry column
-     */
-    private ReferenceList createReferenceList( )
-    {
-        List<Entry> listIEntryToRetrieveValueFrom = new ArrayList<>( );
-
-        IFormColumn formColumn = retrieveFormColumn( );
-        if ( formColumn instanceof FormColumnEntry )
-        {
-            FormColumnEntry formColumnEntry = (FormColumnEntry) formColumn;
-            List<String> listEntryCode = formColumnEntry.getListEntryCode( );
-            listIEntryToRetrieveValueFrom = getEntryListFromCode( listEntryCode );
-        }
-
-        // Build the list of FormFilter to use for the filter from the list of entry to search on
-        List<Response> listResponse = getEntryResponseList( listIEntryToRetrieveValueFrom );
-        cleanListResponse( listResponse );
-        ReferenceListFactory referenceListFactory = new ReferenceListFactory( listResponse, ENTRY_RESPONSE_VALUE_ATTRIBUTE, ENTRY_RESPONSE_VALUE_ATTRIBUTE,
-                Boolean.FALSE );
-
-        String strDefaultReferenceListName = getFormFilterDisplayLabel( );
-        referenceListFactory.setDefaultName( strDefaultReferenceListName );
-        referenceListFactory.setDefaultSortNeeded( Boolean.TRUE );
-
-        return referenceListFactory.createReferenceList( );
-    }
-
-    /**
-     * Return the list of entry built from the name of the entry which are stored in configuration of the column
-     * 
-     * @param listEntryCode
-     *            The list of code of entry to retrieve the value from
-     * @return the list of entry built from the given list of entry code
+     * {@inheritDoc}
      */
-    private static List<Entry> getEntryListFromCode( List<String> listEntryCode )
+    @Override
+    public void setSearchScope( FormPanel formPanel, List<FormFilter> listFormFilter )
     {
-        List<Entry> listEntry = new ArrayList<>( );
+        _formPanel = formPanel;
+        _listFormFilterScope = new ArrayList<>( );
 
-        if ( !CollectionUtils.isEmpty( listEntryCode ) )
+        if ( listFormFilter != null )
         {
-            // Retrieve the list of forms
-            List<Form> listForms = FormHome.getFormList( );
-
-            if ( !CollectionUtils.isEmpty( listForms ) )
+            // The values are counted without the selection of this filter to keep all its other values available
+            for ( FormFilter formFilter : listFormFilter )
             {
-                for ( Form form : listForms )
+                if ( formFilter != getFormFilter( ) )
                 {
-                    listEntry.addAll( fillEntryListFromCode( form.getId( ), listEntryCode ) );
+                    _listFormFilterScope.add( formFilter );
                 }
             }
         }
-
-        return listEntry;
     }
 
     /**
-     * Return the list of all the Entry of the specified form which have the same code than the value in the given list.
+     * Create the ReferenceList based on the value of the Entry for an Entry column. The values are retrieved from the index among the form responses of the
+     * search scope, with the number of form responses of each value.
      * 
-     * @param nIdForm
-     *            The identifier of the form to retrieve the Entry from
-     * @param listEntryCode
-     *            The list of code of entry to retrieve the value from
-     * @return the list of entry retrieve from the form from the given list of entry code
+     * @return the ReferenceList with all values of the Entry for an Entry column
      */
-    private static List<Entry> fillEntryListFromCode( int nIdForm, List<String> listEntryCode )
+    private ReferenceList createReferenceList( )
     {
-        List<Entry> listEntry = new ArrayList<>( );
+        ReferenceList referenceList = new ReferenceList( );
+        referenceList.addItem( FormsConstants.REFERENCE_ITEM_DEFAULT_CODE, getFormFilterDisplayLabel( ) );
 
-        EntryFilter entryFilter = new EntryFilter( );
-        entryFilter.setIdResource( nIdForm );
-        entryFilter.setResourceType( FORM_RESOURCE_TYPE );
-        entryFilter.setIdIsGroup( EntryFilter.FILTER_FALSE );
-        entryFilter.setIdIsComment( EntryFilter.FILTER_FALSE );
-
-        List<Entry> entryList = EntryHome.getEntryList( entryFilter );
-
-        for ( String strEntryCodeToFind : listEntryCode )
+        IFormColumn formColumn = retrieveFormColumn( );
+        if ( formColumn instanceof FormColumnEntry )
         {
-            for ( Entry entry : entryList )
-            {
-                if ( strEntryCodeToFind.equals( entry.getCode( ) ) )
-                {
-                    listEntry.add( entry );
-                }
-            }
-        }
-
-        return listEntry;
-    }
-
-    /**
-     * Return the list of Response which are associated to the specified entry of the given list
-     * 
-     * @param listIEntryToRetrieveValueFrom
-     *            The list of entry to retrieve the response value from
-     * @return the list of Response which belong to an entry of the list of Entry which we want to gather values
-     */
-    private static List<Response> getEntryResponseList( List<Entry> listIEntryToRetrieveValueFrom )
-    {
-        List<Response> listResponseFieldResult = new ArrayList<>( );
+            FormColumnEntry formColumnEntry = (FormColumnEntry) formColumn;
+            List<String> listEntryCode = formColumnEntry.getListEntryCode( );
 
-        if ( !CollectionUtils.isEmpty( listIEntryToRetrieveValueFrom ) )
-        {
-            for ( Entry entry : listIEntryToRetrieveValueFrom )
+            if ( !CollectionUtils.isEmpty( listEntryCode ) )
             {
-                ResponseFilter responseFilter = new ResponseFilter( );
-                responseFilter.setIdEntry( entry.getIdEntry( ) );
-
-                listResponseFieldResult.addAll( ResponseHome.getResponseList( responseFilter ) );
-            }
-        }
-
-        return listResponseFieldResult;
-    }
+                Map<String, Integer> mapValueCounts = MultiviewFormService.getInstance( ).countResponseValues( _formPanel, _listFormFilterScope,
+                        listEntryCode );
 
-    /**
-     * Clean the given list of Response by removing all of those which have empty value
-     * 
-     * @param listResponse
-     *            The list to remove the Response with empty value
-     */
-    private static void cleanListResponse( List<Response> listResponse )
-    {
-        if ( !CollectionUtils.isEmpty( listResponse ) )
-        {
-            Iterator<Response> iteratorResponse = listResponse.iterator( );
-            while ( iteratorResponse.hasNext( ) )
-            {
-                Response response = iteratorResponse.next( );
-                if ( response != null && StringUtils.isBlank( response.getResponseValue( ) ) )
+                for ( Map.Entry<String, Integer> valueCount : mapValueCounts.entrySet( ) )
                 {
-                    iteratorResponse.remove( );
+                    String strValue = valueCount.getKey( );
+                    if ( StringUtils.isNotBlank( strValue ) )
+                    {
+                        referenceList.addItem( strValue, String.format( ENTRY_VALUE_COUNT_PATTERN, strValue, valueCount.getValue( ) ) );
+                    }
                 }
             }
         }
+
+        return referenceList;
     }
 
     /**
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.web.form.filter.display.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import fr.paris.lutece.plugins.forms.business.form.filter.querypart.impl.FormFilterGeolocationLuceneQueryPart;
+import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.util.html.HtmlTemplate;
+
+/**
+ * Filter display on the distance of the points of the form responses to a location. The value of the filter is the latitude, the longitude and the radius
+ * in meters, separated by commas.
+ */
+public class FormFilterDisplayGeolocation extends AbstractFormFilterDisplay
+{
+    // Constants
+    private static final String VALUE_SEPARATOR = ",";
+    private static final String SORT = "_sort";
+
+    // Templates
+    private static final String FORM_FILTER_GEOLOCATION_TEMPLATE_NAME = "admin/plugins/forms/multiview/filter/geolocation_filter.html";
+
+    // Marks
+    private static final String MARK_SORT_BY_DISTANCE = "sort_by_distance";
+
+    // Variables
+    private boolean _bLocation;
+    private double _dLatitude;
+    private double _dLongitude;
+    private boolean _bSortByDistance;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getParameterName( )
+    {
+        return getFormFilter( ).getFormFilterConfiguration( ).getFormFilterName( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getFilterDisplayMapValues( HttpServletRequest request )
+    {
+        String strValue = request.getParameter( getParameterName( ) );
+        setValue( strValue );
+
+        Map<String, Object> mapFilterNameValues = new LinkedHashMap<>( );
+        _bLocation = false;
+        if ( StringUtils.isNotBlank( strValue ) )
+        {
+            String [ ] values = strValue.split( VALUE_SEPARATOR );
+            if ( values.length == 3 )
+            {
+                double dLatitude = NumberUtils.toDouble( values [0].trim( ), Double.NaN );
+                double dLongitude = NumberUtils.toDouble( values [1].trim( ), Double.NaN );
+                double dRadius = NumberUtils.toDouble( values [2].trim( ), Double.NaN );
+                if ( dLatitude >= -90 && dLatitude <= 90 && dLongitude >= -180 && dLongitude <= 180 && dRadius > 0 )
+                {
+                    _bLocation = true;
+                    _dLatitude = dLatitude;
+                    _dLongitude = dLongitude;
+                    mapFilterNameValues.put( FormFilterGeolocationLuceneQueryPart.PARAMETER_LATITUDE, dLatitude );
+                    mapFilterNameValues.put( FormFilterGeolocationLuceneQueryPart.PARAMETER_LONGITUDE, dLongitude );
+                    mapFilterNameValues.put( FormFilterGeolocationLuceneQueryPart.PARAMETER_RADIUS, dRadius );
+                }
+            }
+        }
+        _bSortByDistance = _bLocation && request.getParameter( getParameterName( ) + SORT ) != null;
+
+        return mapFilterNameValues;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void buildTemplate( HttpServletRequest request )
+    {
+        String strTemplateResult = StringUtils.EMPTY;
+
+        Map<String, Object> model = new LinkedHashMap<>( );
+        model.put( MARK_FILTER_LIST_VALUE, getValue( ) );
+        model.put( MARK_SORT_BY_DISTANCE, _bSortByDistance );
+        model.put( MARK_FILTER_CONFIG, getFormFilter( ).getFormFilterConfiguration( ) );
+        HtmlTemplate htmlTemplate = AppTemplateService.getTemplate( getBaseTemplate( ), request.getLocale( ), model );
+        if ( htmlTemplate != null )
+        {
+            strTemplateResult = htmlTemplate.getHtml( );
+        }
+
+        setTemplate( strTemplateResult );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getBaseTemplate( )
+    {
+        return FORM_FILTER_GEOLOCATION_TEMPLATE_NAME;
+    }
+
+    /**
+     * Return the boolean which tell if the form responses are sorted by their distance to the location of the filter
+     * 
+     * @return true if a location is filtered and the sort by distance is requested
+     */
+    public boolean isSortByDistance( )
+    {
+        return _bSortByDistance;
+    }
+
+    /**
+     * @return the latitude of the location of the filter
+     */
+    public double getLatitude( )
+    {
+        return _dLatitude;
+    }
+
+    /**
+     * @return the longitude of the location of the filter
+     */
+    public double getLongitude( )
+    {
+        return _dLongitude;
+    }
+}
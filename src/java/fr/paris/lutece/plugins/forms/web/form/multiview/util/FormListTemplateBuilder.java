@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.forms.web.form.multiview.util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -53,6 +54,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.paris.lutece.plugins.forms.business.form.FormResponseItem;
 import fr.paris.lutece.plugins.forms.business.form.column.FormColumnCell;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
 import fr.paris.lutece.plugins.forms.service.IMultiviewMapProvider;
 import fr.paris.lutece.plugins.forms.web.form.column.display.IFormColumnDisplay;
 import fr.paris.lutece.plugins.forms.web.form.column.display.impl.FormColumnDisplayEntryGeolocation;
@@ -71,6 +73,9 @@ public final class FormListTemplateBuilder
     private static final String TEMPLATE_MULTIVIEW_FORM_TABLE = "admin/plugins/forms/multiview/includes/include_manage_multiview_forms_table.html";
     private static final String TEMPLATE_MULTIVIEW_GEOJSON_POPUP = "admin/plugins/forms/multiview/includes/include_manage_multiview_geojson_popup.html";
 
+    // JSP URL
+    private static final String JSP_MULTIVIEW_MAP_CLUSTERS = "jsp/admin/plugins/forms/MultiviewFormsMapClusters.jsp";
+
     // Multiviewmap Provider bean name
     private static final String BEAN_NAME_MULTIVIEWMAP = "forms.multiviewMap";
 
@@ -82,13 +87,19 @@ public final class FormListTemplateBuilder
     private static final String MARK_FORM_RESPONSE_DETAILS_REDIRECT_BASE_URL = "redirect_details_base_url";
     private static final String MARK_FROM_RESPONSE_GEOJSON_POINT_LIST = "form_response_geojson_point_list";
     private static final String MARK_MULTIVIEWMAP = "multiviewmap";
+    private static final String MARK_FORM_RESPONSE_GEOJSON_CLUSTERS_URL = "form_response_geojson_clusters_url";
     private static final String GEOJSON_PROPERTIES = "properties";
     private static final String GEOJSON_COORDINATES = "coordinates";
     private static final String GEOJSON_GEOMETRY = "geometry";
     private static final String GEOJSON_GEOMETRY_TYPE_POINT = "Point";
     private static final String GEOJSON_TYPE = "type";
     private static final String GEOJSON_TYPE_FEATURE = "Feature";
+    private static final String GEOJSON_TYPE_FEATURE_COLLECTION = "FeatureCollection";
+    private static final String GEOJSON_FEATURES = "features";
     private static final String PROPERTY_POPUP_CONTENT = "popupContent";
+    private static final String PROPERTY_COUNT = "count";
+    private static final String PROPERTY_DETAILS_URL = "detailsUrl";
+    private static final String PARAMETER_ID_FORM_RESPONSE = "id_form_response";
 
     // To serialize to geojson
     private static ObjectMapper _mapper = new ObjectMapper( );
@@ -144,6 +155,7 @@ public final class FormListTemplateBuilder
                         strRedirectionDetailsBaseUrl );
                 model.put( MARK_FROM_RESPONSE_GEOJSON_POINT_LIST, listGeoJsonPoints );
                 model.put( MARK_MULTIVIEWMAP, maybeMapProvider.get( ).getMapTemplate( ) );
+                model.put( MARK_FORM_RESPONSE_GEOJSON_CLUSTERS_URL, JSP_MULTIVIEW_MAP_CLUSTERS );
 
                 listFormColumnLineTemplatePaginated = buildFormColumnLineTemplateList( listFormColumnLineTemplate, listIdFormResponsePaginated );
             }
@@ -240,6 +252,52 @@ public final class FormListTemplateBuilder
         }
     }
 
+    /**
+     * Build the GeoJSON feature collection of the clusters of the points of the form responses. The clusters of a single point link to the details of its
+     * form response.
+     * 
+     * @param listClusters
+     *            The clusters of the points
+     * @param strRedirectionDetailsBaseUrl
+     *            The base url to use for the redirection on the details page
+     * @return the GeoJSON feature collection of the clusters
+     */
+    public static String buildGeoJsonClusters( List<FormResponseGeolocationCluster> listClusters, String strRedirectionDetailsBaseUrl )
+    {
+        List<Map<String, Object>> listFeatures = new ArrayList<>( listClusters.size( ) );
+        for ( FormResponseGeolocationCluster cluster : listClusters )
+        {
+            Map<String, Object> geometry = new HashMap<>( );
+            geometry.put( GEOJSON_TYPE, GEOJSON_GEOMETRY_TYPE_POINT );
+            geometry.put( GEOJSON_COORDINATES, Arrays.asList( cluster.getLongitude( ), cluster.getLatitude( ) ) );
+
+            Map<String, Object> properties = new HashMap<>( );
+            properties.put( PROPERTY_COUNT, cluster.getCount( ) );
+            if ( cluster.getCount( ) == 1 )
+            {
+                properties.put( PROPERTY_DETAILS_URL, strRedirectionDetailsBaseUrl + "&" + PARAMETER_ID_FORM_RESPONSE + "=" + cluster.getIdFormResponse( ) );
+            }
+
+            Map<String, Object> feature = new HashMap<>( );
+            feature.put( GEOJSON_TYPE, GEOJSON_TYPE_FEATURE );
+            feature.put( GEOJSON_GEOMETRY, geometry );
+            feature.put( GEOJSON_PROPERTIES, properties );
+            listFeatures.add( feature );
+        }
+
+        Map<String, Object> root = new HashMap<>( );
+        root.put( GEOJSON_TYPE, GEOJSON_TYPE_FEATURE_COLLECTION );
+        root.put( GEOJSON_FEATURES, listFeatures );
+        try
+        {
+            return _mapper.writeValueAsString( root );
+        }
+        catch( JsonProcessingException e )
+        {
+            throw new AppException( "Error creating json for the geolocation clusters", e );
+        }
+    }
+
     private static String buildPopupContent( FormColumnLineTemplate formColumnlineTemplate, String strRedirectionDetailsBaseUrl )
     {
         Map<String, Object> model = new HashMap<>( );
@@ -293,13 +351,20 @@ public final class FormListTemplateBuilder
 
         if ( !CollectionUtils.isEmpty( listFormColumnDisplay ) && !CollectionUtils.isEmpty( listFormResponseItem ) )
         {
+            // The display of each cell index is found once for all the lines
+            List<IFormColumnDisplay> listFormColumnDisplayByCell = new ArrayList<>( );
             for ( FormResponseItem formResponseItem : listFormResponseItem )
             {
                 int nIdFormResponse = formResponseItem.getIdFormResponse( );
                 FormColumnLineTemplate formResponseColumnLineTemplate = new FormColumnLineTemplate( nIdFormResponse );
 
                 List<FormColumnCell> listFormColumnCell = formResponseItem.getFormColumnCellValues( );
-                populateLineTemplateFromCellValues( formResponseColumnLineTemplate, listFormColumnCell, listFormColumnDisplay, locale );
+                while ( listFormColumnDisplayByCell.size( ) < listFormColumnCell.size( ) )
+                {
+                    listFormColumnDisplayByCell.add( findFormColumnDisplayByPosition(
+                            cellIndexToColumnDisplayPosition( listFormColumnDisplayByCell.size( ) ), listFormColumnDisplay ) );
+                }
+                populateLineTemplateFromCellValues( formResponseColumnLineTemplate, listFormColumnCell, listFormColumnDisplayByCell, locale );
 
                 listFormColumnLineTemplate.add( formResponseColumnLineTemplate );
             }
@@ -315,20 +380,19 @@ public final class FormListTemplateBuilder
      *            The FormColumnLineTemplate to populate
      * @param listFormColumnCell
      *            The list of FormColumnCell to retrieve the values from
-     * @param listFormColumnDisplay
-     *            The list of IFormColumnDisplay to use for the column
+     * @param listFormColumnDisplayByCell
+     *            The IFormColumnDisplay of each cell index, null for the cells without display
      * @param locale
      *            The locale to use for build the templates
      */
     private static void populateLineTemplateFromCellValues( FormColumnLineTemplate formColumnLineTemplate, List<FormColumnCell> listFormColumnCell,
-            List<IFormColumnDisplay> listFormColumnDisplay, Locale locale )
+            List<IFormColumnDisplay> listFormColumnDisplayByCell, Locale locale )
     {
         if ( !CollectionUtils.isEmpty( listFormColumnCell ) )
         {
             for ( int index = 0; index < listFormColumnCell.size( ); index++ )
             {
-                int nColumnDisplayPosition = cellIndexToColumnDisplayPosition( index );
-                IFormColumnDisplay formColumnDisplay = findFormColumnDisplayByPosition( nColumnDisplayPosition, listFormColumnDisplay );
+                IFormColumnDisplay formColumnDisplay = listFormColumnDisplayByCell.get( index );
                 if ( formColumnDisplay != null )
                 {
                     FormColumnCell formColumnCell = listFormColumnCell.get( index );
@@ -241,7 +241,18 @@ CREATE TABLE forms_indexer_action (
   id_action int AUTO_INCREMENT,
   id_form_response INT DEFAULT 0 NOT NULL,
   id_task INT DEFAULT 0 NOT NULL ,
+  status INT DEFAULT 0 NOT NULL ,
   PRIMARY KEY (id_action)
 );
-CREATE INDEX idx_fia_id_form_response on forms_indexer_action  ( id_form_response );
+CREATE UNIQUE INDEX idx_fia_id_form_response on forms_indexer_action  ( id_form_response );
 CREATE INDEX idx_fia_id_task on forms_indexer_action  ( id_task );
+
+DROP TABLE IF EXISTS forms_indexer_lease;
+CREATE TABLE forms_indexer_lease (
+  lease_name VARCHAR(50) NOT NULL,
+  owner VARCHAR(255) DEFAULT '' NOT NULL,
+  duration BIGINT DEFAULT 0 NOT NULL,
+  version BIGINT DEFAULT 0 NOT NULL,
+  renewal_date TIMESTAMP NULL,
+  PRIMARY KEY (lease_name)
+);
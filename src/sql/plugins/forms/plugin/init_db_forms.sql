@@ -13,6 +13,8 @@ DELETE FROM forms_action WHERE id_action=5;
 INSERT INTO forms_action (id_action, name_key, description_key, action_url, icon_url, action_permission, form_state) VALUES (5, 'forms.action.viewResponses.name', 'forms.action.viewResponses.description', 'jsp/admin/plugins/forms/MultiviewForms.jsp?current_selected_panel=forms', 'list-alt', 'VIEW_FORM_RESPONSE', 0);
 DELETE FROM forms_action WHERE id_action=6;
 INSERT INTO forms_action (id_action, name_key, description_key, action_url, icon_url, action_permission, form_state) VALUES (6, 'module.forms.documentproducer.actions.extractpdf.name', 'module.forms.documentproducer.actions.extractpdf.description', 'jsp/admin/plugins/forms/modules/documentproducer/ManageConfigProducer.jsp?view=getManageConfigProducer', 'file-pdf-o', 'PDFPROD', 0);
+DELETE FROM forms_action WHERE id_action=7;
+INSERT INTO forms_action (id_action, name_key, description_key, action_url, icon_url, action_permission, form_state) VALUES (7, 'forms.action.reindex.name', 'forms.action.reindex.description', 'jsp/admin/plugins/forms/ManageForms.jsp?action=reindexForm', 'refresh', 'PARAM', 0);
 --
 -- Dumping data for table `forms_global_action`
 --
@@ -26,3 +28,7 @@ INSERT INTO core_datastore ( entity_key, entity_value ) VALUES( 'forms.display.f
 
 DELETE FROM forms_global_action WHERE id_action=2;
 INSERT INTO forms_global_action (id_action, code, name_key, description_key, action_url, icon_url ) VALUES (2,'multiviewExport','forms.action.multiviewExport.labelKey','forms.action.multiviewExport.descriptionKey','jsp/admin/plugins/forms/MultiviewForms.jsp','edit');
+
+-- Lease electing the node in charge of the indexing, seeded so that the nodes only compete on its update
+DELETE FROM forms_indexer_lease WHERE lease_name='indexing';
+INSERT INTO forms_indexer_lease ( lease_name, owner, duration, version ) VALUES ( 'indexing', '', 0, 0 );
@@ -0,0 +1,31 @@
+-- Keep one indexer action per form response : the task with the highest priority, on the oldest action
+-- The grouped subqueries are materialized, so that the statements can read the table they modify
+UPDATE forms_indexer_action SET id_task = (
+	SELECT t.max_task FROM ( SELECT id_form_response, MAX( id_task ) AS max_task FROM forms_indexer_action GROUP BY id_form_response ) t
+	WHERE t.id_form_response = forms_indexer_action.id_form_response );
+DELETE FROM forms_indexer_action WHERE id_action NOT IN (
+	SELECT k.id_action FROM ( SELECT MIN( id_action ) AS id_action FROM forms_indexer_action GROUP BY id_form_response ) k );
+
+-- MySQL syntax, like the previous upgrade scripts : use DROP INDEX idx_fia_id_form_response on PostgreSQL
+DROP INDEX idx_fia_id_form_response ON forms_indexer_action;
+CREATE UNIQUE INDEX idx_fia_id_form_response on forms_indexer_action  ( id_form_response );
+
+-- Status of the indexer actions : 0 pending, 1 claimed by the indexer until it is applied to the index, 2 applied and 3 exported to a snapshot being
+-- written. With snapshots, the applied actions are kept until a snapshot holds them, to be replayed on an index restored from the previous snapshot.
+ALTER TABLE forms_indexer_action ADD COLUMN status INT DEFAULT 0 NOT NULL;
+
+-- Form action reindexing the responses of a form
+DELETE FROM forms_action WHERE id_action=7;
+INSERT INTO forms_action (id_action, name_key, description_key, action_url, icon_url, action_permission, form_state) VALUES (7, 'forms.action.reindex.name', 'forms.action.reindex.description', 'jsp/admin/plugins/forms/ManageForms.jsp?action=reindexForm', 'refresh', 'PARAM', 0);
+
+-- Lease electing the node in charge of the indexing
+DROP TABLE IF EXISTS forms_indexer_lease;
+CREATE TABLE forms_indexer_lease (
+  lease_name VARCHAR(50) NOT NULL,
+  owner VARCHAR(255) DEFAULT '' NOT NULL,
+  duration BIGINT DEFAULT 0 NOT NULL,
+  version BIGINT DEFAULT 0 NOT NULL,
+  renewal_date TIMESTAMP NULL,
+  PRIMARY KEY (lease_name)
+);
+INSERT INTO forms_indexer_lease ( lease_name, owner, duration, version ) VALUES ( 'indexing', '', 0, 0 );
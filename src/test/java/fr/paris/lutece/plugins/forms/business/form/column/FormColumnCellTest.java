@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.column;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormColumnCell backed by a FormColumnCellSchema
+ */
+public class FormColumnCellTest extends LuteceTestCase
+{
+    /**
+     * Test the cells of a column sharing a schema with different keys
+     */
+    public void testSharedSchema( )
+    {
+        FormColumnCellSchema formColumnCellSchema = new FormColumnCellSchema( );
+
+        Map<String, Object> mapValuesOne = new LinkedHashMap<>( );
+        mapValuesOne.put( "column_1_title", "One" );
+        FormColumnCell formColumnCellOne = new FormColumnCell( formColumnCellSchema, formColumnCellSchema.toValues( mapValuesOne ) );
+
+        Map<String, Object> mapValuesTwo = new LinkedHashMap<>( );
+        mapValuesTwo.put( "column_1_code", "C2" );
+        mapValuesTwo.put( "column_1_title", "Two" );
+        FormColumnCell formColumnCellTwo = new FormColumnCell( formColumnCellSchema, formColumnCellSchema.toValues( mapValuesTwo ) );
+
+        assertEquals( 2, formColumnCellSchema.size( ) );
+        assertEquals( "One", formColumnCellOne.getFormColumnCellValueByName( "title" ) );
+        assertNull( formColumnCellOne.getFormColumnCellValueByName( "code" ) );
+        assertEquals( 1, formColumnCellOne.getFormColumnCellValues( ).size( ) );
+
+        // The first key in the alphabetical order is used for the name
+        assertEquals( "C2", formColumnCellTwo.getFormColumnCellValueByName( "column_1" ) );
+        assertEquals( "Two", formColumnCellTwo.getFormColumnCellValues( ).get( "column_1_title" ) );
+    }
+
+    /**
+     * Test a cell without values
+     */
+    public void testEmptyCell( )
+    {
+        FormColumnCellSchema formColumnCellSchema = new FormColumnCellSchema( );
+        FormColumnCell formColumnCell = new FormColumnCell( formColumnCellSchema, formColumnCellSchema.toValues( null ) );
+
+        assertEquals( 0, formColumnCell.getFormColumnCellSlotCount( ) );
+        assertNull( formColumnCell.getFormColumnCellValueByName( "title" ) );
+        assertTrue( formColumnCell.getFormColumnCellValues( ).isEmpty( ) );
+    }
+}
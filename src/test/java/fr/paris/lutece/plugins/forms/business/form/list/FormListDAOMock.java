@@ -35,12 +35,17 @@ package fr.paris.lutece.plugins.forms.business.form.list;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import fr.paris.lutece.plugins.forms.business.form.FormResponseItem;
 import fr.paris.lutece.plugins.forms.business.form.FormResponseItemSortConfig;
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.filter.FormFilter;
 import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
+import fr.paris.lutece.plugins.forms.business.form.panel.initializer.querypart.IFormPanelInitializerQueryPart;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationBox;
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseGeolocationCluster;
 
 /**
  * Mock implementation of the FormListDAO
@@ -96,4 +101,48 @@ public class FormListDAOMock implements IFormListDAO
         }
         return listFormResponseItem;
     }
+
+    @Override
+    public Map<String, Integer> countResponseValues( FormPanel formPanel, List<FormFilter> listFormFilter, List<String> listQuestionCode )
+    {
+        return new TreeMap<>( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void countFormResponseItems( FormPanel formPanel, List<FormFilter> listFormFilter )
+    {
+        formPanel.setTotalFormResponseItemCount( _listIdAuthorizedFormResponse.size( ) );
+        formPanel.setFormResponseItemList( new ArrayList<>( ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<IFormPanelInitializerQueryPart> buildFormPanelInitializerQueryParts( FormPanel formPanel )
+    {
+        return new ArrayList<>( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean existsFormResponse( List<IFormPanelInitializerQueryPart> listFormPanelInitializerQueryPart, int nIdFormResponse )
+    {
+        return _listIdAuthorizedFormResponse.contains( nIdFormResponse );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FormResponseGeolocationCluster> getGeolocationClusters( FormPanel formPanel, List<FormFilter> listFormFilter, FormResponseGeolocationBox box,
+            int nZoom )
+    {
+        return new ArrayList<>( );
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.business.form.search;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.apache.lucene.search.ScoreDoc;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the FormResponseSearchCursor class
+ */
+public class FormResponseSearchCursorTest extends LuteceTestCase
+{
+    private static final String SEARCH_KEY = "id_form:[1 TO 1]|<string: \"form_title\">";
+    private static final String OTHER_SEARCH_KEY = "id_form:[2 TO 2]|<string: \"form_title\">";
+    private static final long INDEX_VERSION = 12L;
+
+    /**
+     * Test for the {@link FormResponseSearchCursor#getLastScoreDoc(String, long, int)} method with a saved page
+     */
+    public void testGetLastScoreDocOfSavedPage( )
+    {
+        FormResponseSearchCursor cursor = new FormResponseSearchCursor( );
+        ScoreDoc scoreDoc = new ScoreDoc( 49, 1.0f );
+        cursor.setLastScoreDoc( SEARCH_KEY, INDEX_VERSION, 50, scoreDoc );
+
+        assertThat( cursor.getLastScoreDoc( SEARCH_KEY, INDEX_VERSION, 50 ), is( sameInstance( scoreDoc ) ) );
+        assertThat( cursor.getLastScoreDoc( SEARCH_KEY, INDEX_VERSION, 100 ), is( nullValue( ) ) );
+    }
+
+    /**
+     * Test for the {@link FormResponseSearchCursor#getLastScoreDoc(String, long, int)} method when the query changes
+     */
+    public void testGetLastScoreDocOtherQuery( )
+    {
+        FormResponseSearchCursor cursor = new FormResponseSearchCursor( );
+        cursor.setLastScoreDoc( SEARCH_KEY, INDEX_VERSION, 50, new ScoreDoc( 49, 1.0f ) );
+
+        assertThat( cursor.getLastScoreDoc( OTHER_SEARCH_KEY, INDEX_VERSION, 50 ), is( nullValue( ) ) );
+        assertThat( cursor.getLastScoreDoc( SEARCH_KEY, INDEX_VERSION, 50 ), is( nullValue( ) ) );
+    }
+
+    /**
+     * Test for the {@link FormResponseSearchCursor#getLastScoreDoc(String, long, int)} method when the index changes
+     */
+    public void testGetLastScoreDocOtherIndexVersion( )
+    {
+        FormResponseSearchCursor cursor = new FormResponseSearchCursor( );
+        cursor.setLastScoreDoc( SEARCH_KEY, INDEX_VERSION, 50, new ScoreDoc( 49, 1.0f ) );
+
+        assertThat( cursor.getLastScoreDoc( SEARCH_KEY, INDEX_VERSION + 1, 50 ), is( nullValue( ) ) );
+    }
+}
@@ -44,7 +44,6 @@ import org.junit.After;
 import org.junit.Before;
 import org.springframework.mock.web.MockHttpServletRequest;
 
-import fr.paris.lutece.plugins.forms.business.form.column.FormColumnFactory;
 import fr.paris.lutece.plugins.forms.business.form.column.IFormColumn;
 import fr.paris.lutece.plugins.forms.business.form.column.impl.FormColumnFormResponseDateCreationMock;
 import fr.paris.lutece.plugins.forms.business.form.column.impl.FormColumnFormsMock;
@@ -67,7 +66,6 @@ public class FormsMultiviewAuthorizationServiceTest extends LuteceTestCase
 {
     // Variables
     private FormPanel _formPanel;
-    private FormColumnFactory _formColumnFactory;
 
     /**
      * {@inheritDoc}
@@ -89,7 +87,6 @@ public class FormsMultiviewAuthorizationServiceTest extends LuteceTestCase
         listFormColumn.add( new FormColumnFormsMock( 1, "form" ) );
         listFormColumn.add( new FormColumnFormResponseDateCreationMock( 2, "date creation" ) );
         listFormColumn.add( new FormColumnWorkflowStateMock( 3, "workflow state" ) );
-        _formColumnFactory = new FormColumnFactory( );
     }
 
     /**
@@ -112,8 +109,8 @@ public class FormsMultiviewAuthorizationServiceTest extends LuteceTestCase
 
         FormListDAOMock formListDAOMock = new FormListDAOMock( listAuthorizedId );
         FormListFacade formListFacade = new FormListFacade( formListDAOMock );
-        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService(
-                _formPanel.getFormPanelConfiguration( ), formListFacade, _formColumnFactory );
+        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService( _formPanel.getFormPanelConfiguration( ),
+                formListFacade );
 
         boolean bIsUserAuthorize = formsMultiviewAuthorizationService.isUserAuthorizedOnFormResponse( new MockHttpServletRequest( ), nIdFormResponse );
         assertThat( bIsUserAuthorize, is( Boolean.TRUE ) );
@@ -130,8 +127,8 @@ public class FormsMultiviewAuthorizationServiceTest extends LuteceTestCase
 
         FormListDAOMock formListDAOMock = new FormListDAOMock( listAuthorizedId );
         FormListFacade formListFacade = new FormListFacade( formListDAOMock );
-        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService(
-                _formPanel.getFormPanelConfiguration( ), formListFacade, _formColumnFactory );
+        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService( _formPanel.getFormPanelConfiguration( ),
+                formListFacade );
 
         boolean bIsUserAuthorize = formsMultiviewAuthorizationService.isUserAuthorizedOnFormResponse( new MockHttpServletRequest( ), nIdFormResponse );
         assertThat( bIsUserAuthorize, is( Boolean.FALSE ) );
@@ -147,8 +144,8 @@ public class FormsMultiviewAuthorizationServiceTest extends LuteceTestCase
 
         FormListDAOMock formListDAOMock = new FormListDAOMock( listAuthorizedId );
         FormListFacade formListFacade = new FormListFacade( formListDAOMock );
-        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService(
-                _formPanel.getFormPanelConfiguration( ), formListFacade, _formColumnFactory );
+        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService( _formPanel.getFormPanelConfiguration( ),
+                formListFacade );
 
         boolean bIsUserAuthorize = formsMultiviewAuthorizationService.isUserAuthorizedOnFormResponse( new MockHttpServletRequest( ), nIdFormResponse );
         assertThat( bIsUserAuthorize, is( Boolean.FALSE ) );
@@ -164,8 +161,7 @@ public class FormsMultiviewAuthorizationServiceTest extends LuteceTestCase
 
         FormListDAOMock formListDAOMock = new FormListDAOMock( listAuthorizedId );
         FormListFacade formListFacade = new FormListFacade( formListDAOMock );
-        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService( null, formListFacade,
-                _formColumnFactory );
+        IFormsMultiviewAuthorizationService formsMultiviewAuthorizationService = new FormsMultiviewAuthorizationService( null, formListFacade );
 
         boolean bIsUserAuthorize = formsMultiviewAuthorizationService.isUserAuthorizedOnFormResponse( new MockHttpServletRequest( ), nIdFormResponse );
         assertThat( bIsUserAuthorize, is( Boolean.FALSE ) );
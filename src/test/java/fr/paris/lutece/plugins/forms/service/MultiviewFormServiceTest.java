@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import fr.paris.lutece.plugins.forms.business.form.FormResponseItem;
+import fr.paris.lutece.plugins.forms.business.form.list.FormListDAOMock;
+import fr.paris.lutece.plugins.forms.business.form.list.FormListFacade;
+import fr.paris.lutece.plugins.forms.business.form.panel.FormPanel;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the MultiviewFormService
+ */
+public class MultiviewFormServiceTest extends LuteceTestCase
+{
+    /**
+     * Test of the method {@link MultiviewFormService#populateFormPanels}: only the active panel is populated, the other panels are only counted
+     */
+    public void testPopulateFormPanels( )
+    {
+        List<Integer> listAuthorizedId = Arrays.asList( 1, 2, 3, 4 );
+        FormListFacade formListFacade = new FormListFacade( new FormListDAOMock( listAuthorizedId ) );
+
+        FormPanel formPanelActive = new FormPanel( );
+        List<FormPanel> listFormPanel = new ArrayList<>( );
+        listFormPanel.add( new FormPanel( ) );
+        listFormPanel.add( formPanelActive );
+        listFormPanel.add( new FormPanel( ) );
+
+        MultiviewFormService.getInstance( ).populateFormPanels( formListFacade, listFormPanel, formPanelActive, new ArrayList<>( ), new ArrayList<>( ), 0,
+                10, null );
+
+        List<FormResponseItem> listFormResponseItem = formPanelActive.getFormResponseItemList( );
+        assertEquals( listAuthorizedId.size( ), listFormResponseItem.size( ) );
+        for ( FormResponseItem formResponseItem : listFormResponseItem )
+        {
+            assertTrue( listAuthorizedId.contains( formResponseItem.getIdFormResponse( ) ) );
+        }
+
+        for ( FormPanel formPanel : listFormPanel )
+        {
+            if ( formPanel != formPanelActive )
+            {
+                assertTrue( formPanel.getFormResponseItemList( ).isEmpty( ) );
+                assertEquals( listAuthorizedId.size( ), formPanel.getTotalFormResponseItemCount( ) );
+            }
+        }
+    }
+}
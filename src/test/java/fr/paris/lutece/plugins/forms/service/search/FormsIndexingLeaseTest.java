@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.service.search;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the election of the indexing node through the FormsIndexingLease class
+ */
+public class FormsIndexingLeaseTest extends LuteceTestCase
+{
+    private static final long LEASE_DURATION = 60000L;
+
+    /**
+     * Test that a single node holds the lease until it releases it
+     */
+    public void testSingleHolder( )
+    {
+        FormsIndexingLease leaseA = new FormsIndexingLease( "nodeA", LEASE_DURATION );
+        FormsIndexingLease leaseB = new FormsIndexingLease( "nodeB", LEASE_DURATION );
+        try
+        {
+            assertTrue( leaseA.renew( ) );
+            assertTrue( leaseA.isHeld( ) );
+            assertFalse( leaseB.renew( ) );
+            assertFalse( leaseB.isHeld( ) );
+            assertTrue( leaseA.renew( ) );
+
+            leaseA.release( );
+            assertFalse( leaseA.isHeld( ) );
+            assertTrue( leaseB.renew( ) );
+            assertFalse( leaseA.renew( ) );
+        }
+        finally
+        {
+            leaseA.release( );
+            leaseB.release( );
+        }
+    }
+
+    /**
+     * Test that another node takes the lease once it has expired
+     */
+    public void testExpiredLease( ) throws InterruptedException
+    {
+        FormsIndexingLease leaseA = new FormsIndexingLease( "nodeA", 1L );
+        FormsIndexingLease leaseB = new FormsIndexingLease( "nodeB", LEASE_DURATION );
+        try
+        {
+            assertTrue( leaseA.renew( ) );
+            // The expiration is checked with the clock of the database, whose timestamps may only have a precision of one second
+            Thread.sleep( 1100L );
+            assertFalse( leaseA.isHeld( ) );
+            assertTrue( leaseB.renew( ) );
+            assertFalse( leaseA.renew( ) );
+        }
+        finally
+        {
+            leaseA.release( );
+            leaseB.release( );
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.forms.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.apache.lucene.util.BytesRef;
+
+import fr.paris.lutece.plugins.forms.business.form.search.FormResponseSearchItem;
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * Test class for the compact schema keys of the LuceneUtils class
+ */
+public class LuceneUtilsTest extends LuteceTestCase
+{
+    private static final String FIELD_WITHOUT_FIELD = "entry_code_question_1_iter_0";
+    private static final String FIELD_WITH_FIELD = "entry_code_question_1_iter_2_field_geo_x";
+    private static final String FIELD_DATE = "entry_code_question_1_iter_0_date";
+
+    /**
+     * Test for the {@link LuceneUtils#toCompactEntryKey(String)} method
+     */
+    public void testToCompactEntryKey( )
+    {
+        assertThat( LuceneUtils.toCompactEntryKey( FIELD_WITHOUT_FIELD ), is( "question_1|0" ) );
+        assertThat( LuceneUtils.toCompactEntryKey( FIELD_WITH_FIELD ), is( "question_1|2|geo_x" ) );
+        assertThat( LuceneUtils.toCompactEntryKey( FIELD_DATE ), is( "question_1|0|_date" ) );
+    }
+
+    /**
+     * Test for the {@link LuceneUtils#decodeCompactEntryValue(String, BytesRef)} method
+     */
+    public void testDecodeCompactEntryValue( )
+    {
+        Map.Entry<String, String> entryValue = LuceneUtils.decodeCompactEntryValue( FormResponseSearchItem.FIELD_ENTRY_VALUES,
+                new BytesRef( LuceneUtils.createCompactEntryValue( LuceneUtils.toCompactEntryKey( FIELD_WITH_FIELD ), "a=b" ) ) );
+        assertThat( entryValue.getKey( ), is( FIELD_WITH_FIELD ) );
+        assertThat( entryValue.getValue( ), is( "a=b" ) );
+
+        entryValue = LuceneUtils.decodeCompactEntryValue( FormResponseSearchItem.FIELD_ENTRY_NUMERIC_VALUES,
+                LuceneUtils.createCompactEntryNumericValue( LuceneUtils.toCompactEntryKey( FIELD_DATE ), -42L ) );
+        assertThat( entryValue.getKey( ), is( FIELD_DATE ) );
+        assertThat( entryValue.getValue( ), is( "-42" ) );
+    }
+
+    /**
+     * Test for the {@link LuceneUtils#createCompactEntryNumericValue(String, long)} method : the values of a key are ordered as their numbers
+     */
+    public void testCompactEntryNumericValueOrder( )
+    {
+        String strKey = LuceneUtils.toCompactEntryKey( FIELD_DATE );
+        BytesRef negative = LuceneUtils.createCompactEntryNumericValue( strKey, -1L );
+        BytesRef small = LuceneUtils.createCompactEntryNumericValue( strKey, 2L );
+        BytesRef large = LuceneUtils.createCompactEntryNumericValue( strKey, 1000L );
+
+        assertThat( negative.compareTo( small ) < 0, is( true ) );
+        assertThat( small.compareTo( large ) < 0, is( true ) );
+    }
+}
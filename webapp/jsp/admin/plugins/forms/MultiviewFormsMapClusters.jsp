@@ -0,0 +1,6 @@
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:useBean id="multiviewForms" scope="session" class="fr.paris.lutece.plugins.forms.web.admin.MultiviewFormsJspBean" />
+<%
+    multiviewForms.init( request, fr.paris.lutece.plugins.forms.web.admin.MultiviewFormResponseDetailsJspBean.RIGHT_FORMS_MULTIVIEW );
+    multiviewForms.writeGeolocationClusters( request, response );
+%>